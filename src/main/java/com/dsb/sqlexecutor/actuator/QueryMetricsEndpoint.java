@@ -0,0 +1,38 @@
+package com.dsb.sqlexecutor.actuator;
+
+import com.dsb.sqlexecutor.service.QueryMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+// /actuator/sqlqueries：按连接和 SQL 指纹查看执行次数、耗时分布、行数和错误数
+@Component
+@Endpoint(id = "sqlqueries")
+public class QueryMetricsEndpoint {
+
+    @Autowired
+    private QueryMetrics queryMetrics;
+
+    @ReadOperation
+    public List<Map<String, Object>> queries() {
+        return queryMetrics.snapshot(null);
+    }
+
+    // /actuator/sqlqueries/{connection}：只看某个数据库配置
+    @ReadOperation
+    public List<Map<String, Object>> queriesOf(@Selector String connection) {
+        return queryMetrics.snapshot(connection);
+    }
+
+    // 清空统计
+    @DeleteOperation
+    public void reset() {
+        queryMetrics.reset();
+    }
+}
@@ -1,74 +1,206 @@
 package com.dsb.sqlexecutor.aspect;
 
 
-import com.dsb.sqlexecutor.repository.SqlExecutorRepository;
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.QueryJob;
+import com.dsb.sqlexecutor.model.QueryPage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
-import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.*;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.ui.Model;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.validation.BindingResult;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
+// 接口访问日志：每个请求一行摘要（耗时、参数摘要、结果摘要），不输出结果内容
+// 高频接口按比例抽样，异常始终记录；日志文件由 logback 异步写入
 @Aspect
 @Component
 public class ApiLoggingAspect {
     private final Logger log = LoggerFactory.getLogger(this.getClass());
 
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Autowired
+    private SqlExecutorProperties properties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     // 定义切点：拦截所有Controller类的public方法
     @Pointcut("execution(public * com.dsb.sqlexecutor.controller.*.*(..))")
     public void controllerPointcut() {}
 
-    @Autowired
-    private SqlExecutorRepository sqlExecutorRepository;
-
-    // 前置通知：在方法执行前执行
-    @Before("controllerPointcut()")
-    public void beforeAdvice(JoinPoint joinPoint) {
-        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
-        if (attributes != null) {
-            HttpServletRequest request = attributes.getRequest();
-
-            // 记录请求信息
-            log.info("===== 请求开始 =====");
-            log.info("请求URL: {}", request.getRequestURL().toString());
-            log.info("请求方法: {}", request.getMethod());
-            log.info("请求IP: {}", request.getRemoteAddr());
-            log.info("请求类方法: {}", joinPoint.getSignature());
-            log.info("请求参数: {}", Arrays.toString(joinPoint.getArgs()));
-
-            // 记录请求头
-            Enumeration<String> headerNames = request.getHeaderNames();
-            while (headerNames.hasMoreElements()) {
-                String headerName = headerNames.nextElement();
-                log.info("请求头 - {}: {}", headerName, request.getHeader(headerName));
+    // 环绕通知：执行完成后输出一行日志
+    @Around("controllerPointcut()")
+    public Object aroundAdvice(ProceedingJoinPoint joinPoint) throws Throwable {
+        SqlExecutorProperties.ApiLog config = properties.getApiLog();
+        if (!config.isEnabled() || !log.isInfoEnabled()) {
+            return joinPoint.proceed();
+        }
+        HttpServletRequest request = currentRequest();
+        boolean sampled = isSampled(request, config);
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            if (sampled) {
+                Map<String, Object> entry = requestSummary(joinPoint, request, config, start);
+                entry.put("result", summarizeResult(result));
+                log.info(format(entry, config.isStructured()));
             }
+            return result;
+        } catch (Throwable ex) {
+            // 异常请求不抽样，始终记录
+            Map<String, Object> entry = requestSummary(joinPoint, request, config, start);
+            entry.put("error", ex.getClass().getSimpleName() + ": " + ex.getMessage());
+            log.error(format(entry, config.isStructured()), ex);
+            throw ex;
+        }
+    }
+
+    private HttpServletRequest currentRequest() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            return attributes.getRequest();
         }
+        return null;
     }
 
-    // 后置返回通知：在方法正常返回后执行
-    @AfterReturning(pointcut = "controllerPointcut()", returning = "result")
-    public void afterReturningAdvice(JoinPoint joinPoint, Object result) {
-        log.info("===== 请求返回 =====");
-        log.info("返回结果: {}", result);
+    // 匹配高频接口的请求按抽样比例记录，其余请求全部记录
+    private boolean isSampled(HttpServletRequest request, SqlExecutorProperties.ApiLog config) {
+        if (request == null || config.getSampleRate() >= 1.0) {
+            return true;
+        }
+        String path = request.getRequestURI();
+        for (String pattern : config.getSampledPaths()) {
+            if (pathMatcher.match(pattern, path)) {
+                return ThreadLocalRandom.current().nextDouble() < config.getSampleRate();
+            }
+        }
+        return true;
     }
 
-    // 后置异常通知：在方法抛出异常后执行
-    @AfterThrowing(pointcut = "controllerPointcut()", throwing = "ex")
-    public void afterThrowingAdvice(JoinPoint joinPoint, Throwable ex) {
-        log.error("===== 请求异常 =====");
-        log.error("异常信息: {}", ex.getMessage(), ex);
+    private Map<String, Object> requestSummary(ProceedingJoinPoint joinPoint, HttpServletRequest request,
+                                               SqlExecutorProperties.ApiLog config, long start) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        if (request != null) {
+            entry.put("method", request.getMethod());
+            entry.put("uri", request.getRequestURI());
+            entry.put("ip", request.getRemoteAddr());
+        }
+        entry.put("handler", joinPoint.getSignature().getDeclaringType().getSimpleName()
+                + "." + joinPoint.getSignature().getName());
+        entry.put("durationMs", (System.nanoTime() - start) / 1_000_000);
+        entry.put("args", summarizeArgs(joinPoint, config.getMaxArgLength()));
+        if (config.isLogHeaders() && request != null) {
+            entry.put("headers", headers(request));
+        }
+        return entry;
     }
 
-    // 后置最终通知：无论方法是否正常执行完毕都会执行
-    @After("controllerPointcut()")
-    public void afterAdvice() {
-        sqlExecutorRepository.getJdbcTemplateThreadLocal().remove();
-        log.info("===== 请求结束 =====");
+    // 参数摘要：字符串截断，框架对象和其他对象只记录类型（避免输出密码等配置内容）
+    private Map<String, Object> summarizeArgs(ProceedingJoinPoint joinPoint, int maxLength) {
+        Object[] args = joinPoint.getArgs();
+        String[] names = joinPoint.getSignature() instanceof MethodSignature signature
+                ? signature.getParameterNames() : null;
+        Map<String, Object> summary = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            if (arg instanceof ServletRequest || arg instanceof ServletResponse
+                    || arg instanceof Model || arg instanceof BindingResult) {
+                continue;
+            }
+            String name = names != null && i < names.length ? names[i] : "arg" + i;
+            summary.put(name, summarizeArg(arg, maxLength));
+        }
+        return summary;
+    }
+
+    private Object summarizeArg(Object arg, int maxLength) {
+        if (arg == null || arg instanceof Number || arg instanceof Boolean || arg instanceof Enum<?>) {
+            return arg;
+        }
+        if (arg instanceof CharSequence text) {
+            return text.length() <= maxLength ? text.toString()
+                    : text.subSequence(0, maxLength) + "...(" + text.length() + " chars)";
+        }
+        return arg.getClass().getSimpleName();
+    }
+
+    // 结果摘要：状态码、类型、行数/条目数、字符串长度，不输出结果内容
+    private Map<String, Object> summarizeResult(Object result) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        Object body = result;
+        if (result instanceof ResponseEntity<?> entity) {
+            summary.put("status", entity.getStatusCode().value());
+            body = entity.getBody();
+        }
+        if (body == null) {
+            return summary;
+        }
+        summary.put("type", body.getClass().getSimpleName());
+        if (body instanceof QueryPage page) {
+            summary.put("rows", page.getRowCount());
+            summary.put("hasMore", page.isHasMore());
+        } else if (body instanceof QueryJob job) {
+            summary.put("job", job.getId());
+            summary.put("jobStatus", job.getStatus());
+        } else if (body instanceof Collection<?> collection) {
+            summary.put("size", collection.size());
+        } else if (body instanceof Map<?, ?> map) {
+            summary.put("size", map.size());
+            if (map.get("page") instanceof QueryPage page) {
+                summary.put("rows", page.getRowCount());
+            }
+            if (map.get("success") != null) {
+                summary.put("success", map.get("success"));
+            }
+        } else if (body instanceof CharSequence text) {
+            summary.put("length", text.length());
+        } else if (body instanceof byte[] bytes) {
+            summary.put("bytes", bytes.length);
+        }
+        return summary;
+    }
+
+    private Map<String, String> headers(HttpServletRequest request) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        Enumeration<String> headerNames = request.getHeaderNames();
+        while (headerNames.hasMoreElements()) {
+            String headerName = headerNames.nextElement();
+            boolean secret = headerName.equalsIgnoreCase("cookie") || headerName.equalsIgnoreCase("authorization");
+            headers.put(headerName, secret ? "***" : request.getHeader(headerName));
+        }
+        return headers;
+    }
+
+    // 只对抽样命中的请求格式化；AsyncAppender 入队前会在当前线程格式化消息，延迟到 toString 并不能省下这部分开销
+    private String format(Map<String, Object> entry, boolean structured) {
+        if (structured) {
+            try {
+                return objectMapper.writeValueAsString(entry);
+            } catch (JsonProcessingException e) {
+                return entry.toString();
+            }
+        }
+        StringBuilder line = new StringBuilder(128);
+        entry.forEach((key, value) -> line.append(key).append('=').append(value).append(' '));
+        return line.toString().trim();
     }
 }
@@ -0,0 +1,1139 @@
+package com.dsb.sqlexecutor.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// SQL执行器配置（application.properties 中 sqlexecutor.* 前缀）
+@Component
+@ConfigurationProperties(prefix = "sqlexecutor")
+public class SqlExecutorProperties {
+
+    // 是否使用虚拟线程处理请求和 JDBC 调用（需要 Java 21）
+    private boolean virtualThreads = false;
+
+    private final Pool pool = new Pool();
+    private final Export export = new Export();
+    private final Query query = new Query();
+    private final Job job = new Job();
+    private final Metadata metadata = new Metadata();
+    private final Bulkhead bulkhead = new Bulkhead();
+    private final Metrics metrics = new Metrics();
+    private final ApiLog apiLog = new ApiLog();
+    private final ResultCache resultCache = new ResultCache();
+    private final Script script = new Script();
+    private final FanOut fanOut = new FanOut();
+    private final Session session = new Session();
+    private final PinnedSession pinnedSession = new PinnedSession();
+    private final Replica replica = new Replica();
+    private final CsvImport csvImport = new CsvImport();
+    private final ResultStore resultStore = new ResultStore();
+    private final Compare compare = new Compare();
+    private final Analyze analyze = new Analyze();
+    private final Registry registry = new Registry();
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public Pool getPool() {
+        return pool;
+    }
+
+    public Export getExport() {
+        return export;
+    }
+
+    public Query getQuery() {
+        return query;
+    }
+
+    public Job getJob() {
+        return job;
+    }
+
+    public Metadata getMetadata() {
+        return metadata;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public ApiLog getApiLog() {
+        return apiLog;
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    public Script getScript() {
+        return script;
+    }
+
+    public FanOut getFanOut() {
+        return fanOut;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public PinnedSession getPinnedSession() {
+        return pinnedSession;
+    }
+
+    public Replica getReplica() {
+        return replica;
+    }
+
+    public CsvImport getCsvImport() {
+        return csvImport;
+    }
+
+    public ResultStore getResultStore() {
+        return resultStore;
+    }
+
+    public Compare getCompare() {
+        return compare;
+    }
+
+    public Analyze getAnalyze() {
+        return analyze;
+    }
+
+    public Registry getRegistry() {
+        return registry;
+    }
+
+    // 每个数据库配置对应的连接池参数
+    public static class Pool {
+        // 最小空闲连接数
+        private int minimumIdle = 1;
+        // 最大连接数
+        private int maximumPoolSize = 10;
+        // 获取连接的最长等待时间
+        private Duration connectionTimeout = Duration.ofSeconds(30);
+        // 空闲连接回收时间（仅对超出 minimumIdle 的连接生效）
+        private Duration idleTimeout = Duration.ofMinutes(10);
+        // 连接最大存活时间
+        private Duration maxLifetime = Duration.ofMinutes(30);
+        // 连接校验超时时间
+        private Duration validationTimeout = Duration.ofSeconds(5);
+        // 空闲连接保活间隔，0 表示不启用
+        private Duration keepaliveTime = Duration.ZERO;
+        // 连接校验语句，为空时使用 JDBC4 的 isValid()
+        private String connectionTestQuery;
+        // 每个连接缓存的预编译语句数量，0 表示关闭驱动的语句池
+        private int statementCacheSize = 256;
+        // 首次执行 PreparedStatement 时即准备语句句柄（默认首次用 sp_executesql，第二次起才准备）
+        private boolean prepareOnFirstCall = false;
+
+        public int getMinimumIdle() {
+            return minimumIdle;
+        }
+
+        public void setMinimumIdle(int minimumIdle) {
+            this.minimumIdle = minimumIdle;
+        }
+
+        public int getMaximumPoolSize() {
+            return maximumPoolSize;
+        }
+
+        public void setMaximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+        }
+
+        public Duration getConnectionTimeout() {
+            return connectionTimeout;
+        }
+
+        public void setConnectionTimeout(Duration connectionTimeout) {
+            this.connectionTimeout = connectionTimeout;
+        }
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        public Duration getMaxLifetime() {
+            return maxLifetime;
+        }
+
+        public void setMaxLifetime(Duration maxLifetime) {
+            this.maxLifetime = maxLifetime;
+        }
+
+        public Duration getValidationTimeout() {
+            return validationTimeout;
+        }
+
+        public void setValidationTimeout(Duration validationTimeout) {
+            this.validationTimeout = validationTimeout;
+        }
+
+        public Duration getKeepaliveTime() {
+            return keepaliveTime;
+        }
+
+        public void setKeepaliveTime(Duration keepaliveTime) {
+            this.keepaliveTime = keepaliveTime;
+        }
+
+        public String getConnectionTestQuery() {
+            return connectionTestQuery;
+        }
+
+        public void setConnectionTestQuery(String connectionTestQuery) {
+            this.connectionTestQuery = connectionTestQuery;
+        }
+
+        public int getStatementCacheSize() {
+            return statementCacheSize;
+        }
+
+        public void setStatementCacheSize(int statementCacheSize) {
+            this.statementCacheSize = statementCacheSize;
+        }
+
+        public boolean isPrepareOnFirstCall() {
+            return prepareOnFirstCall;
+        }
+
+        public void setPrepareOnFirstCall(boolean prepareOnFirstCall) {
+            this.prepareOnFirstCall = prepareOnFirstCall;
+        }
+    }
+
+    // 流式导出参数
+    public static class Export {
+        // JDBC 每次从服务器拉取的行数
+        private int fetchSize = 1000;
+        // 客户端支持时是否启用 gzip 压缩
+        private boolean gzip = true;
+
+        public int getFetchSize() {
+            return fetchSize;
+        }
+
+        public void setFetchSize(int fetchSize) {
+            this.fetchSize = fetchSize;
+        }
+
+        public boolean isGzip() {
+            return gzip;
+        }
+
+        public void setGzip(boolean gzip) {
+            this.gzip = gzip;
+        }
+    }
+
+    // 交互式查询参数
+    public static class Query {
+        // 每页默认返回行数
+        private int pageSize = 500;
+        // 单页允许的最大行数
+        private int maxPageSize = 5000;
+        // 没有 ORDER BY 的查询翻页时由客户端跳过前面的行，offset 超过该值时拒绝，避免越往后翻越慢
+        private long maxScanOffset = 100000;
+        // 默认查询超时时间，数据库配置未单独设置时使用，0 表示不限制
+        private Duration timeout = Duration.ZERO;
+        // 流式返回（/query-stream）的最大行数，之后的数据由前端按分页继续加载
+        private int streamMaxRows = 10000;
+        // 流式返回时每个事件最多包含的行数
+        private int streamChunkSize = 200;
+        // 流式返回时距上次发送超过该时间，读到新行即发送，不必攒满一个事件
+        private Duration streamFlushInterval = Duration.ofMillis(200);
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        public int getMaxPageSize() {
+            return maxPageSize;
+        }
+
+        public void setMaxPageSize(int maxPageSize) {
+            this.maxPageSize = maxPageSize;
+        }
+
+        public long getMaxScanOffset() {
+            return maxScanOffset;
+        }
+
+        public void setMaxScanOffset(long maxScanOffset) {
+            this.maxScanOffset = maxScanOffset;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public int getStreamMaxRows() {
+            return streamMaxRows;
+        }
+
+        public void setStreamMaxRows(int streamMaxRows) {
+            this.streamMaxRows = streamMaxRows;
+        }
+
+        public int getStreamChunkSize() {
+            return streamChunkSize;
+        }
+
+        public void setStreamChunkSize(int streamChunkSize) {
+            this.streamChunkSize = streamChunkSize;
+        }
+
+        public Duration getStreamFlushInterval() {
+            return streamFlushInterval;
+        }
+
+        public void setStreamFlushInterval(Duration streamFlushInterval) {
+            this.streamFlushInterval = streamFlushInterval;
+        }
+    }
+
+    // 异步查询任务参数
+    public static class Job {
+        // 同时执行的任务数
+        private int maxConcurrent = 4;
+        // 排队等待的任务数，超出后拒绝提交
+        private int queueCapacity = 20;
+        // 单个任务保留的最大行数
+        private int maxRows = 10000;
+        // 任务结束后结果保留时间
+        private Duration retention = Duration.ofMinutes(30);
+        // 最多保留的已结束任务数，超出时先删除最早结束的任务
+        private int maxFinished = 50;
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getMaxRows() {
+            return maxRows;
+        }
+
+        public void setMaxRows(int maxRows) {
+            this.maxRows = maxRows;
+        }
+
+        public Duration getRetention() {
+            return retention;
+        }
+
+        public void setRetention(Duration retention) {
+            this.retention = retention;
+        }
+
+        public int getMaxFinished() {
+            return maxFinished;
+        }
+
+        public void setMaxFinished(int maxFinished) {
+            this.maxFinished = maxFinished;
+        }
+    }
+
+    // 表/列元数据缓存参数
+    public static class Metadata {
+        // 缓存有效期
+        private Duration ttl = Duration.ofMinutes(10);
+        // 最多缓存的条目数（每个连接的表、列、汇总、补全索引各占一条）
+        private int maxEntries = 200;
+        // 单次补全请求最多返回的条目数
+        private int maxCompletions = 100;
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public int getMaxCompletions() {
+            return maxCompletions;
+        }
+
+        public void setMaxCompletions(int maxCompletions) {
+            this.maxCompletions = maxCompletions;
+        }
+    }
+
+    // 每个数据库配置的并发隔离：限制同时执行的语句数，超出时排队等待，队列满或等待超时则拒绝
+    public static class Bulkhead {
+        // 是否启用
+        private boolean enabled = true;
+        // 同时执行的查询语句上限
+        private int maxConcurrentReads = 8;
+        // 同时执行的非查询语句上限
+        private int maxConcurrentWrites = 2;
+        // 读、写各自最多排队的请求数
+        private int queueDepth = 16;
+        // 排队等待的最长时间
+        private Duration waitTimeout = Duration.ofSeconds(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxConcurrentReads() {
+            return maxConcurrentReads;
+        }
+
+        public void setMaxConcurrentReads(int maxConcurrentReads) {
+            this.maxConcurrentReads = maxConcurrentReads;
+        }
+
+        public int getMaxConcurrentWrites() {
+            return maxConcurrentWrites;
+        }
+
+        public void setMaxConcurrentWrites(int maxConcurrentWrites) {
+            this.maxConcurrentWrites = maxConcurrentWrites;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public void setQueueDepth(int queueDepth) {
+            this.queueDepth = queueDepth;
+        }
+
+        public Duration getWaitTimeout() {
+            return waitTimeout;
+        }
+
+        public void setWaitTimeout(Duration waitTimeout) {
+            this.waitTimeout = waitTimeout;
+        }
+    }
+
+    // 语句执行耗时统计和慢查询日志
+    public static class Metrics {
+        // 是否启用
+        private boolean enabled = true;
+        // 执行时间超过该值的语句写入慢查询日志
+        private Duration slowQueryThreshold = Duration.ofSeconds(1);
+        // 最多统计的指纹数（按连接区分），超出后新指纹归入 (other)
+        private int maxFingerprints = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getSlowQueryThreshold() {
+            return slowQueryThreshold;
+        }
+
+        public void setSlowQueryThreshold(Duration slowQueryThreshold) {
+            this.slowQueryThreshold = slowQueryThreshold;
+        }
+
+        public int getMaxFingerprints() {
+            return maxFingerprints;
+        }
+
+        public void setMaxFingerprints(int maxFingerprints) {
+            this.maxFingerprints = maxFingerprints;
+        }
+    }
+
+    // 接口访问日志
+    public static class ApiLog {
+        // 是否启用
+        private boolean enabled = true;
+        // 结构化模式：每个请求输出一行 JSON，便于日志系统采集
+        private boolean structured = false;
+        // 是否记录请求头（Cookie、Authorization 会被隐藏）
+        private boolean logHeaders = false;
+        // 参数中字符串的最大记录长度
+        private int maxArgLength = 200;
+        // 高频接口只按比例抽样记录，异常请求始终记录
+        private List<String> sampledPaths = new ArrayList<>(List.of(
+                "/completions", "/query-page", "/pool-stats", "/bulkhead-stats", "/jobs/**"));
+        // 高频接口的抽样比例（0~1）
+        private double sampleRate = 0.01;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public boolean isStructured() {
+            return structured;
+        }
+
+        public void setStructured(boolean structured) {
+            this.structured = structured;
+        }
+
+        public boolean isLogHeaders() {
+            return logHeaders;
+        }
+
+        public void setLogHeaders(boolean logHeaders) {
+            this.logHeaders = logHeaders;
+        }
+
+        public int getMaxArgLength() {
+            return maxArgLength;
+        }
+
+        public void setMaxArgLength(int maxArgLength) {
+            this.maxArgLength = maxArgLength;
+        }
+
+        public List<String> getSampledPaths() {
+            return sampledPaths;
+        }
+
+        public void setSampledPaths(List<String> sampledPaths) {
+            this.sampledPaths = sampledPaths;
+        }
+
+        public double getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(double sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+    }
+
+    // 查询结果缓存，适合同一查询被频繁重复执行的场景（如看板）
+    public static class ResultCache {
+        // 是否启用（默认关闭，开启后同一查询在有效期内可能返回旧数据）
+        private boolean enabled = false;
+        // 每个条目的有效期
+        private Duration ttl = Duration.ofSeconds(30);
+        // 缓存总大小上限（按结果估算的内存字节数）
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+        // 单个结果超过该大小时不缓存
+        private DataSize maxEntrySize = DataSize.ofMegabytes(8);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public DataSize getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(DataSize maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public DataSize getMaxEntrySize() {
+            return maxEntrySize;
+        }
+
+        public void setMaxEntrySize(DataSize maxEntrySize) {
+            this.maxEntrySize = maxEntrySize;
+        }
+    }
+
+    // 脚本模式（多条语句批量执行）
+    public static class Script {
+        // 连续的 DML 每多少条合并为一个 JDBC 批次
+        private int batchSize = 500;
+        // 单个脚本最多的语句数
+        private int maxStatements = 20000;
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMaxStatements() {
+            return maxStatements;
+        }
+
+        public void setMaxStatements(int maxStatements) {
+            this.maxStatements = maxStatements;
+        }
+    }
+
+    // 多连接并发查询（fan-out）
+    public static class FanOut {
+        // 默认同时执行的连接数
+        private int parallelism = 4;
+        // 请求可指定的最大并发数
+        private int maxParallelism = 16;
+        // 单个连接的执行超时（含排队和读取结果）
+        private Duration targetTimeout = Duration.ofSeconds(30);
+        // 每个连接最多返回的行数，超出部分截断
+        private int maxRowsPerTarget = 10000;
+        // 等待写出的行数上限，写出慢时查询线程等待，避免结果堆积在内存中
+        private int bufferSize = 1000;
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public int getMaxParallelism() {
+            return maxParallelism;
+        }
+
+        public void setMaxParallelism(int maxParallelism) {
+            this.maxParallelism = maxParallelism;
+        }
+
+        public Duration getTargetTimeout() {
+            return targetTimeout;
+        }
+
+        public void setTargetTimeout(Duration targetTimeout) {
+            this.targetTimeout = targetTimeout;
+        }
+
+        public int getMaxRowsPerTarget() {
+            return maxRowsPerTarget;
+        }
+
+        public void setMaxRowsPerTarget(int maxRowsPerTarget) {
+            this.maxRowsPerTarget = maxRowsPerTarget;
+        }
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+    }
+
+    // 客户端选择的数据库配置
+    public static class Session {
+        // 客户端标识请求头，带此请求头时按其值区分客户端，否则按 HTTP 会话区分
+        private String clientTokenHeader = "X-Client-Token";
+        // 选择记录在最后一次访问后保留的时间
+        private Duration selectionTtl = Duration.ofHours(8);
+        // 最多保留的选择记录数，超出时淘汰最久未访问的记录
+        private int maxSelections = 10000;
+
+        public String getClientTokenHeader() {
+            return clientTokenHeader;
+        }
+
+        public void setClientTokenHeader(String clientTokenHeader) {
+            this.clientTokenHeader = clientTokenHeader;
+        }
+
+        public Duration getSelectionTtl() {
+            return selectionTtl;
+        }
+
+        public void setSelectionTtl(Duration selectionTtl) {
+            this.selectionTtl = selectionTtl;
+        }
+
+        public int getMaxSelections() {
+            return maxSelections;
+        }
+
+        public void setMaxSelections(int maxSelections) {
+            this.maxSelections = maxSelections;
+        }
+    }
+
+    // 交互式会话（固定占用一个连接）
+    public static class PinnedSession {
+        // 会话空闲超过该时间后回收
+        private Duration idleTimeout = Duration.ofMinutes(10);
+        // 会话最长存活时间，超过后空闲时回收
+        private Duration maxLifetime = Duration.ofHours(2);
+        // 同时存在的会话数上限
+        private int maxSessions = 20;
+        // 每个数据库配置的会话数上限，应小于连接池大小，为普通请求保留连接
+        private int maxSessionsPerDatabase = 4;
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        public Duration getMaxLifetime() {
+            return maxLifetime;
+        }
+
+        public void setMaxLifetime(Duration maxLifetime) {
+            this.maxLifetime = maxLifetime;
+        }
+
+        public int getMaxSessions() {
+            return maxSessions;
+        }
+
+        public void setMaxSessions(int maxSessions) {
+            this.maxSessions = maxSessions;
+        }
+
+        public int getMaxSessionsPerDatabase() {
+            return maxSessionsPerDatabase;
+        }
+
+        public void setMaxSessionsPerDatabase(int maxSessionsPerDatabase) {
+            this.maxSessionsPerDatabase = maxSessionsPerDatabase;
+        }
+    }
+
+    // 只读副本：查询在健康的副本间轮询，写入和事务使用主库
+    public static class Replica {
+        // 写入后该配置的查询在此时间内仍走主库，避免读不到刚写入的数据（副本同步延迟）；0 表示不固定
+        private Duration readAfterWriteWindow = Duration.ofSeconds(5);
+        // 副本连接失败后在此时间内不再使用，之后的第一次查询重新尝试
+        private Duration unhealthyCooldown = Duration.ofSeconds(30);
+        // 副本连接池获取连接的超时时间，比主库短，副本不可用时尽快回退到主库
+        private Duration connectionTimeout = Duration.ofSeconds(5);
+
+        public Duration getReadAfterWriteWindow() {
+            return readAfterWriteWindow;
+        }
+
+        public void setReadAfterWriteWindow(Duration readAfterWriteWindow) {
+            this.readAfterWriteWindow = readAfterWriteWindow;
+        }
+
+        public Duration getUnhealthyCooldown() {
+            return unhealthyCooldown;
+        }
+
+        public void setUnhealthyCooldown(Duration unhealthyCooldown) {
+            this.unhealthyCooldown = unhealthyCooldown;
+        }
+
+        public Duration getConnectionTimeout() {
+            return connectionTimeout;
+        }
+
+        public void setConnectionTimeout(Duration connectionTimeout) {
+            this.connectionTimeout = connectionTimeout;
+        }
+    }
+
+    // CSV 导入：请求体边上传边解析，用 SQL Server 批量复制写入目标表
+    public static class CsvImport {
+        // 写入方式：bulk 使用驱动的批量复制，batch 使用 JDBC 批量 INSERT，auto 在连接支持批量复制时使用 bulk
+        private String mode = "auto";
+        // 每批提交的行数（批量复制的批大小或批量 INSERT 的提交间隔）
+        private int batchSize = 10000;
+        // 批量复制时是否加表锁，加锁更快但导入期间阻塞其他写入
+        private boolean tableLock = false;
+        // 单个字段的最大字符数，超出时导入失败，保证内存占用有上限
+        private int maxFieldLength = 1048576;
+        // 导入进度写日志的间隔
+        private Duration progressLogInterval = Duration.ofSeconds(10);
+        // 导入结束后进度记录保留的时间
+        private Duration retention = Duration.ofHours(1);
+
+        public String getMode() {
+            return mode;
+        }
+
+        public void setMode(String mode) {
+            this.mode = mode;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public boolean isTableLock() {
+            return tableLock;
+        }
+
+        public void setTableLock(boolean tableLock) {
+            this.tableLock = tableLock;
+        }
+
+        public int getMaxFieldLength() {
+            return maxFieldLength;
+        }
+
+        public void setMaxFieldLength(int maxFieldLength) {
+            this.maxFieldLength = maxFieldLength;
+        }
+
+        public Duration getProgressLogInterval() {
+            return progressLogInterval;
+        }
+
+        public void setProgressLogInterval(Duration progressLogInterval) {
+            this.progressLogInterval = progressLogInterval;
+        }
+
+        public Duration getRetention() {
+            return retention;
+        }
+
+        public void setRetention(Duration retention) {
+            this.retention = retention;
+        }
+    }
+
+    // 大结果暂存（/results）：超过阈值的行编码后写入临时文件，分页、排序和重新导出从文件读取
+    public static class ResultStore {
+        // 超过该行数时写入临时文件，否则保存在内存中
+        private int spillThreshold = 50000;
+        // 单个结果最多保存的行数，超出部分截断
+        private int maxRows = 10_000_000;
+        // 单个结果文件的大小上限，超出部分截断
+        private DataSize maxFileSize = DataSize.ofGigabytes(2);
+        // 所有结果文件（含排序文件）的总大小上限，超出时删除最久未访问的结果
+        private DataSize maxTotalSize = DataSize.ofGigabytes(10);
+        // 最多同时保存的结果数
+        private int maxResults = 100;
+        // 结果最后一次访问后的保存时间
+        private Duration ttl = Duration.ofMinutes(30);
+        // 临时文件目录，为空时使用系统临时目录下的 sqlexecutor-results
+        private String directory;
+        // 外部排序时每个有序段在内存中排序的行数
+        private int sortChunkRows = 100000;
+        // 读取结果时每次从服务器获取的行数
+        private int fetchSize = 5000;
+
+        public int getSpillThreshold() {
+            return spillThreshold;
+        }
+
+        public void setSpillThreshold(int spillThreshold) {
+            this.spillThreshold = spillThreshold;
+        }
+
+        public int getMaxRows() {
+            return maxRows;
+        }
+
+        public void setMaxRows(int maxRows) {
+            this.maxRows = maxRows;
+        }
+
+        public DataSize getMaxFileSize() {
+            return maxFileSize;
+        }
+
+        public void setMaxFileSize(DataSize maxFileSize) {
+            this.maxFileSize = maxFileSize;
+        }
+
+        public DataSize getMaxTotalSize() {
+            return maxTotalSize;
+        }
+
+        public void setMaxTotalSize(DataSize maxTotalSize) {
+            this.maxTotalSize = maxTotalSize;
+        }
+
+        public int getMaxResults() {
+            return maxResults;
+        }
+
+        public void setMaxResults(int maxResults) {
+            this.maxResults = maxResults;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public int getSortChunkRows() {
+            return sortChunkRows;
+        }
+
+        public void setSortChunkRows(int sortChunkRows) {
+            this.sortChunkRows = sortChunkRows;
+        }
+
+        public int getFetchSize() {
+            return fetchSize;
+        }
+
+        public void setFetchSize(int fetchSize) {
+            this.fetchSize = fetchSize;
+        }
+    }
+
+    // 跨数据库数据比较（/compare）：两个数据库配置上按主键排序并发读取同一张表，流式归并后只输出差异行
+    public static class Compare {
+        // 每次从服务器获取的行数
+        private int fetchSize = 5000;
+        // 每一侧读取后等待比较的行数上限，读取速度超过比较速度时等待
+        private int bufferSize = 10000;
+        // 最多输出的差异行数，超出后只计数不输出
+        private int maxDiffs = 10000;
+        // 分块校验时每块的行数，0 表示不分块，逐行比较全部数据
+        private int chunkSize = 0;
+
+        public int getFetchSize() {
+            return fetchSize;
+        }
+
+        public void setFetchSize(int fetchSize) {
+            this.fetchSize = fetchSize;
+        }
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public int getMaxDiffs() {
+            return maxDiffs;
+        }
+
+        public void setMaxDiffs(int maxDiffs) {
+            this.maxDiffs = maxDiffs;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    // 执行计划分析（analyze=true）：在同一个连接上开启 STATISTICS XML/IO/TIME 执行语句，按连接 + SQL 指纹保存分析历史
+    public static class Analyze {
+        // 返回开销最大的运算符个数
+        private int topOperators = 10;
+        // 实际行数与估计行数相差超过该倍数时标记为估计偏差
+        private double misestimateFactor = 10;
+        // 每个指纹保存的分析次数
+        private int historySize = 20;
+        // 最多保存历史的指纹数，超出时删除最久未访问的指纹
+        private int maxFingerprints = 500;
+        // 每个指纹保存的不同执行计划 XML 个数
+        private int maxPlansPerFingerprint = 5;
+        // 超过该大小的执行计划 XML 不保存
+        private DataSize maxPlanSize = DataSize.ofMegabytes(2);
+        // 逻辑读或耗时超过历史中位数的该倍数时提示性能回退
+        private double regressionFactor = 2;
+
+        public int getTopOperators() {
+            return topOperators;
+        }
+
+        public void setTopOperators(int topOperators) {
+            this.topOperators = topOperators;
+        }
+
+        public double getMisestimateFactor() {
+            return misestimateFactor;
+        }
+
+        public void setMisestimateFactor(double misestimateFactor) {
+            this.misestimateFactor = misestimateFactor;
+        }
+
+        public int getHistorySize() {
+            return historySize;
+        }
+
+        public void setHistorySize(int historySize) {
+            this.historySize = historySize;
+        }
+
+        public int getMaxFingerprints() {
+            return maxFingerprints;
+        }
+
+        public void setMaxFingerprints(int maxFingerprints) {
+            this.maxFingerprints = maxFingerprints;
+        }
+
+        public int getMaxPlansPerFingerprint() {
+            return maxPlansPerFingerprint;
+        }
+
+        public void setMaxPlansPerFingerprint(int maxPlansPerFingerprint) {
+            this.maxPlansPerFingerprint = maxPlansPerFingerprint;
+        }
+
+        public DataSize getMaxPlanSize() {
+            return maxPlanSize;
+        }
+
+        public void setMaxPlanSize(DataSize maxPlanSize) {
+            this.maxPlanSize = maxPlanSize;
+        }
+
+        public double getRegressionFactor() {
+            return regressionFactor;
+        }
+
+        public void setRegressionFactor(double regressionFactor) {
+            this.regressionFactor = regressionFactor;
+        }
+    }
+
+    // 连接配置持久化：保存的数据库配置写入本地文件（密码用 AES-GCM 加密），启动后在后台加载并预热连接池
+    public static class Registry {
+        // 是否持久化数据库配置
+        private boolean persistent = true;
+        // 配置文件路径，为空时使用 ${user.home}/.sqlexecutor/connections.json
+        private String file;
+        // 加密密码用的 AES 密钥（Base64，16/24/32 字节），为空时使用配置文件同目录下的 connections.key，不存在时自动生成
+        private String secretKey;
+        // 启动加载后是否预热连接池
+        private boolean prewarm = true;
+        // 同时预热的数据库配置数
+        private int prewarmParallelism = 4;
+        // 预热时每个连接健康检查（isValid）的超时时间
+        private Duration prewarmTimeout = Duration.ofSeconds(10);
+
+        public boolean isPersistent() {
+            return persistent;
+        }
+
+        public void setPersistent(boolean persistent) {
+            this.persistent = persistent;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public void setFile(String file) {
+            this.file = file;
+        }
+
+        public String getSecretKey() {
+            return secretKey;
+        }
+
+        public void setSecretKey(String secretKey) {
+            this.secretKey = secretKey;
+        }
+
+        public boolean isPrewarm() {
+            return prewarm;
+        }
+
+        public void setPrewarm(boolean prewarm) {
+            this.prewarm = prewarm;
+        }
+
+        public int getPrewarmParallelism() {
+            return prewarmParallelism;
+        }
+
+        public void setPrewarmParallelism(int prewarmParallelism) {
+            this.prewarmParallelism = prewarmParallelism;
+        }
+
+        public Duration getPrewarmTimeout() {
+            return prewarmTimeout;
+        }
+
+        public void setPrewarmTimeout(Duration prewarmTimeout) {
+            this.prewarmTimeout = prewarmTimeout;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.dsb.sqlexecutor.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executors;
+
+// 虚拟线程模式（需要 Java 21），sqlexecutor.virtual-threads=true 时启用
+// 请求线程阻塞在 JDBC 调用上时会让出载体线程，并发上限由连接池决定，而不是 Tomcat 线程数
+@Configuration
+@ConditionalOnProperty(prefix = "sqlexecutor", name = "virtual-threads", havingValue = "true")
+public class VirtualThreadConfig {
+
+    // Tomcat 每个请求使用一个新的虚拟线程
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
@@ -0,0 +1,114 @@
+package com.dsb.sqlexecutor.controller;
+
+import com.dsb.sqlexecutor.model.CsvImportJob;
+import com.dsb.sqlexecutor.service.CsvImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+// CSV 导入接口：请求体为 CSV 原始内容（可以 gzip 压缩），边上传边写入目标表
+// 导入过程中可以用客户端指定的 id 查询进度或取消
+@Controller
+@RequestMapping("/imports")
+public class CsvImportController {
+
+    private Logger log = LoggerFactory.getLogger(CsvImportController.class);
+
+    @Autowired
+    private CsvImportService csvImportService;
+
+    // 导入 CSV 到当前数据库配置的 table；delimiter 可以是单个字符或 tab
+    @PostMapping
+    public ResponseEntity<?> importCsv(@RequestParam String table,
+                                       @RequestParam(required = false) String id,
+                                       @RequestParam(defaultValue = ",") String delimiter,
+                                       @RequestParam(defaultValue = "true") boolean header,
+                                       @RequestParam(required = false) List<String> columns,
+                                       @RequestParam(required = false) String mode,
+                                       @RequestParam(defaultValue = "UTF-8") String encoding,
+                                       HttpServletRequest request) {
+        try {
+            // 表单请求体会被解析为参数，无法再按流读取
+            if (request.getContentType() != null && MediaType.APPLICATION_FORM_URLENCODED.includes(
+                    MediaType.parseMediaType(request.getContentType()))) {
+                throw new IllegalArgumentException("请求体必须是 CSV 原始内容（如 Content-Type: text/csv）");
+            }
+            char separator = parseDelimiter(delimiter);
+            Charset charset = Charset.forName(encoding);
+            InputStream in = request.getInputStream();
+            if ("gzip".equalsIgnoreCase(request.getHeader("Content-Encoding"))) {
+                in = new GZIPInputStream(in, 64 * 1024);
+            }
+            CsvImportJob job = csvImportService.importCsv(id, table, in, charset, separator, header, columns, mode);
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", job.getStatus() == CsvImportJob.Status.SUCCEEDED);
+            result.put("import", job);
+            result.put("message", switch (job.getStatus()) {
+                case SUCCEEDED -> "导入成功，共 " + job.getRowsCommitted() + " 行";
+                case CANCELLED -> "导入已取消，已提交 " + job.getRowsCommitted() + " 行";
+                default -> "导入失败: " + job.getError() + "，已提交的 " + job.getRowsCommitted() + " 行留在表中";
+            });
+            return job.getStatus() == CsvImportJob.Status.SUCCEEDED
+                    ? ResponseEntity.ok(result)
+                    : ResponseEntity.badRequest().body(result);
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // 所有进行中和最近结束的导入
+    @GetMapping
+    public ResponseEntity<?> list() {
+        return ResponseEntity.ok(csvImportService.getImports());
+    }
+
+    // 导入进度：已读取行数、已提交行数、耗时和每秒行数
+    @GetMapping("/{id}")
+    public ResponseEntity<?> get(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(csvImportService.getImport(id));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // 取消导入，已提交的批次不会回滚
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> cancel(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(csvImportService.cancel(id));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    private static char parseDelimiter(String delimiter) {
+        if ("tab".equalsIgnoreCase(delimiter) || "\\t".equals(delimiter) || "\t".equals(delimiter)) {
+            return '\t';
+        }
+        if (delimiter.length() != 1) {
+            throw new IllegalArgumentException("分隔符必须是单个字符: " + delimiter);
+        }
+        return delimiter.charAt(0);
+    }
+
+    private ResponseEntity<Map<String, Object>> error(Exception e) {
+        log.error("CSV 导入出错", e);
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("message", e.getMessage());
+        return ResponseEntity.badRequest().body(result);
+    }
+}
@@ -0,0 +1,69 @@
+package com.dsb.sqlexecutor.controller;
+
+import com.dsb.sqlexecutor.model.ExportFormat;
+import com.dsb.sqlexecutor.service.DataCompareService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+// 跨数据库数据比较接口：比较两个数据库配置中同一张表的数据，以 NDJSON 流式返回差异
+@Controller
+@RequestMapping("/compare")
+public class DataCompareController {
+
+    private Logger log = LoggerFactory.getLogger(DataCompareController.class);
+
+    @Autowired
+    private DataCompareService dataCompareService;
+
+    // 按 keys（逗号分隔的主键列）比较 source 和 target 上的 table，where 为两边共用的过滤条件
+    // 每行带 type 字段：先输出 columns，再输出 missing（仅源有）、extra（仅目标有）、changed（值不同），最后输出 summary
+    // chunkSize 大于 0 时先按主键范围比较每块的行数和校验值，一致的块不再逐行比较
+    @PostMapping
+    public void compare(@RequestParam String source,
+                        @RequestParam String target,
+                        @RequestParam String table,
+                        @RequestParam List<String> keys,
+                        @RequestParam(required = false) List<String> columns,
+                        @RequestParam(required = false) String where,
+                        @RequestParam(required = false) Integer chunkSize,
+                        HttpServletResponse response) throws IOException {
+        DataCompareService.Plan plan;
+        try {
+            plan = dataCompareService.prepare(source, target, table, keys, columns, where, chunkSize);
+        } catch (Exception e) {
+            log.warn("数据比较参数错误: {}", e.getMessage());
+            writeError(response, e.getMessage());
+            return;
+        }
+
+        response.setContentType(ExportFormat.NDJSON.getContentType() + ";charset=UTF-8");
+        try {
+            Map<String, Object> summary = dataCompareService.execute(plan, response.getOutputStream());
+            log.info("数据比较完成: {}，{}", plan, summary);
+        } catch (Exception e) {
+            log.error("数据比较出错: {}", plan, e);
+            // 已开始输出时无法再返回错误信息，只能中断响应
+            if (!response.isCommitted()) {
+                response.reset();
+                writeError(response, "数据比较出错: " + e.getMessage());
+            }
+        }
+    }
+
+    private void writeError(HttpServletResponse response, String message) throws IOException {
+        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getOutputStream().write(message.getBytes(StandardCharsets.UTF_8));
+    }
+}
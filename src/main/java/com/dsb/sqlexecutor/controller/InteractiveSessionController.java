@@ -0,0 +1,136 @@
+package com.dsb.sqlexecutor.controller;
+
+import com.dsb.sqlexecutor.model.QueryPage;
+import com.dsb.sqlexecutor.service.InteractiveSessionService;
+import com.dsb.sqlexecutor.service.SqlExecutorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// 交互式会话接口：打开会话后多次执行共用一个连接，支持显式开始、提交、回滚事务
+@Controller
+@RequestMapping("/sessions")
+public class InteractiveSessionController {
+
+    private Logger log = LoggerFactory.getLogger(InteractiveSessionController.class);
+
+    @Autowired
+    private InteractiveSessionService interactiveSessionService;
+
+    @Autowired
+    private SqlExecutorService sqlExecutorService;
+
+    // 打开会话，返回会话ID
+    @PostMapping
+    public ResponseEntity<?> open(@RequestParam(required = false) String database) {
+        try {
+            if (database != null && !database.isEmpty()) {
+                sqlExecutorService.switchDatabase(database);
+            }
+            return ResponseEntity.ok(interactiveSessionService.open());
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // 当前客户端打开的会话的状态
+    @GetMapping
+    public ResponseEntity<?> list() {
+        return ResponseEntity.ok(interactiveSessionService.getSessions());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> get(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(interactiveSessionService.getSession(id));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // 在会话中执行语句
+    @PostMapping("/{id}/execute")
+    public ResponseEntity<?> execute(@PathVariable String id,
+                                     @RequestParam String sql,
+                                     @RequestParam(required = false) Integer limit) {
+        try {
+            Map<String, Object> result = interactiveSessionService.execute(id, sql.trim(), limit);
+            if (result.get("page") instanceof QueryPage page) {
+                result.put("message", page.isHasMore()
+                        ? "查询成功，返回前 " + page.getRowCount() + " 条记录"
+                        : "查询成功，返回 " + page.getRowCount() + " 条记录");
+            } else {
+                result.put("message", "操作成功，影响行数: " + result.get("updateCount"));
+            }
+            result.put("success", true);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @PostMapping("/{id}/begin")
+    public ResponseEntity<?> begin(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(interactiveSessionService.begin(id));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @PostMapping("/{id}/commit")
+    public ResponseEntity<?> commit(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(interactiveSessionService.commit(id));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @PostMapping("/{id}/rollback")
+    public ResponseEntity<?> rollback(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(interactiveSessionService.rollback(id));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // 取消会话中正在执行的语句
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<?> cancel(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(interactiveSessionService.cancel(id));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // 关闭会话，未提交的事务会被回滚
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> close(@PathVariable String id) {
+        try {
+            interactiveSessionService.close(id);
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", true);
+            result.put("message", "会话已关闭");
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> error(Exception e) {
+        log.error("交互式会话操作出错", e);
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("message", e.getMessage());
+        return ResponseEntity.badRequest().body(result);
+    }
+}
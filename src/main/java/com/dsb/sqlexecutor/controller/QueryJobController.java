@@ -0,0 +1,89 @@
+package com.dsb.sqlexecutor.controller;
+
+import com.dsb.sqlexecutor.model.QueryJob;
+import com.dsb.sqlexecutor.service.QueryJobService;
+import com.dsb.sqlexecutor.service.SqlExecutorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+// 异步查询任务接口：提交、轮询/订阅状态、取消
+@Controller
+@RequestMapping("/jobs")
+public class QueryJobController {
+
+    private Logger log = LoggerFactory.getLogger(QueryJobController.class);
+
+    @Autowired
+    private QueryJobService queryJobService;
+
+    @Autowired
+    private SqlExecutorService sqlExecutorService;
+
+    // 提交查询任务，返回任务ID
+    @PostMapping
+    public ResponseEntity<?> submit(@RequestParam String sql,
+                                    @RequestParam(required = false) String database) {
+        try {
+            if (database != null && !database.isEmpty()) {
+                sqlExecutorService.switchDatabase(database);
+            }
+            return ResponseEntity.ok(queryJobService.submit(sql));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // 查询任务状态和结果
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getJob(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(queryJobService.getJob(id));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // 订阅任务状态（SSE），任务结束时推送最终状态后关闭
+    @GetMapping("/{id}/events")
+    public SseEmitter subscribe(@PathVariable String id) throws IOException {
+        QueryJob job = queryJobService.getJob(id);
+        SseEmitter emitter = new SseEmitter(0L);
+        emitter.send(SseEmitter.event().name("status").data(job));
+        job.getCompletion().whenComplete((finished, ex) -> {
+            try {
+                emitter.send(SseEmitter.event().name("status").data(finished));
+                emitter.complete();
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    // 取消任务
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> cancel(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(queryJobService.cancel(id));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> error(Exception e) {
+        log.error("查询任务操作出错", e);
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("message", e.getMessage());
+        return ResponseEntity.badRequest().body(result);
+    }
+}
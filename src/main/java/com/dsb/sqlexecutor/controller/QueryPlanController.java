@@ -0,0 +1,95 @@
+package com.dsb.sqlexecutor.controller;
+
+import com.dsb.sqlexecutor.service.QueryAnalyzer;
+import com.dsb.sqlexecutor.util.SqlFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+// 执行计划分析历史接口：/execute、/query 带 analyze=true 执行的语句按当前连接 + SQL 指纹保存分析结果
+@Controller
+@RequestMapping("/plans")
+public class QueryPlanController {
+
+    private Logger log = LoggerFactory.getLogger(QueryPlanController.class);
+
+    @Autowired
+    private QueryAnalyzer queryAnalyzer;
+
+    // 当前连接下分析过的 SQL 指纹，带最近一次的计划哈希、逻辑读、耗时和回退说明
+    @GetMapping
+    public ResponseEntity<?> list() {
+        try {
+            return ResponseEntity.ok(queryAnalyzer.list());
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // 某条 SQL 的分析历史，按 sql（计算指纹）或 fingerprint 指定
+    @GetMapping("/history")
+    public ResponseEntity<?> history(@RequestParam(required = false) String sql,
+                                     @RequestParam(required = false) String fingerprint) {
+        try {
+            return ResponseEntity.ok(queryAnalyzer.history(resolveFingerprint(sql, fingerprint)));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // 下载保存的执行计划 XML（.sqlplan 可以在 SSMS 中打开），planHash 为空时为最近一次的计划
+    @GetMapping("/plan")
+    public ResponseEntity<?> plan(@RequestParam(required = false) String sql,
+                                  @RequestParam(required = false) String fingerprint,
+                                  @RequestParam(required = false) String planHash) {
+        try {
+            String xml = queryAnalyzer.plan(resolveFingerprint(sql, fingerprint), planHash);
+            return ResponseEntity.ok()
+                    .contentType(new MediaType(MediaType.APPLICATION_XML, StandardCharsets.UTF_8))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"plan.sqlplan\"")
+                    .body(xml);
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // 清空当前连接的分析历史
+    @DeleteMapping
+    public ResponseEntity<?> clear() {
+        try {
+            queryAnalyzer.clear();
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", true);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    private String resolveFingerprint(String sql, String fingerprint) {
+        if (fingerprint != null && !fingerprint.isEmpty()) {
+            return fingerprint;
+        }
+        if (sql == null || sql.isBlank()) {
+            throw new IllegalArgumentException("请指定 sql 或 fingerprint");
+        }
+        return SqlFingerprint.of(sql.trim());
+    }
+
+    private ResponseEntity<Map<String, Object>> error(Exception e) {
+        log.warn("执行计划历史操作出错: {}", e.getMessage());
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("message", e.getMessage());
+        return ResponseEntity.badRequest().body(result);
+    }
+}
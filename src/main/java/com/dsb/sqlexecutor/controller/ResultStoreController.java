@@ -0,0 +1,150 @@
+package com.dsb.sqlexecutor.controller;
+
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.ExportFormat;
+import com.dsb.sqlexecutor.model.StoredResult;
+import com.dsb.sqlexecutor.service.ResultStore;
+import com.dsb.sqlexecutor.service.SqlExecutorService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+// 大结果暂存接口：执行一次查询并暂存结果，之后分页、排序和导出都不再重新执行 SQL
+@Controller
+@RequestMapping("/results")
+public class ResultStoreController {
+
+    private Logger log = LoggerFactory.getLogger(ResultStoreController.class);
+
+    @Autowired
+    private ResultStore resultStore;
+
+    @Autowired
+    private SqlExecutorService sqlExecutorService;
+
+    @Autowired
+    private SqlExecutorProperties properties;
+
+    // 执行查询并暂存结果，返回结果信息和第一页
+    @PostMapping
+    public ResponseEntity<?> store(@RequestParam String sql,
+                                   @RequestParam(required = false) String params,
+                                   @RequestParam(required = false) String database,
+                                   @RequestParam(required = false) Integer limit) {
+        try {
+            if (database != null && !database.isEmpty()) {
+                sqlExecutorService.switchDatabase(database);
+            }
+            StoredResult stored = resultStore.store(sql, params);
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", true);
+            result.put("result", stored);
+            result.put("page", resultStore.page(stored.getId(), 0, limit, null, false));
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // 当前客户端暂存的结果
+    @GetMapping
+    public ResponseEntity<?> list() {
+        return ResponseEntity.ok(resultStore.list());
+    }
+
+    // 读取一页，sort 为列名时按该列排序，desc 为 true 时倒序
+    @GetMapping("/{id}")
+    public ResponseEntity<?> page(@PathVariable String id,
+                                  @RequestParam(defaultValue = "0") long offset,
+                                  @RequestParam(required = false) Integer limit,
+                                  @RequestParam(required = false) String sort,
+                                  @RequestParam(defaultValue = "false") boolean desc) {
+        try {
+            return ResponseEntity.ok(resultStore.page(id, offset, limit, sort, desc));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    // 导出暂存的结果（CSV / NDJSON），可以按列排序
+    @GetMapping("/{id}/export")
+    public void export(@PathVariable String id,
+                       @RequestParam(defaultValue = "csv") String format,
+                       @RequestParam(required = false) String sort,
+                       @RequestParam(defaultValue = "false") boolean desc,
+                       @RequestParam(required = false) Boolean gzip,
+                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                       HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.of(format);
+            resultStore.get(id);
+        } catch (IllegalArgumentException e) {
+            writeExportError(response, e.getMessage());
+            return;
+        }
+
+        boolean useGzip = (gzip != null ? gzip : properties.getExport().isGzip())
+                && acceptEncoding != null && acceptEncoding.contains("gzip");
+        response.setContentType(exportFormat.getContentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"export." + exportFormat.getExtension() + "\"");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (useGzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        try {
+            OutputStream out = useGzip
+                    ? new GZIPOutputStream(response.getOutputStream(), 64 * 1024)
+                    : response.getOutputStream();
+            long rows = resultStore.export(id, sort, desc, exportFormat, out);
+            if (out instanceof GZIPOutputStream gzipOut) {
+                gzipOut.finish();
+            }
+            out.flush();
+            log.info("导出暂存结果完成: {}，格式: {}，行数: {}", id, exportFormat, rows);
+        } catch (Exception e) {
+            log.error("导出暂存结果出错", e);
+            // 已开始输出时无法再返回错误信息，只能中断响应
+            if (!response.isCommitted()) {
+                response.reset();
+                writeExportError(response, "导出出错: " + e.getMessage());
+            }
+        }
+    }
+
+    // 删除暂存的结果及其临时文件
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> delete(@PathVariable String id) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", resultStore.delete(id));
+        return ResponseEntity.ok(result);
+    }
+
+    private void writeExportError(HttpServletResponse response, String message) throws IOException {
+        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getOutputStream().write(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private ResponseEntity<Map<String, Object>> error(Exception e) {
+        log.error("暂存结果操作出错", e);
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("message", e.getMessage());
+        return ResponseEntity.badRequest().body(result);
+    }
+}
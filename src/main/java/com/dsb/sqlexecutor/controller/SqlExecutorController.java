@@ -1,10 +1,23 @@
 package com.dsb.sqlexecutor.controller;
 
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.CachedMetadata;
+import com.dsb.sqlexecutor.model.CompletionItem;
 import com.dsb.sqlexecutor.model.DatabaseConfig;
+import com.dsb.sqlexecutor.model.ExportFormat;
+import com.dsb.sqlexecutor.model.QueryPage;
+import com.dsb.sqlexecutor.model.ScriptResult;
+import com.dsb.sqlexecutor.service.FanOutService;
+import com.dsb.sqlexecutor.service.QueryAnalyzer;
+import com.dsb.sqlexecutor.service.ResultExportService;
+import com.dsb.sqlexecutor.service.ScriptService;
 import com.dsb.sqlexecutor.service.SqlExecutorService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.stereotype.Controller;
@@ -15,12 +28,15 @@ import org.springframework.web.bind.annotation.*;
 import jakarta.validation.Valid;
 
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 @Controller
 @RequestMapping("/")
@@ -31,6 +47,21 @@ public class SqlExecutorController {
     @Autowired
     private SqlExecutorService sqlExecutorService;
 
+    @Autowired
+    private ResultExportService resultExportService;
+
+    @Autowired
+    private ScriptService scriptService;
+
+    @Autowired
+    private FanOutService fanOutService;
+
+    @Autowired
+    private QueryAnalyzer queryAnalyzer;
+
+    @Autowired
+    private SqlExecutorProperties properties;
+
     // 首页
     @GetMapping
     public String index(Model model) {
@@ -48,6 +79,7 @@ public class SqlExecutorController {
     @PostMapping("/execute")
     public String executeSql(@RequestParam String sql,
                              @RequestParam(required = false) String database,
+                             @RequestParam(defaultValue = "false") boolean analyze,
                              Model model) {
         // 切换数据库（如果指定）
         if (database != null && !database.isEmpty()) {
@@ -61,18 +93,29 @@ public class SqlExecutorController {
         // 执行SQL
         try {
             sql = sql.trim();
-            if (sql.toLowerCase().startsWith("select") ||
-                    sql.toLowerCase().startsWith("show") ||
-                    sql.toLowerCase().startsWith("desc")) {
-                // 查询语句
-                List<Map<String, Object>> result = sqlExecutorService.executeQuery(sql);
-                // 处理结果，确保是普通的Map
-                List<Map<String, Object>> processedResult = new ArrayList<>();
-                for (Map<String, Object> row : result) {
-                    processedResult.add(new LinkedHashMap<>(row));
+            if (analyze) {
+                // 分析模式：返回实际执行计划中开销最大的运算符和 IO/TIME 统计
+                QueryAnalyzer.Execution execution = queryAnalyzer.analyze(sql, null);
+                model.addAttribute("analysis", execution.getAnalysis());
+                QueryPage page = execution.getPage();
+                if (page != null) {
+                    model.addAttribute("result", page.getRows());
+                    model.addAttribute("columns", page.getColumns());
+                    model.addAttribute("hasMore", page.isHasMore());
+                    model.addAttribute("message", "查询成功，共 " + page.getTotal() + " 条记录，返回前 " + page.getRowCount() + " 条");
+                } else {
+                    model.addAttribute("message", "操作成功，影响行数: " + Objects.requireNonNullElse(execution.getUpdateCount(), 0));
                 }
-                model.addAttribute("result", processedResult);
-                model.addAttribute("message", "查询成功，返回 " + result.size() + " 条记录");
+            } else if (SqlExecutorService.isQuery(sql)) {
+                // 查询语句，只返回第一页，后续页由页面滚动时通过 /query-page 加载
+                QueryPage page = sqlExecutorService.queryPage(sql, 0, null, false, false);
+                int rowCount = page.getRowCount();
+                model.addAttribute("result", page.getRows());
+                model.addAttribute("columns", page.getColumns());
+                model.addAttribute("hasMore", page.isHasMore());
+                model.addAttribute("message", page.isHasMore()
+                        ? "查询成功，返回前 " + rowCount + " 条记录，滚动到底部加载更多"
+                        : "查询成功，返回 " + rowCount + " 条记录");
             } else {
                 // 更新语句
                 int rowsAffected = sqlExecutorService.executeUpdate(sql);
@@ -93,6 +136,247 @@ public class SqlExecutorController {
         return "index";
     }
 
+    // 执行SQL（JSON），查询语句返回第一页列式结果，更新语句返回影响行数
+    // params 为可选的绑定参数：JSON 数组对应 SQL 中的 ?，JSON 对象对应 :name
+    // analyze=true 时在同一个连接上收集实际执行计划和 IO/TIME 统计，结果中带 analysis（历史见 /plans）
+    @PostMapping("/query")
+    public ResponseEntity<Map<String, Object>> query(@RequestParam String sql,
+                                                     @RequestParam(required = false) String database,
+                                                     @RequestParam(required = false) String params,
+                                                     @RequestParam(defaultValue = "rows") String layout,
+                                                     @RequestParam(defaultValue = "false") boolean analyze) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            if (database != null && !database.isEmpty()) {
+                sqlExecutorService.switchDatabase(database);
+            }
+            sql = sql.trim();
+            if (analyze) {
+                QueryAnalyzer.Execution execution = queryAnalyzer.analyze(sql, params);
+                result.put("analysis", execution.getAnalysis());
+                QueryPage page = execution.getPage();
+                if (page != null) {
+                    if (isColumnMajor(layout)) {
+                        page.toColumnMajor();
+                    }
+                    result.put("page", page);
+                    result.put("message", "查询成功，共 " + page.getTotal() + " 条记录，返回前 " + page.getRowCount() + " 条");
+                } else {
+                    int rowsAffected = Objects.requireNonNullElse(execution.getUpdateCount(), 0);
+                    result.put("updateCount", rowsAffected);
+                    result.put("message", "操作成功，影响行数: " + rowsAffected);
+                }
+            } else if (SqlExecutorService.isQuery(sql)) {
+                QueryPage page = sqlExecutorService.queryPage(sql, params, 0, null, false, isColumnMajor(layout));
+                result.put("page", page);
+                result.put("message", page.isHasMore()
+                        ? "查询成功，返回前 " + page.getRowCount() + " 条记录，滚动到底部加载更多"
+                        : "查询成功，返回 " + page.getRowCount() + " 条记录");
+            } else {
+                int rowsAffected = sqlExecutorService.executeUpdate(sql, params);
+                result.put("updateCount", rowsAffected);
+                result.put("message", "操作成功，影响行数: " + rowsAffected);
+            }
+            result.put("success", true);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            log.error("执行SQL出错", e);
+            result.put("success", false);
+            result.put("message", "执行SQL出错: " + e.getMessage());
+            return ResponseEntity.badRequest().body(result);
+        }
+    }
+
+    // 流式执行（SSE）：查询语句先返回列信息，再随读随发送行数据（columns / rows / done 事件）
+    // 更新语句返回 update 事件；出错时返回 error 事件。params 与 /query 相同
+    @PostMapping("/query-stream")
+    public void queryStream(@RequestParam String sql,
+                            @RequestParam(required = false) String database,
+                            @RequestParam(required = false) String params,
+                            HttpServletResponse response) throws IOException {
+        response.setContentType("text/event-stream;charset=UTF-8");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        // 禁止反向代理缓冲，保证事件即时到达浏览器
+        response.setHeader("X-Accel-Buffering", "no");
+        OutputStream out = response.getOutputStream();
+        try {
+            if (database != null && !database.isEmpty()) {
+                sqlExecutorService.switchDatabase(database);
+            }
+            sql = sql.trim();
+            // SELECT ... INTO 建表，按更新语句执行，经过写名额和缓存失效
+            if (SqlExecutorService.isQuery(sql) && !SqlExecutorService.isSchemaChange(sql)) {
+                long rows = resultExportService.streamEvents(sql, params, out);
+                log.info("流式查询完成，行数: {}", rows);
+            } else {
+                int rowsAffected = sqlExecutorService.executeUpdate(sql, params);
+                Map<String, Object> update = new HashMap<>();
+                update.put("updateCount", rowsAffected);
+                update.put("message", "操作成功，影响行数: " + rowsAffected);
+                resultExportService.writeEvent(out, "update", update);
+            }
+        } catch (Exception e) {
+            log.error("执行SQL出错", e);
+            try {
+                resultExportService.writeEvent(out, "error", Map.of("message", "执行SQL出错: " + e.getMessage()));
+            } catch (IOException ignored) {
+                // 客户端已断开
+            }
+        }
+    }
+
+    // 脚本模式（JSON）：按 ; 和 GO 拆分后在同一个连接上执行，返回每条语句的结果和整体吞吐
+    // transaction=true 时整个脚本在一个事务中执行；continueOnError=true 时出错后继续执行（仅非事务模式）
+    @PostMapping("/execute-script")
+    public ResponseEntity<Map<String, Object>> executeScript(@RequestParam String sql,
+                                                             @RequestParam(required = false) String database,
+                                                             @RequestParam(defaultValue = "false") boolean transaction,
+                                                             @RequestParam(defaultValue = "false") boolean continueOnError) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            if (database != null && !database.isEmpty()) {
+                sqlExecutorService.switchDatabase(database);
+            }
+            ScriptResult script = scriptService.execute(sql, transaction, continueOnError);
+            result.put("script", script);
+            result.put("success", script.getFailed() == 0);
+            StringBuilder message = new StringBuilder(String.format(
+                    "共 %d 条语句：成功 %d，失败 %d，未执行 %d，影响行数 %d，耗时 %.0f ms（%.0f 条/秒）",
+                    script.getTotal(), script.getSucceeded(), script.getFailed(), script.getSkipped(),
+                    script.getTotalUpdateCount(), script.getElapsedMillis(), script.getStatementsPerSecond()));
+            if (Boolean.FALSE.equals(script.getCommitted())) {
+                message.append("，事务已回滚");
+            }
+            if (script.getWarning() != null) {
+                message.append("，").append(script.getWarning());
+            }
+            result.put("message", message.toString());
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            log.error("执行脚本出错", e);
+            result.put("success", false);
+            result.put("message", "执行脚本出错: " + e.getMessage());
+            return ResponseEntity.badRequest().body(result);
+        }
+    }
+
+    // 分页查询（JSON），用于结果表格按需加载后续页和统计总数
+    // layout=columns 时按列返回数据；params 为绑定参数，与 /query 相同
+    @PostMapping("/query-page")
+    public ResponseEntity<?> queryPage(@RequestParam String sql,
+                                       @RequestParam(required = false) String database,
+                                       @RequestParam(required = false) String params,
+                                       @RequestParam(defaultValue = "0") long offset,
+                                       @RequestParam(required = false) Integer limit,
+                                       @RequestParam(defaultValue = "false") boolean count,
+                                       @RequestParam(defaultValue = "rows") String layout) {
+        try {
+            if (database != null && !database.isEmpty()) {
+                sqlExecutorService.switchDatabase(database);
+            }
+            return ResponseEntity.ok(sqlExecutorService.queryPage(sql.trim(), params, offset, limit, count, isColumnMajor(layout)));
+        } catch (Exception e) {
+            log.error("分页查询出错", e);
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", false);
+            result.put("message", "执行SQL出错: " + e.getMessage());
+            return ResponseEntity.badRequest().body(result);
+        }
+    }
+
+    private boolean isColumnMajor(String layout) {
+        return "columns".equalsIgnoreCase(layout);
+    }
+
+    // 流式导出查询结果（CSV / NDJSON），不在内存中缓存结果集
+    @RequestMapping(value = "/export", method = {RequestMethod.GET, RequestMethod.POST})
+    public void exportSql(@RequestParam String sql,
+                          @RequestParam(required = false) String database,
+                          @RequestParam(defaultValue = "csv") String format,
+                          @RequestParam(required = false) Integer fetchSize,
+                          @RequestParam(required = false) Boolean gzip,
+                          @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                          HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat;
+        sql = sql.trim();
+        try {
+            exportFormat = ExportFormat.of(format);
+            ResultExportService.requireExportable(sql);
+            if (database != null && !database.isEmpty()) {
+                sqlExecutorService.switchDatabase(database);
+            }
+        } catch (IllegalArgumentException e) {
+            writeExportError(response, e.getMessage());
+            return;
+        }
+
+        boolean useGzip = (gzip != null ? gzip : properties.getExport().isGzip())
+                && acceptEncoding != null && acceptEncoding.contains("gzip");
+        response.setContentType(exportFormat.getContentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"export." + exportFormat.getExtension() + "\"");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (useGzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        try {
+            OutputStream out = useGzip
+                    ? new GZIPOutputStream(response.getOutputStream(), 64 * 1024)
+                    : response.getOutputStream();
+            long rows = resultExportService.export(sql, exportFormat, fetchSize, out);
+            if (out instanceof GZIPOutputStream gzipOut) {
+                gzipOut.finish();
+            }
+            out.flush();
+            log.info("导出完成，格式: {}，行数: {}", exportFormat, rows);
+        } catch (Exception e) {
+            log.error("导出查询结果出错", e);
+            // 已开始输出时无法再返回错误信息，只能中断响应
+            if (!response.isCommitted()) {
+                response.reset();
+                writeExportError(response, "导出出错: " + e.getMessage());
+            }
+        }
+    }
+
+    // 多连接并发查询（NDJSON）：同一条查询在 targets（逗号分隔，为空时为全部配置）上并发执行
+    // 每行带 source 字段：先输出 columns，再逐行输出 row，最后输出该连接的 status；全部结束后输出 summary
+    // parallelism 为同时执行的连接数，timeout 为单个连接的超时秒数；单个连接失败不影响其他连接
+    @PostMapping("/fan-out")
+    public void fanOut(@RequestParam String sql,
+                       @RequestParam(required = false) List<String> targets,
+                       @RequestParam(required = false) Integer parallelism,
+                       @RequestParam(required = false) Integer timeout,
+                       HttpServletResponse response) throws IOException {
+        sql = sql.trim();
+        List<String> names;
+        try {
+            names = fanOutService.resolveTargets(sql, targets);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            writeExportError(response, e.getMessage());
+            return;
+        }
+
+        response.setContentType(ExportFormat.NDJSON.getContentType() + ";charset=UTF-8");
+        try {
+            Map<String, Object> summary = fanOutService.execute(sql, names, parallelism, timeout, response.getOutputStream());
+            log.info("多连接查询完成: {}", summary);
+        } catch (Exception e) {
+            log.error("多连接查询出错", e);
+            if (!response.isCommitted()) {
+                response.reset();
+                writeExportError(response, "多连接查询出错: " + e.getMessage());
+            }
+        }
+    }
+
+    private void writeExportError(HttpServletResponse response, String message) throws IOException {
+        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getOutputStream().write(message.getBytes(StandardCharsets.UTF_8));
+    }
+
     // 添加数据库配置
     @PostMapping("/add-database")
     public String addDatabase(@Valid @ModelAttribute DatabaseConfig databaseConfig,
@@ -184,6 +468,27 @@ public class SqlExecutorController {
 
     }
 
+    // 只读副本每行（或逗号分隔）一个，可以是完整的 JDBC URL，也可以是 host[:port]，后者连接同名数据库
+    private List<String> parseReplicaUrls(String replicas, String database) {
+        List<String> urls = new ArrayList<>();
+        if (replicas == null || replicas.isBlank()) {
+            return urls;
+        }
+        for (String item : replicas.split("[\\r\\n,]+")) {
+            String replica = item.trim();
+            if (replica.isEmpty()) {
+                continue;
+            }
+            if (replica.startsWith("jdbc:")) {
+                urls.add(replica);
+            } else {
+                String host = replica.contains(":") ? replica : replica + ":1433";
+                urls.add("jdbc:sqlserver://" + host + ";databaseName=" + database + ";encrypt=true;trustServerCertificate=true");
+            }
+        }
+        return urls;
+    }
+
     // 保存数据库配置
     @PostMapping("/save-connection")
     public ResponseEntity<Map<String, Object>> saveConnection(@RequestBody Map<String, String> request) {
@@ -195,6 +500,8 @@ public class SqlExecutorController {
             String username = request.get("username");
             String password = request.get("password");
             String database = request.get("database");
+            String queryTimeout = request.get("queryTimeout");
+            String replicas = request.get("replicas");
 
             // 解析端口
             int port = 1433; // 默认端口
@@ -211,6 +518,10 @@ public class SqlExecutorController {
             config.setUsername(username);
             config.setPassword(password);
             config.setJdbcUrl("jdbc:sqlserver://" + host + ":" + port + ";databaseName=" + database + ";encrypt=true;trustServerCertificate=true");
+            if (queryTimeout != null && !queryTimeout.isEmpty()) {
+                config.setQueryTimeoutSeconds(Integer.parseInt(queryTimeout));
+            }
+            config.setReplicaUrls(parseReplicaUrls(replicas, database));
 
             // 保存配置
             sqlExecutorService.addDatabaseConfig(connectionName, config);
@@ -226,7 +537,7 @@ public class SqlExecutorController {
         }
     }
 
-    // 创建数据源
+    // 创建数据源（仅用于一次性测试连接，不使用连接池）
     private DataSource createDataSource(String url, String username, String password) {
         DriverManagerDataSource dataSource = new DriverManagerDataSource();
         dataSource.setDriverClassName("com.microsoft.sqlserver.jdbc.SQLServerDriver");
@@ -249,11 +560,11 @@ public class SqlExecutorController {
         return databases;
     }
 
+    // 元数据接口均带 ETag，请求头 If-None-Match 与当前 ETag 一致时返回 304
     @GetMapping("/table-metadata")
     public ResponseEntity<List<Map<String, Object>>> getTableMetadata() {
         try {
-            List<Map<String, Object>> metadata = sqlExecutorService.getTableMetadata();
-            return ResponseEntity.ok(metadata);
+            return cachedResponse(sqlExecutorService.getTableMetadata());
         } catch (Exception e) {
             log.error("获取表元数据出错", e);
             return ResponseEntity.badRequest().body(null);
@@ -266,8 +577,7 @@ public class SqlExecutorController {
     public ResponseEntity<List<Map<String, Object>>> getColumnMetadata() {
         try {
             // 查询 INFORMATION_SCHEMA.COLUMNS 获取列信息
-            List<Map<String, Object>> columns = sqlExecutorService.getColumnMetadata();
-            return ResponseEntity.ok(columns);
+            return cachedResponse(sqlExecutorService.getColumnMetadata());
         } catch (Exception e) {
             log.error("获取列元数据出错", e);
             return ResponseEntity.badRequest().body(null);
@@ -277,31 +587,50 @@ public class SqlExecutorController {
     @GetMapping("/metadata")
     public ResponseEntity<Map<String, Object>> getMetadata() {
         try {
-            List<Map<String, Object>> tableMetadata = sqlExecutorService.getTableMetadata();
-            List<Map<String, Object>> columns = sqlExecutorService.getColumnMetadata();
-            List<Object> tables = tableMetadata.stream()
-                    .map(Map::values).flatMap(Collection::stream)
-                    .collect(Collectors.toList());
-
-            Map<String, List<String>> columnMap = columns.stream()
-                    .collect(Collectors.groupingBy(
-                            row -> ((String) row.get("TABLE_NAME")).toLowerCase(), // 按表名分组并转为小写
-                            Collectors.mapping(
-                                    row -> (String) row.get("COLUMN_NAME"), // 提取列名
-                                    Collectors.toList()
-                            )
-                    ));
-            Map result = new HashMap();
-            result.put("tableNames", tables);
-            result.put("tableColumns", columnMap);
-
-            return ResponseEntity.ok(result);
+            return cachedResponse(sqlExecutorService.getMetadataSummary());
         } catch (Exception e) {
             log.error("获取表元数据出错", e);
             return ResponseEntity.badRequest().body(null);
         }
     }
 
+    // 编辑器补全：按前缀返回表名，指定 table 时返回该表的列名，条数有上限
+    @GetMapping("/completions")
+    public ResponseEntity<List<CompletionItem>> getCompletions(@RequestParam(defaultValue = "") String prefix,
+                                                               @RequestParam(required = false) String table,
+                                                               @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(sqlExecutorService.getCompletions(prefix, table, limit));
+        } catch (Exception e) {
+            log.error("获取补全列表出错", e);
+            return ResponseEntity.badRequest().body(null);
+        }
+    }
+
+    // 丢弃当前连接的元数据缓存，下次请求时重新加载
+    @PostMapping("/metadata/refresh")
+    public ResponseEntity<Map<String, Object>> refreshMetadata() {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            sqlExecutorService.refreshMetadata();
+            result.put("success", true);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            log.error("刷新元数据缓存出错", e);
+            result.put("success", false);
+            result.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(result);
+        }
+    }
+
+    // no-cache：浏览器可以缓存，但每次都需带 ETag 重新验证
+    private <T> ResponseEntity<T> cachedResponse(CachedMetadata<T> metadata) {
+        return ResponseEntity.ok()
+                .eTag(metadata.getEtag())
+                .cacheControl(CacheControl.noCache())
+                .body(metadata.getValue());
+    }
+
     // 删除数据库配置
     @DeleteMapping("/delete-database/{name}")
     public ResponseEntity<String> deleteDatabase(@PathVariable String name) {
@@ -316,4 +645,34 @@ public class SqlExecutorController {
         }
     }
 
+    // 获取连接池状态
+    @GetMapping("/pool-stats")
+    public ResponseEntity<Map<String, Map<String, Object>>> getPoolStats() {
+        return ResponseEntity.ok(sqlExecutorService.getPoolStats());
+    }
+
+    // 启动时各数据库配置连接池的预热状态（pending / warming / ready / degraded / failed）
+    @GetMapping("/prewarm-stats")
+    public ResponseEntity<Map<String, Map<String, Object>>> getPrewarmStats() {
+        return ResponseEntity.ok(sqlExecutorService.getPrewarmStats());
+    }
+
+    // 各数据库配置的只读副本状态（健康状况、读取和失败次数、回退到主库的次数、副本连接池状态）
+    @GetMapping("/replica-stats")
+    public ResponseEntity<Map<String, Map<String, Object>>> getReplicaStats() {
+        return ResponseEntity.ok(sqlExecutorService.getReplicaStats());
+    }
+
+    // 各数据库配置的并发隔离统计（执行中、排队深度、拒绝次数、排队等待时间）
+    @GetMapping("/bulkhead-stats")
+    public ResponseEntity<Map<String, Map<String, Object>>> getBulkheadStats() {
+        return ResponseEntity.ok(sqlExecutorService.getBulkheadStats());
+    }
+
+    // 结果缓存统计（条目数、估算大小、命中率/未命中率、淘汰和失效次数）
+    @GetMapping("/result-cache-stats")
+    public ResponseEntity<Map<String, Object>> getResultCacheStats() {
+        return ResponseEntity.ok(sqlExecutorService.getResultCacheStats());
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.dsb.sqlexecutor.model;
+
+import java.time.Instant;
+
+// 缓存的元数据及其 ETag（内容摘要，内容不变时 ETag 不变）
+public class CachedMetadata<T> {
+
+    private final T value;
+    private final String etag;
+    private final Instant loadedAt;
+
+    public CachedMetadata(T value, String etag, Instant loadedAt) {
+        this.value = value;
+        this.etag = etag;
+        this.loadedAt = loadedAt;
+    }
+
+    public T getValue() {
+        return value;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+}
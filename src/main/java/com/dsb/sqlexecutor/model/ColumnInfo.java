@@ -0,0 +1,44 @@
+package com.dsb.sqlexecutor.model;
+
+// 结果集列信息，每个结果集只解析一次
+public class ColumnInfo {
+
+    private String name;
+    // 数据库类型名，如 nvarchar、datetime2
+    private String type;
+    // java.sql.Types 中的类型编码
+    private int jdbcType;
+
+    public ColumnInfo() {
+    }
+
+    public ColumnInfo(String name, String type, int jdbcType) {
+        this.name = name;
+        this.type = type;
+        this.jdbcType = jdbcType;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public int getJdbcType() {
+        return jdbcType;
+    }
+
+    public void setJdbcType(int jdbcType) {
+        this.jdbcType = jdbcType;
+    }
+}
@@ -0,0 +1,47 @@
+package com.dsb.sqlexecutor.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// 编辑器补全项：表名或列名
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CompletionItem {
+
+    private String name;
+    // table 或 column
+    private String kind;
+    // 列的数据类型，表为空
+    private String type;
+
+    public CompletionItem() {
+    }
+
+    public CompletionItem(String name, String kind, String type) {
+        this.name = name;
+        this.kind = kind;
+        this.type = type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+}
@@ -0,0 +1,157 @@
+package com.dsb.sqlexecutor.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.List;
+
+// CSV 导入的进度；行数由导入线程更新，其他请求随时读取
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CsvImportJob {
+
+    public enum Status {
+        RUNNING, SUCCEEDED, FAILED, CANCELLED
+    }
+
+    private final String id;
+    private final String database;
+    private final String table;
+    private final Instant startedAt = Instant.now();
+    private final long startNanos = System.nanoTime();
+
+    private volatile String mode;
+    private volatile List<String> columns;
+    private volatile Status status = Status.RUNNING;
+    private volatile Instant finishedAt;
+    private volatile long finishNanos;
+    // 已解析并发送的行数
+    private volatile long rowsRead;
+    // 已提交的行数（批量复制只在结束时确定）
+    private volatile long rowsCommitted;
+    private volatile String error;
+    private volatile boolean cancelRequested;
+
+    public CsvImportJob(String id, String database, String table) {
+        this.id = id;
+        this.database = database;
+        this.table = table;
+    }
+
+    public synchronized void succeed(long rowsCommitted) {
+        if (isFinished()) {
+            return;
+        }
+        this.rowsCommitted = rowsCommitted;
+        finish(Status.SUCCEEDED);
+    }
+
+    // 导入失败；若是因取消导致的异常则标记为已取消
+    public synchronized void fail(String error) {
+        if (isFinished()) {
+            return;
+        }
+        if (cancelRequested) {
+            finish(Status.CANCELLED);
+            return;
+        }
+        this.error = error;
+        finish(Status.FAILED);
+    }
+
+    // 请求取消，导入线程在读取下一行时停止；已结束时返回 false
+    public synchronized boolean requestCancel() {
+        if (isFinished()) {
+            return false;
+        }
+        cancelRequested = true;
+        return true;
+    }
+
+    private void finish(Status finalStatus) {
+        finishNanos = System.nanoTime();
+        finishedAt = Instant.now();
+        status = finalStatus;
+    }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return status != Status.RUNNING;
+    }
+
+    @JsonIgnore
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<String> columns) {
+        this.columns = columns;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public void setRowsRead(long rowsRead) {
+        this.rowsRead = rowsRead;
+    }
+
+    public long getRowsCommitted() {
+        return rowsCommitted;
+    }
+
+    public void setRowsCommitted(long rowsCommitted) {
+        this.rowsCommitted = rowsCommitted;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public long getElapsedMillis() {
+        long end = isFinished() ? finishNanos : System.nanoTime();
+        return (end - startNanos) / 1_000_000;
+    }
+
+    // 平均每秒读取的行数
+    public long getRowsPerSecond() {
+        long elapsedMillis = getElapsedMillis();
+        return elapsedMillis > 0 ? rowsRead * 1000 / elapsedMillis : 0;
+    }
+}
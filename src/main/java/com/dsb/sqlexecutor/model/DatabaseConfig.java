@@ -2,6 +2,9 @@ package com.dsb.sqlexecutor.model;
 
 import jakarta.validation.constraints.NotEmpty;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class DatabaseConfig {
 
     @NotEmpty(message = "数据库名称不能为空")
@@ -17,6 +20,10 @@ public class DatabaseConfig {
     private int port = 1433;
     private String driverClass = "com.microsoft.sqlserver.jdbc.SQLServerDriver";
     private String jdbcUrl;
+    // 查询超时时间（秒），为空或 0 时使用全局配置
+    private Integer queryTimeoutSeconds;
+    // 只读副本的 JDBC URL，使用与主库相同的用户名和密码；为空时所有语句都走主库
+    private List<String> replicaUrls = new ArrayList<>();
 
     // Getter和Setter方法
     public String getDatabaseName() {
@@ -79,6 +86,22 @@ public class DatabaseConfig {
         this.jdbcUrl = jdbcUrl;
     }
 
+    public Integer getQueryTimeoutSeconds() {
+        return queryTimeoutSeconds;
+    }
+
+    public void setQueryTimeoutSeconds(Integer queryTimeoutSeconds) {
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+    }
+
+    public List<String> getReplicaUrls() {
+        return replicaUrls;
+    }
+
+    public void setReplicaUrls(List<String> replicaUrls) {
+        this.replicaUrls = replicaUrls != null ? replicaUrls : new ArrayList<>();
+    }
+
     // 生成SQL Server的JDBC连接URL
     private String generateJdbcUrl() {
         StringBuilder url = new StringBuilder();
@@ -0,0 +1,56 @@
+package com.dsb.sqlexecutor.model;
+
+import java.time.Instant;
+
+// 交互式会话的状态，返回给前端
+public class InteractiveSession {
+
+    private final String id;
+    private final String database;
+    private final Instant createdAt = Instant.now();
+    private volatile Instant lastUsedAt = createdAt;
+    // 连接上是否有未提交的事务（@@TRANCOUNT > 0）
+    private volatile boolean transactionOpen;
+    private volatile long statementCount;
+
+    public InteractiveSession(String id, String database) {
+        this.id = id;
+        this.database = database;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    public void setLastUsedAt(Instant lastUsedAt) {
+        this.lastUsedAt = lastUsedAt;
+    }
+
+    public boolean isTransactionOpen() {
+        return transactionOpen;
+    }
+
+    public void setTransactionOpen(boolean transactionOpen) {
+        this.transactionOpen = transactionOpen;
+    }
+
+    public long getStatementCount() {
+        return statementCount;
+    }
+
+    public void setStatementCount(long statementCount) {
+        this.statementCount = statementCount;
+    }
+}
@@ -0,0 +1,148 @@
+package com.dsb.sqlexecutor.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// 执行计划中的一个运算符：估计值来自优化器，实际值来自实际执行计划（各线程合计）
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PlanOperator {
+
+    private int nodeId;
+    private String physicalOp;
+    private String logicalOp;
+    // 访问的表或索引，如 [dbo].[Orders].[IX_Orders_Date]
+    private String object;
+    // 估计的总行数（每次执行的估计行数 × 估计执行次数）
+    private double estimatedRows;
+    private Long actualRows;
+    private double estimatedExecutions;
+    private Long actualExecutions;
+    private Long logicalReads;
+    private Long physicalReads;
+    private Long elapsedMillis;
+    private Long cpuMillis;
+    // 运算符自身的估计开销（子树开销减去子运算符的子树开销）及其占语句总开销的百分比
+    private double cost;
+    private double costPercent;
+    // 实际行数与估计行数相差超过阈值倍数
+    private boolean misestimated;
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(int nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public String getPhysicalOp() {
+        return physicalOp;
+    }
+
+    public void setPhysicalOp(String physicalOp) {
+        this.physicalOp = physicalOp;
+    }
+
+    public String getLogicalOp() {
+        return logicalOp;
+    }
+
+    public void setLogicalOp(String logicalOp) {
+        this.logicalOp = logicalOp;
+    }
+
+    public String getObject() {
+        return object;
+    }
+
+    public void setObject(String object) {
+        this.object = object;
+    }
+
+    public double getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    public void setEstimatedRows(double estimatedRows) {
+        this.estimatedRows = estimatedRows;
+    }
+
+    public Long getActualRows() {
+        return actualRows;
+    }
+
+    public void setActualRows(Long actualRows) {
+        this.actualRows = actualRows;
+    }
+
+    public double getEstimatedExecutions() {
+        return estimatedExecutions;
+    }
+
+    public void setEstimatedExecutions(double estimatedExecutions) {
+        this.estimatedExecutions = estimatedExecutions;
+    }
+
+    public Long getActualExecutions() {
+        return actualExecutions;
+    }
+
+    public void setActualExecutions(Long actualExecutions) {
+        this.actualExecutions = actualExecutions;
+    }
+
+    public Long getLogicalReads() {
+        return logicalReads;
+    }
+
+    public void setLogicalReads(Long logicalReads) {
+        this.logicalReads = logicalReads;
+    }
+
+    public Long getPhysicalReads() {
+        return physicalReads;
+    }
+
+    public void setPhysicalReads(Long physicalReads) {
+        this.physicalReads = physicalReads;
+    }
+
+    public Long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(Long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public Long getCpuMillis() {
+        return cpuMillis;
+    }
+
+    public void setCpuMillis(Long cpuMillis) {
+        this.cpuMillis = cpuMillis;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    public void setCost(double cost) {
+        this.cost = cost;
+    }
+
+    public double getCostPercent() {
+        return costPercent;
+    }
+
+    public void setCostPercent(double costPercent) {
+        this.costPercent = costPercent;
+    }
+
+    public boolean isMisestimated() {
+        return misestimated;
+    }
+
+    public void setMisestimated(boolean misestimated) {
+        this.misestimated = misestimated;
+    }
+}
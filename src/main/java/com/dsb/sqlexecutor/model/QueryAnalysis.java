@@ -0,0 +1,228 @@
+package com.dsb.sqlexecutor.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// 一次带执行计划和 IO/TIME 统计的执行结果分析，按连接 + SQL 指纹保存历史用于发现计划变化和性能回退
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class QueryAnalysis {
+
+    private String database;
+    private String fingerprint;
+    private Instant analyzedAt = Instant.now();
+    // 执行计划中的 QueryHash / QueryPlanHash，计划哈希变化说明执行计划变了
+    private String queryHash;
+    private String planHash;
+    private double estimatedCost;
+    private Integer degreeOfParallelism;
+    // STATISTICS TIME：编译和执行的 CPU 时间与耗时（毫秒，多条语句合计）
+    private long compileCpuMillis;
+    private long compileElapsedMillis;
+    private long cpuMillis;
+    private long elapsedMillis;
+    // STATISTICS IO：各表合计
+    private long logicalReads;
+    private long physicalReads;
+    private List<TableStatistics> tables = new ArrayList<>();
+    // 开销最大的运算符，按自身开销倒序
+    private List<PlanOperator> operators = new ArrayList<>();
+    // 计划中的警告（溢出到 tempdb、隐式转换、缺少统计信息等）和缺失索引建议
+    private List<String> warnings = new ArrayList<>();
+    private List<String> missingIndexes = new ArrayList<>();
+    // 与同一指纹上一次分析相比执行计划是否变化
+    private Boolean planChanged;
+    private String previousPlanHash;
+    // 逻辑读或耗时明显超过历史中位数时的说明
+    private String regression;
+
+    // 按表累加 STATISTICS IO，同一张表可能出现多次
+    public void addTableStatistics(String table, long scanCount, long logical, long physical, long readAhead,
+                                   long lobLogical) {
+        TableStatistics statistics = tables.stream()
+                .filter(existing -> existing.getTable().equals(table))
+                .findFirst()
+                .orElse(null);
+        if (statistics == null) {
+            statistics = new TableStatistics(table);
+            tables.add(statistics);
+        }
+        statistics.scanCount += scanCount;
+        statistics.logicalReads += logical;
+        statistics.physicalReads += physical;
+        statistics.readAheadReads += readAhead;
+        statistics.lobLogicalReads += lobLogical;
+        logicalReads += logical;
+        physicalReads += physical;
+    }
+
+    public void addCompileTime(long cpu, long elapsed) {
+        compileCpuMillis += cpu;
+        compileElapsedMillis += elapsed;
+    }
+
+    public void addExecutionTime(long cpu, long elapsed) {
+        cpuMillis += cpu;
+        elapsedMillis += elapsed;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public void setDatabase(String database) {
+        this.database = database;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public Instant getAnalyzedAt() {
+        return analyzedAt;
+    }
+
+    public String getQueryHash() {
+        return queryHash;
+    }
+
+    public void setQueryHash(String queryHash) {
+        this.queryHash = queryHash;
+    }
+
+    public String getPlanHash() {
+        return planHash;
+    }
+
+    public void setPlanHash(String planHash) {
+        this.planHash = planHash;
+    }
+
+    public double getEstimatedCost() {
+        return estimatedCost;
+    }
+
+    public void setEstimatedCost(double estimatedCost) {
+        this.estimatedCost = estimatedCost;
+    }
+
+    public Integer getDegreeOfParallelism() {
+        return degreeOfParallelism;
+    }
+
+    public void setDegreeOfParallelism(Integer degreeOfParallelism) {
+        this.degreeOfParallelism = degreeOfParallelism;
+    }
+
+    public long getCompileCpuMillis() {
+        return compileCpuMillis;
+    }
+
+    public long getCompileElapsedMillis() {
+        return compileElapsedMillis;
+    }
+
+    public long getCpuMillis() {
+        return cpuMillis;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getLogicalReads() {
+        return logicalReads;
+    }
+
+    public long getPhysicalReads() {
+        return physicalReads;
+    }
+
+    public List<TableStatistics> getTables() {
+        return tables;
+    }
+
+    public List<PlanOperator> getOperators() {
+        return operators;
+    }
+
+    public void setOperators(List<PlanOperator> operators) {
+        this.operators = operators;
+    }
+
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    public List<String> getMissingIndexes() {
+        return missingIndexes;
+    }
+
+    public Boolean getPlanChanged() {
+        return planChanged;
+    }
+
+    public void setPlanChanged(Boolean planChanged) {
+        this.planChanged = planChanged;
+    }
+
+    public String getPreviousPlanHash() {
+        return previousPlanHash;
+    }
+
+    public void setPreviousPlanHash(String previousPlanHash) {
+        this.previousPlanHash = previousPlanHash;
+    }
+
+    public String getRegression() {
+        return regression;
+    }
+
+    public void setRegression(String regression) {
+        this.regression = regression;
+    }
+
+    // 单张表的 STATISTICS IO
+    public static class TableStatistics {
+        private final String table;
+        private long scanCount;
+        private long logicalReads;
+        private long physicalReads;
+        private long readAheadReads;
+        private long lobLogicalReads;
+
+        public TableStatistics(String table) {
+            this.table = table;
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        public long getScanCount() {
+            return scanCount;
+        }
+
+        public long getLogicalReads() {
+            return logicalReads;
+        }
+
+        public long getPhysicalReads() {
+            return physicalReads;
+        }
+
+        public long getReadAheadReads() {
+            return readAheadReads;
+        }
+
+        public long getLobLogicalReads() {
+            return lobLogicalReads;
+        }
+    }
+}
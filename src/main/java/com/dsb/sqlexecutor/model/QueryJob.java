@@ -0,0 +1,152 @@
+package com.dsb.sqlexecutor.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+// 异步查询任务，状态变更在同一把锁内完成，避免取消与完成互相覆盖
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class QueryJob {
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+    }
+
+    private final String id;
+    private final String sql;
+    private final String database;
+    private final Instant submittedAt = Instant.now();
+
+    private Status status = Status.QUEUED;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private QueryPage result;
+    private Integer updateCount;
+    private String error;
+
+    // 正在执行的 Statement，用于取消
+    private Statement statement;
+    private boolean cancelRequested;
+    // 任务结束时完成，供订阅方等待
+    private final CompletableFuture<QueryJob> completion = new CompletableFuture<>();
+
+    public QueryJob(String id, String sql, String database) {
+        this.id = id;
+        this.sql = sql;
+        this.database = database;
+    }
+
+    // 开始执行，任务已被取消时返回 false
+    public synchronized boolean start() {
+        if (status != Status.QUEUED) {
+            return false;
+        }
+        status = Status.RUNNING;
+        startedAt = Instant.now();
+        return true;
+    }
+
+    // 登记正在执行的 Statement，任务已请求取消时返回 false
+    public synchronized boolean attach(Statement statement) {
+        if (cancelRequested) {
+            return false;
+        }
+        this.statement = statement;
+        return true;
+    }
+
+    // 请求取消，返回需要调用 cancel() 的 Statement（可能为空）
+    public synchronized Statement requestCancel() {
+        if (isFinished()) {
+            return null;
+        }
+        cancelRequested = true;
+        if (status == Status.QUEUED) {
+            finish(Status.CANCELLED);
+            return null;
+        }
+        return statement;
+    }
+
+    public synchronized void succeed(QueryPage result, Integer updateCount) {
+        if (isFinished()) {
+            return;
+        }
+        this.result = result;
+        this.updateCount = updateCount;
+        finish(Status.SUCCEEDED);
+    }
+
+    // 执行失败；若是因取消导致的异常则标记为已取消
+    public synchronized void fail(String error) {
+        if (isFinished()) {
+            return;
+        }
+        if (cancelRequested) {
+            finish(Status.CANCELLED);
+            return;
+        }
+        this.error = error;
+        finish(Status.FAILED);
+    }
+
+    private void finish(Status finalStatus) {
+        status = finalStatus;
+        finishedAt = Instant.now();
+        statement = null;
+        completion.complete(this);
+    }
+
+    @JsonIgnore
+    public synchronized boolean isFinished() {
+        return status == Status.SUCCEEDED || status == Status.FAILED || status == Status.CANCELLED;
+    }
+
+    @JsonIgnore
+    public CompletableFuture<QueryJob> getCompletion() {
+        return completion;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    public synchronized Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public synchronized Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public synchronized QueryPage getResult() {
+        return result;
+    }
+
+    public synchronized Integer getUpdateCount() {
+        return updateCount;
+    }
+
+    public synchronized String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,132 @@
+package com.dsb.sqlexecutor.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 分页查询结果（列式 JSON：列信息只出现一次，行数据为数组）
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class QueryPage {
+
+    private List<ColumnInfo> columns;
+    // 行优先：每行一个数组，顺序与 columns 一致
+    private List<Object[]> rows;
+    // 列优先：每列一个数组，顺序与 columns 一致（此时 rows 为空）
+    private List<Object[]> columnValues;
+    private int rowCount;
+    // 本页第一行在整个结果集中的位置（从 0 开始）
+    private long offset;
+    private int limit;
+    // 本页之后是否还有数据
+    private boolean hasMore;
+    // 总行数，仅在请求统计时返回
+    private Long total;
+
+    public QueryPage() {
+    }
+
+    public QueryPage(List<ColumnInfo> columns, List<Object[]> rows, long offset, int limit, boolean hasMore) {
+        this.columns = columns;
+        this.rows = rows;
+        this.rowCount = rows.size();
+        this.offset = offset;
+        this.limit = limit;
+        this.hasMore = hasMore;
+    }
+
+    // 浅拷贝，行数据共享；缓存中的结果返回前先拷贝，避免转换格式时修改缓存内容
+    public QueryPage copy() {
+        QueryPage copy = new QueryPage();
+        copy.columns = columns;
+        copy.rows = rows;
+        copy.columnValues = columnValues;
+        copy.rowCount = rowCount;
+        copy.offset = offset;
+        copy.limit = limit;
+        copy.hasMore = hasMore;
+        copy.total = total;
+        return copy;
+    }
+
+    // 转为列优先格式，适合按列处理的客户端
+    public void toColumnMajor() {
+        if (rows == null) {
+            return;
+        }
+        List<Object[]> values = new ArrayList<>(columns.size());
+        for (int col = 0; col < columns.size(); col++) {
+            Object[] column = new Object[rows.size()];
+            for (int row = 0; row < rows.size(); row++) {
+                column[row] = rows.get(row)[col];
+            }
+            values.add(column);
+        }
+        this.columnValues = values;
+        this.rows = null;
+    }
+
+    public List<ColumnInfo> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<ColumnInfo> columns) {
+        this.columns = columns;
+    }
+
+    public List<Object[]> getRows() {
+        return rows;
+    }
+
+    public void setRows(List<Object[]> rows) {
+        this.rows = rows;
+    }
+
+    public List<Object[]> getColumnValues() {
+        return columnValues;
+    }
+
+    public void setColumnValues(List<Object[]> columnValues) {
+        this.columnValues = columnValues;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public Long getTotal() {
+        return total;
+    }
+
+    public void setTotal(Long total) {
+        this.total = total;
+    }
+}
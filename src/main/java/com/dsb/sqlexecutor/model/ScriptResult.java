@@ -0,0 +1,114 @@
+package com.dsb.sqlexecutor.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// 脚本执行结果：每条语句的结果和整体统计
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ScriptResult {
+
+    private List<StatementResult> statements;
+    private int total;
+    private int succeeded;
+    private int failed;
+    private int skipped;
+    // JDBC 批次数（批量执行的 DML 每批算一次往返）
+    private int batches;
+    private long totalUpdateCount;
+    private double elapsedMillis;
+    // 每秒执行的语句数
+    private double statementsPerSecond;
+    private boolean transactional;
+    // 事务模式下是否已提交（失败时回滚）
+    private Boolean committed;
+    // 非事务模式下脚本结束时仍有未提交的事务，已自动回滚
+    private String warning;
+
+    public ScriptResult() {
+    }
+
+    public ScriptResult(List<StatementResult> statements, boolean transactional) {
+        this.statements = statements;
+        this.transactional = transactional;
+        this.total = statements.size();
+    }
+
+    // 汇总各语句结果
+    public void summarize(int batches, long elapsedNanos) {
+        succeeded = 0;
+        failed = 0;
+        skipped = 0;
+        totalUpdateCount = 0;
+        for (StatementResult statement : statements) {
+            switch (statement.getStatus()) {
+                case SUCCEEDED -> succeeded++;
+                case FAILED -> failed++;
+                case SKIPPED -> skipped++;
+            }
+            if (statement.getUpdateCount() != null && statement.getUpdateCount() > 0) {
+                totalUpdateCount += statement.getUpdateCount();
+            }
+        }
+        this.batches = batches;
+        this.elapsedMillis = elapsedNanos / 1_000_000.0;
+        int executed = succeeded + failed;
+        this.statementsPerSecond = elapsedNanos == 0 ? 0 : executed * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    public List<StatementResult> getStatements() {
+        return statements;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public long getTotalUpdateCount() {
+        return totalUpdateCount;
+    }
+
+    public double getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getStatementsPerSecond() {
+        return statementsPerSecond;
+    }
+
+    public boolean isTransactional() {
+        return transactional;
+    }
+
+    public Boolean getCommitted() {
+        return committed;
+    }
+
+    public void setCommitted(Boolean committed) {
+        this.committed = committed;
+    }
+
+    public String getWarning() {
+        return warning;
+    }
+
+    public void setWarning(String warning) {
+        this.warning = warning;
+    }
+}
@@ -0,0 +1,98 @@
+package com.dsb.sqlexecutor.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// 脚本中单条语句的执行结果
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StatementResult {
+
+    public enum Status {
+        SUCCEEDED, FAILED, SKIPPED
+    }
+
+    // 语句在脚本中的序号（从 1 开始）
+    private int index;
+    // 语句内容（过长时截断）
+    private String sql;
+    private Status status = Status.SKIPPED;
+    // 所在的 JDBC 批次序号，单独执行的语句为空
+    private Integer batch;
+    // 影响行数（非查询语句）
+    private Integer updateCount;
+    // 返回行数（查询语句）
+    private Long rowCount;
+    private Double elapsedMillis;
+    private String error;
+
+    public StatementResult() {
+    }
+
+    public StatementResult(int index, String sql) {
+        this.index = index;
+        this.sql = sql;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public void setSql(String sql) {
+        this.sql = sql;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Integer getBatch() {
+        return batch;
+    }
+
+    public void setBatch(Integer batch) {
+        this.batch = batch;
+    }
+
+    public Integer getUpdateCount() {
+        return updateCount;
+    }
+
+    public void setUpdateCount(Integer updateCount) {
+        this.updateCount = updateCount;
+    }
+
+    public Long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(Long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public Double getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(Double elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,100 @@
+package com.dsb.sqlexecutor.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+// 暂存的查询结果信息；行数据由 ResultStore 保存在内存或临时文件中
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StoredResult {
+
+    private final String id;
+    private final String database;
+    private final String sql;
+    private final List<ColumnInfo> columns;
+    private final long rowCount;
+    // 超过行数或文件大小上限，只保存了前 rowCount 行
+    private final boolean truncated;
+    // 行数据是否写入了临时文件
+    private final boolean spilled;
+    private final long elapsedMillis;
+    private final Instant createdAt = Instant.now();
+
+    // 临时文件总大小（含排序生成的文件）
+    private volatile long sizeBytes;
+    private volatile Instant lastAccessAt = createdAt;
+    private volatile Instant expiresAt;
+
+    public StoredResult(String id, String database, String sql, List<ColumnInfo> columns, long rowCount,
+                        boolean truncated, boolean spilled, long sizeBytes, long elapsedMillis) {
+        this.id = id;
+        this.database = database;
+        this.sql = sql;
+        this.columns = columns;
+        this.rowCount = rowCount;
+        this.truncated = truncated;
+        this.spilled = spilled;
+        this.sizeBytes = sizeBytes;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    // 记录一次访问，过期时间从本次访问起重新计算
+    public void touch(Duration ttl) {
+        lastAccessAt = Instant.now();
+        expiresAt = lastAccessAt.plus(ttl);
+    }
+
+    public synchronized void addSize(long bytes) {
+        sizeBytes += bytes;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<ColumnInfo> getColumns() {
+        return columns;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public boolean isSpilled() {
+        return spilled;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public Instant getLastAccessAt() {
+        return lastAccessAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -1,94 +1,335 @@
 package com.dsb.sqlexecutor.repository;
 
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.ColumnInfo;
+import com.dsb.sqlexecutor.model.QueryPage;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.jdbc.datasource.ConnectionProxy;
 import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+import com.dsb.sqlexecutor.util.SqlScriptSplitter;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Repository
 public class SqlExecutorRepository {
 
-//    private JdbcTemplate jdbcTemplate;
-    ThreadLocal<JdbcTemplate> jdbcTemplateThreadLocal = new ThreadLocal<>();
+    @Autowired
+    private SqlExecutorProperties properties;
 
-//    @Autowired
-//    public SqlExecutorRepository(DataSource dataSource) {
-//        this.jdbcTemplate = new JdbcTemplate(dataSource);
-//    }
+    // 判断查询能否改写为 OFFSET/FETCH 时关心的顶层记号：括号、ORDER BY，以及其后出现时不能改写或会使 ORDER BY 不在结尾的关键字
+    private static final Pattern PAGING_TOKEN = Pattern.compile(
+            "[()]|\\border\\s+by\\b|\\b(top|offset|for|option|union|except|intersect|from|where|group|having)\\b");
 
-    public ThreadLocal<JdbcTemplate> getJdbcTemplateThreadLocal() {
-        return jdbcTemplateThreadLocal;
+    // 创建数据源对应的 JdbcTemplate，JdbcTemplate 线程安全，每个数据库配置共用一个实例
+    public JdbcTemplate createJdbcTemplate(DataSource dataSource, int queryTimeoutSeconds) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setQueryTimeout(queryTimeoutSeconds);
+        return jdbcTemplate;
     }
 
-    // 切换数据源
-    public void setDataSource(DataSource dataSource) {
-//        this.jdbcTemplate = new JdbcTemplate(dataSource);
-        jdbcTemplateThreadLocal.set(new JdbcTemplate(dataSource));
+    // 解析结果集列信息，每个结果集只调用一次
+    public static List<ColumnInfo> readColumns(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        List<ColumnInfo> columns = new ArrayList<>(columnCount);
+        for (int i = 1; i <= columnCount; i++) {
+            columns.add(new ColumnInfo(metaData.getColumnLabel(i), metaData.getColumnTypeName(i), metaData.getColumnType(i)));
+        }
+        return columns;
     }
 
-    // 执行查询语句
-    public List<Map<String, Object>> executeQuery(String sql) {
-        return jdbcTemplateThreadLocal.get().query(sql, (ResultSet rs, int rowNum) -> {
-            ResultSetMetaData metaData = rs.getMetaData();
-            int columnCount = metaData.getColumnCount();
-            Map<String, Object> row = new LinkedHashMap<>(); // 使用 LinkedHashMap 保证顺序
-            for (int i = 1; i <= columnCount; i++) {
-                String columnName = metaData.getColumnName(i);
-                Object value = rs.getObject(i);
-                row.put(columnName, value);
+    // 读取当前行为数组，顺序与列信息一致
+    public static Object[] readRow(ResultSet rs, int columnCount) throws SQLException {
+        Object[] row = new Object[columnCount];
+        for (int i = 1; i <= columnCount; i++) {
+            row[i - 1] = rs.getObject(i);
+        }
+        return row;
+    }
+
+    // 以只进游标流式读取查询结果，不在内存中保留整个结果集
+    // SQL Server 驱动默认 responseBuffering=adaptive，结合 fetchSize 按需从网络读取数据
+    // args 不为空时使用 PreparedStatement 绑定参数，SQL 中用 ? 作为占位符
+    // maxRows 大于 0 时服务端返回足够行数后停止执行，提前关闭结果集时不必读完剩余数据
+    public <T> T streamQuery(JdbcTemplate jdbcTemplate, String sql, Object[] args, int fetchSize, int maxRows,
+                             ResultSetExtractor<T> extractor) {
+        if (!hasArgs(args)) {
+            return jdbcTemplate.execute((Statement stmt) -> {
+                stmt.setFetchSize(fetchSize);
+                stmt.setMaxRows(maxRows);
+                try (ResultSet rs = stmt.executeQuery(sql)) {
+                    return extractor.extractData(rs);
+                }
+            });
+        }
+        return jdbcTemplate.execute((PreparedStatementCreator) con -> con.prepareStatement(sql), (PreparedStatement ps) -> {
+            new ArgumentPreparedStatementSetter(args).setValues(ps);
+            ps.setFetchSize(fetchSize);
+            ps.setMaxRows(maxRows);
+            try (ResultSet rs = ps.executeQuery()) {
+                return extractor.extractData(rs);
+            }
+        });
+    }
+
+    // 分页查询：只读取 [offset, offset + limit) 范围内的行，多读一行用于判断是否还有更多数据
+    // setMaxRows 会让 SQL Server 在返回足够行数后停止执行，不会读取整张表
+    // args 不为空时使用 PreparedStatement 绑定参数，相同语句可以复用执行计划
+    // 以顶层 ORDER BY 结尾的查询翻页时改写为 OFFSET/FETCH，由服务端跳过前面的行；其他查询在客户端跳过，offset 不能超过 maxScanOffset
+    public QueryPage queryPage(JdbcTemplate jdbcTemplate, String sql, Object[] args, long offset, int limit) {
+        String paged = offset > 0 ? withOffsetFetch(sql) : null;
+        if (paged != null) {
+            Object[] pagedArgs = Arrays.copyOf(hasArgs(args) ? args : new Object[0], hasArgs(args) ? args.length + 2 : 2);
+            pagedArgs[pagedArgs.length - 2] = offset;
+            pagedArgs[pagedArgs.length - 1] = limit + 1;
+            return jdbcTemplate.execute((PreparedStatementCreator) con -> con.prepareStatement(paged), (PreparedStatement ps) -> {
+                new ArgumentPreparedStatementSetter(pagedArgs).setValues(ps);
+                ps.setFetchSize(limit + 1);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return readPage(rs, 0, offset, limit);
+                }
+            });
+        }
+        long maxScanOffset = properties.getQuery().getMaxScanOffset();
+        if (offset > maxScanOffset) {
+            throw new IllegalArgumentException("没有 ORDER BY 的查询最多只能翻到第 " + maxScanOffset
+                    + " 行，请在查询末尾加上 ORDER BY，或暂存结果（/results）后分页");
+        }
+        long maxRows = offset + limit + 1;
+        if (!hasArgs(args)) {
+            return jdbcTemplate.execute((Statement stmt) -> {
+                applyPageLimits(stmt, maxRows, limit);
+                try (ResultSet rs = stmt.executeQuery(sql)) {
+                    return readPage(rs, offset, offset, limit);
+                }
+            });
+        }
+        return jdbcTemplate.execute((PreparedStatementCreator) con -> con.prepareStatement(sql), (PreparedStatement ps) -> {
+            new ArgumentPreparedStatementSetter(args).setValues(ps);
+            applyPageLimits(ps, maxRows, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                return readPage(rs, offset, offset, limit);
             }
-            return row;
         });
     }
 
+    // 查询以顶层 ORDER BY 结尾时返回追加了 OFFSET ? ROWS FETCH NEXT ? ROWS ONLY 的语句，否则返回 null
+    // 顶层有 TOP、已有 OFFSET、带 FOR XML/JSON 或 OPTION 子句、含多条语句时不改写
+    static String withOffsetFetch(String sql) {
+        String body = sql.strip();
+        while (body.endsWith(";")) {
+            body = body.substring(0, body.length() - 1).stripTrailing();
+        }
+        String code = SqlScriptSplitter.stripLiterals(body).toLowerCase(Locale.ROOT);
+        if (code.indexOf(';') >= 0) {
+            return null;
+        }
+        int depth = 0;
+        boolean ordered = false;
+        Matcher matcher = PAGING_TOKEN.matcher(code);
+        while (matcher.find()) {
+            String token = matcher.group();
+            if (token.equals("(")) {
+                depth++;
+            } else if (token.equals(")")) {
+                depth--;
+            } else if (depth == 0) {
+                if (token.startsWith("order")) {
+                    ordered = true;
+                } else if (token.equals("top") || token.equals("offset") || token.equals("for") || token.equals("option")) {
+                    return null;
+                } else {
+                    // UNION 等之后的 ORDER BY 才是整个查询的排序
+                    ordered = false;
+                }
+            }
+        }
+        // 单行注释结尾时另起一行追加
+        return ordered ? body + "\nOFFSET ? ROWS FETCH NEXT ? ROWS ONLY" : null;
+    }
 
-    // 执行更新语句（INSERT/UPDATE/DELETE）
-    public int executeUpdate(String sql) {
-        return jdbcTemplateThreadLocal.get().update(sql);
+    private static void applyPageLimits(Statement stmt, long maxRows, int limit) throws SQLException {
+        if (maxRows <= Integer.MAX_VALUE) {
+            stmt.setMaxRows((int) maxRows);
+        }
+        stmt.setFetchSize(limit + 1);
+    }
+
+    // 跳过结果集中前 skip 行后读取 limit 行，offset 为这一页在整个结果中的起始行号
+    private static QueryPage readPage(ResultSet rs, long skip, long offset, int limit) throws SQLException {
+        List<ColumnInfo> columns = readColumns(rs);
+        long skipped = 0;
+        while (skipped < skip && rs.next()) {
+            skipped++;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        while (rows.size() < limit && rs.next()) {
+            rows.add(readRow(rs, columns.size()));
+        }
+        boolean hasMore = rs.next();
+        return new QueryPage(columns, rows, offset, limit, hasMore);
+    }
+
+    private static boolean hasArgs(Object[] args) {
+        return args != null && args.length > 0;
+    }
+
+    // 执行 Statement 回调，回调中可拿到 Statement 以便其他线程调用 cancel()
+    public <T> T executeStatement(JdbcTemplate jdbcTemplate, StatementCallback<T> callback) {
+        return jdbcTemplate.execute(callback);
+    }
+
+    // 在同一个连接上执行回调，连接上创建的 Statement 会应用 JdbcTemplate 的查询超时
+    public <T> T executeConnection(JdbcTemplate jdbcTemplate, ConnectionCallback<T> callback) {
+        return jdbcTemplate.execute(callback);
+    }
+
+    // 统计查询结果总行数
+    // 优先包装为 COUNT_BIG 子查询；子查询不合法（如无列名、带 ORDER BY、CTE）时退回逐行计数
+    public long countQuery(JdbcTemplate jdbcTemplate, String sql, Object[] args) {
+        String source = sql.trim();
+        while (source.endsWith(";")) {
+            source = source.substring(0, source.length() - 1).trim();
+        }
+        String countSql = "SELECT COUNT_BIG(*) FROM (" + source + ") AS count_source";
+        try {
+            Long total = hasArgs(args)
+                    ? jdbcTemplate.queryForObject(countSql, Long.class, args)
+                    : jdbcTemplate.queryForObject(countSql, Long.class);
+            return total != null ? total : 0;
+        } catch (DataAccessException e) {
+            return streamQuery(jdbcTemplate, sql, args, 1000, 0, rs -> {
+                long count = 0;
+                while (rs.next()) {
+                    count++;
+                }
+                return count;
+            });
+        }
+    }
+
+    // 执行更新语句（INSERT/UPDATE/DELETE），参数通过 PreparedStatement 绑定
+    public int executeUpdate(JdbcTemplate jdbcTemplate, String sql, Object[] args) {
+        return hasArgs(args) ? jdbcTemplate.update(sql, args) : jdbcTemplate.update(sql);
     }
 
     // 获取数据库列表
     // 获取SQL Server中的所有数据库
-    public List<String> getDatabases() {
-        return jdbcTemplateThreadLocal.get().queryForList("SELECT name FROM sys.databases", String.class);
+    public List<String> getDatabases(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForList("SELECT name FROM sys.databases", String.class);
     }
 
-    // 创建新的数据源
-    public DataSource createDataSource(String url, String username, String password) {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName("com.microsoft.sqlserver.jdbc.SQLServerDriver");
-        dataSource.setUrl(url);
-        dataSource.setUsername(username);
-        dataSource.setPassword(password);
-        return dataSource;
+    // 创建新的数据源（每个数据库配置一个连接池）
+    public DataSource createDataSource(String name, String url, String username, String password) {
+        return createDataSource(name, url, username, password, properties.getPool().getConnectionTimeout());
+    }
+
+    // 指定获取连接的超时时间创建数据源，其余设置与主库连接池相同（用于只读副本）
+    public DataSource createDataSource(String name, String url, String username, String password,
+                                       Duration connectionTimeout) {
+        SqlExecutorProperties.Pool pool = properties.getPool();
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setPoolName("sqlexecutor-" + name);
+        hikariConfig.setDriverClassName("com.microsoft.sqlserver.jdbc.SQLServerDriver");
+        hikariConfig.setJdbcUrl(url);
+        hikariConfig.setUsername(username);
+        hikariConfig.setPassword(password);
+        hikariConfig.setMinimumIdle(pool.getMinimumIdle());
+        hikariConfig.setMaximumPoolSize(pool.getMaximumPoolSize());
+        hikariConfig.setConnectionTimeout(connectionTimeout.toMillis());
+        hikariConfig.setIdleTimeout(pool.getIdleTimeout().toMillis());
+        hikariConfig.setMaxLifetime(pool.getMaxLifetime().toMillis());
+        hikariConfig.setValidationTimeout(pool.getValidationTimeout().toMillis());
+        hikariConfig.setKeepaliveTime(pool.getKeepaliveTime().toMillis());
+        if (StringUtils.hasText(pool.getConnectionTestQuery())) {
+            hikariConfig.setConnectionTestQuery(pool.getConnectionTestQuery());
+        }
+        // SQL Server 驱动的预编译语句缓存：每个连接缓存已准备的语句句柄，相同参数化语句重复执行时不再重新准备
+        hikariConfig.addDataSourceProperty("disableStatementPooling", String.valueOf(pool.getStatementCacheSize() <= 0));
+        hikariConfig.addDataSourceProperty("statementPoolingCacheSize", String.valueOf(Math.max(0, pool.getStatementCacheSize())));
+        hikariConfig.addDataSourceProperty("enablePrepareOnFirstPreparedStatementCall", String.valueOf(pool.isPrepareOnFirstCall()));
+        // 创建时不阻塞建连，保存配置时数据库不可达也不会失败，连接由连接池后台补齐
+        hikariConfig.setInitializationFailTimeout(-1);
+        return new HikariDataSource(hikariConfig);
+    }
+
+    // 关闭数据源，释放连接池中的所有连接
+    public void closeDataSource(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikariDataSource && !hikariDataSource.isClosed()) {
+            hikariDataSource.close();
+        }
+    }
+
+    // 归还连接并从连接池中移除对应的物理连接，会话级状态（临时表、SET 选项）不会带给之后借到连接的请求
+    // JdbcTemplate 回调中的连接是 Spring 的代理，先取出连接池的连接；回调中移除的连接在 JdbcTemplate 归还时关闭
+    public void evictConnection(DataSource dataSource, Connection connection) throws SQLException {
+        Connection target = connection instanceof ConnectionProxy proxy ? proxy.getTargetConnection() : connection;
+        if (dataSource instanceof HikariDataSource hikariDataSource) {
+            hikariDataSource.evictConnection(target);
+        } else {
+            target.close();
+        }
+    }
+
+    // 获取连接池状态
+    public Map<String, Object> getPoolStats(DataSource dataSource) {
+        if (!(dataSource instanceof HikariDataSource hikariDataSource)) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("poolName", hikariDataSource.getPoolName());
+        stats.put("minimumIdle", hikariDataSource.getMinimumIdle());
+        stats.put("maximumPoolSize", hikariDataSource.getMaximumPoolSize());
+        HikariPoolMXBean poolMXBean = hikariDataSource.getHikariPoolMXBean();
+        if (poolMXBean != null) {
+            stats.put("active", poolMXBean.getActiveConnections());
+            stats.put("idle", poolMXBean.getIdleConnections());
+            stats.put("total", poolMXBean.getTotalConnections());
+            stats.put("waiting", poolMXBean.getThreadsAwaitingConnection());
+        }
+        return stats;
     }
 
     // 获取表的元数据
-    public List<Map<String, Object>> getTableMetadata() {
+    public List<Map<String, Object>> getTableMetadata(JdbcTemplate jdbcTemplate) {
         // 执行 SQL 查询获取表元数据
-        return jdbcTemplateThreadLocal.get().query("SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES", (ResultSet rs, int rowNum) -> {
-            ResultSetMetaData metaData = rs.getMetaData();
-            int columnCount = metaData.getColumnCount();
+        return jdbcTemplate.query("SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES", (ResultSet rs, int rowNum) -> {
             Map<String, Object> row = new LinkedHashMap<>();
-            for (int i = 1; i <= columnCount; i++) {
-                String columnName = metaData.getColumnName(i);
-                Object value = rs.getObject(i);
-                row.put(columnName, value);
-            }
+            row.put("TABLE_NAME", rs.getString("TABLE_NAME"));
             return row;
         });
     }
 
     // 在 SqlExecutorRepository 中添加
-    public List<Map<String, Object>> getColumnMetadata() {
-        return jdbcTemplateThreadLocal.get().query(
+    public List<Map<String, Object>> getColumnMetadata(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.query(
                 "SELECT TABLE_NAME, COLUMN_NAME, DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS",
                 (rs, rowNum) -> {
                     Map<String, Object> row = new LinkedHashMap<>();
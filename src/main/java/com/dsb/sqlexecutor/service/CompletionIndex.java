@@ -0,0 +1,90 @@
+package com.dsb.sqlexecutor.service;
+
+import com.dsb.sqlexecutor.model.CompletionItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+// 单个连接的补全索引：表名、各表列名分别按小写排序，前缀查找用二分定位后顺序读取
+public class CompletionIndex {
+
+    private final Names tables;
+    // 小写表名 -> 该表的列名
+    private final Map<String, Names> columns;
+
+    private CompletionIndex(Names tables, Map<String, Names> columns) {
+        this.tables = tables;
+        this.columns = columns;
+    }
+
+    // 由 INFORMATION_SCHEMA 查询结果构建；不同架构下的同名表/列只保留一个
+    public static CompletionIndex build(List<Map<String, Object>> tableRows, List<Map<String, Object>> columnRows) {
+        TreeMap<String, CompletionItem> tableItems = new TreeMap<>();
+        for (Map<String, Object> row : tableRows) {
+            String name = (String) row.get("TABLE_NAME");
+            if (name != null) {
+                tableItems.putIfAbsent(name.toLowerCase(Locale.ROOT), new CompletionItem(name, "table", null));
+            }
+        }
+
+        Map<String, TreeMap<String, CompletionItem>> columnItems = new HashMap<>();
+        for (Map<String, Object> row : columnRows) {
+            String table = (String) row.get("TABLE_NAME");
+            String name = (String) row.get("COLUMN_NAME");
+            if (table == null || name == null) {
+                continue;
+            }
+            columnItems.computeIfAbsent(table.toLowerCase(Locale.ROOT), key -> new TreeMap<>())
+                    .putIfAbsent(name.toLowerCase(Locale.ROOT),
+                            new CompletionItem(name, "column", (String) row.get("DATA_TYPE")));
+        }
+
+        Map<String, Names> columns = new HashMap<>(columnItems.size() * 2);
+        columnItems.forEach((table, items) -> columns.put(table, new Names(items)));
+        return new CompletionIndex(new Names(tableItems), columns);
+    }
+
+    // 按前缀查找表名；指定 table 时查找该表的列名。前缀不区分大小写
+    public List<CompletionItem> lookup(String prefix, String table, int limit) {
+        String key = prefix == null ? "" : prefix.toLowerCase(Locale.ROOT);
+        if (table == null || table.isEmpty()) {
+            return tables.startingWith(key, limit);
+        }
+        Names tableColumns = columns.get(table.toLowerCase(Locale.ROOT));
+        return tableColumns == null ? Collections.emptyList() : tableColumns.startingWith(key, limit);
+    }
+
+    // 有序名称数组，相同前缀的名称在数组中连续
+    private static final class Names {
+        private final String[] keys;
+        private final CompletionItem[] items;
+
+        Names(TreeMap<String, CompletionItem> sorted) {
+            keys = sorted.keySet().toArray(new String[0]);
+            items = sorted.values().toArray(new CompletionItem[0]);
+        }
+
+        List<CompletionItem> startingWith(String prefix, int limit) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(prefix) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            List<CompletionItem> result = new ArrayList<>(Math.min(limit, keys.length - low));
+            for (int i = low; i < keys.length && result.size() < limit && keys[i].startsWith(prefix); i++) {
+                result.add(items[i]);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.dsb.sqlexecutor.service;
+
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// 单个数据库配置的并发隔离：读、写分别限制同时执行数，超出时有限排队，避免一个用户的大量请求压垮数据库
+public class ConnectionBulkhead {
+
+    private final Lane reads;
+    private final Lane writes;
+
+    public ConnectionBulkhead(SqlExecutorProperties.Bulkhead config) {
+        this.reads = new Lane(config.getMaxConcurrentReads(), config.getQueueDepth(), config.getWaitTimeout());
+        this.writes = new Lane(config.getMaxConcurrentWrites(), config.getQueueDepth(), config.getWaitTimeout());
+    }
+
+    // 占用一个执行名额后运行 action，结束后释放
+    public <T> T execute(boolean write, Supplier<T> action) {
+        Lane lane = write ? writes : reads;
+        lane.acquire();
+        try {
+            return action.get();
+        } finally {
+            lane.release();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("reads", reads.getStats());
+        stats.put("writes", writes.getStats());
+        return stats;
+    }
+
+    private static final class Lane {
+        private final int limit;
+        private final int queueDepth;
+        private final long waitTimeoutNanos;
+        // 公平信号量，排队的请求按到达顺序获得名额
+        private final Semaphore permits;
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder queued = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder timedOut = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder();
+        private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+        Lane(int limit, int queueDepth, Duration waitTimeout) {
+            this.limit = Math.max(1, limit);
+            this.queueDepth = Math.max(0, queueDepth);
+            this.waitTimeoutNanos = waitTimeout.toNanos();
+            this.permits = new Semaphore(this.limit, true);
+        }
+
+        void acquire() {
+            try {
+                // 带超时的 tryAcquire 遵循公平顺序，不会插队到排队请求之前
+                if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                    admitted.increment();
+                    return;
+                }
+                if (waiting.incrementAndGet() > queueDepth) {
+                    waiting.decrementAndGet();
+                    rejected.increment();
+                    throw new IllegalStateException("数据库繁忙：执行中的语句已达上限 " + limit + "，排队已满，请稍后再试");
+                }
+                queued.increment();
+                long start = System.nanoTime();
+                boolean acquired;
+                try {
+                    acquired = permits.tryAcquire(waitTimeoutNanos, TimeUnit.NANOSECONDS);
+                } finally {
+                    waiting.decrementAndGet();
+                    long waited = System.nanoTime() - start;
+                    totalWaitNanos.add(waited);
+                    maxWaitNanos.accumulate(waited);
+                }
+                if (!acquired) {
+                    timedOut.increment();
+                    throw new IllegalStateException("数据库繁忙：排队等待超过 " + waitTimeoutNanos / 1_000_000 + " ms，请稍后再试");
+                }
+                admitted.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待执行被中断", e);
+            }
+        }
+
+        void release() {
+            permits.release();
+        }
+
+        Map<String, Object> getStats() {
+            long queuedCount = queued.sum();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("limit", limit);
+            stats.put("active", limit - permits.availablePermits());
+            stats.put("queueDepth", waiting.get());
+            stats.put("queueCapacity", queueDepth);
+            stats.put("admitted", admitted.sum());
+            stats.put("queued", queuedCount);
+            stats.put("rejected", rejected.sum());
+            stats.put("timedOut", timedOut.sum());
+            stats.put("avgWaitMillis", queuedCount == 0 ? 0 : totalWaitNanos.sum() / queuedCount / 1_000_000.0);
+            stats.put("maxWaitMillis", maxWaitNanos.get() / 1_000_000.0);
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,497 @@
+package com.dsb.sqlexecutor.service;
+
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.DatabaseConfig;
+import com.dsb.sqlexecutor.repository.SqlExecutorRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// 连接注册表：数据库配置、对应的连接池以及各客户端当前选择的配置
+// 基于 ConcurrentHashMap，读取不加锁；每个配置的连接池在首次使用时创建且只创建一次
+// 客户端的选择按最后访问时间过期，数量有上限
+// 删除或替换配置时旧连接池先停止接收新的使用者，等执行中的语句全部结束后再关闭
+// 配置声明了只读副本时，查询在健康的副本间轮询，其余语句使用主库
+@Component
+public class ConnectionRegistry {
+
+    private final Logger log = LoggerFactory.getLogger(ConnectionRegistry.class);
+
+    @Autowired
+    private SqlExecutorRepository sqlExecutorRepository;
+
+    @Autowired
+    private SqlExecutorProperties properties;
+
+    private final Map<String, Registration> registrations = new ConcurrentHashMap<>();
+    // 客户端标识 -> 选择的配置
+    private final Map<String, Selection> selections = new ConcurrentHashMap<>();
+
+    // 注册配置，同名配置已存在时替换，旧连接池在使用结束后关闭
+    public void register(String name, DatabaseConfig config) {
+        Registration previous = registrations.put(name, new Registration(name, config));
+        if (previous != null) {
+            previous.retire();
+        }
+    }
+
+    // 同名配置不存在时才注册（启动时恢复保存的配置，不覆盖加载期间用户新保存的配置）
+    public boolean registerIfAbsent(String name, DatabaseConfig config) {
+        return registrations.putIfAbsent(name, new Registration(name, config)) == null;
+    }
+
+    // 删除配置，选择了该配置的客户端需要重新选择；配置不存在时返回 false
+    public boolean remove(String name) {
+        Registration removed = registrations.remove(name);
+        if (removed == null) {
+            return false;
+        }
+        selections.values().removeIf(selection -> selection.name.equals(name));
+        removed.retire();
+        return true;
+    }
+
+    public boolean contains(String name) {
+        return registrations.containsKey(name);
+    }
+
+    public DatabaseConfig getConfig(String name) {
+        Registration registration = registrations.get(name);
+        return registration != null ? registration.config : null;
+    }
+
+    // 所有配置的快照，按名称排序
+    public Map<String, DatabaseConfig> getConfigs() {
+        Map<String, DatabaseConfig> configs = new TreeMap<>();
+        registrations.forEach((name, registration) -> configs.put(name, registration.config));
+        return configs;
+    }
+
+    public void select(String client, String name) {
+        if (!contains(name)) {
+            throw new IllegalArgumentException("数据库配置不存在: " + name);
+        }
+        if (selections.put(client, new Selection(name)) == null) {
+            evictOverflow();
+        }
+    }
+
+    // 获取客户端选择的配置名，未选择或已过期时返回 null
+    public String getSelection(String client) {
+        Selection selection = selections.get(client);
+        if (selection == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        if (now - selection.lastAccess > properties.getSession().getSelectionTtl().toNanos()) {
+            selections.remove(client, selection);
+            return null;
+        }
+        selection.lastAccess = now;
+        return selection.name;
+    }
+
+    // 超出数量上限时淘汰最久未访问的选择，只在新增客户端时检查
+    private void evictOverflow() {
+        int maxSelections = Math.max(1, properties.getSession().getMaxSelections());
+        while (selections.size() > maxSelections) {
+            Map.Entry<String, Selection> eldest = null;
+            for (Map.Entry<String, Selection> entry : selections.entrySet()) {
+                if (eldest == null || entry.getValue().lastAccess < eldest.getValue().lastAccess) {
+                    eldest = entry;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            selections.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    // 定期清理过期的选择
+    @Scheduled(fixedDelay = 60000)
+    public void purgeExpiredSelections() {
+        long expireBefore = System.nanoTime() - properties.getSession().getSelectionTtl().toNanos();
+        selections.values().removeIf(selection -> selection.lastAccess - expireBefore < 0);
+    }
+
+    // 在配置的连接池上执行操作，执行期间连接池不会被关闭
+    public <T> T execute(String name, Function<JdbcTemplate, T> action) {
+        Registration registration = acquire(name);
+        try {
+            return action.apply(registration.jdbcTemplate());
+        } finally {
+            registration.release();
+        }
+    }
+
+    // 在配置的只读副本上执行查询：在健康的副本间轮询，没有副本、没有健康的副本或处于写入后的固定窗口内时使用主库
+    // 副本获取连接失败时标记为不健康并改用主库执行；执行中途失败时结果可能已部分输出，只标记不重试
+    public <T> T executeRead(String name, Function<JdbcTemplate, T> action) {
+        Registration registration = acquire(name);
+        try {
+            Registration.Replica replica = registration.pickReplica();
+            if (replica != null) {
+                try {
+                    T result = action.apply(replica.jdbcTemplate());
+                    replica.reads.incrementAndGet();
+                    return result;
+                } catch (CannotGetJdbcConnectionException e) {
+                    replica.markUnhealthy(e);
+                    registration.fallbackReads.incrementAndGet();
+                } catch (DataAccessResourceFailureException e) {
+                    replica.markUnhealthy(e);
+                    throw e;
+                }
+            }
+            return action.apply(registration.jdbcTemplate());
+        } finally {
+            registration.release();
+        }
+    }
+
+    // 配置上执行了写入：之后 read-after-write-window 内的查询走主库
+    public void recordWrite(String name) {
+        Registration registration = registrations.get(name);
+        if (registration != null) {
+            registration.readPrimaryUntil = System.nanoTime() + properties.getReplica().getReadAfterWriteWindow().toNanos();
+        }
+    }
+
+    // 从配置的连接池借出一个连接长期占用（交互式会话），释放前连接池不会被关闭
+    public PinnedConnection pin(String name) {
+        Registration registration = acquire(name);
+        try {
+            DataSource dataSource = registration.jdbcTemplate().getDataSource();
+            return new PinnedConnection(registration, dataSource, dataSource.getConnection());
+        } catch (SQLException e) {
+            registration.release();
+            throw new IllegalStateException("获取连接失败: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            registration.release();
+            throw e;
+        }
+    }
+
+    // 预热配置的主库连接池：同时借出 count 个连接逐个做健康检查后归还，连接池中因此至少有 count 个物理连接
+    // 返回通过健康检查的连接数，未通过的连接从连接池中移除；连接池无法建连时抛出 SQLException
+    public int prewarm(String name, int count, Duration validationTimeout) throws SQLException {
+        Registration registration = acquire(name);
+        try {
+            DataSource dataSource = registration.jdbcTemplate().getDataSource();
+            int timeoutSeconds = (int) Math.max(1, validationTimeout.toSeconds());
+            List<Connection> borrowed = new ArrayList<>(count);
+            int healthy = 0;
+            try {
+                for (int i = 0; i < count; i++) {
+                    Connection connection = dataSource.getConnection();
+                    if (connection.isValid(timeoutSeconds)) {
+                        borrowed.add(connection);
+                        healthy++;
+                    } else {
+                        sqlExecutorRepository.evictConnection(dataSource, connection);
+                    }
+                }
+            } finally {
+                for (Connection connection : borrowed) {
+                    connection.close();
+                }
+            }
+            return healthy;
+        } finally {
+            registration.release();
+        }
+    }
+
+    // 获取配置的使用权；配置在获取过程中被替换时使用新的配置
+    private Registration acquire(String name) {
+        while (true) {
+            Registration registration = registrations.get(name);
+            if (registration == null) {
+                throw new IllegalStateException("数据库配置不存在: " + name);
+            }
+            if (registration.tryAcquire()) {
+                return registration;
+            }
+        }
+    }
+
+    // 已创建的连接池，按名称排序
+    public Map<String, DataSource> getDataSources() {
+        Map<String, DataSource> dataSources = new TreeMap<>();
+        registrations.forEach((name, registration) -> {
+            DataSource dataSource = registration.dataSource;
+            if (dataSource != null) {
+                dataSources.put(name, dataSource);
+            }
+        });
+        return dataSources;
+    }
+
+    // 各配置只读副本的状态，按名称排序；没有副本的配置不列出
+    public Map<String, Map<String, Object>> getReplicaStats() {
+        Map<String, Map<String, Object>> stats = new TreeMap<>();
+        registrations.forEach((name, registration) -> {
+            if (!registration.replicas.isEmpty()) {
+                stats.put(name, registration.getReplicaStats());
+            }
+        });
+        return stats;
+    }
+
+    // 应用关闭时释放所有连接池
+    @PreDestroy
+    public void closeAll() {
+        registrations.values().forEach(Registration::retire);
+        registrations.clear();
+        selections.clear();
+    }
+
+    // 查询超时时间：优先使用数据库配置中的设置，否则使用全局默认值
+    public int getQueryTimeoutSeconds(String name) {
+        DatabaseConfig config = getConfig(name);
+        return config != null ? getQueryTimeoutSeconds(config) : (int) properties.getQuery().getTimeout().toSeconds();
+    }
+
+    private int getQueryTimeoutSeconds(DatabaseConfig config) {
+        if (config.getQueryTimeoutSeconds() != null && config.getQueryTimeoutSeconds() > 0) {
+            return config.getQueryTimeoutSeconds();
+        }
+        return (int) properties.getQuery().getTimeout().toSeconds();
+    }
+
+    // 长期占用的连接；release 时从连接池移除该物理连接并释放配置的使用权，只生效一次
+    public final class PinnedConnection {
+        private final Registration registration;
+        private final DataSource dataSource;
+        private final Connection connection;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private PinnedConnection(Registration registration, DataSource dataSource, Connection connection) {
+            this.registration = registration;
+            this.dataSource = dataSource;
+            this.connection = connection;
+        }
+
+        public Connection getConnection() {
+            return connection;
+        }
+
+        public void release() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                sqlExecutorRepository.evictConnection(dataSource, connection);
+            } catch (SQLException e) {
+                // 连接已断开，忽略
+            } finally {
+                registration.release();
+            }
+        }
+    }
+
+    private static final class Selection {
+        private final String name;
+        private volatile long lastAccess = System.nanoTime();
+
+        Selection(String name) {
+            this.name = name;
+        }
+    }
+
+    // 一个配置及其连接池；inFlight 为正在使用连接池的操作数，retired 后不再接收新的使用者
+    // 只读副本的连接池同样在首次使用时创建，与主库连接池一起关闭
+    private final class Registration {
+        private final String name;
+        private final DatabaseConfig config;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile boolean retired;
+        private volatile DataSource dataSource;
+        private volatile JdbcTemplate jdbcTemplate;
+        private boolean closed;
+        private final List<Replica> replicas = new ArrayList<>();
+        private final AtomicInteger nextReplica = new AtomicInteger();
+        private final AtomicLong fallbackReads = new AtomicLong();
+        // 在此时间（nanoTime）之前查询走主库
+        private volatile long readPrimaryUntil = System.nanoTime();
+
+        Registration(String name, DatabaseConfig config) {
+            this.name = name;
+            this.config = config;
+            for (String url : config.getReplicaUrls()) {
+                replicas.add(new Replica(name + "-replica-" + (replicas.size() + 1), url));
+            }
+        }
+
+        boolean tryAcquire() {
+            if (retired) {
+                return false;
+            }
+            inFlight.incrementAndGet();
+            if (retired) {
+                release();
+                return false;
+            }
+            return true;
+        }
+
+        void release() {
+            if (inFlight.decrementAndGet() == 0 && retired) {
+                close();
+            }
+        }
+
+        void retire() {
+            retired = true;
+            if (inFlight.get() == 0) {
+                close();
+            }
+        }
+
+        // 首次使用时创建连接池，之后的读取不加锁
+        JdbcTemplate jdbcTemplate() {
+            JdbcTemplate template = jdbcTemplate;
+            if (template != null) {
+                return template;
+            }
+            synchronized (this) {
+                if (closed) {
+                    throw new IllegalStateException("数据库配置已删除: " + name);
+                }
+                if (jdbcTemplate == null) {
+                    dataSource = sqlExecutorRepository.createDataSource(
+                            name, config.getJdbcUrl(), config.getUsername(), config.getPassword());
+                    jdbcTemplate = sqlExecutorRepository.createJdbcTemplate(dataSource, getQueryTimeoutSeconds(config));
+                }
+                return jdbcTemplate;
+            }
+        }
+
+        // 只关闭一次；关闭后不再创建连接池
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            sqlExecutorRepository.closeDataSource(dataSource);
+            for (Replica replica : replicas) {
+                sqlExecutorRepository.closeDataSource(replica.dataSource);
+            }
+        }
+
+        // 从当前副本开始轮询，返回第一个健康的副本；应该使用主库时返回 null
+        Replica pickReplica() {
+            if (replicas.isEmpty() || System.nanoTime() - readPrimaryUntil < 0) {
+                return null;
+            }
+            int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get((start + i) % replicas.size());
+                if (replica.isHealthy()) {
+                    return replica;
+                }
+            }
+            return null;
+        }
+
+        Map<String, Object> getReplicaStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            long readPrimaryNanos = readPrimaryUntil - System.nanoTime();
+            stats.put("readPrimaryMillis", Math.max(0, readPrimaryNanos / 1_000_000));
+            stats.put("fallbackReads", fallbackReads.get());
+            List<Map<String, Object>> list = new ArrayList<>();
+            for (Replica replica : replicas) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("name", replica.name);
+                item.put("url", replica.url);
+                item.put("healthy", replica.isHealthy());
+                item.put("reads", replica.reads.get());
+                item.put("failures", replica.failures.get());
+                if (replica.lastError != null) {
+                    item.put("lastError", replica.lastError);
+                }
+                DataSource replicaDataSource = replica.dataSource;
+                if (replicaDataSource != null) {
+                    item.put("pool", sqlExecutorRepository.getPoolStats(replicaDataSource));
+                }
+                list.add(item);
+            }
+            stats.put("replicas", list);
+            return stats;
+        }
+
+        // 一个只读副本；连接失败后 unhealthy-cooldown 内不再使用，之后的第一次查询重新尝试
+        private final class Replica {
+            private final String name;
+            private final String url;
+            private final AtomicLong reads = new AtomicLong();
+            private final AtomicLong failures = new AtomicLong();
+            private volatile DataSource dataSource;
+            private volatile JdbcTemplate jdbcTemplate;
+            // 在此时间（nanoTime）之前不使用该副本
+            private volatile long unhealthyUntil = System.nanoTime();
+            private volatile String lastError;
+
+            Replica(String name, String url) {
+                this.name = name;
+                this.url = url;
+            }
+
+            boolean isHealthy() {
+                return System.nanoTime() - unhealthyUntil >= 0;
+            }
+
+            void markUnhealthy(Exception e) {
+                failures.incrementAndGet();
+                lastError = e.getMessage();
+                unhealthyUntil = System.nanoTime() + properties.getReplica().getUnhealthyCooldown().toNanos();
+                log.warn("只读副本 {} 不可用，{} 内改用其他副本或主库", name, properties.getReplica().getUnhealthyCooldown(), e);
+            }
+
+            // 与主库连接池共用 Registration 的锁和关闭状态；创建失败视为获取连接失败
+            JdbcTemplate jdbcTemplate() {
+                JdbcTemplate template = jdbcTemplate;
+                if (template != null) {
+                    return template;
+                }
+                synchronized (Registration.this) {
+                    if (closed) {
+                        throw new IllegalStateException("数据库配置已删除: " + Registration.this.name);
+                    }
+                    if (jdbcTemplate == null) {
+                        try {
+                            dataSource = sqlExecutorRepository.createDataSource(name, url, config.getUsername(),
+                                    config.getPassword(), properties.getReplica().getConnectionTimeout());
+                        } catch (RuntimeException e) {
+                            throw new CannotGetJdbcConnectionException("创建只读副本连接池失败: " + e.getMessage());
+                        }
+                        jdbcTemplate = sqlExecutorRepository.createJdbcTemplate(dataSource, getQueryTimeoutSeconds(config));
+                    }
+                    return jdbcTemplate;
+                }
+            }
+        }
+    }
+}
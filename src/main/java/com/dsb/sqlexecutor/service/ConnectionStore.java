@@ -0,0 +1,287 @@
+package com.dsb.sqlexecutor.service;
+
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.DatabaseConfig;
+import com.dsb.sqlexecutor.util.SecretCipher;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// 数据库配置持久化：配置保存或删除后把全部配置写入本地 JSON 文件，密码用 AES-GCM 加密（以配置名作为附加认证数据）
+// 应用就绪后在后台线程加载文件中的配置，再以有限的并发把各配置的主库连接池预热到 minimum-idle，不阻塞启动和请求
+// 加载完成前保存配置时先在当前线程完成加载，写入的文件不会丢掉尚未加载的配置
+@Service
+public class ConnectionStore {
+
+    private final Logger log = LoggerFactory.getLogger(ConnectionStore.class);
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String DEFAULT_FILE_NAME = "connections.json";
+    private static final String KEY_FILE_NAME = "connections.key";
+    private static final String ENCRYPTED_PASSWORD = "encryptedPassword";
+
+    @Autowired
+    private ConnectionRegistry connectionRegistry;
+
+    @Autowired
+    private SqlExecutorProperties properties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 以下三个字段由 this 的锁保护
+    private boolean loaded;
+    // 文件存在但无法读取（密钥不对、文件损坏）时本次运行不再写入，避免覆盖原有配置
+    private boolean writable = true;
+    private SecretCipher cipher;
+
+    // 配置名 -> 启动预热状态
+    private final Map<String, PrewarmStatus> prewarmStatus = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        SqlExecutorProperties.Registry config = properties.getRegistry();
+        if (!config.isPersistent()) {
+            return;
+        }
+        Thread thread = threadFactory("connection-store-").newThread(() -> {
+            load();
+            if (config.isPrewarm()) {
+                prewarmAll();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // 读取配置文件并注册其中的配置，只执行一次；已存在的同名配置（加载前用户新保存的）不覆盖
+    public synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!properties.getRegistry().isPersistent()) {
+            return;
+        }
+        Path file = resolveFile();
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            JsonNode root = objectMapper.readTree(file.toFile());
+            int restored = 0;
+            Iterator<Map.Entry<String, JsonNode>> entries = root.path("connections").fields();
+            while (entries.hasNext()) {
+                Map.Entry<String, JsonNode> entry = entries.next();
+                String name = entry.getKey();
+                ObjectNode node = entry.getValue().deepCopy();
+                JsonNode encrypted = node.remove(ENCRYPTED_PASSWORD);
+                DatabaseConfig config = objectMapper.treeToValue(node, DatabaseConfig.class);
+                if (encrypted != null && !encrypted.isNull()) {
+                    config.setPassword(cipher(false).decrypt(encrypted.asText(), name));
+                }
+                if (connectionRegistry.registerIfAbsent(name, config)) {
+                    restored++;
+                }
+            }
+            log.info("已从 {} 恢复 {} 个数据库配置", file, restored);
+        } catch (IOException | RuntimeException e) {
+            writable = false;
+            log.error("读取数据库配置文件 {} 失败，本次运行不会写入该文件", file, e);
+        }
+    }
+
+    // 把当前所有配置写入文件：先写同目录的临时文件再原子替换，不会留下写了一半的文件
+    public synchronized void save() {
+        if (!properties.getRegistry().isPersistent()) {
+            return;
+        }
+        load();
+        Path file = resolveFile();
+        if (!writable) {
+            log.warn("数据库配置文件 {} 读取失败过，本次修改只在内存中生效", file);
+            return;
+        }
+        try {
+            ObjectNode root = objectMapper.createObjectNode();
+            root.put("version", FORMAT_VERSION);
+            ObjectNode connections = root.putObject("connections");
+            for (Map.Entry<String, DatabaseConfig> entry : connectionRegistry.getConfigs().entrySet()) {
+                connections.set(entry.getKey(), toNode(entry.getKey(), entry.getValue()));
+            }
+            writeOwnerOnly(file, objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(root));
+        } catch (IOException e) {
+            throw new IllegalStateException("数据库配置已生效，但写入配置文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    private ObjectNode toNode(String name, DatabaseConfig config) throws IOException {
+        ObjectNode node = objectMapper.valueToTree(config);
+        node.remove("password");
+        if (config.getPassword() != null) {
+            node.put(ENCRYPTED_PASSWORD, cipher(true).encrypt(config.getPassword(), name));
+        }
+        return node;
+    }
+
+    // 密钥优先使用 secret-key，否则读取配置文件同目录下的密钥文件；create 为 true 时密钥文件不存在则生成
+    // 读取已有配置时不生成密钥，密钥文件丢失时加载失败，而不是生成新密钥后再也无法解密原有配置
+    private SecretCipher cipher(boolean create) throws IOException {
+        if (cipher != null) {
+            return cipher;
+        }
+        String configured = properties.getRegistry().getSecretKey();
+        byte[] key;
+        if (configured != null && !configured.isBlank()) {
+            key = Base64.getDecoder().decode(configured.trim());
+        } else {
+            Path keyFile = resolveFile().resolveSibling(KEY_FILE_NAME);
+            if (Files.exists(keyFile)) {
+                key = Base64.getDecoder().decode(Files.readString(keyFile, StandardCharsets.US_ASCII).trim());
+            } else if (!create) {
+                throw new IllegalStateException("密钥文件不存在: " + keyFile);
+            } else {
+                key = SecretCipher.generateKey();
+                writeOwnerOnly(keyFile, Base64.getEncoder().encode(key));
+                log.info("已生成数据库配置加密密钥 {}，请与配置文件分开备份", keyFile);
+            }
+        }
+        cipher = new SecretCipher(key);
+        return cipher;
+    }
+
+    // 临时文件由 createTempFile 创建，在 POSIX 系统上权限为仅所有者可读写，替换后目标文件保持该权限
+    private static void writeOwnerOnly(Path file, byte[] content) throws IOException {
+        Path directory = file.getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "." + file.getFileName(), ".tmp");
+        try {
+            Files.write(temp, content);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path resolveFile() {
+        String configured = properties.getRegistry().getFile();
+        Path file = configured == null || configured.isBlank()
+                ? Paths.get(System.getProperty("user.home"), ".sqlexecutor", DEFAULT_FILE_NAME)
+                : Paths.get(configured);
+        return file.toAbsolutePath();
+    }
+
+    // 并发预热所有配置的连接池，并发数为 prewarm-parallelism；单个配置失败不影响其他配置
+    private void prewarmAll() {
+        List<String> names = new ArrayList<>(connectionRegistry.getConfigs().keySet());
+        if (names.isEmpty()) {
+            return;
+        }
+        SqlExecutorProperties.Registry config = properties.getRegistry();
+        SqlExecutorProperties.Pool pool = properties.getPool();
+        int connections = Math.max(1, Math.min(pool.getMinimumIdle(), pool.getMaximumPoolSize()));
+        int threads = Math.max(1, Math.min(config.getPrewarmParallelism(), names.size()));
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (String name : names) {
+            PrewarmStatus status = new PrewarmStatus(connections);
+            prewarmStatus.put(name, status);
+            tasks.add(Executors.callable(() -> prewarm(name, status, config)));
+        }
+
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, threadFactory("prewarm-"));
+        try {
+            executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        long ready = prewarmStatus.values().stream().filter(status -> "ready".equals(status.state)).count();
+        log.info("连接池预热完成：{} 个配置中 {} 个就绪，耗时 {} ms", names.size(), ready,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void prewarm(String name, PrewarmStatus status, SqlExecutorProperties.Registry config) {
+        long start = System.nanoTime();
+        status.state = "warming";
+        try {
+            status.healthy = connectionRegistry.prewarm(name, status.target, config.getPrewarmTimeout());
+            status.state = status.healthy == status.target ? "ready" : "degraded";
+        } catch (Exception e) {
+            status.state = "failed";
+            status.error = e.getMessage();
+            log.warn("预热数据库配置 {} 的连接池失败: {}", name, e.getMessage());
+        } finally {
+            status.elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        }
+    }
+
+    // 启动预热状态，按配置名排序；已删除的配置不列出
+    public Map<String, Map<String, Object>> getPrewarmStats() {
+        Map<String, Map<String, Object>> stats = new TreeMap<>();
+        prewarmStatus.forEach((name, status) -> {
+            if (connectionRegistry.contains(name)) {
+                stats.put(name, status.toMap());
+            }
+        });
+        return stats;
+    }
+
+    private ThreadFactory threadFactory(String prefix) {
+        return properties.isVirtualThreads()
+                ? Thread.ofVirtual().name(prefix, 0).factory()
+                : new CustomizableThreadFactory(prefix);
+    }
+
+    // 一个配置的预热进度：pending -> warming -> ready（全部连接通过健康检查）/ degraded（部分通过）/ failed
+    private static final class PrewarmStatus {
+        private final int target;
+        private volatile String state = "pending";
+        private volatile int healthy;
+        private volatile long elapsedMillis;
+        private volatile String error;
+
+        PrewarmStatus(int target) {
+            this.target = target;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("state", state);
+            map.put("target", target);
+            map.put("healthy", healthy);
+            map.put("elapsedMillis", elapsedMillis);
+            if (error != null) {
+                map.put("error", error);
+            }
+            return map;
+        }
+    }
+}
@@ -0,0 +1,550 @@
+package com.dsb.sqlexecutor.service;
+
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.CsvImportJob;
+import com.dsb.sqlexecutor.util.CsvReader;
+import com.microsoft.sqlserver.jdbc.ISQLServerBulkData;
+import com.microsoft.sqlserver.jdbc.SQLServerBulkCopy;
+import com.microsoft.sqlserver.jdbc.SQLServerBulkCopyOptions;
+import com.microsoft.sqlserver.jdbc.SQLServerConnection;
+import microsoft.sql.DateTimeOffset;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// CSV 导入：请求体边上传边解析，每次只在内存中保留一行，按列名映射到目标表后用驱动的批量复制写入
+// 连接不支持批量复制或指定 batch 方式时改用 JDBC 批量 INSERT，每批提交一次
+// 两种方式都是每 batch-size 行一个事务：导入失败时出错的批次回滚，之前已提交的批次留在表中，行数即 rowsCommitted
+@Service
+public class CsvImportService {
+
+    private final Logger log = LoggerFactory.getLogger(CsvImportService.class);
+
+    // [schema.]table，各部分可以用方括号括起来
+    private static final Pattern TABLE_NAME = Pattern.compile(
+            "^(?:(\\[(?:[^\\]]|\\]\\])+\\]|[\\w@#$]+)\\.)?(\\[(?:[^\\]]|\\]\\])+\\]|[\\w@#$]+)$");
+    private static final Pattern IMPORT_ID = Pattern.compile("^[\\w-]{1,64}$");
+    // 每读取这么多行检查一次是否需要写进度日志
+    private static final int PROGRESS_CHECK_ROWS = 4096;
+
+    @Autowired
+    private SqlExecutorService sqlExecutorService;
+
+    @Autowired
+    private QueryMetrics queryMetrics;
+
+    @Autowired
+    private SqlExecutorProperties properties;
+
+    private final Map<String, CsvImportJob> imports = new ConcurrentHashMap<>();
+
+    // 把 in 中的 CSV 导入当前数据库配置的 table，在调用线程中执行直到读完请求体
+    // header 为 true 时第一行是列名，按列名（不区分大小写）映射到目标表；columns 指定时按位置映射到这些列，空项表示跳过该字段
+    // 两者都没有时按位置映射到目标表中除自增列外的列
+    // id 由客户端指定时可以在导入过程中用它查询进度；参数错误时抛出异常，导入过程中出错时返回失败状态
+    public CsvImportJob importCsv(String id, String table, InputStream in, Charset charset, char delimiter,
+                                  boolean header, List<String> columns, String mode) {
+        String databaseName = sqlExecutorService.requireCurrentDatabase();
+        String[] tableParts = parseTableName(table);
+        String qualifiedTable = qualify(tableParts);
+        SqlExecutorProperties.CsvImport config = properties.getCsvImport();
+        String resolvedMode = mode == null || mode.isBlank() ? config.getMode() : mode.trim().toLowerCase(Locale.ROOT);
+        if (!Set.of("auto", "bulk", "batch").contains(resolvedMode)) {
+            throw new IllegalArgumentException("不支持的导入方式: " + mode + "，可选 auto、bulk、batch");
+        }
+        Set<String> cachedColumns = cachedColumns(tableParts[1]);
+
+        String importId = id == null || id.isBlank() ? UUID.randomUUID().toString() : id.trim();
+        if (!IMPORT_ID.matcher(importId).matches()) {
+            throw new IllegalArgumentException("导入 ID 只能包含字母、数字、下划线和连字符，最长 64 个字符");
+        }
+        CsvImportJob job = new CsvImportJob(importId, databaseName, qualifiedTable);
+        if (imports.putIfAbsent(importId, job) != null) {
+            throw new IllegalArgumentException("导入 ID 已存在: " + importId);
+        }
+
+        CsvReader reader = new CsvReader(new InputStreamReader(in, charset), delimiter, config.getMaxFieldLength());
+        long start = System.nanoTime();
+        String insertSql = "INSERT INTO " + qualifiedTable;
+        Exception error = null;
+        try {
+            // 列映射在获取连接之前确定，列名错误时不占用连接
+            String[] first = reader.next();
+            if (first == null) {
+                throw new IllegalArgumentException("CSV 内容为空");
+            }
+            List<String> sourceColumns;
+            String[] pending = null;
+            if (columns != null && !columns.isEmpty()) {
+                sourceColumns = columns.stream().map(String::trim).toList();
+                if (!header) {
+                    pending = first;
+                }
+            } else if (header) {
+                sourceColumns = List.of(first);
+            } else {
+                sourceColumns = null;
+                pending = first;
+            }
+            if (sourceColumns != null) {
+                checkColumns(sourceColumns, cachedColumns, qualifiedTable);
+            }
+            int fieldCount = sourceColumns != null ? sourceColumns.size() : first.length;
+            String[] firstRow = pending;
+
+            long rows = sqlExecutorService.executeConnection(databaseName, connection -> {
+                List<TargetColumn> targets = resolveTargets(connection, qualifiedTable, sourceColumns, fieldCount);
+                job.setColumns(targets.stream().map(target -> target.name).toList());
+                CsvRowSource source = new CsvRowSource(reader, firstRow, fieldCount, targets, job, config);
+                boolean bulk = !"batch".equals(resolvedMode) && connection.isWrapperFor(SQLServerConnection.class);
+                if ("bulk".equals(resolvedMode) && !bulk) {
+                    throw new SQLException("当前连接不支持批量复制");
+                }
+                job.setMode(bulk ? "bulk" : "batch");
+                log.info("开始导入 CSV: {}，数据库配置: {}，表: {}，方式: {}，列: {}",
+                        importId, databaseName, qualifiedTable, job.getMode(), job.getColumns());
+                return bulk
+                        ? bulkCopy(connection, qualifiedTable, targets, source, config)
+                        : batchInsert(connection, qualifiedTable, targets, source, job, config);
+            });
+            job.succeed(rows);
+            log.info("CSV 导入完成: {}，{} 行，耗时 {} ms，{} 行/秒",
+                    importId, rows, job.getElapsedMillis(), job.getRowsPerSecond());
+        } catch (IOException | RuntimeException e) {
+            error = e;
+            job.fail(messageOf(e));
+            log.warn("CSV 导入失败: {}，已读取 {} 行: {}", importId, job.getRowsRead(), messageOf(e));
+        } finally {
+            queryMetrics.record(databaseName, insertSql, true, System.nanoTime() - start,
+                    error == null ? job.getRowsCommitted() : -1, error);
+            // 失败时也可能有已提交的批次
+            sqlExecutorService.notifyUpdate(databaseName, insertSql);
+        }
+        return job;
+    }
+
+    public CsvImportJob getImport(String id) {
+        CsvImportJob job = imports.get(id);
+        if (job == null) {
+            throw new IllegalArgumentException("导入不存在或已过期: " + id);
+        }
+        return job;
+    }
+
+    public List<CsvImportJob> getImports() {
+        return imports.values().stream()
+                .sorted((a, b) -> b.getStartedAt().compareTo(a.getStartedAt()))
+                .toList();
+    }
+
+    // 取消正在进行的导入，在读取下一行时生效
+    public CsvImportJob cancel(String id) {
+        CsvImportJob job = getImport(id);
+        if (!job.requestCancel()) {
+            throw new IllegalStateException("导入已结束: " + id);
+        }
+        return job;
+    }
+
+    // 定期清理超过保留时间的已结束导入
+    @Scheduled(fixedDelay = 60000)
+    public void purgeFinishedImports() {
+        long retentionMillis = properties.getCsvImport().getRetention().toMillis();
+        long now = System.currentTimeMillis();
+        imports.values().removeIf(job -> job.isFinished()
+                && now - job.getFinishedAt().toEpochMilli() > retentionMillis);
+    }
+
+    private static long bulkCopy(Connection connection, String table, List<TargetColumn> targets,
+                                 CsvRowSource source, SqlExecutorProperties.CsvImport config) throws SQLException {
+        SQLServerBulkCopyOptions options = new SQLServerBulkCopyOptions();
+        options.setBatchSize(Math.max(1, config.getBatchSize()));
+        // 导入时长取决于上传速度，不设超时
+        options.setBulkCopyTimeout(0);
+        options.setTableLock(config.isTableLock());
+        // 空字段写入 NULL 而不是列的默认值，与批量 INSERT 一致
+        options.setKeepNulls(true);
+        try (SQLServerBulkCopy bulkCopy = new SQLServerBulkCopy(connection.unwrap(SQLServerConnection.class))) {
+            bulkCopy.setBulkCopyOptions(options);
+            bulkCopy.setDestinationTableName(table);
+            for (int i = 0; i < targets.size(); i++) {
+                bulkCopy.addColumnMapping(i + 1, targets.get(i).name);
+            }
+            // 自动提交模式下驱动每批单独提交，批次边界由数据源记录已提交的行数
+            source.trackCommits(options.getBatchSize());
+            bulkCopy.writeToServer(source);
+        }
+        source.job.setRowsCommitted(source.rows);
+        return source.rows;
+    }
+
+    private static long batchInsert(Connection connection, String table, List<TargetColumn> targets,
+                                    CsvRowSource source, CsvImportJob job,
+                                    SqlExecutorProperties.CsvImport config) throws SQLException {
+        String sql = "INSERT INTO " + table + " ("
+                + targets.stream().map(target -> quote(target.name)).collect(Collectors.joining(", "))
+                + ") VALUES (" + String.join(", ", Collections.nCopies(targets.size(), "?")) + ")";
+        int batchSize = Math.max(1, config.getBatchSize());
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        long committed = 0;
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            int pending = 0;
+            while (source.next()) {
+                Object[] row = source.getRowData();
+                for (int i = 0; i < row.length; i++) {
+                    if (row[i] == null) {
+                        ps.setNull(i + 1, targets.get(i).type);
+                    } else {
+                        ps.setObject(i + 1, row[i]);
+                    }
+                }
+                ps.addBatch();
+                if (++pending == batchSize) {
+                    ps.executeBatch();
+                    connection.commit();
+                    committed += pending;
+                    job.setRowsCommitted(committed);
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                ps.executeBatch();
+                connection.commit();
+                committed += pending;
+                job.setRowsCommitted(committed);
+            }
+            return committed;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    // 读取目标表的列类型；sourceColumns 为空时按位置取除自增列外的前 fieldCount 列
+    private static List<TargetColumn> resolveTargets(Connection connection, String table, List<String> sourceColumns,
+                                                     int fieldCount) throws SQLException {
+        List<TargetColumn> tableColumns = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT TOP 0 * FROM " + table)) {
+            ResultSetMetaData meta = rs.getMetaData();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                tableColumns.add(new TargetColumn(meta.getColumnName(i), meta.getColumnType(i),
+                        meta.getColumnTypeName(i), meta.getPrecision(i), meta.getScale(i), meta.isAutoIncrement(i)));
+            }
+        }
+
+        List<TargetColumn> targets = new ArrayList<>();
+        if (sourceColumns == null) {
+            List<TargetColumn> writable = tableColumns.stream().filter(column -> !column.autoIncrement).toList();
+            if (fieldCount > writable.size()) {
+                throw new SQLException("CSV 有 " + fieldCount + " 个字段，表 " + table + " 只有 " + writable.size() + " 个可写入的列");
+            }
+            for (int i = 0; i < fieldCount; i++) {
+                targets.add(writable.get(i).withSource(i));
+            }
+            return targets;
+        }
+        for (int i = 0; i < sourceColumns.size(); i++) {
+            String name = sourceColumns.get(i);
+            if (name.isEmpty()) {
+                continue;
+            }
+            TargetColumn column = tableColumns.stream()
+                    .filter(candidate -> candidate.name.equalsIgnoreCase(name))
+                    .findFirst()
+                    .orElseThrow(() -> new SQLException("表 " + table + " 中没有列: " + name));
+            targets.add(column.withSource(i));
+        }
+        return targets;
+    }
+
+    // 用缓存的列元数据提前检查列名，缓存中没有该表时报错（新建的表需要先刷新元数据）
+    private Set<String> cachedColumns(String tableName) {
+        Set<String> columns = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (Map<String, Object> row : sqlExecutorService.getColumnMetadata().getValue()) {
+            if (tableName.equalsIgnoreCase(String.valueOf(row.get("TABLE_NAME")))) {
+                columns.add(String.valueOf(row.get("COLUMN_NAME")));
+            }
+        }
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("表不存在: " + tableName + "（新建的表请先刷新元数据）");
+        }
+        return columns;
+    }
+
+    private static void checkColumns(List<String> sourceColumns, Set<String> cachedColumns, String table) {
+        Set<String> seen = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        Set<String> unknown = new LinkedHashSet<>();
+        for (String column : sourceColumns) {
+            if (column.isEmpty()) {
+                continue;
+            }
+            if (!seen.add(column)) {
+                throw new IllegalArgumentException("列重复: " + column);
+            }
+            if (!cachedColumns.contains(column)) {
+                unknown.add(column);
+            }
+        }
+        if (seen.isEmpty()) {
+            throw new IllegalArgumentException("没有要导入的列");
+        }
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("表 " + table + " 中没有这些列: " + String.join(", ", unknown));
+        }
+    }
+
+    // 拆分并去掉方括号，返回 {schema（可能为 null）, table}
+    static String[] parseTableName(String table) {
+        Matcher matcher = table == null ? null : TABLE_NAME.matcher(table.trim());
+        if (matcher == null || !matcher.matches()) {
+            throw new IllegalArgumentException("表名格式不正确: " + table);
+        }
+        return new String[]{unquote(matcher.group(1)), unquote(matcher.group(2))};
+    }
+
+    private static String unquote(String part) {
+        if (part == null || !part.startsWith("[")) {
+            return part;
+        }
+        return part.substring(1, part.length() - 1).replace("]]", "]");
+    }
+
+    static String qualify(String[] parts) {
+        return parts[0] != null ? quote(parts[0]) + "." + quote(parts[1]) : quote(parts[1]);
+    }
+
+    static String quote(String identifier) {
+        return "[" + identifier.replace("]", "]]") + "]";
+    }
+
+    static String messageOf(Exception e) {
+        if (e instanceof DataAccessException dataAccessException) {
+            return dataAccessException.getMostSpecificCause().getMessage();
+        }
+        return e.getMessage();
+    }
+
+    // 把 CSV 字段转换为列类型对应的 Java 对象；空字段为 NULL
+    private static Object convert(String value, TargetColumn column) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        String text = value.trim();
+        return switch (column.type) {
+            case Types.BIT, Types.BOOLEAN -> parseBoolean(text);
+            case Types.TINYINT, Types.SMALLINT -> Short.valueOf(text);
+            case Types.INTEGER -> Integer.valueOf(text);
+            case Types.BIGINT -> Long.valueOf(text);
+            case Types.DECIMAL, Types.NUMERIC, microsoft.sql.Types.MONEY, microsoft.sql.Types.SMALLMONEY ->
+                    new BigDecimal(text).setScale(column.scale, RoundingMode.HALF_UP);
+            case Types.REAL -> Float.valueOf(text);
+            case Types.FLOAT, Types.DOUBLE -> Double.valueOf(text);
+            case Types.DATE -> java.sql.Date.valueOf(LocalDate.parse(text));
+            case Types.TIME -> Timestamp.valueOf(LocalDateTime.of(LocalDate.of(1900, 1, 1), LocalTime.parse(text)));
+            case Types.TIMESTAMP, microsoft.sql.Types.DATETIME, microsoft.sql.Types.SMALLDATETIME ->
+                    Timestamp.valueOf(text.length() == 10 ? text + " 00:00:00" : text.replace('T', ' '));
+            case microsoft.sql.Types.DATETIMEOFFSET -> {
+                OffsetDateTime dateTime = OffsetDateTime.parse(text.replace(' ', 'T'));
+                yield DateTimeOffset.valueOf(Timestamp.from(dateTime.toInstant()),
+                        dateTime.getOffset().getTotalSeconds() / 60);
+            }
+            case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB ->
+                    HexFormat.of().parseHex(text.startsWith("0x") || text.startsWith("0X") ? text.substring(2) : text);
+            default -> value;
+        };
+    }
+
+    private static Boolean parseBoolean(String text) {
+        return switch (text.toLowerCase(Locale.ROOT)) {
+            case "1", "true", "t", "yes", "y" -> Boolean.TRUE;
+            case "0", "false", "f", "no", "n" -> Boolean.FALSE;
+            default -> throw new IllegalArgumentException("不是布尔值");
+        };
+    }
+
+    // 目标表的一列；source 为对应的 CSV 字段位置
+    private static final class TargetColumn {
+        private final String name;
+        private final int type;
+        private final String typeName;
+        private final int precision;
+        private final int scale;
+        private final boolean autoIncrement;
+        private final int source;
+
+        TargetColumn(String name, int type, String typeName, int precision, int scale, boolean autoIncrement) {
+            this(name, type, typeName, precision, scale, autoIncrement, -1);
+        }
+
+        private TargetColumn(String name, int type, String typeName, int precision, int scale,
+                             boolean autoIncrement, int source) {
+            this.name = name;
+            this.type = type;
+            this.typeName = typeName;
+            this.precision = precision;
+            this.scale = scale;
+            this.autoIncrement = autoIncrement;
+            this.source = source;
+        }
+
+        TargetColumn withSource(int source) {
+            return new TargetColumn(name, type, typeName, precision, scale, autoIncrement, source);
+        }
+    }
+
+    // 逐行读取 CSV 并转换为目标列的值，同时作为批量复制的数据源；只保留当前行
+    private static final class CsvRowSource implements ISQLServerBulkData {
+        private final Logger log = LoggerFactory.getLogger(CsvImportService.class);
+        private final CsvReader reader;
+        private String[] pending;
+        private final int fieldCount;
+        private final List<TargetColumn> targets;
+        private final CsvImportJob job;
+        private final long progressLogNanos;
+        private final Set<Integer> ordinals = new LinkedHashSet<>();
+        private Object[] row;
+        private long rows;
+        private long lastLog = System.nanoTime();
+        // 批量复制的批大小，0 表示已提交行数由调用方记录（批量 INSERT）
+        private int commitBatchSize;
+
+        CsvRowSource(CsvReader reader, String[] pending, int fieldCount, List<TargetColumn> targets, CsvImportJob job,
+                     SqlExecutorProperties.CsvImport config) {
+            this.reader = reader;
+            this.pending = pending;
+            this.fieldCount = fieldCount;
+            this.targets = targets;
+            this.job = job;
+            this.progressLogNanos = config.getProgressLogInterval().toNanos();
+            for (int i = 1; i <= targets.size(); i++) {
+                ordinals.add(i);
+            }
+        }
+
+        void trackCommits(int batchSize) {
+            this.commitBatchSize = batchSize;
+        }
+
+        @Override
+        public boolean next() throws SQLException {
+            // 驱动读满一批后先发送并等服务端完成这一批，再读取下一行：此时已读取的整批行都已提交
+            if (commitBatchSize > 0 && rows > 0 && rows % commitBatchSize == 0) {
+                job.setRowsCommitted(rows);
+            }
+            if (job.isCancelRequested()) {
+                throw new SQLException("导入已取消");
+            }
+            String[] record;
+            try {
+                record = pending != null ? pending : reader.next();
+            } catch (IOException e) {
+                throw new SQLException("读取 CSV 失败: " + e.getMessage(), e);
+            }
+            pending = null;
+            if (record == null) {
+                return false;
+            }
+            if (record.length != fieldCount) {
+                throw new SQLException("第 " + reader.getRecordLine() + " 行有 " + record.length
+                        + " 个字段，应为 " + fieldCount + " 个");
+            }
+            Object[] values = new Object[targets.size()];
+            for (int i = 0; i < values.length; i++) {
+                TargetColumn target = targets.get(i);
+                String value = record[target.source];
+                try {
+                    values[i] = convert(value, target);
+                } catch (RuntimeException e) {
+                    throw new SQLException("第 " + reader.getRecordLine() + " 行列 " + target.name + " 的值无法转换为 "
+                            + target.typeName + ": " + abbreviate(value));
+                }
+            }
+            row = values;
+            rows++;
+            job.setRowsRead(rows);
+            if (rows % PROGRESS_CHECK_ROWS == 0) {
+                long now = System.nanoTime();
+                if (now - lastLog >= progressLogNanos) {
+                    lastLog = now;
+                    log.info("CSV 导入进度: {}，已读取 {} 行，已提交 {} 行，{} 行/秒",
+                            job.getId(), rows, job.getRowsCommitted(), job.getRowsPerSecond());
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Object[] getRowData() {
+            return row;
+        }
+
+        @Override
+        public Set<Integer> getColumnOrdinals() {
+            return ordinals;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return targets.get(column - 1).name;
+        }
+
+        @Override
+        public int getColumnType(int column) {
+            return targets.get(column - 1).type;
+        }
+
+        @Override
+        public int getPrecision(int column) {
+            return targets.get(column - 1).precision;
+        }
+
+        @Override
+        public int getScale(int column) {
+            return targets.get(column - 1).scale;
+        }
+
+        private static String abbreviate(String value) {
+            return value.length() <= 100 ? value : value.substring(0, 100) + "...";
+        }
+    }
+}
@@ -0,0 +1,670 @@
+package com.dsb.sqlexecutor.service;
+
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.ColumnInfo;
+import com.dsb.sqlexecutor.repository.SqlExecutorRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+// 跨数据库数据比较：在两个数据库配置上按主键排序并发读取同一张表，流式归并连接，只输出差异行
+// 每一侧由单独的线程读取，读到的行放入有界队列，内存占用与表大小无关
+// 字符主键按 BIN2 排序规则排序、uniqueidentifier 按 SQL Server 的顺序比较，使数据库返回的顺序与这里的比较顺序一致；
+// 读取时检查顺序，顺序不一致或主键重复时停止比较并报错，不会输出错误的差异
+// 分块校验（仅单列主键）：按源表主键每 chunkSize 行划分范围，两边先比较每个范围的行数和校验值，一致的范围直接跳过
+@Service
+public class DataCompareService {
+
+    private final Logger log = LoggerFactory.getLogger(DataCompareService.class);
+
+    private static final String BINARY_COLLATION = "Latin1_General_BIN2";
+    // 读取线程每次放入队列的行数
+    private static final int BATCH_ROWS = 256;
+    // 读取结束标记
+    private static final List<Object[]> END = new ArrayList<>(0);
+    private static final Set<Integer> CHARACTER_TYPES = Set.of(Types.CHAR, Types.VARCHAR, Types.NCHAR,
+            Types.NVARCHAR, Types.LONGVARCHAR, Types.LONGNVARCHAR);
+    // SQL Server 比较 uniqueidentifier 时各字节的先后（按字符串形式中每个字节的起始位置）：
+    // 先比较最后 6 个字节，再比较第 4 段，第 1～3 段按字节倒序比较
+    private static final int[] GUID_ORDER = {24, 26, 28, 30, 32, 34, 19, 21, 16, 14, 11, 9, 6, 4, 2, 0};
+
+    @Autowired
+    private SqlExecutorService sqlExecutorService;
+
+    @Autowired
+    private SqlExecutorProperties properties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 校验参数并解析两边的表结构，比较开始前发现的错误直接抛出
+    // columns 为空时比较两边都有的全部非主键列；chunkSize 为空时使用配置的默认值
+    public Plan prepare(String source, String target, String table, List<String> keys, List<String> columns,
+                        String where, Integer chunkSize) {
+        Set<String> configured = sqlExecutorService.getAllDatabaseConfigs().keySet();
+        for (String name : new String[]{source, target}) {
+            if (name == null || !configured.contains(name)) {
+                throw new IllegalArgumentException("数据库配置不存在: " + name);
+            }
+        }
+        String qualifiedTable = CsvImportService.qualify(CsvImportService.parseTableName(table));
+        List<String> keyNames = trimmed(keys);
+        if (keyNames.isEmpty()) {
+            throw new IllegalArgumentException("请指定主键列");
+        }
+
+        Map<String, ColumnInfo> sourceColumns = describe(source, qualifiedTable);
+        Map<String, ColumnInfo> targetColumns = describe(target, qualifiedTable);
+        List<ColumnInfo> keyColumns = new ArrayList<>();
+        for (String key : keyNames) {
+            ColumnInfo sourceColumn = sourceColumns.get(key.toLowerCase(Locale.ROOT));
+            ColumnInfo targetColumn = targetColumns.get(key.toLowerCase(Locale.ROOT));
+            if (sourceColumn == null || targetColumn == null) {
+                throw new IllegalArgumentException("两边的表都必须有主键列: " + key);
+            }
+            if (orderKind(sourceColumn) != orderKind(targetColumn)) {
+                throw new IllegalArgumentException("主键列两边的类型不一致，无法按相同顺序比较: " + key
+                        + "（" + sourceColumn.getType() + " / " + targetColumn.getType() + "）");
+            }
+            keyColumns.add(sourceColumn);
+        }
+
+        Set<String> keySet = new LinkedHashSet<>();
+        keyColumns.forEach(column -> keySet.add(column.getName().toLowerCase(Locale.ROOT)));
+        List<String> compared = new ArrayList<>();
+        List<String> requested = trimmed(columns);
+        if (!requested.isEmpty()) {
+            for (String name : requested) {
+                String lower = name.toLowerCase(Locale.ROOT);
+                if (!sourceColumns.containsKey(lower) || !targetColumns.containsKey(lower)) {
+                    throw new IllegalArgumentException("两边的表都必须有比较列: " + name);
+                }
+                if (!keySet.contains(lower) && !compared.contains(sourceColumns.get(lower).getName())) {
+                    compared.add(sourceColumns.get(lower).getName());
+                }
+            }
+        } else {
+            sourceColumns.forEach((lower, column) -> {
+                if (!keySet.contains(lower) && targetColumns.containsKey(lower)) {
+                    compared.add(column.getName());
+                }
+            });
+        }
+        List<String> sourceOnly = sourceColumns.entrySet().stream()
+                .filter(entry -> !targetColumns.containsKey(entry.getKey()))
+                .map(entry -> entry.getValue().getName()).toList();
+        List<String> targetOnly = targetColumns.entrySet().stream()
+                .filter(entry -> !sourceColumns.containsKey(entry.getKey()))
+                .map(entry -> entry.getValue().getName()).toList();
+
+        int chunk = chunkSize != null ? chunkSize : properties.getCompare().getChunkSize();
+        if (chunk > 0 && keyColumns.size() > 1) {
+            throw new IllegalArgumentException("分块校验只支持单列主键");
+        }
+        String condition = where == null || where.isBlank() ? null : where.trim();
+        return new Plan(source, target, qualifiedTable, keyColumns, compared, sourceOnly, targetOnly, condition,
+                Math.max(0, chunk));
+    }
+
+    // 执行比较，按 NDJSON 逐行写出：先输出列信息，再输出差异行（missing/extra/changed），最后输出汇总
+    // missing 为源有目标没有的行，extra 为目标有源没有的行，changed 为主键相同但比较列不同的行
+    public Map<String, Object> execute(Plan plan, OutputStream out) throws IOException {
+        SqlExecutorProperties.Compare config = properties.getCompare();
+        ThreadFactory threadFactory = properties.isVirtualThreads()
+                ? Thread.ofVirtual().name("compare-", 0).factory()
+                : new CustomizableThreadFactory("compare-");
+        ExecutorService executor = Executors.newFixedThreadPool(2, threadFactory);
+        Stats stats = new Stats(Math.max(0, config.getMaxDiffs()));
+        long start = System.nanoTime();
+        try {
+            Map<String, Object> header = new LinkedHashMap<>();
+            header.put("type", "columns");
+            header.put("source", plan.source);
+            header.put("target", plan.target);
+            header.put("table", plan.table);
+            header.put("keys", plan.keys.stream().map(ColumnInfo::getName).toList());
+            header.put("columns", plan.columnNames);
+            header.put("sourceOnlyColumns", plan.sourceOnlyColumns);
+            header.put("targetOnlyColumns", plan.targetOnlyColumns);
+            write(out, header);
+
+            if (plan.chunkSize > 0) {
+                List<Object> boundaries = boundaries(plan);
+                for (int i = 0; i <= boundaries.size(); i++) {
+                    Object lower = i == 0 ? null : boundaries.get(i - 1);
+                    Object upper = i == boundaries.size() ? null : boundaries.get(i);
+                    String checksumSql = checksumSql(plan, lower != null, upper != null);
+                    Object[] args = rangeArgs(lower, upper);
+                    Future<Object[]> sourceChecksum = executor.submit(() -> checksum(plan.source, checksumSql, args));
+                    Future<Object[]> targetChecksum = executor.submit(() -> checksum(plan.target, checksumSql, args));
+                    Object[] sourceResult = await(sourceChecksum);
+                    Object[] targetResult = await(targetChecksum);
+                    stats.chunks++;
+                    if (Arrays.equals(sourceResult, targetResult)) {
+                        long rows = ((Number) sourceResult[0]).longValue();
+                        stats.skippedChunks++;
+                        stats.sourceRows += rows;
+                        stats.targetRows += rows;
+                        stats.matched += rows;
+                        continue;
+                    }
+                    merge(plan, lower, upper, executor, stats, out);
+                    out.flush();
+                }
+            } else {
+                merge(plan, null, null, executor, stats, out);
+            }
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("type", "summary");
+            summary.put("sourceRows", stats.sourceRows);
+            summary.put("targetRows", stats.targetRows);
+            summary.put("matched", stats.matched);
+            summary.put("missing", stats.missing);
+            summary.put("extra", stats.extra);
+            summary.put("changed", stats.changed);
+            if (plan.chunkSize > 0) {
+                summary.put("chunks", stats.chunks);
+                summary.put("skippedChunks", stats.skippedChunks);
+            }
+            summary.put("truncated", stats.truncated);
+            summary.put("elapsedMillis", (System.nanoTime() - start) / 1_000_000);
+            write(out, summary);
+            out.flush();
+            return summary;
+        } catch (RuntimeException e) {
+            // 已输出的差异仍然有效，最后一行说明比较中断的原因
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("type", "error");
+            line.put("message", e.getMessage());
+            write(out, line);
+            out.flush();
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // 两边并发读取 [lower, upper) 范围内的行（为 null 时不限制）并归并比较
+    private void merge(Plan plan, Object lower, Object upper, ExecutorService executor, Stats stats,
+                       OutputStream out) throws IOException {
+        SqlExecutorProperties.Compare config = properties.getCompare();
+        String sql = selectSql(plan, lower != null, upper != null);
+        Object[] args = rangeArgs(lower, upper);
+        int capacity = Math.max(1, config.getBufferSize() / BATCH_ROWS);
+        int fetchSize = Math.max(1, config.getFetchSize());
+        Side source = new Side(plan.source, capacity);
+        Side target = new Side(plan.target, capacity);
+        executor.execute(() -> read(source, sql, args, fetchSize, plan.columnNames.size()));
+        executor.execute(() -> read(target, sql, args, fetchSize, plan.columnNames.size()));
+        try {
+            Object[] sourceRow = next(plan, source);
+            Object[] targetRow = next(plan, target);
+            while (sourceRow != null || targetRow != null) {
+                int order = sourceRow == null ? 1 : targetRow == null ? -1 : compareKeys(plan, sourceRow, targetRow);
+                if (order < 0) {
+                    stats.missing++;
+                    emit(plan, stats, out, "missing", sourceRow, null, null);
+                    sourceRow = next(plan, source);
+                } else if (order > 0) {
+                    stats.extra++;
+                    emit(plan, stats, out, "extra", null, targetRow, null);
+                    targetRow = next(plan, target);
+                } else {
+                    List<String> changed = changedColumns(plan, sourceRow, targetRow);
+                    if (changed.isEmpty()) {
+                        stats.matched++;
+                    } else {
+                        stats.changed++;
+                        emit(plan, stats, out, "changed", sourceRow, targetRow, changed);
+                    }
+                    sourceRow = next(plan, source);
+                    targetRow = next(plan, target);
+                }
+            }
+            stats.sourceRows += source.rows;
+            stats.targetRows += target.rows;
+        } finally {
+            // 出错或客户端断开时停止另一侧的读取
+            source.cancel();
+            target.cancel();
+        }
+    }
+
+    // 在读取线程中执行查询，每 BATCH_ROWS 行放入一次队列；队列已满时等待比较线程取走
+    private void read(Side side, String sql, Object[] args, int fetchSize, int columnCount) {
+        try {
+            sqlExecutorService.streamQuery(side.database, sql, args, fetchSize, rs -> {
+                side.statement = rs.getStatement();
+                long rows = 0;
+                List<Object[]> batch = new ArrayList<>(BATCH_ROWS);
+                while (!side.cancelled && rs.next()) {
+                    batch.add(SqlExecutorRepository.readRow(rs, columnCount));
+                    rows++;
+                    if (batch.size() >= BATCH_ROWS) {
+                        publish(side, batch);
+                        batch = new ArrayList<>(BATCH_ROWS);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    publish(side, batch);
+                }
+                return rows;
+            });
+        } catch (Exception e) {
+            if (!side.cancelled) {
+                side.error = e;
+            }
+        }
+        if (!side.cancelled) {
+            try {
+                side.queue.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void publish(Side side, List<Object[]> batch) throws SQLException {
+        if (side.cancelled) {
+            throw new SQLException("比较已取消");
+        }
+        try {
+            side.queue.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("比较已取消", e);
+        }
+    }
+
+    // 取下一行并检查顺序：主键必须严格递增，否则归并结果不可信
+    private static Object[] next(Plan plan, Side side) {
+        while (!side.batch.hasNext()) {
+            if (side.ended) {
+                return null;
+            }
+            List<Object[]> rows;
+            try {
+                rows = side.queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("比较被中断", e);
+            }
+            if (rows == END) {
+                side.ended = true;
+                if (side.error != null) {
+                    throw new IllegalStateException("读取 " + side.database + " 失败: "
+                            + CsvImportService.messageOf(side.error), side.error);
+                }
+                return null;
+            }
+            side.batch = rows.iterator();
+        }
+        Object[] row = side.batch.next();
+        if (side.previous != null) {
+            int order = compareKeys(plan, side.previous, row);
+            if (order > 0) {
+                throw new IllegalStateException(side.database + " 返回的第 " + (side.rows + 1)
+                        + " 行没有按主键顺序排列，主键列的排序规则可能与比较顺序不一致: " + Arrays.toString(keyOf(plan, row)));
+            }
+            if (order == 0) {
+                throw new IllegalStateException(side.database + " 中主键重复: " + Arrays.toString(keyOf(plan, row)));
+            }
+        }
+        side.previous = row;
+        side.rows++;
+        return row;
+    }
+
+    private void emit(Plan plan, Stats stats, OutputStream out, String type, Object[] sourceRow, Object[] targetRow,
+                      List<String> changed) throws IOException {
+        if (stats.written >= stats.maxDiffs) {
+            stats.truncated = true;
+            return;
+        }
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("type", type);
+        line.put("key", keyOf(plan, sourceRow != null ? sourceRow : targetRow));
+        if (changed != null) {
+            line.put("columns", changed);
+        }
+        if (sourceRow != null) {
+            line.put("source", sourceRow);
+        }
+        if (targetRow != null) {
+            line.put("target", targetRow);
+        }
+        write(out, line);
+        stats.written++;
+    }
+
+    // 源表上每 chunkSize 行取一个主键作为范围边界（不含第一行），边界数量为行数 / chunkSize
+    private List<Object> boundaries(Plan plan) {
+        String key = CsvImportService.quote(plan.keys.get(0).getName());
+        String orderKey = orderExpression(plan.keys.get(0));
+        String sql = "SELECT " + key + " FROM (SELECT " + key + ", ROW_NUMBER() OVER (ORDER BY " + orderKey
+                + ") AS [__row] FROM " + plan.table + (plan.where != null ? " WHERE (" + plan.where + ")" : "")
+                + ") chunks WHERE [__row] > 1 AND ([__row] - 1) % " + plan.chunkSize + " = 0 ORDER BY " + orderKey;
+        return sqlExecutorService.streamQuery(plan.source, sql, null, Math.max(1, properties.getCompare().getFetchSize()),
+                rs -> {
+                    List<Object> keys = new ArrayList<>();
+                    while (rs.next()) {
+                        keys.add(rs.getObject(1));
+                    }
+                    return keys;
+                });
+    }
+
+    // 范围内的行数和两种校验值；校验值由 BINARY_CHECKSUM 计算，可能碰撞，且不包含 text、ntext、image、xml 等类型的列
+    private Object[] checksum(String database, String sql, Object[] args) {
+        return sqlExecutorService.streamQuery(database, sql, args, 1, rs -> {
+            rs.next();
+            return new Object[]{rs.getObject(1), rs.getObject(2), rs.getObject(3)};
+        });
+    }
+
+    private static String selectSql(Plan plan, boolean lower, boolean upper) {
+        StringBuilder orderBy = new StringBuilder();
+        for (ColumnInfo key : plan.keys) {
+            if (!orderBy.isEmpty()) {
+                orderBy.append(", ");
+            }
+            orderBy.append(orderExpression(key));
+        }
+        return "SELECT " + plan.selectList + " FROM " + plan.table + whereClause(plan, lower, upper)
+                + " ORDER BY " + orderBy;
+    }
+
+    private static String checksumSql(Plan plan, boolean lower, boolean upper) {
+        return "SELECT COUNT_BIG(*), CHECKSUM_AGG(BINARY_CHECKSUM(" + plan.selectList + ")), "
+                + "SUM(CAST(BINARY_CHECKSUM(" + plan.selectList + ") AS BIGINT)) FROM " + plan.table
+                + whereClause(plan, lower, upper);
+    }
+
+    private static String whereClause(Plan plan, boolean lower, boolean upper) {
+        List<String> conditions = new ArrayList<>();
+        if (plan.where != null) {
+            conditions.add("(" + plan.where + ")");
+        }
+        if (lower) {
+            conditions.add(orderExpression(plan.keys.get(0)) + " >= ?");
+        }
+        if (upper) {
+            conditions.add(orderExpression(plan.keys.get(0)) + " < ?");
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    // 字符主键按二进制排序规则排序，与 compareBinaryStrings 的顺序一致
+    private static String orderExpression(ColumnInfo key) {
+        String quoted = CsvImportService.quote(key.getName());
+        return orderKind(key) == 1 ? quoted + " COLLATE " + BINARY_COLLATION : quoted;
+    }
+
+    private static Object[] rangeArgs(Object lower, Object upper) {
+        List<Object> args = new ArrayList<>(2);
+        if (lower != null) {
+            args.add(lower);
+        }
+        if (upper != null) {
+            args.add(upper);
+        }
+        return args.isEmpty() ? null : args.toArray();
+    }
+
+    // 0：按值比较，1：字符，2：uniqueidentifier
+    private static int orderKind(ColumnInfo column) {
+        if ("uniqueidentifier".equalsIgnoreCase(column.getType())) {
+            return 2;
+        }
+        return CHARACTER_TYPES.contains(column.getJdbcType()) ? 1 : 0;
+    }
+
+    private static int compareKeys(Plan plan, Object[] a, Object[] b) {
+        for (int i = 0; i < plan.keys.size(); i++) {
+            int result = plan.keyOrders.get(i).compare(a[i], b[i]);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    private static Object[] keyOf(Plan plan, Object[] row) {
+        return Arrays.copyOf(row, plan.keys.size());
+    }
+
+    private static List<String> changedColumns(Plan plan, Object[] sourceRow, Object[] targetRow) {
+        List<String> changed = null;
+        for (int i = plan.keys.size(); i < sourceRow.length; i++) {
+            if (!valuesEqual(sourceRow[i], targetRow[i])) {
+                if (changed == null) {
+                    changed = new ArrayList<>();
+                }
+                changed.add(plan.columnNames.get(i));
+            }
+        }
+        return changed != null ? changed : Collections.emptyList();
+    }
+
+    // 数字按数值比较（两边列类型可以不同，1.50 与 1.5 相等），二进制按内容比较，其余按 equals 比较
+    static boolean valuesEqual(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        if (a instanceof byte[] x && b instanceof byte[] y) {
+            return Arrays.equals(x, y);
+        }
+        if (a instanceof Number x && b instanceof Number y && (a.getClass() != b.getClass() || a instanceof BigDecimal)) {
+            if (x instanceof Double || x instanceof Float || y instanceof Double || y instanceof Float) {
+                return Double.compare(x.doubleValue(), y.doubleValue()) == 0;
+            }
+            return new BigDecimal(x.toString()).compareTo(new BigDecimal(y.toString())) == 0;
+        }
+        return a.equals(b);
+    }
+
+    // 与 SQL Server 的 BIN2 排序一致：按 Unicode 码位比较，较短的字符串视为在末尾补空格
+    static int compareBinaryStrings(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == b ? 0 : a == null ? -1 : 1;
+        }
+        String x = a.toString();
+        String y = b.toString();
+        int i = 0;
+        int j = 0;
+        while (i < x.length() || j < y.length()) {
+            int cx = i < x.length() ? x.codePointAt(i) : ' ';
+            int cy = j < y.length() ? y.codePointAt(j) : ' ';
+            if (cx != cy) {
+                return Integer.compare(cx, cy);
+            }
+            i += Character.charCount(cx);
+            j += Character.charCount(cy);
+        }
+        return 0;
+    }
+
+    // 按 SQL Server 比较 uniqueidentifier 的字节顺序比较字符串形式的 GUID
+    static int compareGuids(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == b ? 0 : a == null ? -1 : 1;
+        }
+        String x = a.toString();
+        String y = b.toString();
+        if (x.length() != 36 || y.length() != 36) {
+            return ResultStore.compareValues(a, b);
+        }
+        for (int position : GUID_ORDER) {
+            for (int k = position; k < position + 2; k++) {
+                int result = Character.compare(Character.toUpperCase(x.charAt(k)), Character.toUpperCase(y.charAt(k)));
+                if (result != 0) {
+                    return result;
+                }
+            }
+        }
+        return 0;
+    }
+
+    // 读取表结构（不返回数据），键为小写列名，保持列顺序
+    private Map<String, ColumnInfo> describe(String database, String table) {
+        List<ColumnInfo> columns = sqlExecutorService.streamQuery(database, "SELECT TOP 0 * FROM " + table, null, 1,
+                SqlExecutorRepository::readColumns);
+        Map<String, ColumnInfo> byName = new LinkedHashMap<>();
+        for (ColumnInfo column : columns) {
+            byName.put(column.getName().toLowerCase(Locale.ROOT), column);
+        }
+        return byName;
+    }
+
+    private static List<String> trimmed(List<String> values) {
+        if (values == null) {
+            return Collections.emptyList();
+        }
+        return values.stream().map(String::trim).filter(value -> !value.isEmpty()).distinct().toList();
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("比较被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(cause.getMessage(), cause);
+        }
+    }
+
+    private void write(OutputStream out, Object line) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(line));
+        out.write('\n');
+    }
+
+    // 比较计划：两边使用相同的查询，行的前几列为主键，之后为比较列
+    public static final class Plan {
+        private final String source;
+        private final String target;
+        private final String table;
+        private final List<ColumnInfo> keys;
+        private final List<Comparator<Object>> keyOrders;
+        // 主键列加比较列，与行中值的顺序一致
+        private final List<String> columnNames;
+        private final List<String> sourceOnlyColumns;
+        private final List<String> targetOnlyColumns;
+        private final String selectList;
+        private final String where;
+        private final int chunkSize;
+
+        Plan(String source, String target, String table, List<ColumnInfo> keys, List<String> compared,
+             List<String> sourceOnlyColumns, List<String> targetOnlyColumns, String where, int chunkSize) {
+            this.source = source;
+            this.target = target;
+            this.table = table;
+            this.keys = keys;
+            this.keyOrders = keys.stream().map(key -> switch (orderKind(key)) {
+                case 1 -> (Comparator<Object>) DataCompareService::compareBinaryStrings;
+                case 2 -> (Comparator<Object>) DataCompareService::compareGuids;
+                default -> (Comparator<Object>) ResultStore::compareValues;
+            }).toList();
+            List<String> names = new ArrayList<>();
+            keys.forEach(key -> names.add(key.getName()));
+            names.addAll(compared);
+            this.columnNames = names;
+            this.sourceOnlyColumns = sourceOnlyColumns;
+            this.targetOnlyColumns = targetOnlyColumns;
+            this.selectList = String.join(", ", names.stream().map(CsvImportService::quote).toList());
+            this.where = where;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public String toString() {
+            return source + " -> " + target + " " + table + " " + columnNames.subList(0, keys.size());
+        }
+    }
+
+    // 一侧的读取状态：读取线程写入 queue，比较线程读取其余字段
+    private static final class Side {
+        private final String database;
+        private final BlockingQueue<List<Object[]>> queue;
+        private volatile Statement statement;
+        private volatile Exception error;
+        private volatile boolean cancelled;
+        private Iterator<Object[]> batch = Collections.emptyIterator();
+        private Object[] previous;
+        private long rows;
+        private boolean ended;
+
+        Side(String database, int capacity) {
+            this.database = database;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        // 停止读取：清空队列让等待中的读取线程退出，并取消正在执行的语句
+        void cancel() {
+            if (ended) {
+                return;
+            }
+            cancelled = true;
+            queue.clear();
+            Statement current = statement;
+            if (current != null) {
+                try {
+                    current.cancel();
+                } catch (SQLException e) {
+                    // 语句已结束或连接已关闭，忽略
+                }
+            }
+        }
+    }
+
+    private static final class Stats {
+        private final long maxDiffs;
+        private long sourceRows;
+        private long targetRows;
+        private long matched;
+        private long missing;
+        private long extra;
+        private long changed;
+        private long chunks;
+        private long skippedChunks;
+        private long written;
+        private boolean truncated;
+
+        Stats(long maxDiffs) {
+            this.maxDiffs = maxDiffs;
+        }
+    }
+}
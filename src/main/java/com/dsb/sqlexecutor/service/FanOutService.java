@@ -0,0 +1,303 @@
+package com.dsb.sqlexecutor.service;
+
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.ColumnInfo;
+import com.dsb.sqlexecutor.repository.SqlExecutorRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 多连接并发查询：同一条查询在多个数据库配置上并发执行，结果合并为一个 NDJSON 流，每行带来源连接名
+// 单个连接失败或超时只影响该连接，其余连接的结果照常返回
+@Service
+public class FanOutService {
+
+    private final Logger log = LoggerFactory.getLogger(FanOutService.class);
+
+    // 没有新结果时的等待间隔，同时用于检查超时
+    private static final long POLL_MILLIS = 100;
+
+    @Autowired
+    private SqlExecutorService sqlExecutorService;
+
+    @Autowired
+    private SqlExecutorProperties properties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 校验并解析目标连接，为空时使用全部数据库配置
+    // 各连接上的语句走读取路径，SELECT ... INTO 和带其他语句的文本会绕过写名额和缓存失效，执行前拒绝
+    public List<String> resolveTargets(String sql, List<String> targets) {
+        if (!SqlExecutorService.isPlainQuery(sql)) {
+            throw new IllegalArgumentException("多连接执行只支持单条查询语句");
+        }
+        Set<String> configured = new TreeSet<>(sqlExecutorService.getAllDatabaseConfigs().keySet());
+        if (targets == null || targets.isEmpty()) {
+            if (configured.isEmpty()) {
+                throw new IllegalStateException("请先添加数据库配置");
+            }
+            return new ArrayList<>(configured);
+        }
+        Set<String> names = new LinkedHashSet<>();
+        for (String target : targets) {
+            String name = target.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!configured.contains(name)) {
+                throw new IllegalArgumentException("数据库配置不存在: " + name);
+            }
+            names.add(name);
+        }
+        if (names.isEmpty()) {
+            throw new IllegalArgumentException("请指定要执行的数据库配置");
+        }
+        return new ArrayList<>(names);
+    }
+
+    // 在 targets 上并发执行查询，按到达顺序写出：每个连接先输出列信息，再逐行输出数据，最后输出该连接的执行状态
+    // 所有连接结束后输出汇总行；parallelism、timeoutSeconds 为空时使用配置的默认值
+    public Map<String, Object> execute(String sql, List<String> targets, Integer parallelism, Integer timeoutSeconds,
+                                       OutputStream out) throws IOException {
+        SqlExecutorProperties.FanOut config = properties.getFanOut();
+        int threads = parallelism != null && parallelism > 0
+                ? Math.min(parallelism, config.getMaxParallelism()) : config.getParallelism();
+        threads = Math.max(1, Math.min(threads, targets.size()));
+        long timeoutMillis = timeoutSeconds != null && timeoutSeconds > 0
+                ? TimeUnit.SECONDS.toMillis(timeoutSeconds) : config.getTargetTimeout().toMillis();
+        int maxRows = config.getMaxRowsPerTarget();
+
+        BlockingQueue<Event> events = new LinkedBlockingQueue<>(Math.max(1, config.getBufferSize()));
+        List<Target> tasks = new ArrayList<>(targets.size());
+        for (String name : targets) {
+            tasks.add(new Target(name));
+        }
+        ThreadFactory threadFactory = properties.isVirtualThreads()
+                ? Thread.ofVirtual().name("fan-out-", 0).factory()
+                : new CustomizableThreadFactory("fan-out-");
+        ExecutorService executor = Executors.newFixedThreadPool(threads, threadFactory);
+
+        long start = System.nanoTime();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        try {
+            for (Target target : tasks) {
+                executor.execute(() -> run(target, sql, maxRows, timeoutMillis, events));
+            }
+            int finished = 0;
+            while (finished < tasks.size()) {
+                Event event = events.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (event == null) {
+                    // 暂时没有新结果时把已有的结果推给客户端
+                    out.flush();
+                } else if (event.last) {
+                    write(out, event.line);
+                    finished++;
+                } else if (!event.target.isFinished()) {
+                    write(out, event.line);
+                }
+                finished += expire(tasks, timeoutMillis, out);
+            }
+
+            summary.put("targets", tasks.size());
+            for (String status : new String[]{"succeeded", "failed", "timeout"}) {
+                summary.put(status, tasks.stream().filter(t -> status.equals(t.status)).count());
+            }
+            summary.put("rows", tasks.stream().mapToLong(t -> t.rows).sum());
+            summary.put("elapsedMillis", (System.nanoTime() - start) / 1_000_000);
+            write(out, Map.of("summary", summary));
+            out.flush();
+            return summary;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("执行被中断", e);
+        } finally {
+            // 客户端断开或出错时取消仍在执行的查询
+            for (Target target : tasks) {
+                if (!target.isFinished()) {
+                    target.cancel();
+                }
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    // 检查超时的连接（从开始执行计时，不含等待线程的时间）：取消其语句并直接输出超时状态，之后该连接的结果不再输出
+    private int expire(List<Target> tasks, long timeoutMillis, OutputStream out) throws IOException {
+        int expired = 0;
+        long now = System.nanoTime();
+        for (Target target : tasks) {
+            long startedAt = target.startedAt;
+            if (startedAt != 0 && !target.isFinished() && now - startedAt >= TimeUnit.MILLISECONDS.toNanos(timeoutMillis)
+                    && target.finish("timeout")) {
+                target.cancel();
+                Map<String, Object> line = statusLine(target);
+                line.put("error", "执行超过 " + timeoutMillis + " ms");
+                write(out, line);
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    private void run(Target target, String sql, int maxRows, long timeoutMillis, BlockingQueue<Event> events) {
+        target.startedAt = System.nanoTime();
+        try {
+            sqlExecutorService.executeStatement(target.name, sql, false, stmt -> {
+                if (!target.attach(stmt)) {
+                    return 0L;
+                }
+                // 服务端超时作为兜底，客户端超时由 expire 负责
+                stmt.setQueryTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeoutMillis)));
+                stmt.setMaxRows(maxRows + 1);
+                try (ResultSet rs = stmt.executeQuery(sql)) {
+                    List<ColumnInfo> columns = SqlExecutorRepository.readColumns(rs);
+                    Map<String, Object> header = new LinkedHashMap<>();
+                    header.put("source", target.name);
+                    header.put("columns", columns);
+                    publish(events, new Event(target, header, false));
+                    while (target.rows < maxRows && rs.next()) {
+                        Map<String, Object> line = new LinkedHashMap<>();
+                        line.put("source", target.name);
+                        line.put("row", SqlExecutorRepository.readRow(rs, columns.size()));
+                        publish(events, new Event(target, line, false));
+                        target.rows++;
+                    }
+                    target.truncated = rs.next();
+                    return target.rows;
+                }
+            });
+            complete(target, "succeeded", null, events);
+        } catch (Exception e) {
+            if (!target.isFinished()) {
+                log.warn("多连接查询失败: {}", target.name, e);
+            }
+            complete(target, "failed", e.getMessage(), events);
+        }
+    }
+
+    private void complete(Target target, String status, String error, BlockingQueue<Event> events) {
+        if (!target.finish(status)) {
+            return;
+        }
+        Map<String, Object> line = statusLine(target);
+        if (error != null) {
+            line.put("error", error);
+        }
+        try {
+            events.put(new Event(target, line, true));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Map<String, Object> statusLine(Target target) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("source", target.name);
+        line.put("status", target.status);
+        line.put("rows", target.rows);
+        if (target.truncated) {
+            line.put("truncated", true);
+        }
+        line.put("elapsedMillis", target.startedAt == 0 ? 0 : (System.nanoTime() - target.startedAt) / 1_000_000);
+        return line;
+    }
+
+    // 写出队列已满时等待，查询读取速度不会超过客户端接收速度
+    private static void publish(BlockingQueue<Event> events, Event event) throws SQLException {
+        if (event.target.isFinished()) {
+            throw new SQLException("已超时");
+        }
+        try {
+            events.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("执行被取消", e);
+        }
+    }
+
+    private void write(OutputStream out, Object line) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(line));
+        out.write('\n');
+    }
+
+    // 单个目标连接的执行状态
+    private static final class Target {
+        private final String name;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile long startedAt;
+        private volatile Statement statement;
+        private volatile String status;
+        private volatile long rows;
+        private volatile boolean truncated;
+
+        Target(String name) {
+            this.name = name;
+        }
+
+        boolean isFinished() {
+            return finished.get();
+        }
+
+        // 只有第一个结束状态生效（正常结束、失败或超时）
+        boolean finish(String status) {
+            if (finished.compareAndSet(false, true)) {
+                this.status = status;
+                return true;
+            }
+            return false;
+        }
+
+        // 记录正在执行的语句，已结束时返回 false
+        boolean attach(Statement statement) {
+            this.statement = statement;
+            return !finished.get();
+        }
+
+        void cancel() {
+            Statement current = statement;
+            if (current != null) {
+                try {
+                    current.cancel();
+                } catch (SQLException e) {
+                    // 语句已结束或连接已关闭，忽略
+                }
+            }
+        }
+    }
+
+    private static final class Event {
+        private final Target target;
+        private final Object line;
+        private final boolean last;
+
+        Event(Target target, Object line, boolean last) {
+            this.target = target;
+            this.line = line;
+            this.last = last;
+        }
+    }
+}
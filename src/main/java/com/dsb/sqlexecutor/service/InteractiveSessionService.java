@@ -0,0 +1,367 @@
+package com.dsb.sqlexecutor.service;
+
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.ColumnInfo;
+import com.dsb.sqlexecutor.model.InteractiveSession;
+import com.dsb.sqlexecutor.model.QueryPage;
+import com.dsb.sqlexecutor.repository.SqlExecutorRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// 交互式会话：每个会话固定占用一个连接，跨请求保留事务、临时表和 SET 选项
+// 空闲超时或超过最长存活时间的会话由后台回收：回滚未提交的事务，并从连接池移除该连接
+// 会话属于打开它的客户端（客户端标识见 SqlExecutorService.getClientKey），其他客户端看不到也无法使用
+@Service
+public class InteractiveSessionService {
+
+    private final Logger log = LoggerFactory.getLogger(InteractiveSessionService.class);
+
+    @Autowired
+    private SqlExecutorService sqlExecutorService;
+
+    @Autowired
+    private ConnectionRegistry connectionRegistry;
+
+    @Autowired
+    private QueryMetrics queryMetrics;
+
+    @Autowired
+    private SqlExecutorProperties properties;
+
+    private final Map<String, Pinned> sessions = new ConcurrentHashMap<>();
+    // 已占用的会话名额（总数和按数据库配置），打开前先占用，名额不足时不借连接；会话移出 sessions 时归还
+    private final AtomicInteger openCount = new AtomicInteger();
+    private final Map<String, AtomicInteger> openCountByDatabase = new ConcurrentHashMap<>();
+
+    // 在当前选择的数据库配置上打开会话
+    public InteractiveSession open() {
+        String owner = sqlExecutorService.getClientKey();
+        if (owner == null) {
+            throw new IllegalStateException("只能在请求中打开会话");
+        }
+        String database = sqlExecutorService.requireCurrentDatabase();
+        reserve(database);
+        Pinned pinned;
+        try {
+            pinned = new Pinned(new InteractiveSession(UUID.randomUUID().toString(), database), owner,
+                    connectionRegistry.pin(database));
+        } catch (RuntimeException e) {
+            unreserve(database);
+            throw e;
+        }
+        sessions.put(pinned.info.getId(), pinned);
+        log.info("打开交互式会话: {}，数据库配置: {}", pinned.info.getId(), database);
+        return pinned.info;
+    }
+
+    private void reserve(String database) {
+        SqlExecutorProperties.PinnedSession config = properties.getPinnedSession();
+        if (openCount.incrementAndGet() > config.getMaxSessions()) {
+            openCount.decrementAndGet();
+            throw new IllegalStateException("会话数已达上限 " + config.getMaxSessions() + "，请先关闭不用的会话");
+        }
+        AtomicInteger sameDatabase = openCountByDatabase.computeIfAbsent(database, k -> new AtomicInteger());
+        if (sameDatabase.incrementAndGet() > config.getMaxSessionsPerDatabase()) {
+            sameDatabase.decrementAndGet();
+            openCount.decrementAndGet();
+            throw new IllegalStateException("数据库配置 " + database + " 的会话数已达上限 " + config.getMaxSessionsPerDatabase());
+        }
+    }
+
+    private void unreserve(String database) {
+        openCountByDatabase.get(database).decrementAndGet();
+        openCount.decrementAndGet();
+    }
+
+    public InteractiveSession getSession(String id) {
+        return require(id).info;
+    }
+
+    // 当前客户端打开的会话
+    public List<InteractiveSession> getSessions() {
+        String owner = sqlExecutorService.getClientKey();
+        return sessions.values().stream().filter(p -> p.owner.equals(owner)).map(p -> p.info).toList();
+    }
+
+    // 在会话的连接上执行语句：查询返回第一个结果集的前 limit 行，其他语句返回影响行数
+    public Map<String, Object> execute(String id, String sql, Integer limit) {
+        Pinned pinned = require(id);
+        String database = pinned.info.getDatabase();
+        int pageSize = resolvePageSize(limit);
+        boolean query = SqlExecutorService.isQuery(sql);
+        Map<String, Object> result = new LinkedHashMap<>();
+        pinned.use(connection -> {
+            long start = System.nanoTime();
+            long rows = -1;
+            try (Statement stmt = connection.createStatement()) {
+                pinned.current = stmt;
+                stmt.setQueryTimeout(connectionRegistry.getQueryTimeoutSeconds(database));
+                // SQL Server 的 maxRows 同样限制 UPDATE/DELETE 影响行数，只对查询设置
+                if (query) {
+                    stmt.setMaxRows(pageSize + 1);
+                }
+                boolean isResultSet = stmt.execute(sql);
+                int updateCount = 0;
+                boolean updated = false;
+                while (true) {
+                    if (isResultSet) {
+                        try (ResultSet rs = stmt.getResultSet()) {
+                            // 只返回第一个结果集
+                            if (!result.containsKey("page")) {
+                                QueryPage page = readPage(rs, pageSize);
+                                result.put("page", page);
+                                rows = page.getRowCount();
+                            }
+                        }
+                    } else {
+                        int count = stmt.getUpdateCount();
+                        if (count == -1) {
+                            break;
+                        }
+                        updateCount += count;
+                        updated = true;
+                    }
+                    isResultSet = stmt.getMoreResults();
+                }
+                if (!result.containsKey("page")) {
+                    result.put("updateCount", updateCount);
+                    rows = updateCount;
+                }
+                queryMetrics.record(database, sql, !query, System.nanoTime() - start, rows, null);
+                if (updated || !query) {
+                    sqlExecutorService.notifyUpdate(database, sql);
+                }
+            } catch (SQLException e) {
+                queryMetrics.record(database, sql, !query, System.nanoTime() - start, -1, e);
+                throw e;
+            } finally {
+                pinned.current = null;
+                pinned.info.setStatementCount(pinned.info.getStatementCount() + 1);
+            }
+        });
+        result.put("session", pinned.info);
+        return result;
+    }
+
+    // 开始事务
+    public InteractiveSession begin(String id) {
+        return transaction(id, "BEGIN TRANSACTION");
+    }
+
+    // 提交未提交的事务，没有事务时不做任何操作
+    public InteractiveSession commit(String id) {
+        return transaction(id, "IF @@TRANCOUNT > 0 COMMIT TRANSACTION");
+    }
+
+    // 回滚未提交的事务（包括嵌套事务），没有事务时不做任何操作
+    public InteractiveSession rollback(String id) {
+        return transaction(id, "IF @@TRANCOUNT > 0 ROLLBACK TRANSACTION");
+    }
+
+    private InteractiveSession transaction(String id, String sql) {
+        Pinned pinned = require(id);
+        pinned.use(connection -> {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute(sql);
+            }
+        });
+        // 事务结束后其他连接可见的数据可能已变化
+        sqlExecutorService.notifyUpdate(pinned.info.getDatabase(), sql);
+        return pinned.info;
+    }
+
+    // 取消会话中正在执行的语句
+    public InteractiveSession cancel(String id) {
+        Pinned pinned = require(id);
+        pinned.cancel();
+        return pinned.info;
+    }
+
+    // 关闭会话：取消正在执行的语句，回滚未提交的事务并归还连接
+    public void close(String id) {
+        Pinned pinned = require(id);
+        if (!sessions.remove(id, pinned)) {
+            throw new IllegalArgumentException("会话不存在或已关闭: " + id);
+        }
+        closeRemoved(pinned);
+        log.info("关闭交互式会话: {}", id);
+    }
+
+    // 关闭已移出 sessions 的会话并归还名额
+    private void closeRemoved(Pinned pinned) {
+        pinned.cancel();
+        pinned.lock.lock();
+        try {
+            pinned.close();
+        } finally {
+            pinned.lock.unlock();
+            unreserve(pinned.info.getDatabase());
+        }
+    }
+
+    // 定期回收空闲超时或超过最长存活时间的会话，正在执行语句的会话跳过
+    @Scheduled(fixedDelay = 30000)
+    public void reapIdleSessions() {
+        SqlExecutorProperties.PinnedSession config = properties.getPinnedSession();
+        long now = System.nanoTime();
+        for (Map.Entry<String, Pinned> entry : sessions.entrySet()) {
+            Pinned pinned = entry.getValue();
+            boolean idle = now - pinned.lastUsed > config.getIdleTimeout().toNanos();
+            boolean expired = now - pinned.created > config.getMaxLifetime().toNanos();
+            if ((idle || expired) && pinned.lock.tryLock()) {
+                try {
+                    if (sessions.remove(entry.getKey(), pinned)) {
+                        try {
+                            pinned.close();
+                        } finally {
+                            unreserve(pinned.info.getDatabase());
+                        }
+                        log.info("回收{}的交互式会话: {}", idle ? "空闲超时" : "超过最长存活时间", entry.getKey());
+                    }
+                } finally {
+                    pinned.lock.unlock();
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        for (Map.Entry<String, Pinned> entry : sessions.entrySet()) {
+            // 已被回收的会话跳过
+            if (sessions.remove(entry.getKey(), entry.getValue())) {
+                closeRemoved(entry.getValue());
+            }
+        }
+    }
+
+    // 其他客户端的会话按不存在处理，不暴露会话是否存在
+    private Pinned require(String id) {
+        Pinned pinned = sessions.get(id);
+        if (pinned == null || !pinned.owner.equals(sqlExecutorService.getClientKey())) {
+            throw new IllegalArgumentException("会话不存在或已关闭: " + id);
+        }
+        return pinned;
+    }
+
+    private int resolvePageSize(Integer limit) {
+        SqlExecutorProperties.Query query = properties.getQuery();
+        if (limit == null || limit <= 0) {
+            return query.getPageSize();
+        }
+        return Math.min(limit, query.getMaxPageSize());
+    }
+
+    private static QueryPage readPage(ResultSet rs, int pageSize) throws SQLException {
+        List<ColumnInfo> columns = SqlExecutorRepository.readColumns(rs);
+        List<Object[]> rows = new ArrayList<>();
+        while (rows.size() < pageSize && rs.next()) {
+            rows.add(SqlExecutorRepository.readRow(rs, columns.size()));
+        }
+        return new QueryPage(columns, rows, 0, pageSize, rs.next());
+    }
+
+    @FunctionalInterface
+    private interface ConnectionAction {
+        void run(Connection connection) throws SQLException;
+    }
+
+    // 会话占用的连接；同一时间只允许执行一条语句
+    private static final class Pinned {
+        private final InteractiveSession info;
+        // 打开会话的客户端标识
+        private final String owner;
+        private final ConnectionRegistry.PinnedConnection lease;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long created = System.nanoTime();
+        private volatile long lastUsed = created;
+        private volatile Statement current;
+        private boolean closed;
+
+        Pinned(InteractiveSession info, String owner, ConnectionRegistry.PinnedConnection lease) {
+            this.info = info;
+            this.owner = owner;
+            this.lease = lease;
+        }
+
+        void use(ConnectionAction action) {
+            if (!lock.tryLock()) {
+                throw new IllegalStateException("会话正在执行其他语句");
+            }
+            try {
+                if (closed) {
+                    throw new IllegalStateException("会话已关闭");
+                }
+                touch();
+                try {
+                    action.run(lease.getConnection());
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                } finally {
+                    info.setTransactionOpen(readTransactionOpen());
+                    touch();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void touch() {
+            lastUsed = System.nanoTime();
+            info.setLastUsedAt(Instant.now());
+        }
+
+        private boolean readTransactionOpen() {
+            try (Statement stmt = lease.getConnection().createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT @@TRANCOUNT")) {
+                return rs.next() && rs.getInt(1) > 0;
+            } catch (SQLException e) {
+                return info.isTransactionOpen();
+            }
+        }
+
+        void cancel() {
+            Statement statement = current;
+            if (statement != null) {
+                try {
+                    statement.cancel();
+                } catch (SQLException e) {
+                    // 语句已结束，忽略
+                }
+            }
+        }
+
+        // 调用方持有 lock
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try (Statement stmt = lease.getConnection().createStatement()) {
+                stmt.execute("IF @@TRANCOUNT > 0 ROLLBACK TRANSACTION");
+            } catch (SQLException e) {
+                // 连接已断开，事务由服务端回滚
+            } finally {
+                lease.release();
+            }
+        }
+    }
+}
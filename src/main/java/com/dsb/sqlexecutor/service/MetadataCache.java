@@ -0,0 +1,130 @@
+package com.dsb.sqlexecutor.service;
+
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.CachedMetadata;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// 按连接缓存表/列元数据，按有效期和条目数淘汰，DDL 执行后按连接失效
+@Component
+public class MetadataCache {
+
+    @Autowired
+    private SqlExecutorProperties properties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 按访问顺序排列，超出条目上限时淘汰最久未访问的条目
+    private final Map<String, CachedMetadata<?>> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedMetadata<?>> eldest) {
+            return size() > properties.getMetadata().getMaxEntries();
+        }
+    };
+    // 正在加载的条目，同一条目并发请求只查询一次数据库
+    private final Map<String, FutureTask<CachedMetadata<?>>> loading = new ConcurrentHashMap<>();
+    // 各连接最近一次失效的序号（取自全局递增的 invalidations），加载期间该连接发生失效时不写入缓存
+    // 只按连接比较，失效一个连接不影响其他连接正在进行的加载；由 entries 的锁保护
+    private final Map<String, Long> generations = new HashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // 获取缓存的元数据，不存在或已过期时通过 loader 加载
+    public <T> CachedMetadata<T> get(String connection, String kind, Supplier<T> loader) {
+        return get(connection, kind, loader, this::computeEtag);
+    }
+
+    // 获取由元数据派生的对象（如补全索引），与元数据一同过期、失效，不计算 ETag
+    public <T> T derive(String connection, String kind, Supplier<T> builder) {
+        return get(connection, kind, builder, value -> null).getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CachedMetadata<T> get(String connection, String kind, Supplier<T> loader,
+                                      Function<Object, String> etagFunction) {
+        String key = connection + "|" + kind;
+        synchronized (entries) {
+            CachedMetadata<?> cached = entries.get(key);
+            if (cached != null && !isExpired(cached)) {
+                return (CachedMetadata<T>) cached;
+            }
+        }
+
+        FutureTask<CachedMetadata<?>> task = new FutureTask<>(() -> load(connection, key, loader, etagFunction));
+        FutureTask<CachedMetadata<?>> running = loading.putIfAbsent(key, task);
+        if (running == null) {
+            running = task;
+            try {
+                task.run();
+            } finally {
+                loading.remove(key, task);
+            }
+        }
+        try {
+            return (CachedMetadata<T>) running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("加载元数据被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("加载元数据失败", e.getCause());
+        }
+    }
+
+    private <T> CachedMetadata<T> load(String connection, String key, Supplier<T> loader,
+                                       Function<Object, String> etagFunction) {
+        long startGeneration = generationOf(connection);
+        T value = loader.get();
+        CachedMetadata<T> loaded = new CachedMetadata<>(value, etagFunction.apply(value), Instant.now());
+        synchronized (entries) {
+            if (generationOf(connection) == startGeneration) {
+                entries.put(key, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    // 使某个连接的所有元数据失效
+    public void invalidate(String connection) {
+        String prefix = connection + "|";
+        synchronized (entries) {
+            generations.put(connection, invalidations.incrementAndGet());
+            entries.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    private long generationOf(String connection) {
+        synchronized (entries) {
+            return generations.getOrDefault(connection, 0L);
+        }
+    }
+
+    private boolean isExpired(CachedMetadata<?> cached) {
+        return cached.getLoadedAt().plus(properties.getMetadata().getTtl()).isBefore(Instant.now());
+    }
+
+    // 以内容摘要作为 ETag，表结构不变时重新加载后 ETag 也不变
+    private String computeEtag(Object value) {
+        try {
+            return DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(value));
+        } catch (JsonProcessingException e) {
+            return Long.toHexString(System.nanoTime());
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.dsb.sqlexecutor.service;
+
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.ColumnInfo;
+import com.dsb.sqlexecutor.model.QueryAnalysis;
+import com.dsb.sqlexecutor.model.QueryPage;
+import com.dsb.sqlexecutor.repository.SqlExecutorRepository;
+import com.dsb.sqlexecutor.util.ShowplanParser;
+import com.dsb.sqlexecutor.util.SqlFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToLongFunction;
+
+// 执行计划分析：在同一个连接上开启 STATISTICS XML/IO/TIME 后执行语句，解析实际执行计划和 IO/TIME 消息
+// 分析结果按连接 + SQL 指纹保存在内存中（与 QueryMetrics 一样重启后清空），与历史比较发现执行计划变化和性能回退
+@Service
+public class QueryAnalyzer {
+
+    private final Logger log = LoggerFactory.getLogger(QueryAnalyzer.class);
+
+    private static final String STATISTICS_ON = "SET STATISTICS XML ON; SET STATISTICS IO ON; SET STATISTICS TIME ON";
+    private static final String STATISTICS_OFF = "SET STATISTICS XML OFF; SET STATISTICS IO OFF; SET STATISTICS TIME OFF";
+    // 历史不足该次数时不判断性能回退
+    private static final int MIN_HISTORY = 3;
+    // 低于该差值的波动不算回退，避免小查询误报
+    private static final long MIN_READS_DELTA = 1000;
+    private static final long MIN_ELAPSED_DELTA_MILLIS = 100;
+    private static final int MAX_SQL_LENGTH = 500;
+
+    @Autowired
+    private SqlExecutorService sqlExecutorService;
+
+    @Autowired
+    private SqlExecutorProperties properties;
+
+    // 连接名 -> 指纹 -> 分析历史，按最近访问顺序排列；访问量小，整体加锁
+    private final Map<String, LinkedHashMap<String, History>> histories = new HashMap<>();
+
+    // 在当前数据库执行语句并分析；查询语句返回第一页结果，其余行读取后丢弃（实际执行计划在结果读完后才返回）
+    // 语句会真正执行，更新语句同样会修改数据
+    public Execution analyze(String sql, String params) {
+        String databaseName = sqlExecutorService.requireCurrentDatabase();
+        boolean write = !SqlExecutorService.isReadOnly(sql);
+        SqlExecutorProperties.Analyze config = properties.getAnalyze();
+        int pageSize = properties.getQuery().getPageSize();
+
+        Execution execution = sqlExecutorService.executeBound(sql, params, write, (con, boundSql, args) -> {
+            Execution result = new Execution(boundSql);
+            result.analysis.setDatabase(databaseName);
+            result.analysis.setFingerprint(SqlFingerprint.of(boundSql));
+            try {
+                // 打开时中途失败也可能已打开部分选项，同样需要关闭
+                try (Statement statement = con.createStatement()) {
+                    statement.execute(STATISTICS_ON);
+                }
+                run(con, boundSql, args, result, pageSize, config);
+            } catch (Throwable e) {
+                statisticsOff(con, databaseName, e);
+                throw e;
+            }
+            statisticsOff(con, databaseName, null);
+            return result;
+        });
+        if (write) {
+            sqlExecutorService.notifyUpdate(databaseName, sql);
+        }
+        record(databaseName, execution, config);
+        return execution;
+    }
+
+    // 连接会回到连接池，必须关闭会话选项，否则后续语句也会返回执行计划；关闭失败时把连接从连接池移除
+    // 语句本身已经出错时关闭失败只作为附加异常，抛出的仍是原来的错误
+    private void statisticsOff(Connection con, String databaseName, Throwable failure) throws SQLException {
+        try (Statement statement = con.createStatement()) {
+            statement.execute(STATISTICS_OFF);
+        } catch (SQLException e) {
+            sqlExecutorService.evictConnection(databaseName, con);
+            if (failure == null) {
+                throw e;
+            }
+            failure.addSuppressed(e);
+        }
+    }
+
+    private void run(Connection con, String sql, Object[] args, Execution execution, int pageSize,
+                     SqlExecutorProperties.Analyze config) throws SQLException {
+        boolean prepared = args != null && args.length > 0;
+        try (Statement statement = prepared ? con.prepareStatement(sql) : con.createStatement()) {
+            boolean isResultSet;
+            if (statement instanceof PreparedStatement preparedStatement) {
+                new ArgumentPreparedStatementSetter(args).setValues(preparedStatement);
+                isResultSet = preparedStatement.execute();
+            } else {
+                isResultSet = statement.execute(sql);
+            }
+            while (true) {
+                if (isResultSet) {
+                    try (ResultSet rs = statement.getResultSet()) {
+                        readResult(rs, execution, pageSize, config);
+                    }
+                } else {
+                    int count = statement.getUpdateCount();
+                    if (count == -1) {
+                        break;
+                    }
+                    execution.updateCount = (execution.updateCount == null ? 0 : execution.updateCount) + count;
+                }
+                // IO/TIME 统计以信息消息返回，驱动把它们作为 SQLWarning 挂在语句上
+                readMessages(statement.getWarnings(), execution.analysis);
+                statement.clearWarnings();
+                isResultSet = statement.getMoreResults();
+            }
+            readMessages(statement.getWarnings(), execution.analysis);
+        }
+        readMessages(con.getWarnings(), execution.analysis);
+        con.clearWarnings();
+    }
+
+    // 执行计划结果集只有一列 SHOWPLAN_COLUMN；其他结果集中第一个作为返回的数据页，之后的读完丢弃
+    private void readResult(ResultSet rs, Execution execution, int pageSize,
+                            SqlExecutorProperties.Analyze config) throws SQLException {
+        List<ColumnInfo> columns = SqlExecutorRepository.readColumns(rs);
+        if (columns.size() == 1 && ShowplanParser.SHOWPLAN_COLUMN.equals(columns.get(0).getName())) {
+            while (rs.next()) {
+                String xml = rs.getString(1);
+                ShowplanParser.parsePlan(xml, execution.analysis, config.getTopOperators(), config.getMisestimateFactor());
+                if (execution.planXml == null) {
+                    execution.planXml = xml;
+                }
+            }
+            return;
+        }
+        if (execution.page != null) {
+            while (rs.next()) {
+                // 只需读完，让服务端继续返回后续结果
+            }
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        long total = 0;
+        while (rs.next()) {
+            if (rows.size() < pageSize) {
+                rows.add(SqlExecutorRepository.readRow(rs, columns.size()));
+            }
+            total++;
+        }
+        execution.page = new QueryPage(columns, rows, 0, pageSize, total > rows.size());
+        execution.page.setTotal(total);
+    }
+
+    private static void readMessages(SQLWarning warning, QueryAnalysis analysis) {
+        for (; warning != null; warning = warning.getNextWarning()) {
+            ShowplanParser.parseMessage(warning.getMessage(), analysis);
+        }
+    }
+
+    // 与同一指纹的历史比较后加入历史：计划哈希与上一次不同时标记计划变化，
+    // 逻辑读或耗时超过历史中位数 regressionFactor 倍时给出回退说明
+    private synchronized void record(String databaseName, Execution execution, SqlExecutorProperties.Analyze config) {
+        QueryAnalysis analysis = execution.analysis;
+        LinkedHashMap<String, History> byFingerprint =
+                histories.computeIfAbsent(databaseName, k -> new LinkedHashMap<>(16, 0.75f, true));
+        History history = byFingerprint.computeIfAbsent(analysis.getFingerprint(), k -> new History());
+        history.sql = abbreviate(execution.sql);
+
+        QueryAnalysis previous = history.analyses.peekLast();
+        if (previous != null && previous.getPlanHash() != null && analysis.getPlanHash() != null) {
+            boolean changed = !previous.getPlanHash().equals(analysis.getPlanHash());
+            analysis.setPlanChanged(changed);
+            if (changed) {
+                analysis.setPreviousPlanHash(previous.getPlanHash());
+            }
+        }
+        if (history.analyses.size() >= MIN_HISTORY) {
+            analysis.setRegression(regression(history.analyses, analysis, config.getRegressionFactor()));
+        }
+        if (analysis.getRegression() != null || Boolean.TRUE.equals(analysis.getPlanChanged())) {
+            log.warn("执行计划变化或性能回退: connection={} fingerprint={} planHash={} previousPlanHash={} regression={}",
+                    databaseName, analysis.getFingerprint(), analysis.getPlanHash(), analysis.getPreviousPlanHash(),
+                    analysis.getRegression());
+        }
+
+        history.analyses.addLast(analysis);
+        while (history.analyses.size() > Math.max(1, config.getHistorySize())) {
+            history.analyses.removeFirst();
+        }
+        if (analysis.getPlanHash() != null && execution.planXml != null
+                && execution.planXml.length() <= config.getMaxPlanSize().toBytes()) {
+            // 重复出现的计划移到末尾，超出上限时删除最久未出现的计划
+            history.plans.remove(analysis.getPlanHash());
+            history.plans.put(analysis.getPlanHash(), execution.planXml);
+            Iterator<String> oldest = history.plans.keySet().iterator();
+            while (history.plans.size() > Math.max(1, config.getMaxPlansPerFingerprint())) {
+                oldest.next();
+                oldest.remove();
+            }
+        }
+        // 访问顺序的 LinkedHashMap，最前面的是最久未访问的指纹
+        Iterator<String> eldest = byFingerprint.keySet().iterator();
+        while (byFingerprint.size() > Math.max(1, config.getMaxFingerprints())) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private static String regression(Deque<QueryAnalysis> history, QueryAnalysis analysis, double factor) {
+        List<String> reasons = new ArrayList<>();
+        long reads = median(history, QueryAnalysis::getLogicalReads);
+        if (analysis.getLogicalReads() > reads * factor && analysis.getLogicalReads() - reads >= MIN_READS_DELTA) {
+            reasons.add(String.format("逻辑读 %d 为历史中位数 %d 的 %.1f 倍", analysis.getLogicalReads(), reads,
+                    (double) analysis.getLogicalReads() / Math.max(1, reads)));
+        }
+        long elapsed = median(history, QueryAnalysis::getElapsedMillis);
+        if (analysis.getElapsedMillis() > elapsed * factor
+                && analysis.getElapsedMillis() - elapsed >= MIN_ELAPSED_DELTA_MILLIS) {
+            reasons.add(String.format("耗时 %d ms 为历史中位数 %d ms 的 %.1f 倍", analysis.getElapsedMillis(), elapsed,
+                    (double) analysis.getElapsedMillis() / Math.max(1, elapsed)));
+        }
+        return reasons.isEmpty() ? null : String.join("，", reasons);
+    }
+
+    private static long median(Deque<QueryAnalysis> history, ToLongFunction<QueryAnalysis> value) {
+        long[] values = history.stream().mapToLong(value).sorted().toArray();
+        return values[values.length / 2];
+    }
+
+    // 当前连接下各指纹的分析概况，按最近分析时间倒序
+    public synchronized List<Map<String, Object>> list() {
+        String databaseName = sqlExecutorService.requireCurrentDatabase();
+        List<Map<String, Object>> result = new ArrayList<>();
+        Map<String, History> byFingerprint = histories.get(databaseName);
+        if (byFingerprint == null) {
+            return result;
+        }
+        byFingerprint.forEach((fingerprint, history) -> {
+            QueryAnalysis last = history.analyses.peekLast();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("fingerprint", fingerprint);
+            entry.put("sql", history.sql);
+            entry.put("analyses", history.analyses.size());
+            entry.put("plans", new ArrayList<>(history.plans.keySet()));
+            entry.put("lastAnalyzedAt", last.getAnalyzedAt());
+            entry.put("planHash", last.getPlanHash());
+            entry.put("estimatedCost", last.getEstimatedCost());
+            entry.put("logicalReads", last.getLogicalReads());
+            entry.put("elapsedMillis", last.getElapsedMillis());
+            entry.put("planChanged", last.getPlanChanged());
+            entry.put("regression", last.getRegression());
+            result.add(entry);
+        });
+        result.sort((a, b) -> ((Instant) b.get("lastAnalyzedAt")).compareTo((Instant) a.get("lastAnalyzedAt")));
+        return result;
+    }
+
+    // 当前连接下某个指纹的分析历史，按时间顺序
+    public synchronized List<QueryAnalysis> history(String fingerprint) {
+        return new ArrayList<>(requireHistory(fingerprint).analyses);
+    }
+
+    // 保存的执行计划 XML，planHash 为空时返回最近一次的计划
+    public synchronized String plan(String fingerprint, String planHash) {
+        History history = requireHistory(fingerprint);
+        String hash = planHash;
+        if (hash == null || hash.isEmpty()) {
+            QueryAnalysis last = history.analyses.peekLast();
+            hash = last == null ? null : last.getPlanHash();
+        }
+        String xml = hash == null ? null : history.plans.get(hash);
+        if (xml == null) {
+            throw new IllegalArgumentException("执行计划不存在或超过保存大小上限: " + Objects.toString(hash, ""));
+        }
+        return xml;
+    }
+
+    // 清空当前连接的分析历史
+    public synchronized void clear() {
+        histories.remove(sqlExecutorService.requireCurrentDatabase());
+    }
+
+    private History requireHistory(String fingerprint) {
+        Map<String, History> byFingerprint = histories.get(sqlExecutorService.requireCurrentDatabase());
+        History history = byFingerprint == null ? null : byFingerprint.get(fingerprint);
+        if (history == null) {
+            throw new IllegalArgumentException("没有该 SQL 的分析记录: " + fingerprint);
+        }
+        return history;
+    }
+
+    private static String abbreviate(String sql) {
+        return sql.length() <= MAX_SQL_LENGTH ? sql : sql.substring(0, MAX_SQL_LENGTH) + "...";
+    }
+
+    private static final class History {
+        private final Deque<QueryAnalysis> analyses = new ArrayDeque<>();
+        // 计划哈希 -> 执行计划 XML，按最近出现的顺序
+        private final LinkedHashMap<String, String> plans = new LinkedHashMap<>();
+        private String sql;
+    }
+
+    // 分析执行的结果：查询语句返回 page，更新语句返回 updateCount
+    public static final class Execution {
+        private final String sql;
+        private final QueryAnalysis analysis = new QueryAnalysis();
+        private QueryPage page;
+        private Integer updateCount;
+        private String planXml;
+
+        private Execution(String sql) {
+            this.sql = sql;
+        }
+
+        public QueryAnalysis getAnalysis() {
+            return analysis;
+        }
+
+        public QueryPage getPage() {
+            return page;
+        }
+
+        public Integer getUpdateCount() {
+            return updateCount;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.dsb.sqlexecutor.service;
+
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.ColumnInfo;
+import com.dsb.sqlexecutor.model.QueryJob;
+import com.dsb.sqlexecutor.model.QueryPage;
+import com.dsb.sqlexecutor.repository.SqlExecutorRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// 异步查询任务：提交后立即返回任务ID，在独立的有界线程池中执行，支持取消
+@Service
+public class QueryJobService {
+
+    private final Logger log = LoggerFactory.getLogger(QueryJobService.class);
+
+    @Autowired
+    private SqlExecutorService sqlExecutorService;
+
+    @Autowired
+    private SqlExecutorProperties properties;
+
+    private final Map<String, QueryJob> jobs = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        SqlExecutorProperties.Job job = properties.getJob();
+        // 虚拟线程模式下任务线程同样使用虚拟线程，并发数仍由线程池上限控制
+        ThreadFactory threadFactory = properties.isVirtualThreads()
+                ? Thread.ofVirtual().name("query-job-", 0).factory()
+                : new CustomizableThreadFactory("query-job-");
+        executor = new ThreadPoolExecutor(job.getMaxConcurrent(), job.getMaxConcurrent(),
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(job.getQueueCapacity()),
+                threadFactory);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(this::cancelJob);
+        executor.shutdownNow();
+    }
+
+    // 提交任务，使用当前选择的数据库配置
+    public QueryJob submit(String sql) {
+        String database = sqlExecutorService.requireCurrentDatabase();
+        QueryJob job = new QueryJob(UUID.randomUUID().toString(), sql.trim(), database);
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw new IllegalStateException("查询任务过多，请稍后再试");
+        }
+        return job;
+    }
+
+    public QueryJob getJob(String id) {
+        QueryJob job = jobs.get(id);
+        if (job == null) {
+            throw new IllegalArgumentException("查询任务不存在: " + id);
+        }
+        return job;
+    }
+
+    // 取消任务：排队中的直接标记取消，执行中的调用 Statement.cancel()
+    public QueryJob cancel(String id) {
+        QueryJob job = getJob(id);
+        cancelJob(job);
+        return job;
+    }
+
+    private void cancelJob(QueryJob job) {
+        Statement statement = job.requestCancel();
+        if (statement != null) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                log.warn("取消查询任务失败: {}", job.getId(), e);
+            }
+        }
+    }
+
+    private void run(QueryJob job) {
+        try {
+            execute(job);
+        } finally {
+            evictFinishedOverflow();
+        }
+    }
+
+    private void execute(QueryJob job) {
+        if (!job.start()) {
+            return;
+        }
+        int maxRows = properties.getJob().getMaxRows();
+        boolean query = SqlExecutorService.isQuery(job.getSql());
+        try {
+            sqlExecutorService.executeStatement(job.getDatabase(), job.getSql(), !query, stmt -> {
+                if (!job.attach(stmt)) {
+                    job.fail("任务已取消");
+                    return null;
+                }
+                // SQL Server 的 maxRows 同样限制 UPDATE/DELETE 影响行数，只对查询设置
+                if (query) {
+                    stmt.setMaxRows(maxRows + 1);
+                }
+                if (stmt.execute(job.getSql())) {
+                    try (ResultSet rs = stmt.getResultSet()) {
+                        List<ColumnInfo> columns = SqlExecutorRepository.readColumns(rs);
+                        List<Object[]> rows = new ArrayList<>();
+                        while (rows.size() < maxRows && rs.next()) {
+                            rows.add(SqlExecutorRepository.readRow(rs, columns.size()));
+                        }
+                        boolean hasMore = rs.next();
+                        job.succeed(new QueryPage(columns, rows, 0, maxRows, hasMore), null);
+                        return rows.size();
+                    }
+                }
+                int updateCount = stmt.getUpdateCount();
+                job.succeed(null, updateCount);
+                sqlExecutorService.notifyUpdate(job.getDatabase(), job.getSql());
+                return updateCount;
+            });
+        } catch (Exception e) {
+            log.warn("查询任务执行失败: {}", job.getId(), e);
+            job.fail(e.getMessage());
+        }
+    }
+
+    // 定期清理已结束且超过保留时间的任务
+    @Scheduled(fixedDelay = 60000)
+    public void purgeExpiredJobs() {
+        Instant expireBefore = Instant.now().minus(properties.getJob().getRetention());
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(expireBefore));
+    }
+
+    // 已结束的任务超过 maxFinished 个时删除最早结束的，避免短时间内大量任务的结果占满堆内存
+    private void evictFinishedOverflow() {
+        int maxFinished = Math.max(0, properties.getJob().getMaxFinished());
+        List<QueryJob> finished = new ArrayList<>();
+        for (QueryJob job : jobs.values()) {
+            if (job.isFinished()) {
+                finished.add(job);
+            }
+        }
+        if (finished.size() <= maxFinished) {
+            return;
+        }
+        finished.sort(Comparator.comparing(QueryJob::getFinishedAt));
+        for (QueryJob job : finished.subList(0, finished.size() - maxFinished)) {
+            jobs.remove(job.getId(), job);
+        }
+    }
+}
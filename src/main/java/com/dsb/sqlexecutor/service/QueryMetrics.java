@@ -0,0 +1,220 @@
+package com.dsb.sqlexecutor.service;
+
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.util.SqlFingerprint;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// 按连接 + SQL 指纹统计语句执行情况：耗时直方图、行数、错误数；超过阈值的语句写入慢查询日志
+@Service
+public class QueryMetrics {
+
+    // 慢查询日志，logback-spring.xml 中输出到单独的文件
+    private static final Logger slowQueryLog = LoggerFactory.getLogger("SLOW_QUERY");
+
+    private static final String OTHER = "(other)";
+    // 直方图各桶的上限（毫秒），最后一个桶收集更慢的语句
+    private static final long[] BUCKET_BOUNDS_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000, 60000};
+
+    @Autowired
+    private SqlExecutorProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Map<String, Stats>> statsByConnection = new ConcurrentHashMap<>();
+    // 所有连接已记录的指纹数（不含 (other)），新指纹先占用名额再写入，超出上限时归入 (other)
+    private final AtomicInteger fingerprintCount = new AtomicInteger();
+    // 连接 + 类型 + 结果 -> Timer，避免每条语句都经过 Timer.builder(...).register 的查找
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    // 记录一次语句执行；rows 小于 0 表示行数未知，error 为空表示执行成功
+    public void record(String connection, String sql, boolean write, long elapsedNanos, long rows, Throwable error) {
+        SqlExecutorProperties.Metrics config = properties.getMetrics();
+        if (!config.isEnabled()) {
+            return;
+        }
+        String fingerprint = SqlFingerprint.of(sql);
+        statsFor(connection, fingerprint, config.getMaxFingerprints()).record(elapsedNanos, rows, error != null);
+
+        timerFor(connection, write ? "write" : "read", error == null ? "success" : "error")
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        // 只记录指纹（字面量已替换为 ?），不把语句中的参数值写入日志文件
+        if (elapsedNanos >= config.getSlowQueryThreshold().toNanos()) {
+            slowQueryLog.warn("connection={} elapsedMs={} rows={} error={} fingerprint={}",
+                    connection, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), rows,
+                    error == null ? "-" : describeError(error), fingerprint);
+        }
+    }
+
+    // 错误消息中可能带有语句里的字面量（如违反约束的键值），日志只记录异常类型和 SQLState/错误码
+    static String describeError(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                return sqlException.getClass().getSimpleName() + "(sqlState=" + sqlException.getSQLState()
+                        + ", errorCode=" + sqlException.getErrorCode() + ")";
+            }
+        }
+        return error.getClass().getSimpleName();
+    }
+
+    // 连接维度的 Timer 发布到 /actuator/metrics，标签基数低，指纹维度见 /actuator/sqlqueries
+    private Timer timerFor(String connection, String type, String outcome) {
+        return timers.computeIfAbsent(connection + "|" + type + "|" + outcome, key -> Timer.builder("sqlexecutor.statement")
+                .description("SQL 语句执行耗时")
+                .tag("connection", connection)
+                .tag("type", type)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private Stats statsFor(String connection, String fingerprint, int maxFingerprints) {
+        Map<String, Stats> stats = statsByConnection.computeIfAbsent(connection, k -> new ConcurrentHashMap<>());
+        Stats existing = stats.get(fingerprint);
+        if (existing != null) {
+            return existing;
+        }
+        // 指纹数有上限，防止大量不同语句占满内存；并发写入同一新指纹时只有一个占用名额
+        if (fingerprintCount.incrementAndGet() <= maxFingerprints) {
+            Stats created = new Stats();
+            existing = stats.putIfAbsent(fingerprint, created);
+            if (existing == null) {
+                return created;
+            }
+            fingerprintCount.decrementAndGet();
+            return existing;
+        }
+        fingerprintCount.decrementAndGet();
+        return stats.computeIfAbsent(OTHER, k -> new Stats());
+    }
+
+    // 指纹统计快照，按累计耗时倒序
+    public List<Map<String, Object>> snapshot(String connection) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        statsByConnection.forEach((name, stats) -> {
+            if (connection != null && !connection.equals(name)) {
+                return;
+            }
+            stats.forEach((fingerprint, stat) -> {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("connection", name);
+                entry.put("fingerprint", fingerprint);
+                entry.putAll(stat.toMap());
+                result.add(entry);
+            });
+        });
+        result.sort(Comparator.comparingDouble((Map<String, Object> entry) -> (double) entry.get("totalMillis")).reversed());
+        return result;
+    }
+
+    // 清空期间并发记录的指纹可能不计入名额，计数只用于限制内存，允许这点偏差
+    public void reset() {
+        statsByConnection.clear();
+        fingerprintCount.set(0);
+    }
+
+    // 单个指纹的累计统计，无锁计数
+    private static final class Stats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MILLIS.length + 1];
+        private volatile Instant lastExecutedAt;
+
+        Stats() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long elapsedNanos, long rowCount, boolean error) {
+            count.increment();
+            if (error) {
+                errors.increment();
+            }
+            if (rowCount > 0) {
+                rows.add(rowCount);
+            }
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulate(elapsedNanos);
+            buckets[bucketOf(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))].increment();
+            lastExecutedAt = Instant.now();
+        }
+
+        private static int bucketOf(long millis) {
+            for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+                if (millis <= BUCKET_BOUNDS_MILLIS[i]) {
+                    return i;
+                }
+            }
+            return BUCKET_BOUNDS_MILLIS.length;
+        }
+
+        Map<String, Object> toMap() {
+            long[] counts = new long[buckets.length];
+            long total = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].sum();
+                total += counts[i];
+            }
+            Map<String, Object> histogram = new LinkedHashMap<>();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    histogram.put(i < BUCKET_BOUNDS_MILLIS.length ? "le" + BUCKET_BOUNDS_MILLIS[i] : "inf", counts[i]);
+                }
+            }
+
+            double totalMillis = totalNanos.sum() / 1_000_000.0;
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("count", count.sum());
+            map.put("errors", errors.sum());
+            map.put("rows", rows.sum());
+            map.put("totalMillis", totalMillis);
+            map.put("avgMillis", total == 0 ? 0.0 : totalMillis / total);
+            map.put("maxMillis", maxNanos.get() / 1_000_000.0);
+            // 分位数取所在桶的上限，为近似值（最后一个桶取最大值）
+            map.put("p50Millis", percentile(counts, total, 0.50));
+            map.put("p95Millis", percentile(counts, total, 0.95));
+            map.put("p99Millis", percentile(counts, total, 0.99));
+            map.put("histogram", histogram);
+            map.put("lastExecutedAt", lastExecutedAt);
+            return map;
+        }
+
+        private Long percentile(long[] counts, long total, double quantile) {
+            if (total == 0) {
+                return null;
+            }
+            long rank = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i < BUCKET_BOUNDS_MILLIS.length ? BUCKET_BOUNDS_MILLIS[i] : TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.dsb.sqlexecutor.service;
+
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.ColumnInfo;
+import com.dsb.sqlexecutor.model.QueryPage;
+import com.dsb.sqlexecutor.util.SqlFingerprint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.temporal.Temporal;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+// 查询结果缓存（默认关闭）：键为连接名 + 合并空白后的 SQL + 绑定参数 + 分页参数
+// 按估算的结果字节数限制总大小，超出时淘汰最久未访问的条目；连接上执行非查询语句后该连接的条目全部失效
+@Component
+public class ResultCache {
+
+    // 每次执行结果都可能不同的函数，含这些函数的查询不缓存
+    private static final Pattern NON_DETERMINISTIC = Pattern.compile(
+            "\\b(newid|getdate|getutcdate|sysdatetime|sysutcdatetime|sysdatetimeoffset|current_timestamp|rand|crypt_gen_random)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    @Autowired
+    private SqlExecutorProperties properties;
+
+    // 按访问顺序排列，淘汰时从最久未访问的条目开始
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalWeight;
+    // 各连接最近一次失效的序号（取自全局递增的 invalidationSequence），查询期间该连接发生失效时不写入缓存
+    // 只按连接比较，失效一个连接不影响其他连接正在进行的查询；由 entries 的锁保护
+    private final Map<String, Long> generations = new HashMap<>();
+    private final AtomicLong invalidationSequence = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder oversized = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public boolean isEnabled() {
+        return properties.getResultCache().isEnabled();
+    }
+
+    // 命中时返回缓存的结果，否则执行 loader 并按条件写入缓存
+    // 返回的对象可能被多个请求共享，调用方修改前需先 copy()
+    // args 为参数化语句的绑定参数，参数不同的结果分开缓存
+    public QueryPage get(String connection, String sql, Object[] args, long offset, int limit, boolean withTotal,
+                         Supplier<QueryPage> loader) {
+        if (!isEnabled() || NON_DETERMINISTIC.matcher(sql).find()) {
+            return loader.get();
+        }
+        String normalizedSql = SqlFingerprint.normalizeWhitespace(sql);
+        Key key = new Key(connection, offset + "|" + limit + "|" + withTotal + "|" + normalizedSql.length()
+                + "|" + normalizedSql + argsKey(args));
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt.isAfter(Instant.now())) {
+                    hits.increment();
+                    return entry.page;
+                }
+                remove(key);
+                expirations.increment();
+            }
+        }
+        misses.increment();
+
+        long startGeneration = generationOf(connection);
+        QueryPage page = loader.get();
+        put(key, page, startGeneration);
+        return page;
+    }
+
+    private void put(Key key, QueryPage page, long startGeneration) {
+        SqlExecutorProperties.ResultCache config = properties.getResultCache();
+        long weight = estimateWeight(key, page);
+        if (weight > config.getMaxEntrySize().toBytes()) {
+            oversized.increment();
+            return;
+        }
+        long maxWeight = config.getMaxSize().toBytes();
+        synchronized (entries) {
+            if (generations.getOrDefault(key.connection, 0L) != startGeneration) {
+                return;
+            }
+            remove(key);
+            entries.put(key, new Entry(page, weight, Instant.now().plus(config.getTtl())));
+            totalWeight += weight;
+            Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+            while (totalWeight > maxWeight && iterator.hasNext()) {
+                Entry eldest = iterator.next().getValue();
+                iterator.remove();
+                totalWeight -= eldest.weight;
+                evictions.increment();
+            }
+        }
+    }
+
+    // 使某个连接的所有缓存结果失效
+    public void invalidate(String connection) {
+        synchronized (entries) {
+            generations.put(connection, invalidationSequence.incrementAndGet());
+            Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Key, Entry> entry = iterator.next();
+                if (entry.getKey().connection.equals(connection)) {
+                    iterator.remove();
+                    totalWeight -= entry.getValue().weight;
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    // 定期清理过期条目，不再被访问的过期结果不会一直占用容量
+    @Scheduled(fixedDelay = 60000)
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        synchronized (entries) {
+            Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next().getValue();
+                if (!entry.expiresAt.isAfter(now)) {
+                    iterator.remove();
+                    totalWeight -= entry.weight;
+                    expirations.increment();
+                }
+            }
+        }
+    }
+
+    // 参数带上类型，避免 1 和 "1" 命中同一个条目
+    private static String argsKey(Object[] args) {
+        if (args == null || args.length == 0) {
+            return "";
+        }
+        StringBuilder key = new StringBuilder();
+        for (Object arg : args) {
+            key.append('|');
+            if (arg != null) {
+                key.append(arg.getClass().getSimpleName()).append(':').append(arg);
+            }
+        }
+        return key.toString();
+    }
+
+    private long generationOf(String connection) {
+        synchronized (entries) {
+            return generations.getOrDefault(connection, 0L);
+        }
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            totalWeight -= removed.weight;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+            stats.put("weightBytes", totalWeight);
+        }
+        stats.put("maxWeightBytes", properties.getResultCache().getMaxSize().toBytes());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", requests == 0 ? 0.0 : (double) hitCount / requests);
+        stats.put("missRatio", requests == 0 ? 0.0 : (double) missCount / requests);
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("oversized", oversized.sum());
+        stats.put("expirations", expirations.sum());
+        return stats;
+    }
+
+    // 估算结果占用的内存字节数，只用于缓存容量控制，不要求精确
+    private static long estimateWeight(Key key, QueryPage page) {
+        long weight = 128 + 2L * (key.connection.length() + key.query.length());
+        if (page.getColumns() != null) {
+            for (ColumnInfo column : page.getColumns()) {
+                weight += 64 + 2L * column.getName().length();
+            }
+        }
+        if (page.getRows() != null) {
+            for (Object[] row : page.getRows()) {
+                weight += 16 + 8L * row.length;
+                for (Object value : row) {
+                    weight += estimateValue(value);
+                }
+            }
+        }
+        return weight;
+    }
+
+    private static long estimateValue(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String text) {
+            return 40 + 2L * text.length();
+        }
+        if (value instanceof byte[] bytes) {
+            return 16 + bytes.length;
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return 24;
+        }
+        if (value instanceof Date || value instanceof Temporal) {
+            return 32;
+        }
+        return 64;
+    }
+
+    // 连接名单独保存，失效时按连接名精确匹配，连接名中含分隔符也不会误删其他连接的条目
+    private static final class Key {
+        private final String connection;
+        private final String query;
+
+        Key(String connection, String query) {
+            this.connection = connection;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return connection.equals(other.connection) && query.equals(other.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * connection.hashCode() + query.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        private final QueryPage page;
+        private final long weight;
+        private final Instant expiresAt;
+
+        Entry(QueryPage page, long weight, Instant expiresAt) {
+            this.page = page;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.dsb.sqlexecutor.service;
+
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.ColumnInfo;
+import com.dsb.sqlexecutor.model.ExportFormat;
+import com.dsb.sqlexecutor.repository.SqlExecutorRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class ResultExportService {
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private SqlExecutorService sqlExecutorService;
+
+    @Autowired
+    private SqlExecutorProperties properties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 逐行读取结果的来源，返回 null 表示没有更多行
+    public interface RowReader {
+        Object[] next() throws SQLException;
+    }
+
+    // 导出走只读的流式查询，更新语句、SELECT ... INTO 和跟在查询后面的其他语句在驱动报告没有结果集之前就已经执行，
+    // 且不会经过写名额和缓存失效，必须在执行前拒绝
+    public static void requireExportable(String sql) {
+        if (!SqlExecutorService.isPlainQuery(sql)) {
+            throw new IllegalArgumentException("只能导出单条查询语句的结果");
+        }
+    }
+
+    // 流式导出查询结果，边读 ResultSet 边写输出流，返回导出行数
+    public long export(String sql, ExportFormat format, Integer fetchSize, OutputStream out) {
+        requireExportable(sql);
+        int size = fetchSize != null && fetchSize > 0 ? fetchSize : properties.getExport().getFetchSize();
+        return sqlExecutorService.streamQuery(sql, size, rs -> {
+            List<ColumnInfo> columns = SqlExecutorRepository.readColumns(rs);
+            return write(columns, () -> rs.next() ? SqlExecutorRepository.readRow(rs, columns.size()) : null, format, out);
+        });
+    }
+
+    // 按指定格式写出行，返回写出的行数；行可以来自 ResultSet 或暂存的结果
+    public long write(List<ColumnInfo> columns, RowReader rows, ExportFormat format, OutputStream out) throws SQLException {
+        try {
+            return format == ExportFormat.CSV ? writeCsv(columns, rows, out) : writeNdjson(columns, rows, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // 以 SSE 事件流返回查询结果：先发送 columns，再按块发送 rows，最后发送 done（行数、是否还有更多数据）
+    // 读到第一行立即发送，之后每攒满 streamChunkSize 行或距上次发送超过 streamFlushInterval 发送一次
+    // 最多返回 streamMaxRows 行，剩余数据由前端从该位置起按分页加载；与导出一样只接受单条查询语句
+    public long streamEvents(String sql, String params, OutputStream out) {
+        requireExportable(sql);
+        SqlExecutorProperties.Query config = properties.getQuery();
+        int maxRows = Math.max(1, config.getStreamMaxRows());
+        int chunkSize = Math.max(1, config.getStreamChunkSize());
+        long flushNanos = config.getStreamFlushInterval().toNanos();
+        long start = System.nanoTime();
+        return sqlExecutorService.streamQuery(sql, params, chunkSize, maxRows + 1, rs -> {
+            try {
+                List<ColumnInfo> columns = SqlExecutorRepository.readColumns(rs);
+                writeEvent(out, "columns", Map.of("columns", columns));
+
+                List<Object[]> chunk = new ArrayList<>(chunkSize);
+                long rows = 0;
+                long lastFlush = System.nanoTime();
+                while (rows < maxRows && rs.next()) {
+                    chunk.add(SqlExecutorRepository.readRow(rs, columns.size()));
+                    rows++;
+                    if (rows == 1 || chunk.size() >= chunkSize || System.nanoTime() - lastFlush >= flushNanos) {
+                        writeEvent(out, "rows", Map.of("rows", chunk));
+                        chunk.clear();
+                        lastFlush = System.nanoTime();
+                    }
+                }
+                boolean hasMore = rows >= maxRows && rs.next();
+                if (!chunk.isEmpty()) {
+                    writeEvent(out, "rows", Map.of("rows", chunk));
+                }
+
+                Map<String, Object> done = new LinkedHashMap<>();
+                done.put("rows", rows);
+                done.put("hasMore", hasMore);
+                done.put("elapsedMillis", (System.nanoTime() - start) / 1_000_000);
+                writeEvent(out, "done", done);
+                return rows;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // 写出一个 SSE 事件并立即刷新，data 为单行 JSON
+    public void writeEvent(OutputStream out, String event, Object data) throws IOException {
+        out.write(("event: " + event + "\ndata: ").getBytes(StandardCharsets.UTF_8));
+        out.write(objectMapper.writeValueAsBytes(data));
+        out.write("\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    // 写出 CSV（带 UTF-8 BOM，方便 Excel 直接打开中文内容）
+    private long writeCsv(List<ColumnInfo> columns, RowReader rows, OutputStream out) throws SQLException, IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        writer.write('\uFEFF');
+
+        int columnCount = columns.size();
+        for (int i = 0; i < columnCount; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCsvField(writer, columns.get(i).getName());
+        }
+        writer.write("\r\n");
+
+        long count = 0;
+        Object[] row;
+        while ((row = rows.next()) != null) {
+            for (int i = 0; i < columnCount; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                Object value = row[i];
+                if (value != null) {
+                    writeCsvField(writer, value instanceof byte[] bytes ? HexFormat.of().formatHex(bytes) : value.toString());
+                }
+            }
+            writer.write("\r\n");
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    // 按 RFC 4180 转义字段
+    private void writeCsvField(Writer writer, String value) throws IOException {
+        boolean needQuote = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                needQuote = true;
+                break;
+            }
+        }
+        if (!needQuote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    // 写出 NDJSON，每行一个 JSON 对象
+    private long writeNdjson(List<ColumnInfo> columns, RowReader rows, OutputStream out) throws SQLException, IOException {
+        int columnCount = columns.size();
+        String[] columnNames = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnNames[i] = columns.get(i).getName();
+        }
+
+        long count = 0;
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(new SerializedString("\n"));
+        Object[] row;
+        while ((row = rows.next()) != null) {
+            generator.writeStartObject();
+            for (int i = 0; i < columnCount; i++) {
+                generator.writeFieldName(columnNames[i]);
+                generator.writeObject(row[i]);
+            }
+            generator.writeEndObject();
+            count++;
+        }
+        if (count > 0) {
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+        return count;
+    }
+}
@@ -0,0 +1,484 @@
+package com.dsb.sqlexecutor.service;
+
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.ColumnInfo;
+import com.dsb.sqlexecutor.model.ExportFormat;
+import com.dsb.sqlexecutor.model.QueryPage;
+import com.dsb.sqlexecutor.model.StoredResult;
+import com.dsb.sqlexecutor.repository.SqlExecutorRepository;
+import com.dsb.sqlexecutor.util.RowCodec;
+import com.dsb.sqlexecutor.util.SpillFile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 大结果暂存：查询结果读取一次后保存下来，分页、按列排序和重新导出都从暂存的结果读取，不再重新执行 SQL
+// 不超过 spillThreshold 行的结果保存在内存中，更大的结果用 RowCodec 编码写入临时文件并映射到内存，堆内只保留稀疏索引
+// 按列排序的结果生成后缓存在条目中：内存结果直接排序，文件结果分段排序后多路归并写入新文件
+// 结果在 ttl 内未访问或总大小超出上限时删除，临时文件随之删除；内存结果按 RowCodec 编码后的字节数计入总大小
+// 结果属于暂存它的客户端（客户端标识见 SqlExecutorService.getClientKey），其他客户端看不到也无法读取、导出或删除
+@Service
+public class ResultStore {
+
+    private final Logger log = LoggerFactory.getLogger(ResultStore.class);
+
+    private static final String FILE_SUFFIX = ".rows";
+
+    @Autowired
+    private SqlExecutorService sqlExecutorService;
+
+    @Autowired
+    private ResultExportService resultExportService;
+
+    @Autowired
+    private SqlExecutorProperties properties;
+
+    private final Map<String, Entry> results = new ConcurrentHashMap<>();
+    private Path directory;
+
+    @PostConstruct
+    public void init() throws IOException {
+        String configured = properties.getResultStore().getDirectory();
+        directory = configured == null || configured.isBlank()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "sqlexecutor-results")
+                : Paths.get(configured);
+        Files.createDirectories(directory);
+        // 上次运行异常退出时遗留的文件
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        results.values().forEach(Entry::release);
+        results.clear();
+    }
+
+    // 在当前数据库配置上执行查询并暂存结果，返回结果信息
+    public StoredResult store(String sql, String params) {
+        // 暂存走只读的流式查询，SELECT ... INTO 和带其他语句的文本不会经过写名额和缓存失效
+        ResultExportService.requireExportable(sql);
+        String owner = sqlExecutorService.getClientKey();
+        if (owner == null) {
+            throw new IllegalStateException("只能在请求中暂存结果");
+        }
+        String database = sqlExecutorService.requireCurrentDatabase();
+        SqlExecutorProperties.ResultStore config = properties.getResultStore();
+        String id = UUID.randomUUID().toString();
+        long start = System.nanoTime();
+        int maxRows = Math.max(1, config.getMaxRows());
+        // 多取一行用于判断是否截断
+        int limit = maxRows == Integer.MAX_VALUE ? 0 : maxRows + 1;
+        Entry entry = sqlExecutorService.streamQuery(sql, params, Math.max(1, config.getFetchSize()), limit,
+                rs -> load(id, owner, database, sql.trim(), rs, maxRows, start));
+        entry.info.touch(config.getTtl());
+        results.put(id, entry);
+        log.info("暂存查询结果 {}: {} 行，{} {} 字节", id, entry.info.getRowCount(),
+                entry.info.isSpilled() ? "临时文件" : "内存，编码后约", entry.info.getSizeBytes());
+        enforceLimits(id);
+        return entry.info;
+    }
+
+    // 读取暂存结果的一页；sort 为列名时按该列排序（排序结果会缓存，同一列再次排序不重新计算）
+    public QueryPage page(String id, long offset, Integer limit, String sort, boolean desc) {
+        Entry entry = require(id);
+        SqlExecutorProperties.Query query = properties.getQuery();
+        int pageSize = limit == null ? query.getPageSize() : Math.max(0, Math.min(limit, query.getMaxPageSize()));
+        Rows rows = view(entry, sort, desc);
+        Iterator<Object[]> iterator = rows.iterator(Math.max(0, offset));
+        List<Object[]> page = new ArrayList<>(Math.min(pageSize, 1024));
+        while (page.size() < pageSize && iterator.hasNext()) {
+            page.add(iterator.next());
+        }
+        long total = rows.count();
+        long start = Math.max(0, offset);
+        QueryPage result = new QueryPage(entry.info.getColumns(), page, start, pageSize, start + page.size() < total);
+        result.setTotal(total);
+        return result;
+    }
+
+    // 按指定格式导出暂存的结果，可以按列排序，返回导出行数
+    public long export(String id, String sort, boolean desc, ExportFormat format, OutputStream out) throws SQLException {
+        Entry entry = require(id);
+        Iterator<Object[]> iterator = view(entry, sort, desc).iterator(0);
+        return resultExportService.write(entry.info.getColumns(), () -> iterator.hasNext() ? iterator.next() : null,
+                format, out);
+    }
+
+    public StoredResult get(String id) {
+        return require(id).info;
+    }
+
+    // 当前客户端暂存的结果
+    public List<StoredResult> list() {
+        String owner = sqlExecutorService.getClientKey();
+        return results.values().stream()
+                .filter(entry -> entry.owner.equals(owner))
+                .map(entry -> entry.info)
+                .sorted(Comparator.comparing(StoredResult::getCreatedAt))
+                .toList();
+    }
+
+    // 删除暂存的结果及其临时文件
+    public boolean delete(String id) {
+        Entry entry = results.get(id);
+        if (entry == null || !entry.owner.equals(sqlExecutorService.getClientKey()) || !results.remove(id, entry)) {
+            return false;
+        }
+        entry.release();
+        return true;
+    }
+
+    // 定期删除超过 ttl 未访问的结果
+    @Scheduled(fixedDelay = 60000)
+    public void purgeExpiredResults() {
+        Instant now = Instant.now();
+        results.forEach((id, entry) -> {
+            if (entry.info.getExpiresAt().isBefore(now) && results.remove(id, entry)) {
+                entry.release();
+            }
+        });
+    }
+
+    private Entry require(String id) {
+        Entry entry = results.get(id);
+        if (entry == null || !entry.owner.equals(sqlExecutorService.getClientKey())) {
+            throw new IllegalArgumentException("结果不存在或已过期: " + id);
+        }
+        entry.info.touch(properties.getResultStore().getTtl());
+        return entry;
+    }
+
+    // 读取结果集：先保存在内存中，超过阈值后把已读的行和之后的行都写入临时文件
+    private Entry load(String id, String owner, String database, String sql, ResultSet rs, int maxRows, long start)
+            throws SQLException {
+        SqlExecutorProperties.ResultStore config = properties.getResultStore();
+        int threshold = Math.max(0, config.getSpillThreshold());
+        long maxFileSize = config.getMaxFileSize().toBytes();
+        List<ColumnInfo> columns = SqlExecutorRepository.readColumns(rs);
+        List<Object[]> rows = new ArrayList<>();
+        SpillFile.Writer writer = null;
+        long count = 0;
+        boolean truncated = false;
+        try {
+            while (rs.next()) {
+                if (count >= maxRows || writer != null && writer.getSize() >= maxFileSize) {
+                    truncated = true;
+                    if (count < maxRows) {
+                        // 因文件大小截断时服务端还在返回数据，取消执行以免关闭结果集时读完
+                        rs.getStatement().cancel();
+                    }
+                    break;
+                }
+                Object[] row = SqlExecutorRepository.readRow(rs, columns.size());
+                if (writer != null) {
+                    writer.append(row);
+                } else {
+                    rows.add(row);
+                    if (rows.size() > threshold) {
+                        writer = SpillFile.create(newFile(), columns.size());
+                        for (Object[] pending : rows) {
+                            writer.append(pending);
+                        }
+                        rows = null;
+                    }
+                }
+                count++;
+            }
+            SpillFile file = writer != null ? writer.finish() : null;
+            Rows loaded = file != null ? new Rows(null, file, 0) : new Rows(rows, null, encodedSize(rows));
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            StoredResult info = new StoredResult(id, database, sql, columns, count, truncated, file != null,
+                    loaded.size(), elapsedMillis);
+            return new Entry(info, owner, loaded);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入结果文件失败: " + e.getMessage(), e);
+        } finally {
+            closeQuietly(writer);
+        }
+    }
+
+    // 获取按 sort 列排序的行，sort 为空时返回原始顺序；同一条目同时只计算一个排序
+    private Rows view(Entry entry, String sort, boolean desc) {
+        if (sort == null || sort.isBlank()) {
+            return entry.rows;
+        }
+        int column = resolveColumn(entry.info.getColumns(), sort.trim());
+        String key = column + (desc ? ":desc" : ":asc");
+        Rows view = entry.sorted.get(key);
+        if (view != null) {
+            return view;
+        }
+        synchronized (entry) {
+            view = entry.sorted.get(key);
+            if (view == null) {
+                if (entry.released) {
+                    throw new IllegalArgumentException("结果不存在或已过期: " + entry.info.getId());
+                }
+                view = sort(entry.rows, entry.info.getColumns().size(), column, desc);
+                entry.sorted.put(key, view);
+                entry.info.addSize(view.size());
+            }
+        }
+        enforceLimits(entry.info.getId());
+        return view;
+    }
+
+    private static int resolveColumn(List<ColumnInfo> columns, String name) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getName().equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("结果中没有列: " + name);
+    }
+
+    // 排序是稳定的，值相同的行保持原来的顺序
+    private Rows sort(Rows source, int columnCount, int column, boolean desc) {
+        Comparator<Object[]> comparator = (a, b) -> compareValues(a[column], b[column]);
+        if (desc) {
+            comparator = comparator.reversed();
+        }
+        if (source.file == null) {
+            List<Object[]> sorted = new ArrayList<>(source.memory);
+            sorted.sort(comparator);
+            // 与原结果共用行对象，只计引用数组
+            return new Rows(sorted, null, 8L * sorted.size());
+        }
+        try {
+            return new Rows(null, externalSort(source.file, columnCount, comparator), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("排序结果文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    // 外部排序：每 sortChunkRows 行在内存中排序后写成一个有序段，再把各段多路归并成一个文件
+    private SpillFile externalSort(SpillFile source, int columnCount, Comparator<Object[]> comparator) throws IOException {
+        int chunkRows = Math.max(1, properties.getResultStore().getSortChunkRows());
+        List<SpillFile> runs = new ArrayList<>();
+        try {
+            Iterator<Object[]> iterator = source.cursor(0);
+            List<Object[]> chunk = new ArrayList<>(chunkRows);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() >= chunkRows || !iterator.hasNext()) {
+                    chunk.sort(comparator);
+                    try (SpillFile.Writer writer = SpillFile.create(newFile(), columnCount)) {
+                        for (Object[] row : chunk) {
+                            writer.append(row);
+                        }
+                        runs.add(writer.finish());
+                    }
+                    chunk.clear();
+                }
+            }
+            if (runs.size() == 1) {
+                return runs.remove(0);
+            }
+
+            // 值相同时取段号小的，保持排序稳定
+            PriorityQueue<RunHead> heads = new PriorityQueue<>((a, b) -> {
+                int result = comparator.compare(a.row, b.row);
+                return result != 0 ? result : Integer.compare(a.run, b.run);
+            });
+            for (int i = 0; i < runs.size(); i++) {
+                SpillFile.Cursor cursor = runs.get(i).cursor(0);
+                if (cursor.hasNext()) {
+                    heads.add(new RunHead(i, cursor));
+                }
+            }
+            try (SpillFile.Writer writer = SpillFile.create(newFile(), columnCount)) {
+                while (!heads.isEmpty()) {
+                    RunHead head = heads.poll();
+                    writer.append(head.row);
+                    if (head.cursor.hasNext()) {
+                        head.row = head.cursor.next();
+                        heads.add(head);
+                    }
+                }
+                return writer.finish();
+            }
+        } finally {
+            runs.forEach(SpillFile::delete);
+        }
+    }
+
+    // 比较两个值：NULL 最小；数字按数值比较，二进制按无符号字节比较，同类型按自身顺序比较，其余按字符串比较
+    // 字符串按 Unicode 编码比较，与数据库排序规则的顺序可能不同
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compareValues(Object a, Object b) {
+        if (a == b) {
+            return 0;
+        }
+        if (a == null) {
+            return -1;
+        }
+        if (b == null) {
+            return 1;
+        }
+        if (a instanceof byte[] x && b instanceof byte[] y) {
+            return Arrays.compareUnsigned(x, y);
+        }
+        if (a.getClass() == b.getClass() && a instanceof Comparable comparable) {
+            return comparable.compareTo(b);
+        }
+        if (a instanceof Number x && b instanceof Number y) {
+            if (x instanceof Double || x instanceof Float || y instanceof Double || y instanceof Float) {
+                return Double.compare(x.doubleValue(), y.doubleValue());
+            }
+            return new BigDecimal(x.toString()).compareTo(new BigDecimal(y.toString()));
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    // 总大小或结果数超出上限时，按最后访问时间删除最旧的结果（keepId 除外）
+    private void enforceLimits(String keepId) {
+        SqlExecutorProperties.ResultStore config = properties.getResultStore();
+        long maxTotalSize = config.getMaxTotalSize().toBytes();
+        int maxResults = Math.max(1, config.getMaxResults());
+        long total = results.values().stream().mapToLong(entry -> entry.info.getSizeBytes()).sum();
+        if (total <= maxTotalSize && results.size() <= maxResults) {
+            return;
+        }
+        List<Entry> oldest = results.values().stream()
+                .sorted(Comparator.comparing(entry -> entry.info.getLastAccessAt()))
+                .toList();
+        for (Entry entry : oldest) {
+            if (total <= maxTotalSize && results.size() <= maxResults) {
+                break;
+            }
+            String id = entry.info.getId();
+            if (!id.equals(keepId) && results.remove(id, entry)) {
+                total -= entry.info.getSizeBytes();
+                entry.release();
+                log.info("暂存结果超出上限，删除最久未访问的结果: {}", id);
+            }
+        }
+    }
+
+    // 内存结果的大小按写入临时文件时的编码字节数估算，与文件结果使用同一口径计入 max-total-size
+    private static long encodedSize(List<Object[]> rows) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        long size = 0;
+        for (Object[] row : rows) {
+            buffer.reset();
+            RowCodec.writeRow(row, buffer);
+            size += buffer.size();
+        }
+        return size;
+    }
+
+    private Path newFile() {
+        return directory.resolve(UUID.randomUUID() + FILE_SUFFIX);
+    }
+
+    private static void closeQuietly(SpillFile.Writer writer) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+            // 文件已删除或无法删除，不影响结果
+        }
+    }
+
+    // 一组行：保存在内存中或临时文件中；memoryBytes 为内存中的行计入总大小的字节数
+    private static final class Rows {
+        private final List<Object[]> memory;
+        private final SpillFile file;
+        private final long memoryBytes;
+
+        Rows(List<Object[]> memory, SpillFile file, long memoryBytes) {
+            this.memory = memory;
+            this.file = file;
+            this.memoryBytes = memoryBytes;
+        }
+
+        long count() {
+            return file != null ? file.getRowCount() : memory.size();
+        }
+
+        long size() {
+            return file != null ? file.getSize() : memoryBytes;
+        }
+
+        Iterator<Object[]> iterator(long from) {
+            if (file != null) {
+                return file.cursor(from);
+            }
+            return memory.listIterator((int) Math.min(from, memory.size()));
+        }
+
+        void release() {
+            if (file != null) {
+                file.delete();
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final StoredResult info;
+        // 暂存结果的客户端标识
+        private final String owner;
+        private final Rows rows;
+        // 按列排序后的行，键为 列序号:asc/desc
+        private final Map<String, Rows> sorted = new ConcurrentHashMap<>();
+        private boolean released;
+
+        Entry(StoredResult info, String owner, Rows rows) {
+            this.info = info;
+            this.owner = owner;
+            this.rows = rows;
+        }
+
+        synchronized void release() {
+            released = true;
+            rows.release();
+            sorted.values().forEach(Rows::release);
+            sorted.clear();
+        }
+    }
+
+    // 归并时每个有序段的当前行
+    private static final class RunHead {
+        private final int run;
+        private final SpillFile.Cursor cursor;
+        private Object[] row;
+
+        RunHead(int run, SpillFile.Cursor cursor) {
+            this.run = run;
+            this.cursor = cursor;
+            this.row = cursor.next();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.dsb.sqlexecutor.service;
+
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.ScriptResult;
+import com.dsb.sqlexecutor.model.StatementResult;
+import com.dsb.sqlexecutor.util.SqlScriptSplitter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// 脚本模式：按 ; 和 GO 拆分语句，在同一个连接上依次执行，连续的 DML 合并为 JDBC 批量执行
+@Service
+public class ScriptService {
+
+    private final Logger log = LoggerFactory.getLogger(ScriptService.class);
+
+    // 可以合并到 JDBC 批次中的语句（不返回结果集的 DML）
+    private static final Pattern BATCHABLE = Pattern.compile("^(insert|update|delete|merge)\\b", Pattern.CASE_INSENSITIVE);
+    // 带 OUTPUT 子句的 DML 会返回结果集，不能放入批次；按完整的单词匹配，output_log 这样的表名、列名不受影响
+    private static final Pattern OUTPUT_CLAUSE = Pattern.compile("\\boutput\\b", Pattern.CASE_INSENSITIVE);
+    // 结果中语句内容的最大长度
+    private static final int MAX_SQL_LENGTH = 200;
+
+    @Autowired
+    private SqlExecutorService sqlExecutorService;
+
+    @Autowired
+    private QueryMetrics queryMetrics;
+
+    @Autowired
+    private SqlExecutorProperties properties;
+
+    // 执行脚本；transactional 为 true 时整个脚本在一个事务中执行，任一语句失败则回滚
+    // 非事务模式下 continueOnError 为 true 时出错后继续执行后续语句
+    public ScriptResult execute(String script, boolean transactional, boolean continueOnError) {
+        String databaseName = sqlExecutorService.requireCurrentDatabase();
+        List<String> statements = SqlScriptSplitter.split(script);
+        if (statements.isEmpty()) {
+            throw new IllegalArgumentException("脚本中没有可执行的语句");
+        }
+        int maxStatements = properties.getScript().getMaxStatements();
+        if (statements.size() > maxStatements) {
+            throw new IllegalArgumentException("脚本语句数 " + statements.size() + " 超过上限 " + maxStatements);
+        }
+
+        List<StatementResult> results = new ArrayList<>(statements.size());
+        for (int i = 0; i < statements.size(); i++) {
+            results.add(new StatementResult(i + 1, abbreviate(statements.get(i))));
+        }
+        ScriptResult scriptResult = new ScriptResult(results, transactional);
+        try {
+            sqlExecutorService.executeConnection(databaseName, connection -> {
+                run(connection, databaseName, statements, scriptResult, continueOnError && !transactional);
+                return null;
+            });
+        } finally {
+            // 脚本中可能有 DDL 或数据修改，无论成功与否都刷新缓存
+            sqlExecutorService.notifyUpdate(databaseName, script);
+        }
+        return scriptResult;
+    }
+
+    private void run(Connection connection, String databaseName, List<String> statements,
+                     ScriptResult scriptResult, boolean continueOnError) throws SQLException {
+        List<StatementResult> results = scriptResult.getStatements();
+        int batchSize = Math.max(1, properties.getScript().getBatchSize());
+        boolean transactional = scriptResult.isTransactional();
+        boolean autoCommit = connection.getAutoCommit();
+        long start = System.nanoTime();
+        int batches = 0;
+        boolean failed = false;
+
+        if (transactional) {
+            connection.setAutoCommit(false);
+        }
+        try (Statement stmt = connection.createStatement()) {
+            int i = 0;
+            while (i < statements.size() && (!failed || continueOnError)) {
+                if (isBatchable(statements.get(i))) {
+                    int end = i + 1;
+                    while (end < statements.size() && end - i < batchSize && isBatchable(statements.get(end))) {
+                        end++;
+                    }
+                    batches++;
+                    failed |= !executeBatch(stmt, databaseName, statements.subList(i, end), results.subList(i, end), batches);
+                    i = end;
+                } else {
+                    failed |= !executeSingle(stmt, databaseName, statements.get(i), results.get(i));
+                    i++;
+                }
+            }
+
+            if (transactional) {
+                if (failed) {
+                    connection.rollback();
+                } else {
+                    connection.commit();
+                }
+                scriptResult.setCommitted(!failed);
+            } else {
+                rollbackOpenTransaction(stmt, scriptResult);
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (transactional) {
+                connection.rollback();
+            }
+            throw e;
+        } finally {
+            if (transactional) {
+                connection.setAutoCommit(autoCommit);
+            }
+            // 脚本中的 USE、SET 会话选项、临时表等会留在连接上，这样的连接不再放回连接池
+            if (statements.stream().anyMatch(SqlExecutorService::changesSessionState)) {
+                sqlExecutorService.evictConnection(databaseName, connection);
+            }
+            scriptResult.summarize(batches, System.nanoTime() - start);
+        }
+    }
+
+    // 批量执行连续的 DML，一次往返发送整批语句
+    private boolean executeBatch(Statement stmt, String databaseName, List<String> statements,
+                                 List<StatementResult> results, int batchNo) {
+        long start = System.nanoTime();
+        int[] counts;
+        SQLException error = null;
+        try {
+            for (String sql : statements) {
+                stmt.addBatch(sql);
+            }
+            counts = stmt.executeBatch();
+        } catch (BatchUpdateException e) {
+            counts = e.getUpdateCounts() != null ? e.getUpdateCounts() : new int[0];
+            error = e;
+        } catch (SQLException e) {
+            counts = new int[0];
+            error = e;
+        } finally {
+            clearBatch(stmt);
+        }
+        long elapsed = System.nanoTime() - start;
+        double perStatementMillis = elapsed / 1_000_000.0 / statements.size();
+
+        boolean success = error == null;
+        for (int j = 0; j < results.size(); j++) {
+            StatementResult result = results.get(j);
+            result.setBatch(batchNo);
+            if (j < counts.length) {
+                result.setElapsedMillis(perStatementMillis);
+                if (counts[j] == Statement.EXECUTE_FAILED) {
+                    result.setStatus(StatementResult.Status.FAILED);
+                    result.setError(error != null ? error.getMessage() : "执行失败");
+                    success = false;
+                } else {
+                    result.setStatus(StatementResult.Status.SUCCEEDED);
+                    if (counts[j] >= 0) {
+                        result.setUpdateCount(counts[j]);
+                    }
+                }
+                // 批次只有总耗时，按语句数平均分摊后分别记入各语句的指纹
+                queryMetrics.record(databaseName, statements.get(j), true, elapsed / statements.size(),
+                        counts[j] >= 0 ? counts[j] : -1,
+                        counts[j] == Statement.EXECUTE_FAILED ? failure(error) : null);
+            } else if (j == counts.length && error != null) {
+                // 驱动在第一个失败的语句处停止，之后的语句未执行，不记入统计
+                result.setStatus(StatementResult.Status.FAILED);
+                result.setError(error.getMessage());
+                queryMetrics.record(databaseName, statements.get(j), true, elapsed / statements.size(), -1, error);
+            }
+        }
+        return success;
+    }
+
+    // 单独执行一条语句，读取所有结果集和影响行数
+    private boolean executeSingle(Statement stmt, String databaseName, String sql, StatementResult result) {
+        long start = System.nanoTime();
+        try {
+            long rowCount = 0;
+            int updateCount = 0;
+            boolean hasResultSet = false;
+            boolean isResultSet = stmt.execute(sql);
+            while (true) {
+                if (isResultSet) {
+                    hasResultSet = true;
+                    try (ResultSet rs = stmt.getResultSet()) {
+                        while (rs.next()) {
+                            rowCount++;
+                        }
+                    }
+                } else {
+                    int count = stmt.getUpdateCount();
+                    if (count == -1) {
+                        break;
+                    }
+                    updateCount += count;
+                }
+                isResultSet = stmt.getMoreResults();
+            }
+            long elapsed = System.nanoTime() - start;
+            result.setStatus(StatementResult.Status.SUCCEEDED);
+            result.setElapsedMillis(elapsed / 1_000_000.0);
+            if (hasResultSet) {
+                result.setRowCount(rowCount);
+            } else {
+                result.setUpdateCount(updateCount);
+            }
+            queryMetrics.record(databaseName, sql, !hasResultSet, elapsed, hasResultSet ? rowCount : updateCount, null);
+            return true;
+        } catch (SQLException e) {
+            long elapsed = System.nanoTime() - start;
+            result.setStatus(StatementResult.Status.FAILED);
+            result.setElapsedMillis(elapsed / 1_000_000.0);
+            result.setError(e.getMessage());
+            queryMetrics.record(databaseName, sql, true, elapsed, -1, e);
+            return false;
+        }
+    }
+
+    // 非事务模式下脚本自行 BEGIN TRAN 但未提交时回滚，避免把带未提交事务的连接还回连接池
+    private void rollbackOpenTransaction(Statement stmt, ScriptResult scriptResult) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT @@TRANCOUNT")) {
+            if (rs.next() && rs.getInt(1) > 0) {
+                stmt.execute("IF @@TRANCOUNT > 0 ROLLBACK TRANSACTION");
+                scriptResult.setWarning("脚本结束时存在未提交的事务，已自动回滚");
+                log.warn("脚本结束时存在未提交的事务，已自动回滚");
+            }
+        }
+    }
+
+    private static SQLException failure(SQLException error) {
+        return error != null ? error : new SQLException("执行失败");
+    }
+
+    private static void clearBatch(Statement stmt) {
+        try {
+            stmt.clearBatch();
+        } catch (SQLException e) {
+            // 批次已执行或连接已断开，忽略
+        }
+    }
+
+    private static boolean isBatchable(String sql) {
+        return BATCHABLE.matcher(sql).find() && !OUTPUT_CLAUSE.matcher(sql).find();
+    }
+
+    private static String abbreviate(String sql) {
+        String singleLine = sql.replaceAll("\\s+", " ");
+        return singleLine.length() <= MAX_SQL_LENGTH ? singleLine : singleLine.substring(0, MAX_SQL_LENGTH) + "...";
+    }
+}
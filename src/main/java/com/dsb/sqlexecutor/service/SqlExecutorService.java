@@ -1,17 +1,43 @@
 package com.dsb.sqlexecutor.service;
 
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.CachedMetadata;
+import com.dsb.sqlexecutor.model.CompletionItem;
 import com.dsb.sqlexecutor.model.DatabaseConfig;
+import com.dsb.sqlexecutor.model.QueryPage;
 import com.dsb.sqlexecutor.repository.SqlExecutorRepository;
+import com.dsb.sqlexecutor.util.SqlScriptSplitter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import javax.sql.DataSource;
-import java.net.InetAddress;
-import java.net.UnknownHostException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @Service
 public class SqlExecutorService {
@@ -19,41 +45,350 @@ public class SqlExecutorService {
     @Autowired
     private SqlExecutorRepository sqlExecutorRepository;
 
-    private final Map<String, DatabaseConfig> databaseConfigMap = new HashMap<>();
-    private final Map<String, String> computerDatabaseNameMap = new HashMap<>();
-    private final Map<String, DataSource> dataSourceMap = new HashMap<>();
+    @Autowired
+    private SqlExecutorProperties properties;
 
-    // 获取计算机名称
-    private String getComputerName() {
-        try {
-            return InetAddress.getLocalHost().getHostName();
-        } catch (UnknownHostException e) {
-            return "unknown";
+    @Autowired
+    private MetadataCache metadataCache;
+
+    @Autowired
+    private QueryMetrics queryMetrics;
+
+    @Autowired
+    private ResultCache resultCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 会改变表结构的语句，执行后需要刷新元数据缓存
+    private static final Pattern DDL_PATTERN = Pattern.compile(
+            "\\b(create|alter|drop)\\s+(table|view|schema|synonym)\\b|\\bsp_rename\\b|\\bselect\\b[\\s\\S]*\\binto\\s+[#\\w\\[]",
+            Pattern.CASE_INSENSITIVE);
+
+    // 查询中出现这些关键字时可能有写入、加锁或副作用（SELECT ... INTO、多条语句、存储过程、锁提示、序列等），不发往只读副本
+    private static final Pattern READ_ROUTING_EXCLUDED = Pattern.compile(
+            "\\b(into|insert|update|delete|merge|exec|execute|create|alter|drop|truncate|grant|revoke|deny"
+                    + "|begin|commit|rollback|save|updlock|xlock|holdlock)\\b|\\bnext\\s+value\\s+for\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    // 单纯的查询中不会出现的关键字（都是 T-SQL 保留字，不带引号时不能用作标识符）：INTO 建表，其余为写入、执行、权限、
+    // 事务、会话设置和管理命令；查询提示 USE HINT / USE PLAN 和 MERGE JOIN / MERGE UNION 除外
+    private static final Pattern NON_QUERY_KEYWORD = Pattern.compile(
+            "(?<![@#$\\w])(into|insert|update|delete|merge(?!\\s+(?:join|union)\\b)|exec|execute|create|alter|drop|truncate"
+                    + "|grant|revoke|deny|begin|commit|rollback|save|set|use(?!\\s+(?:hint|plan)\\b)|declare"
+                    + "|dbcc|backup|restore|kill|shutdown|reconfigure|checkpoint|bulk)(?![\\w$])",
+            Pattern.CASE_INSENSITIVE);
+
+    // 会改变连接会话状态的语句：USE、SET 会话选项（ANSI_*、LANGUAGE、DATEFORMAT、ROWCOUNT、IDENTITY_INSERT 等）、
+    // 创建或使用临时表、开启事务；UPDATE ... SET col = 和 SET @变量 不属于此类。在去掉字符串、注释和带引号标识符后的文本上匹配
+    private static final Pattern SESSION_STATE = Pattern.compile(
+            "(?<![@#$\\w])use(?!\\s+(?:hint|plan)\\b)(?![\\w$])|#"
+                    + "|(?<![@#$\\w])set\\s+[a-z_]\\w*+\\s*+(?![.=]|[-+*/%&|^]=)"
+                    + "|(?<![@#$\\w])begin\\s+(?:tran|transaction|distributed)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    // 数据库配置、连接池和各客户端选择的配置，支持并发读写
+    @Autowired
+    private ConnectionRegistry connectionRegistry;
+
+    // 配置变更后写入本地文件，重启后恢复
+    @Autowired
+    private ConnectionStore connectionStore;
+
+    // 每个数据库配置的并发隔离
+    private final Map<String, ConnectionBulkhead> bulkheadMap = new ConcurrentHashMap<>();
+
+    // 当前请求的客户端标识：带客户端标识请求头时使用其值，否则使用 HTTP 会话（不存在时创建）
+    // 不同客户端可以同时选择不同的数据库配置；非请求线程没有客户端，返回 null
+    public String getClientKey() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return null;
         }
+        HttpServletRequest request = attributes.getRequest();
+        String token = request.getHeader(properties.getSession().getClientTokenHeader());
+        if (token != null && !token.isBlank()) {
+            return "token:" + token.trim();
+        }
+        return "session:" + request.getSession().getId();
     }
 
-    // 执行查询
-    public List<Map<String, Object>> executeQuery(String sql) {
-        String computerName = getComputerName();
-        String databaseName = computerDatabaseNameMap.get(computerName);
+    // 获取当前客户端选择的数据库配置名，未选择时抛出异常
+    public String requireCurrentDatabase() {
+        String databaseName = getCurrentDatabase();
         if (databaseName == null) {
             throw new IllegalStateException("请先选择或添加数据库配置");
         }
-        DataSource dataSource = dataSourceMap.get(databaseName);
-        sqlExecutorRepository.setDataSource(dataSource);
-        return sqlExecutorRepository.executeQuery(sql);
+        return databaseName;
+    }
+
+    // 在数据库配置的连接池上执行，每个配置共用一个 JdbcTemplate（已应用该配置的查询超时）
+    // 执行期间即使配置被删除或替换，连接池也要等执行结束后才关闭
+    private <T> T withJdbcTemplate(String databaseName, Function<JdbcTemplate, T> action) {
+        return connectionRegistry.execute(databaseName, action);
+    }
+
+    // read 为 true 时可以在只读副本上执行（配置了副本时），否则使用主库
+    private <T> T withJdbcTemplate(String databaseName, boolean read, Function<JdbcTemplate, T> action) {
+        return read ? connectionRegistry.executeRead(databaseName, action) : connectionRegistry.execute(databaseName, action);
+    }
+
+    // 会改变会话状态的语句在主库的一个连接上执行，执行后把该连接从连接池中移除，
+    // 避免后续借到该连接的请求继承切换后的数据库、会话选项或临时表；其他语句按 read 选择主库或只读副本
+    private <T> T withJdbcTemplate(String databaseName, boolean read, String sql, Function<JdbcTemplate, T> action) {
+        if (!changesSessionState(sql)) {
+            return withJdbcTemplate(databaseName, read, action);
+        }
+        return withJdbcTemplate(databaseName, jt -> sqlExecutorRepository.executeConnection(jt, con -> {
+            try {
+                JdbcTemplate pinned = new JdbcTemplate(new SingleConnectionDataSource(con, true));
+                pinned.setQueryTimeout(jt.getQueryTimeout());
+                return action.apply(pinned);
+            } finally {
+                evictConnection(databaseName, con);
+            }
+        }));
+    }
+
+    // 在数据库配置的并发隔离内执行，write 区分读写名额；未启用时直接执行
+    private <T> T withBulkhead(String databaseName, boolean write, Supplier<T> action) {
+        SqlExecutorProperties.Bulkhead config = properties.getBulkhead();
+        if (!config.isEnabled()) {
+            return action.get();
+        }
+        return bulkheadMap.computeIfAbsent(databaseName, k -> new ConnectionBulkhead(config))
+                .execute(write, action);
+    }
+
+    // 在并发隔离内执行一条用户语句，并按 SQL 指纹记录执行耗时（不含排队时间）、行数和错误
+    private <T> T runStatement(String databaseName, String sql, boolean write,
+                               Supplier<T> action, ToLongFunction<? super T> rowCounter) {
+        return withBulkhead(databaseName, write, () -> {
+            long start = System.nanoTime();
+            try {
+                T result = action.get();
+                queryMetrics.record(databaseName, sql, write, System.nanoTime() - start, rowCounter.applyAsLong(result), null);
+                return result;
+            } catch (RuntimeException e) {
+                queryMetrics.record(databaseName, sql, write, System.nanoTime() - start, -1, e);
+                throw e;
+            }
+        });
+    }
+
+    // 回调返回数字时视为行数，否则行数未知
+    private static long countOf(Object result) {
+        return result instanceof Number number ? number.longValue() : -1;
+    }
+
+    // 判断是否为查询语句
+    public static boolean isQuery(String sql) {
+        String lowerSql = sql.trim().toLowerCase();
+        return lowerSql.startsWith("select") || lowerSql.startsWith("show") || lowerSql.startsWith("desc");
+    }
+
+    // 判断语句是否会建表或改变表结构（包括 SELECT ... INTO），执行后需要刷新元数据缓存
+    public static boolean isSchemaChange(String sql) {
+        return DDL_PATTERN.matcher(sql).find();
+    }
+
+    // 判断语句能否发往只读副本：只读查询且不含可能写入的关键字，无法确定时按写入处理
+    public static boolean isReadOnly(String sql) {
+        return isQuery(sql) && !READ_ROUTING_EXCLUDED.matcher(sql).find();
+    }
+
+    // 判断语句执行后是否会在连接上留下会话状态，这样的连接不能再放回连接池
+    public static boolean changesSessionState(String sql) {
+        return SESSION_STATE.matcher(SqlScriptSplitter.stripLiterals(sql)).find();
+    }
+
+    // 判断是否为单条只读查询：以 SELECT 等开头，只有一条语句，且字符串、注释和带引号的标识符之外没有 INTO、写入、
+    // 事务、会话设置等关键字；导出、SSE 流、多连接执行和结果暂存只走读取路径，不经过写名额和缓存失效，执行前用它拒绝其他语句
+    public static boolean isPlainQuery(String sql) {
+        return isQuery(sql) && !NON_QUERY_KEYWORD.matcher(SqlScriptSplitter.stripLiterals(sql)).find()
+                && SqlScriptSplitter.split(sql).size() == 1;
+    }
+
+    // 分页查询，limit 为空时使用默认页大小，并限制在最大页大小以内
+    // withTotal 为 true 时额外统计总行数；limit 为 0 时只统计总数不取数据
+    // columnMajor 为 true 时按列返回数据
+    public QueryPage queryPage(String sql, long offset, Integer limit, boolean withTotal, boolean columnMajor) {
+        return queryPage(sql, null, offset, limit, withTotal, columnMajor);
+    }
+
+    // params 为 JSON 格式的绑定参数，见 bindParameters
+    public QueryPage queryPage(String sql, String params, long offset, Integer limit, boolean withTotal,
+                               boolean columnMajor) {
+        String databaseName = requireCurrentDatabase();
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset 不能小于 0");
+        }
+        int pageSize = resolvePageSize(limit);
+        BoundSql bound = bindParameters(sql, params);
+
+        Supplier<QueryPage> loader = () -> runStatement(databaseName, bound.sql, false,
+                () -> withJdbcTemplate(databaseName, isReadOnly(bound.sql), bound.sql, jdbcTemplate -> {
+                    QueryPage result;
+                    if (pageSize == 0 && withTotal) {
+                        result = new QueryPage(Collections.emptyList(), Collections.emptyList(), offset, 0, false);
+                    } else {
+                        result = sqlExecutorRepository.queryPage(jdbcTemplate, bound.sql, bound.args, offset, pageSize);
+                    }
+                    if (withTotal) {
+                        long total = sqlExecutorRepository.countQuery(jdbcTemplate, bound.sql, bound.args);
+                        result.setTotal(total);
+                        result.setHasMore(offset + result.getRowCount() < total);
+                    }
+                    return result;
+                }), QueryPage::getRowCount);
+        // 只缓存只读查询：SELECT ... INTO、带 EXEC、锁提示或多条语句的查询可能写入或有副作用，每次都要真正执行
+        QueryPage page = isReadOnly(bound.sql)
+                ? resultCache.get(databaseName, bound.sql, bound.args, offset, pageSize, withTotal, loader)
+                : loader.get();
+        if (columnMajor) {
+            // 缓存中的结果可能被其他请求共享，转换前先拷贝
+            page = page.copy();
+            page.toColumnMajor();
+        }
+        return page;
+    }
+
+    private int resolvePageSize(Integer limit) {
+        SqlExecutorProperties.Query query = properties.getQuery();
+        if (limit == null) {
+            return query.getPageSize();
+        }
+        return Math.max(0, Math.min(limit, query.getMaxPageSize()));
+    }
+
+    // 流式查询，由 extractor 逐行处理结果；整个读取过程占用一个读名额
+    public <T> T streamQuery(String sql, int fetchSize, ResultSetExtractor<T> extractor) {
+        return streamQuery(sql, null, fetchSize, 0, extractor);
+    }
+
+    // 带绑定参数的流式查询，maxRows 大于 0 时限制返回行数
+    public <T> T streamQuery(String sql, String params, int fetchSize, int maxRows, ResultSetExtractor<T> extractor) {
+        String databaseName = requireCurrentDatabase();
+        BoundSql bound = bindParameters(sql, params);
+        return runStatement(databaseName, bound.sql, false,
+                () -> withJdbcTemplate(databaseName, isReadOnly(bound.sql),
+                        jt -> sqlExecutorRepository.streamQuery(jt, bound.sql, bound.args, fetchSize, maxRows, extractor)),
+                SqlExecutorService::countOf);
+    }
+
+    // 在指定数据库上流式查询，供同时访问多个数据库配置的场景使用；args 按顺序绑定 SQL 中的 ?
+    public <T> T streamQuery(String databaseName, String sql, Object[] args, int fetchSize,
+                             ResultSetExtractor<T> extractor) {
+        return runStatement(databaseName, sql, false,
+                () -> withJdbcTemplate(databaseName, isReadOnly(sql),
+                        jt -> sqlExecutorRepository.streamQuery(jt, sql, args, fetchSize, 0, extractor)),
+                SqlExecutorService::countOf);
+    }
+
+    // 在指定数据库上执行 Statement 回调，供异步任务等非请求线程使用；回调返回数字时作为行数统计
+    // 非写入的只读查询可以在只读副本上执行
+    public <T> T executeStatement(String databaseName, String sql, boolean write, StatementCallback<T> callback) {
+        return runStatement(databaseName, sql, write,
+                () -> withJdbcTemplate(databaseName, !write && isReadOnly(sql), sql,
+                        jt -> sqlExecutorRepository.executeStatement(jt, callback)),
+                SqlExecutorService::countOf);
+    }
+
+    // 在指定数据库的同一个连接上执行回调（占用一个写名额），供脚本执行等需要控制连接和事务的场景使用
+    public <T> T executeConnection(String databaseName, ConnectionCallback<T> callback) {
+        return withBulkhead(databaseName, true,
+                () -> withJdbcTemplate(databaseName, jt -> sqlExecutorRepository.executeConnection(jt, callback)));
+    }
+
+    // 在当前数据库主库的同一个连接上执行带绑定参数的语句，按 SQL 指纹记录耗时，回调返回数字时作为行数统计
+    // 供执行计划分析等需要先在连接上设置会话选项的场景使用；params 格式见 bindParameters
+    public <T> T executeBound(String sql, String params, boolean write, BoundConnectionCallback<T> callback) {
+        String databaseName = requireCurrentDatabase();
+        BoundSql bound = bindParameters(sql, params);
+        return runStatement(databaseName, bound.sql, write,
+                () -> withJdbcTemplate(databaseName, false, bound.sql, jt -> sqlExecutorRepository.executeConnection(jt,
+                        con -> callback.doInConnection(con, bound.sql, bound.args))),
+                SqlExecutorService::countOf);
+    }
+
+    // 把 executeBound 回调中的连接从数据库配置的主库连接池中移除，用于会话选项无法恢复的连接
+    public void evictConnection(String databaseName, Connection connection) {
+        DataSource dataSource = connectionRegistry.getDataSources().get(databaseName);
+        if (dataSource == null) {
+            return;
+        }
+        try {
+            sqlExecutorRepository.evictConnection(dataSource, connection);
+        } catch (SQLException e) {
+            // 连接已断开，忽略
+        }
+    }
 
+    // executeBound 的回调：sql 中的命名参数已替换为 ?，args 为空表示不使用参数
+    public interface BoundConnectionCallback<T> {
+        T doInConnection(Connection connection, String sql, Object[] args) throws SQLException;
     }
 
     // 执行更新
     public int executeUpdate(String sql) {
-        String computerName = getComputerName();
-        String tenantId = computerDatabaseNameMap.get(computerName);
-        if (tenantId == null) {
-            throw new IllegalStateException("请先选择或添加数据库配置");
+        return executeUpdate(sql, null);
+    }
+
+    // 执行带绑定参数的更新，params 格式见 bindParameters
+    public int executeUpdate(String sql, String params) {
+        String databaseName = requireCurrentDatabase();
+        BoundSql bound = bindParameters(sql, params);
+        int rowsAffected = runStatement(databaseName, bound.sql, true,
+                () -> withJdbcTemplate(databaseName, false, bound.sql,
+                        jt -> sqlExecutorRepository.executeUpdate(jt, bound.sql, bound.args)),
+                Integer::longValue);
+        notifyUpdate(databaseName, sql);
+        return rowsAffected;
+
+    }
+
+    // 解析绑定参数：JSON 数组按顺序绑定 SQL 中的 ?，JSON 对象按名称绑定 :name（值为数组时展开为 IN 列表）
+    // 参数通过 PreparedStatement 传给数据库，相同结构的语句可以复用执行计划和驱动缓存的语句句柄
+    private BoundSql bindParameters(String sql, String params) {
+        if (params == null || params.isBlank()) {
+            return new BoundSql(sql, null);
+        }
+        Object parsed;
+        try {
+            parsed = objectMapper.readValue(params, Object.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("参数格式错误，应为 JSON 数组或对象: " + e.getOriginalMessage());
+        }
+        if (parsed instanceof List<?> values) {
+            return new BoundSql(sql, values.toArray());
+        }
+        if (parsed instanceof Map<?, ?> map) {
+            Map<String, Object> values = new HashMap<>();
+            map.forEach((key, value) -> values.put(String.valueOf(key), value));
+            return new BoundSql(NamedParameterUtils.substituteNamedParameters(sql, new MapSqlParameterSource(values)),
+                    NamedParameterUtils.buildValueArray(sql, values));
+        }
+        throw new IllegalArgumentException("参数格式错误，应为 JSON 数组或对象");
+    }
+
+    // 绑定参数后的语句：sql 中的参数已替换为 ?，args 为空表示不使用参数
+    private static final class BoundSql {
+        private final String sql;
+        private final Object[] args;
+
+        BoundSql(String sql, Object[] args) {
+            this.sql = sql;
+            this.args = args;
         }
-        return sqlExecutorRepository.executeUpdate(sql);
+    }
 
+    // 非查询语句执行后调用：使该连接的结果缓存失效，DDL 还会使元数据缓存失效
+    // 之后一小段时间内的查询走主库，避免副本同步延迟导致读不到刚写入的数据
+    public void notifyUpdate(String databaseName, String sql) {
+        connectionRegistry.recordWrite(databaseName);
+        resultCache.invalidate(databaseName);
+        if (DDL_PATTERN.matcher(sql).find()) {
+            metadataCache.invalidate(databaseName);
+        }
     }
 
     // 添加数据库配置
@@ -73,110 +408,173 @@ public class SqlExecutorService {
             config.setJdbcUrl(url);
         }
 
-        databaseConfigMap.put(name, config);
-        DataSource dataSource = sqlExecutorRepository.createDataSource(
-                config.getJdbcUrl(),
-                config.getUsername(),
-                config.getPassword());
-        dataSourceMap.put(name, dataSource);
+        // 只读副本的 URL 去掉空白项，同样补全加密参数
+        List<String> replicaUrls = new ArrayList<>();
+        for (String replicaUrl : config.getReplicaUrls()) {
+            if (replicaUrl == null || replicaUrl.isBlank()) {
+                continue;
+            }
+            String url = replicaUrl.trim();
+            if (!url.startsWith("jdbc:sqlserver://")) {
+                throw new IllegalArgumentException("只读副本 URL 格式不正确: " + url);
+            }
+            if (!url.contains("encrypt=")) {
+                url += ";encrypt=true;trustServerCertificate=true";
+            }
+            replicaUrls.add(url);
+        }
+        config.setReplicaUrls(replicaUrls);
+
+        // 重复保存同名配置时替换，旧连接池在执行中的语句结束后关闭
+        connectionRegistry.register(name, config);
+        metadataCache.invalidate(name);
+        resultCache.invalidate(name);
+        connectionStore.save();
     }
 
     // 切换数据库
     public void switchDatabase(String name) {
-        String computerName = getComputerName();
-        DatabaseConfig config = databaseConfigMap.get(name);
-
-        if (config == null) {
-            throw new IllegalArgumentException("数据库配置不存在: " + name);
-        }
-
-        if (!name.equals(computerDatabaseNameMap.get(computerName))){
-            computerDatabaseNameMap.put(computerName, name);
-
-            dataSourceMap.computeIfAbsent(name,(k)-> sqlExecutorRepository.createDataSource(config.getJdbcUrl(), config.getUsername(), config.getPassword()));
-
+        // 连接池在首次执行时创建
+        String client = getClientKey();
+        if (client == null) {
+            throw new IllegalStateException("只能在请求中切换数据库配置");
         }
-
-
+        connectionRegistry.select(client, name);
     }
 
     // 获取所有数据库配置
     public Map<String, DatabaseConfig> getAllDatabaseConfigs() {
-        Map<String, DatabaseConfig> validConfigs = new HashMap<>();
-        for (Map.Entry<String, DatabaseConfig> entry : databaseConfigMap.entrySet()) {
-            if (entry.getValue() != null) {
-                validConfigs.put(entry.getKey(), entry.getValue());
-            }
-        }
-        return validConfigs;
+        return connectionRegistry.getConfigs();
     }
 
     // 获取数据库列表
     public List<String> getDatabases() {
-        String computerName = getComputerName();
-
-        DataSource dataSource = dataSourceMap.get(computerDatabaseNameMap.get(computerName));
-        if (dataSource == null) {
+        String databaseName = getCurrentDatabase();
+        if (databaseName == null || !connectionRegistry.contains(databaseName)) {
             return Collections.emptyList();
         }
-        sqlExecutorRepository.setDataSource(dataSource);
-        return sqlExecutorRepository.getDatabases();
+        return withJdbcTemplate(databaseName, sqlExecutorRepository::getDatabases);
 
     }
 
-    // 获取当前计算机选择的数据库配置名
+    // 获取当前客户端选择的数据库配置名
     public String getCurrentDatabase() {
-        String computerName = getComputerName();
-        return computerDatabaseNameMap.getOrDefault(computerName, null);
+        String client = getClientKey();
+        return client != null ? connectionRegistry.getSelection(client) : null;
     }
 
-    // 获取当前计算机选择的数据库配置对象
+    // 获取当前客户端选择的数据库配置对象
     public DatabaseConfig getCurrentDatabaseConfig() {
         String currentDatabase = getCurrentDatabase();
-        return databaseConfigMap.get(currentDatabase);
+        return currentDatabase != null ? connectionRegistry.getConfig(currentDatabase) : null;
     }
 
     // 检查是否有有效的数据库配置
     public boolean hasValidDatabaseConfig() {
-        String computerName = getComputerName();
-        String currentDatabase = computerDatabaseNameMap.get(computerName);
-        return currentDatabase != null &&
-                databaseConfigMap.containsKey(currentDatabase) &&
-                databaseConfigMap.get(currentDatabase) != null;
+        String currentDatabase = getCurrentDatabase();
+        return currentDatabase != null && connectionRegistry.contains(currentDatabase);
     }
 
-    // 获取表的元数据
-    public List<Map<String, Object>> getTableMetadata() {
-        String computerName = getComputerName();
-        String databaseName = computerDatabaseNameMap.get(computerName);
-        if (databaseName == null) {
-            throw new IllegalStateException("请先选择或添加数据库配置");
-        }
-        sqlExecutorRepository.setDataSource(dataSourceMap.get(databaseName));
-        return sqlExecutorRepository.getTableMetadata();
+    // 获取表的元数据（带缓存）
+    public CachedMetadata<List<Map<String, Object>>> getTableMetadata() {
+        return getTableMetadata(requireCurrentDatabase());
+    }
 
+    private CachedMetadata<List<Map<String, Object>>> getTableMetadata(String databaseName) {
+        return metadataCache.get(databaseName, "tables", () -> withBulkhead(databaseName, false,
+                () -> withJdbcTemplate(databaseName, true, sqlExecutorRepository::getTableMetadata)));
     }
 
-    // 获取列的元数据
-    public List<Map<String, Object>> getColumnMetadata() {
-        String computerName = getComputerName();
-        String tenantId = computerDatabaseNameMap.get(computerName);
-        if (tenantId == null) {
-            throw new IllegalStateException("请先选择或添加数据库配置");
-        }
-        return sqlExecutorRepository.getColumnMetadata();
+    // 获取列的元数据（带缓存）
+    public CachedMetadata<List<Map<String, Object>>> getColumnMetadata() {
+        return getColumnMetadata(requireCurrentDatabase());
+    }
+
+    private CachedMetadata<List<Map<String, Object>>> getColumnMetadata(String databaseName) {
+        return metadataCache.get(databaseName, "columns", () -> withBulkhead(databaseName, false,
+                () -> withJdbcTemplate(databaseName, true, sqlExecutorRepository::getColumnMetadata)));
+    }
+
+    // 获取用于编辑器补全的表名列表和按表分组的列名（带缓存）
+    public CachedMetadata<Map<String, Object>> getMetadataSummary() {
+        String databaseName = requireCurrentDatabase();
+        return metadataCache.get(databaseName, "summary", () -> {
+            List<Object> tables = getTableMetadata(databaseName).getValue().stream()
+                    .map(Map::values).flatMap(Collection::stream)
+                    .collect(Collectors.toList());
+
+            Map<String, List<String>> columnMap = getColumnMetadata(databaseName).getValue().stream()
+                    .collect(Collectors.groupingBy(
+                            row -> ((String) row.get("TABLE_NAME")).toLowerCase(), // 按表名分组并转为小写
+                            Collectors.mapping(
+                                    row -> (String) row.get("COLUMN_NAME"), // 提取列名
+                                    Collectors.toList()
+                            )
+                    ));
+            Map<String, Object> result = new HashMap<>();
+            result.put("tableNames", tables);
+            result.put("tableColumns", columnMap);
+            return result;
+        });
+    }
+
+    // 按前缀查找表名或指定表的列名，索引由缓存的元数据构建，元数据失效时一同重建
+    public List<CompletionItem> getCompletions(String prefix, String table, Integer limit) {
+        String databaseName = requireCurrentDatabase();
+        int maxCompletions = properties.getMetadata().getMaxCompletions();
+        int size = limit == null || limit <= 0 ? maxCompletions : Math.min(limit, maxCompletions);
+        CompletionIndex index = metadataCache.derive(databaseName, "completion",
+                () -> CompletionIndex.build(getTableMetadata(databaseName).getValue(),
+                        getColumnMetadata(databaseName).getValue()));
+        return index.lookup(prefix, table, size);
+    }
 
+    // 手动刷新当前连接的元数据缓存
+    public void refreshMetadata() {
+        metadataCache.invalidate(requireCurrentDatabase());
     }
     // 删除数据库配置
     public void deleteDatabaseConfig(String name) {
 
-        if (databaseConfigMap.containsKey(name)) {
-            databaseConfigMap.remove(name);
-            dataSourceMap.remove(name);
-
+        // 连接池在执行中的语句结束后关闭
+        if (connectionRegistry.remove(name)) {
+            metadataCache.invalidate(name);
+            resultCache.invalidate(name);
+            bulkheadMap.remove(name);
+            connectionStore.save();
         } else {
             throw new IllegalArgumentException("数据库配置不存在: " + name);
         }
     }
 
+    // 获取所有连接池状态（活跃、空闲、等待）
+    public Map<String, Map<String, Object>> getPoolStats() {
+        Map<String, Map<String, Object>> stats = new TreeMap<>();
+        connectionRegistry.getDataSources().forEach(
+                (name, dataSource) -> stats.put(name, sqlExecutorRepository.getPoolStats(dataSource)));
+        return stats;
+    }
+
+    // 启动时各配置连接池的预热状态（目标连接数、通过健康检查的连接数、耗时、错误）
+    public Map<String, Map<String, Object>> getPrewarmStats() {
+        return connectionStore.getPrewarmStats();
+    }
+
+    // 只读副本状态：健康状况、读取次数、失败次数、回退到主库的次数和副本连接池状态
+    public Map<String, Map<String, Object>> getReplicaStats() {
+        return connectionRegistry.getReplicaStats();
+    }
+
+    // 获取各数据库配置的并发隔离统计：执行中、排队数、拒绝/超时次数、排队等待时间
+    public Map<String, Map<String, Object>> getBulkheadStats() {
+        Map<String, Map<String, Object>> stats = new TreeMap<>();
+        bulkheadMap.forEach((name, bulkhead) -> stats.put(name, bulkhead.getStats()));
+        return stats;
+    }
+
+    // 结果缓存统计：条目数、估算大小、命中率
+    public Map<String, Object> getResultCacheStats() {
+        return resultCache.getStats();
+    }
+
 }
\ No newline at end of file
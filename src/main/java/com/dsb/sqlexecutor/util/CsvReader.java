@@ -0,0 +1,164 @@
+package com.dsb.sqlexecutor.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// 按 RFC 4180 逐条读取 CSV 记录，只缓冲当前记录，内存占用与文件大小无关
+// 支持带引号的字段（字段内的分隔符、换行和 "" 转义），行尾可以是 \n、\r\n 或 \r；开头的 UTF-8 BOM 会被跳过
+public final class CsvReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final char delimiter;
+    private final int maxFieldLength;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean eof;
+    private boolean started;
+    // 当前记录开始的行号（从 1 开始），字段中的换行也计入行号
+    private long recordLine;
+    private long line = 1;
+
+    public CsvReader(Reader reader, char delimiter, int maxFieldLength) {
+        if (delimiter == '"' || delimiter == '\r' || delimiter == '\n') {
+            throw new IllegalArgumentException("不支持的分隔符: " + delimiter);
+        }
+        this.reader = reader;
+        this.delimiter = delimiter;
+        this.maxFieldLength = maxFieldLength;
+    }
+
+    // 读取下一条记录，没有更多记录时返回 null；空行跳过
+    public String[] next() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        while (true) {
+            if (!started) {
+                started = true;
+                if (peek() == '\uFEFF') {
+                    position++;
+                }
+            }
+            recordLine = line;
+            fields.clear();
+            boolean endOfRecord = false;
+            while (!endOfRecord) {
+                int c = read();
+                if (c == -1) {
+                    return null;
+                }
+                field.setLength(0);
+                if (c == '"') {
+                    c = readQuoted(field);
+                } else {
+                    while (c != -1 && c != delimiter && c != '\n' && c != '\r') {
+                        append(field, (char) c);
+                        c = read();
+                    }
+                }
+                fields.add(field.toString());
+                if (c == delimiter) {
+                    // 分隔符结尾的记录还有一个空字段
+                    if (peek() == -1) {
+                        fields.add("");
+                        endOfRecord = true;
+                    } else if (peek() == '\n' || peek() == '\r') {
+                        fields.add("");
+                        skipNewline(read());
+                        endOfRecord = true;
+                    }
+                } else {
+                    skipNewline(c);
+                    endOfRecord = true;
+                }
+            }
+            // 空行
+            if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                continue;
+            }
+            return fields.toArray(new String[0]);
+        }
+    }
+
+    // 当前（最近读取的）记录开始的行号
+    public long getRecordLine() {
+        return recordLine;
+    }
+
+    // 读取引号内的内容，返回右引号之后的字符
+    private int readQuoted(StringBuilder field) throws IOException {
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw new IOException("第 " + recordLine + " 行的引号没有闭合");
+            }
+            if (c == '"') {
+                if (peek() == '"') {
+                    read();
+                    append(field, '"');
+                    continue;
+                }
+                int next = read();
+                if (next != -1 && next != delimiter && next != '\n' && next != '\r') {
+                    throw new IOException("第 " + line + " 行的引号后有多余的字符");
+                }
+                return next;
+            }
+            append(field, (char) c);
+        }
+    }
+
+    // 记录以 \r\n 结尾时吞掉其中的 \n
+    private void skipNewline(int c) throws IOException {
+        if (c == '\r' && peek() == '\n') {
+            read();
+        }
+    }
+
+    private void append(StringBuilder field, char c) throws IOException {
+        if (field.length() >= maxFieldLength) {
+            throw new IOException("第 " + recordLine + " 行的字段长度超过上限 " + maxFieldLength);
+        }
+        field.append(c);
+    }
+
+    private int read() throws IOException {
+        if (position >= limit && !fill()) {
+            return -1;
+        }
+        char c = buffer[position++];
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (position >= limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        int n;
+        do {
+            n = reader.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n < 0) {
+            eof = true;
+            limit = position = 0;
+            return false;
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+}
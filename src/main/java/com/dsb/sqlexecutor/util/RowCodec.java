@@ -0,0 +1,197 @@
+package com.dsb.sqlexecutor.util;
+
+import microsoft.sql.DateTimeOffset;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// 结果行的二进制编码：每个值一个类型标记字节加紧凑的值（整数用 zigzag 变长编码，字符串为长度加 UTF-8）
+// 解码得到的对象类型与 ResultSet.getObject 返回的一致，序列化为 JSON 时结果相同；不认识的类型按 toString 保存为字符串
+public final class RowCodec {
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte SHORT = 3;
+    private static final byte INT = 4;
+    private static final byte LONG = 5;
+    private static final byte FLOAT = 6;
+    private static final byte DOUBLE = 7;
+    private static final byte DECIMAL = 8;
+    private static final byte STRING = 9;
+    private static final byte BYTES = 10;
+    private static final byte TIMESTAMP = 11;
+    private static final byte DATE = 12;
+    private static final byte TIME = 13;
+    private static final byte DATETIMEOFFSET = 14;
+
+    private RowCodec() {
+    }
+
+    public static void writeRow(Object[] row, ByteArrayOutputStream out) {
+        for (Object value : row) {
+            writeValue(value, out);
+        }
+    }
+
+    public static Object[] readRow(ByteBuffer in, int columnCount) {
+        Object[] row = new Object[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            row[i] = readValue(in);
+        }
+        return row;
+    }
+
+    private static void writeValue(Object value, ByteArrayOutputStream out) {
+        if (value == null) {
+            out.write(NULL);
+        } else if (value instanceof Boolean bool) {
+            out.write(bool ? TRUE : FALSE);
+        } else if (value instanceof Short || value instanceof Byte) {
+            out.write(SHORT);
+            writeSignedVarint(((Number) value).longValue(), out);
+        } else if (value instanceof Integer number) {
+            out.write(INT);
+            writeSignedVarint(number, out);
+        } else if (value instanceof Long number) {
+            out.write(LONG);
+            writeSignedVarint(number, out);
+        } else if (value instanceof Float number) {
+            out.write(FLOAT);
+            writeFixed(Float.floatToRawIntBits(number), 4, out);
+        } else if (value instanceof Double number) {
+            out.write(DOUBLE);
+            writeFixed(Double.doubleToRawLongBits(number), 8, out);
+        } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+            BigDecimal decimal = value instanceof BigDecimal d ? d : new BigDecimal((BigInteger) value);
+            out.write(DECIMAL);
+            writeSignedVarint(decimal.scale(), out);
+            writeBytes(decimal.unscaledValue().toByteArray(), out);
+        } else if (value instanceof byte[] bytes) {
+            out.write(BYTES);
+            writeBytes(bytes, out);
+        } else if (value instanceof Timestamp timestamp) {
+            // 按本地时间保存，与时区无关
+            LocalDateTime dateTime = timestamp.toLocalDateTime();
+            out.write(TIMESTAMP);
+            writeSignedVarint(dateTime.toEpochSecond(ZoneOffset.UTC), out);
+            writeVarint(dateTime.getNano(), out);
+        } else if (value instanceof Date date) {
+            out.write(DATE);
+            writeSignedVarint(date.toLocalDate().toEpochDay(), out);
+        } else if (value instanceof Time time) {
+            out.write(TIME);
+            writeSignedVarint(time.getTime(), out);
+        } else if (value instanceof DateTimeOffset offset) {
+            Instant instant = offset.getTimestamp().toInstant();
+            out.write(DATETIMEOFFSET);
+            writeSignedVarint(instant.getEpochSecond(), out);
+            writeVarint(instant.getNano(), out);
+            writeSignedVarint(offset.getMinutesOffset(), out);
+        } else {
+            out.write(STRING);
+            writeBytes(value.toString().getBytes(StandardCharsets.UTF_8), out);
+        }
+    }
+
+    private static Object readValue(ByteBuffer in) {
+        byte tag = in.get();
+        return switch (tag) {
+            case NULL -> null;
+            case FALSE -> Boolean.FALSE;
+            case TRUE -> Boolean.TRUE;
+            case SHORT -> (short) readSignedVarint(in);
+            case INT -> (int) readSignedVarint(in);
+            case LONG -> readSignedVarint(in);
+            case FLOAT -> in.getFloat();
+            case DOUBLE -> in.getDouble();
+            case DECIMAL -> {
+                int scale = (int) readSignedVarint(in);
+                yield new BigDecimal(new BigInteger(readBytes(in)), scale);
+            }
+            case STRING -> new String(readBytes(in), StandardCharsets.UTF_8);
+            case BYTES -> readBytes(in);
+            case TIMESTAMP -> {
+                long seconds = readSignedVarint(in);
+                int nanos = (int) readVarint(in);
+                yield Timestamp.valueOf(LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+            }
+            case DATE -> Date.valueOf(LocalDate.ofEpochDay(readSignedVarint(in)));
+            case TIME -> new Time(readSignedVarint(in));
+            case DATETIMEOFFSET -> {
+                long seconds = readSignedVarint(in);
+                int nanos = (int) readVarint(in);
+                int minutes = (int) readSignedVarint(in);
+                yield DateTimeOffset.valueOf(Timestamp.from(Instant.ofEpochSecond(seconds, nanos)), minutes);
+            }
+            default -> throw new IllegalStateException("结果文件已损坏，未知的类型标记: " + tag);
+        };
+    }
+
+    // 无符号变长整数，每字节 7 位，返回写入的字节数
+    public static int writeVarint(long value, byte[] target) {
+        int i = 0;
+        while ((value & ~0x7FL) != 0) {
+            target[i++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[i++] = (byte) value;
+        return i;
+    }
+
+    public static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("结果文件已损坏，变长整数过长");
+    }
+
+    private static void writeVarint(long value, ByteArrayOutputStream out) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeSignedVarint(long value, ByteArrayOutputStream out) {
+        writeVarint((value << 1) ^ (value >> 63), out);
+    }
+
+    private static long readSignedVarint(ByteBuffer in) {
+        long value = readVarint(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeFixed(long bits, int bytes, ByteArrayOutputStream out) {
+        for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+            out.write((int) (bits >>> shift));
+        }
+    }
+
+    private static void writeBytes(byte[] bytes, ByteArrayOutputStream out) {
+        writeVarint(bytes.length, out);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        byte[] bytes = new byte[(int) readVarint(in)];
+        in.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,75 @@
+package com.dsb.sqlexecutor.util;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+// AES-GCM 加解密：每次加密使用随机的 12 字节 IV，结果为 Base64(IV + 密文 + 16 字节认证标签)
+// associatedData 参与认证但不加密，用来把密文绑定到所属的条目，挪到其他条目下解密会失败
+public final class SecretCipher {
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final int KEY_LENGTH = 32;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SecretKeySpec key;
+
+    public SecretCipher(byte[] key) {
+        if (key.length != 16 && key.length != 24 && key.length != 32) {
+            throw new IllegalArgumentException("AES 密钥长度应为 16、24 或 32 字节，实际为 " + key.length);
+        }
+        this.key = new SecretKeySpec(key, "AES");
+    }
+
+    // 生成随机的 256 位密钥
+    public static byte[] generateKey() {
+        byte[] key = new byte[KEY_LENGTH];
+        RANDOM.nextBytes(key);
+        return key;
+    }
+
+    public String encrypt(String plaintext, String associatedData) {
+        byte[] iv = new byte[IV_LENGTH];
+        RANDOM.nextBytes(iv);
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(associatedData.getBytes(StandardCharsets.UTF_8));
+            byte[] encrypted = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(ByteBuffer.allocate(iv.length + encrypted.length)
+                    .put(iv).put(encrypted).array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("加密失败: " + e.getMessage(), e);
+        }
+    }
+
+    // 密钥不对、密文被修改或 associatedData 不一致时抛出 IllegalStateException
+    public String decrypt(String encoded, String associatedData) {
+        byte[] data;
+        try {
+            data = Base64.getDecoder().decode(encoded);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("密文格式错误", e);
+        }
+        if (data.length < IV_LENGTH + TAG_BITS / 8) {
+            throw new IllegalStateException("密文格式错误");
+        }
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, data, 0, IV_LENGTH));
+            cipher.updateAAD(associatedData.getBytes(StandardCharsets.UTF_8));
+            byte[] decrypted = cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH);
+            return new String(decrypted, StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("解密失败，密钥不匹配或数据已损坏", e);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.dsb.sqlexecutor.util;
+
+import com.dsb.sqlexecutor.model.PlanOperator;
+import com.dsb.sqlexecutor.model.QueryAnalysis;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// 解析 SET STATISTICS XML 返回的实际执行计划，以及 SET STATISTICS IO / TIME 返回的消息
+public final class ShowplanParser {
+
+    // STATISTICS XML 返回的执行计划结果集只有这一列
+    public static final String SHOWPLAN_COLUMN = "Microsoft SQL Server 2005 XML Showplan";
+
+    private static final String NS = "http://schemas.microsoft.com/sqlserver/2004/07/showplan";
+
+    // Table 'Orders'. Scan count 1, logical reads 120, physical reads 0, [page server reads 0,] read-ahead reads 0, ...
+    private static final Pattern TABLE_IO = Pattern.compile(
+            "Table '([^']+)'\\. Scan count (\\d+), logical reads (\\d+), physical reads (\\d+)([^\\r\\n]*)");
+    private static final Pattern READ_AHEAD = Pattern.compile(", read-ahead reads (\\d+)");
+    private static final Pattern LOB_LOGICAL = Pattern.compile("lob logical reads (\\d+)");
+    private static final Pattern COMPILE_TIME = Pattern.compile(
+            "parse and compile time:\\s*CPU time = (\\d+) ms,\\s*elapsed time = (\\d+) ms");
+    private static final Pattern EXECUTION_TIME = Pattern.compile(
+            "Execution Times:\\s*CPU time = (\\d+) ms,\\s*elapsed time = (\\d+) ms");
+
+    private ShowplanParser() {
+    }
+
+    // 解析一条 STATISTICS IO 或 TIME 消息并累加到 analysis，其他消息忽略
+    public static void parseMessage(String message, QueryAnalysis analysis) {
+        if (message == null) {
+            return;
+        }
+        Matcher io = TABLE_IO.matcher(message);
+        while (io.find()) {
+            String rest = io.group(5);
+            analysis.addTableStatistics(io.group(1), Long.parseLong(io.group(2)), Long.parseLong(io.group(3)),
+                    Long.parseLong(io.group(4)), find(READ_AHEAD, rest), find(LOB_LOGICAL, rest));
+        }
+        Matcher compile = COMPILE_TIME.matcher(message);
+        while (compile.find()) {
+            analysis.addCompileTime(Long.parseLong(compile.group(1)), Long.parseLong(compile.group(2)));
+        }
+        Matcher execution = EXECUTION_TIME.matcher(message);
+        while (execution.find()) {
+            analysis.addExecutionTime(Long.parseLong(execution.group(1)), Long.parseLong(execution.group(2)));
+        }
+    }
+
+    // 解析一个执行计划 XML（可以包含多条语句），累加到 analysis；只保留自身开销最大的 maxOperators 个运算符
+    // 实际行数与估计行数相差 misestimateFactor 倍以上的运算符标记为估计偏差
+    public static void parsePlan(String xml, QueryAnalysis analysis, int maxOperators, double misestimateFactor) {
+        Document document = parse(xml);
+        List<PlanOperator> operators = new ArrayList<>(analysis.getOperators());
+        double totalCost = analysis.getEstimatedCost();
+        NodeList statements = document.getElementsByTagNameNS(NS, "StmtSimple");
+        for (int i = 0; i < statements.getLength(); i++) {
+            Element statement = (Element) statements.item(i);
+            Element queryPlan = child(statement, "QueryPlan");
+            if (queryPlan == null) {
+                continue;
+            }
+            if (analysis.getPlanHash() == null && !statement.getAttribute("QueryPlanHash").isEmpty()) {
+                analysis.setQueryHash(statement.getAttribute("QueryHash"));
+                analysis.setPlanHash(statement.getAttribute("QueryPlanHash"));
+            }
+            totalCost += number(statement, "StatementSubTreeCost");
+            if (!queryPlan.getAttribute("DegreeOfParallelism").isEmpty()) {
+                int dop = (int) number(queryPlan, "DegreeOfParallelism");
+                Integer current = analysis.getDegreeOfParallelism();
+                analysis.setDegreeOfParallelism(current == null ? dop : Math.max(current, dop));
+            }
+            addWarnings(child(queryPlan, "Warnings"), null, analysis.getWarnings());
+            addMissingIndexes(child(queryPlan, "MissingIndexes"), analysis.getMissingIndexes());
+            Element root = child(queryPlan, "RelOp");
+            if (root != null) {
+                collect(root, operators, analysis.getWarnings(), misestimateFactor);
+            }
+        }
+        analysis.setEstimatedCost(totalCost);
+        for (PlanOperator operator : operators) {
+            operator.setCostPercent(totalCost > 0 ? Math.round(operator.getCost() / totalCost * 1000) / 10.0 : 0);
+        }
+        operators.sort(Comparator.comparingDouble(PlanOperator::getCost).reversed());
+        analysis.setOperators(new ArrayList<>(operators.subList(0, Math.min(Math.max(0, maxOperators), operators.size()))));
+    }
+
+    // 递归收集运算符；子运算符是嵌套在本运算符元素下、中间没有其他 RelOp 的 RelOp
+    private static void collect(Element relOp, List<PlanOperator> operators, List<String> warnings,
+                                double misestimateFactor) {
+        List<Element> children = new ArrayList<>();
+        childRelOps(relOp, children);
+        double subtreeCost = number(relOp, "EstimatedTotalSubtreeCost");
+        double childCost = 0;
+        for (Element child : children) {
+            childCost += number(child, "EstimatedTotalSubtreeCost");
+        }
+
+        PlanOperator operator = new PlanOperator();
+        operator.setNodeId((int) number(relOp, "NodeId"));
+        operator.setPhysicalOp(relOp.getAttribute("PhysicalOp"));
+        operator.setLogicalOp(relOp.getAttribute("LogicalOp"));
+        operator.setObject(objectName(relOp));
+        double executions = 1 + number(relOp, "EstimateRebinds") + number(relOp, "EstimateRewinds");
+        operator.setEstimatedExecutions(executions);
+        operator.setEstimatedRows(number(relOp, "EstimateRows") * executions);
+        operator.setCost(Math.round(Math.max(0, subtreeCost - childCost) * 10000) / 10000.0);
+        addRuntime(relOp, operator, misestimateFactor);
+        operators.add(operator);
+
+        addWarnings(child(relOp, "Warnings"), operator, warnings);
+        for (Element child : children) {
+            collect(child, operators, warnings, misestimateFactor);
+        }
+    }
+
+    // 实际执行计划中每个线程一条 RunTimeCountersPerThread：行数、次数和读取数累加，耗时取最大值
+    private static void addRuntime(Element relOp, PlanOperator operator, double misestimateFactor) {
+        Element runtime = child(relOp, "RunTimeInformation");
+        if (runtime == null) {
+            return;
+        }
+        long rows = 0;
+        long executions = 0;
+        Long logicalReads = null;
+        Long physicalReads = null;
+        Long elapsed = null;
+        Long cpu = null;
+        for (Element counters : children(runtime, "RunTimeCountersPerThread")) {
+            rows += (long) number(counters, "ActualRows");
+            executions += (long) number(counters, "ActualExecutions");
+            logicalReads = sum(logicalReads, counters, "ActualLogicalReads");
+            physicalReads = sum(physicalReads, counters, "ActualPhysicalReads");
+            cpu = sum(cpu, counters, "ActualCPUms");
+            if (!counters.getAttribute("ActualElapsedms").isEmpty()) {
+                long value = (long) number(counters, "ActualElapsedms");
+                elapsed = elapsed == null ? value : Math.max(elapsed, value);
+            }
+        }
+        operator.setActualRows(rows);
+        operator.setActualExecutions(executions);
+        operator.setLogicalReads(logicalReads);
+        operator.setPhysicalReads(physicalReads);
+        operator.setElapsedMillis(elapsed);
+        operator.setCpuMillis(cpu);
+        // 少于 1 行按 1 行计算，避免 0 行时比值无意义
+        double estimated = Math.max(1, operator.getEstimatedRows());
+        double actual = Math.max(1, rows);
+        operator.setMisestimated(actual / estimated >= misestimateFactor || estimated / actual >= misestimateFactor);
+    }
+
+    private static Long sum(Long current, Element element, String attribute) {
+        if (element.getAttribute(attribute).isEmpty()) {
+            return current;
+        }
+        long value = (long) number(element, attribute);
+        return current == null ? value : current + value;
+    }
+
+    // 警告元素的每个子元素或值为 true 的属性是一条警告，如 SpillToTempDb(SpillLevel=1)、NoJoinPredicate
+    private static void addWarnings(Element warnings, PlanOperator operator, List<String> target) {
+        if (warnings == null) {
+            return;
+        }
+        String prefix = operator == null ? "" : "节点 " + operator.getNodeId() + " " + operator.getPhysicalOp() + ": ";
+        NamedNodeMap attributes = warnings.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Node attribute = attributes.item(i);
+            if ("true".equalsIgnoreCase(attribute.getNodeValue()) || "1".equals(attribute.getNodeValue())) {
+                target.add(prefix + attribute.getNodeName());
+            }
+        }
+        for (Element warning : children(warnings, null)) {
+            StringBuilder text = new StringBuilder(prefix).append(warning.getLocalName());
+            List<String> details = new ArrayList<>();
+            NamedNodeMap warningAttributes = warning.getAttributes();
+            for (int i = 0; i < warningAttributes.getLength(); i++) {
+                Node attribute = warningAttributes.item(i);
+                details.add(attribute.getNodeName() + "=" + attribute.getNodeValue());
+            }
+            // ColumnsWithNoStatistics 等警告列出相关的列
+            NodeList columns = warning.getElementsByTagNameNS(NS, "ColumnReference");
+            for (int i = 0; i < columns.getLength(); i++) {
+                details.add(columnName((Element) columns.item(i)));
+            }
+            if (!details.isEmpty()) {
+                text.append('(').append(String.join(", ", details)).append(')');
+            }
+            target.add(text.toString());
+        }
+    }
+
+    // 缺失索引建议：[db].[schema].[table] EQUALITY(a) INEQUALITY(b) INCLUDE(c)，影响 95.3%
+    private static void addMissingIndexes(Element missingIndexes, List<String> target) {
+        if (missingIndexes == null) {
+            return;
+        }
+        for (Element group : children(missingIndexes, "MissingIndexGroup")) {
+            for (Element index : children(group, "MissingIndex")) {
+                StringBuilder text = new StringBuilder()
+                        .append(index.getAttribute("Database")).append('.')
+                        .append(index.getAttribute("Schema")).append('.')
+                        .append(index.getAttribute("Table"));
+                for (Element columnGroup : children(index, "ColumnGroup")) {
+                    List<String> names = new ArrayList<>();
+                    for (Element column : children(columnGroup, "Column")) {
+                        names.add(column.getAttribute("Name"));
+                    }
+                    text.append(' ').append(columnGroup.getAttribute("Usage"))
+                            .append('(').append(String.join(", ", names)).append(')');
+                }
+                text.append("，影响 ").append(group.getAttribute("Impact")).append('%');
+                target.add(text.toString());
+            }
+        }
+    }
+
+    // 运算符访问的对象（不包括子运算符中的对象）
+    private static String objectName(Element relOp) {
+        Element object = findObject(relOp);
+        if (object == null) {
+            return null;
+        }
+        StringBuilder name = new StringBuilder();
+        for (String attribute : new String[]{"Schema", "Table", "Index"}) {
+            String value = object.getAttribute(attribute);
+            if (!value.isEmpty()) {
+                if (!name.isEmpty()) {
+                    name.append('.');
+                }
+                name.append(value);
+            }
+        }
+        return name.isEmpty() ? null : name.toString();
+    }
+
+    private static Element findObject(Element parent) {
+        for (Element element : children(parent, null)) {
+            if ("RelOp".equals(element.getLocalName())) {
+                continue;
+            }
+            if ("Object".equals(element.getLocalName())) {
+                return element;
+            }
+            Element found = findObject(element);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    private static void childRelOps(Element parent, List<Element> target) {
+        for (Element element : children(parent, null)) {
+            if ("RelOp".equals(element.getLocalName())) {
+                target.add(element);
+            } else {
+                childRelOps(element, target);
+            }
+        }
+    }
+
+    private static String columnName(Element column) {
+        String table = column.getAttribute("Table");
+        String name = column.getAttribute("Column");
+        return table.isEmpty() ? name : table + "." + name;
+    }
+
+    private static long find(Pattern pattern, String text) {
+        Matcher matcher = pattern.matcher(text);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+
+    private static double number(Element element, String attribute) {
+        String value = element.getAttribute(attribute);
+        if (value.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static Element child(Element parent, String localName) {
+        List<Element> found = children(parent, localName);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    // 直接子元素，localName 为空时返回全部
+    private static List<Element> children(Element parent, String localName) {
+        List<Element> result = new ArrayList<>();
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element element && (localName == null || localName.equals(element.getLocalName()))) {
+                result.add(element);
+            }
+        }
+        return result;
+    }
+
+    // 执行计划来自数据库，仍然禁用 DTD 和外部实体
+    private static Document parse(String xml) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setExpandEntityReferences(false);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            return builder.parse(new InputSource(new StringReader(xml)));
+        } catch (ParserConfigurationException | SAXException | IOException e) {
+            throw new IllegalStateException("无法解析执行计划: " + e.getMessage(), e);
+        }
+    }
+}
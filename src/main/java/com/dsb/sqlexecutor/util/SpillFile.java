@@ -0,0 +1,225 @@
+package com.dsb.sqlexecutor.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// 写入磁盘的结果行：按 RowCodec 编码顺序写入，写完后以只读方式映射到内存读取
+// 每行前有变长整数表示的长度；文件按段映射（单个映射不能超过 2GB），行不跨段，段尾不足一行时用 0 填充
+// 每 INDEX_INTERVAL 行记录一次位置，按行号定位时从最近的记录点开始跳过，索引只占很少的堆内存
+public final class SpillFile {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+    private static final int INDEX_INTERVAL = 256;
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+
+    private final Path path;
+    private final int columnCount;
+    private final long rowCount;
+    private final long size;
+    private final int segmentSize;
+    private final long[] index;
+    private final MappedByteBuffer[] segments;
+
+    private SpillFile(Path path, int columnCount, long rowCount, long size, int segmentSize, long[] index,
+                      MappedByteBuffer[] segments) {
+        this.path = path;
+        this.columnCount = columnCount;
+        this.rowCount = rowCount;
+        this.size = size;
+        this.segmentSize = segmentSize;
+        this.index = index;
+        this.segments = segments;
+    }
+
+    public static Writer create(Path path, int columnCount) throws IOException {
+        return create(path, columnCount, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public static Writer create(Path path, int columnCount, int segmentSize) throws IOException {
+        if (columnCount <= 0) {
+            throw new IllegalArgumentException("结果没有列");
+        }
+        return new Writer(path, columnCount, segmentSize);
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    // 文件大小（字节）
+    public long getSize() {
+        return size;
+    }
+
+    // 从第 fromRow 行（从 0 开始）开始读取；各游标互不影响，可以并发读取
+    public Cursor cursor(long fromRow) {
+        return new Cursor(fromRow);
+    }
+
+    // 删除文件；已映射的内容在映射释放前仍可读取，正在进行的读取不受影响
+    // 删除失败时（如部分平台不能删除已映射的文件）在程序退出时再删除
+    public void delete() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            path.toFile().deleteOnExit();
+        }
+    }
+
+    public final class Cursor implements Iterator<Object[]> {
+        private long remaining;
+        private int segment;
+        private ByteBuffer buffer;
+
+        private Cursor(long fromRow) {
+            if (fromRow >= rowCount || fromRow < 0) {
+                remaining = 0;
+                return;
+            }
+            int slot = (int) (fromRow / INDEX_INTERVAL);
+            long position = index[slot];
+            segment = (int) (position / segmentSize);
+            buffer = segments[segment].duplicate();
+            buffer.position((int) (position % segmentSize));
+            remaining = rowCount - (long) slot * INDEX_INTERVAL;
+            for (long skip = fromRow - (long) slot * INDEX_INTERVAL; skip > 0; skip--) {
+                int length = nextLength();
+                buffer.position(buffer.position() + length);
+                remaining--;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Object[] next() {
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            nextLength();
+            remaining--;
+            return RowCodec.readRow(buffer, columnCount);
+        }
+
+        // 读取下一行的长度，遇到段尾或填充时转到下一段
+        private int nextLength() {
+            while (true) {
+                if (!buffer.hasRemaining()) {
+                    segment++;
+                    buffer = segments[segment].duplicate();
+                    continue;
+                }
+                int length = (int) RowCodec.readVarint(buffer);
+                if (length == 0) {
+                    buffer.position(buffer.limit());
+                    continue;
+                }
+                return length;
+            }
+        }
+    }
+
+    // 顺序写入行；finish 之后才能读取，未 finish 就 close 时删除文件
+    public static final class Writer implements Closeable {
+        private final Path path;
+        private final int columnCount;
+        private final int segmentSize;
+        private final OutputStream out;
+        private final ByteArrayOutputStream rowBuffer = new ByteArrayOutputStream(256);
+        private final byte[] lengthBuffer = new byte[10];
+        private long[] index = new long[64];
+        private long position;
+        private long rows;
+        private boolean finished;
+
+        private Writer(Path path, int columnCount, int segmentSize) throws IOException {
+            this.path = path;
+            this.columnCount = columnCount;
+            this.segmentSize = segmentSize;
+            this.out = new BufferedOutputStream(Files.newOutputStream(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE), WRITE_BUFFER_SIZE);
+        }
+
+        public void append(Object[] row) throws IOException {
+            rowBuffer.reset();
+            RowCodec.writeRow(row, rowBuffer);
+            int lengthBytes = RowCodec.writeVarint(rowBuffer.size(), lengthBuffer);
+            long total = lengthBytes + (long) rowBuffer.size();
+            if (total > segmentSize) {
+                throw new IOException("单行数据超过 " + segmentSize + " 字节");
+            }
+            long segmentEnd = (position / segmentSize + 1) * segmentSize;
+            if (position + total > segmentEnd) {
+                for (long i = position; i < segmentEnd; i++) {
+                    out.write(0);
+                }
+                position = segmentEnd;
+            }
+            if (rows % INDEX_INTERVAL == 0) {
+                int slot = (int) (rows / INDEX_INTERVAL);
+                if (slot == index.length) {
+                    index = Arrays.copyOf(index, index.length * 2);
+                }
+                index[slot] = position;
+            }
+            out.write(lengthBuffer, 0, lengthBytes);
+            rowBuffer.writeTo(out);
+            position += total;
+            rows++;
+        }
+
+        public long getRowCount() {
+            return rows;
+        }
+
+        public long getSize() {
+            return position;
+        }
+
+        public SpillFile finish() throws IOException {
+            out.close();
+            finished = true;
+            int segmentCount = (int) ((position + segmentSize - 1) / segmentSize);
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                for (int i = 0; i < segmentCount; i++) {
+                    long start = (long) i * segmentSize;
+                    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, position - start));
+                }
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(path);
+                throw e;
+            }
+            long[] slots = Arrays.copyOf(index, (int) ((rows + INDEX_INTERVAL - 1) / INDEX_INTERVAL));
+            return new SpillFile(path, columnCount, rows, position, segmentSize, slots, segments);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            try {
+                out.close();
+            } finally {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
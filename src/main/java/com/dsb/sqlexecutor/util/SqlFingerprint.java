@@ -0,0 +1,177 @@
+package com.dsb.sqlexecutor.util;
+
+import java.util.regex.Pattern;
+
+// SQL 指纹：去掉注释和字面量、合并空白、关键字和标识符转小写，结构相同的语句得到相同的指纹
+// 例如 "SELECT * FROM t WHERE id IN (1, 2, 3) AND name = N'a'" -> "select * from t where id in (?+) and name = ?"
+public final class SqlFingerprint {
+
+    // 指纹最大长度，超出部分截断，避免超长的生成语句占用过多内存
+    private static final int MAX_LENGTH = 2000;
+
+    // 合并值列表：(?, ?, ?) -> (?+)，多行 VALUES (?+), (?+) -> (?+)+
+    private static final Pattern VALUE_LIST = Pattern.compile("\\?(\\s?,\\s?\\?)+");
+    private static final Pattern ROW_LIST = Pattern.compile("\\(\\?\\+?\\)(\\s?,\\s?\\(\\?\\+?\\))+");
+
+    private SqlFingerprint() {
+    }
+
+    public static String of(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        int length = sql.length();
+        StringBuilder out = new StringBuilder(Math.min(length, MAX_LENGTH + 16));
+        boolean pendingSpace = false;
+        int i = 0;
+        while (i < length && out.length() < MAX_LENGTH) {
+            char c = sql.charAt(i);
+            char next = i + 1 < length ? sql.charAt(i + 1) : '\0';
+
+            // 空白和注释都合并为一个空格
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                i++;
+                continue;
+            }
+            if (c == '-' && next == '-') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+                pendingSpace = true;
+                continue;
+            }
+            if (c == '/' && next == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                pendingSpace = true;
+                continue;
+            }
+            if (pendingSpace && out.length() > 0) {
+                out.append(' ');
+            }
+            pendingSpace = false;
+
+            if (c == '\'') {
+                i = skipQuoted(sql, i, '\'');
+                out.append('?');
+            } else if ((c == 'N' || c == 'n') && next == '\'') {
+                // Unicode 字符串 N'...'
+                i = skipQuoted(sql, i + 1, '\'');
+                out.append('?');
+            } else if (c == '[' || c == '"') {
+                // 带引号的标识符原样保留
+                int end = skipQuoted(sql, i, c == '[' ? ']' : '"');
+                out.append(sql, i, end);
+                i = end;
+            } else if (Character.isDigit(c) || (c == '.' && Character.isDigit(next))) {
+                i = skipNumber(sql, i);
+                out.append('?');
+            } else if (isIdentifierPart(c)) {
+                // 标识符、关键字、变量整体读取，避免把 t1、@p2 中的数字当作字面量
+                while (i < length && isIdentifierPart(sql.charAt(i))) {
+                    out.append(Character.toLowerCase(sql.charAt(i)));
+                    i++;
+                }
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        if (out.length() > 0 && out.charAt(out.length() - 1) == ';') {
+            out.setLength(out.length() - 1);
+        }
+        String fingerprint = VALUE_LIST.matcher(out).replaceAll("?+");
+        return ROW_LIST.matcher(fingerprint).replaceAll("(?+)+").trim();
+    }
+
+    // 只合并空白（字面量和大小写保持不变），去掉首尾空白和结尾的分号，用于结果缓存的键
+    public static String normalizeWhitespace(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        int length = sql.length();
+        StringBuilder out = new StringBuilder(length);
+        boolean pendingSpace = false;
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                i++;
+                continue;
+            }
+            if (pendingSpace && out.length() > 0) {
+                out.append(' ');
+            }
+            pendingSpace = false;
+            if (c == '\'' || c == '[' || c == '"') {
+                // 字符串和带引号的标识符中的空白原样保留
+                int end = skipQuoted(sql, i, c == '[' ? ']' : c);
+                out.append(sql, i, end);
+                i = end;
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                // 单行注释保留换行，否则注释会吞掉后面的语句内容
+                int end = sql.indexOf('\n', i);
+                end = end < 0 ? length : end;
+                out.append(sql, i, end).append('\n');
+                i = end;
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        while (out.length() > 0 && (out.charAt(out.length() - 1) == ';' || out.charAt(out.length() - 1) == ' ')) {
+            out.setLength(out.length() - 1);
+        }
+        return out.toString();
+    }
+
+    // 跳过引号包围的内容，两个连续的结束引号表示转义，返回结束引号之后的位置
+    private static int skipQuoted(String sql, int start, char close) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == close) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == close) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return sql.length();
+    }
+
+    // 跳过数字字面量：整数、小数、科学计数法、0x 开头的二进制常量
+    private static int skipNumber(String sql, int start) {
+        int length = sql.length();
+        int i = start;
+        if (sql.charAt(i) == '0' && i + 1 < length && (sql.charAt(i + 1) == 'x' || sql.charAt(i + 1) == 'X')) {
+            i += 2;
+            while (i < length && Character.digit(sql.charAt(i), 16) >= 0) {
+                i++;
+            }
+            return i;
+        }
+        while (i < length && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+            i++;
+        }
+        if (i < length && (sql.charAt(i) == 'e' || sql.charAt(i) == 'E')) {
+            int j = i + 1;
+            if (j < length && (sql.charAt(j) == '+' || sql.charAt(j) == '-')) {
+                j++;
+            }
+            if (j < length && Character.isDigit(sql.charAt(j))) {
+                i = j;
+                while (i < length && Character.isDigit(sql.charAt(i))) {
+                    i++;
+                }
+            }
+        }
+        return i;
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '@' || c == '#' || c == '$';
+    }
+}
@@ -0,0 +1,206 @@
+package com.dsb.sqlexecutor.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// SQL 脚本拆分：先按独占一行的 GO 拆成批，再在批内按分号拆成语句
+// 字符串、注释、带引号的标识符以及 BEGIN...END、CASE...END 块中的分号不拆分
+// 批内从第一条 DECLARE @ 语句起到批结束合并为一条语句，变量在这段范围内有效；之前的语句和其他批照常拆分
+public final class SqlScriptSplitter {
+
+    // GO 独占一行，不区分大小写，后面可以带注释
+    private static final Pattern GO_LINE = Pattern.compile("^\\s*go\\s*(--.*)?$", Pattern.CASE_INSENSITIVE);
+    // 存储过程、函数、触发器、视图的定义必须是批中的第一条语句，整个批作为一条语句执行
+    private static final Pattern MODULE_DEFINITION = Pattern.compile(
+            "(create|alter|create\\s+or\\s+alter)\\s+(procedure|proc|function|trigger|view)\\b", Pattern.CASE_INSENSITIVE);
+    // 局部变量从声明处起到批结束有效
+    private static final Pattern VARIABLE_DECLARATION = Pattern.compile("\\bdeclare\\s+@", Pattern.CASE_INSENSITIVE);
+
+    private SqlScriptSplitter() {
+    }
+
+    public static List<String> split(String script) {
+        List<String> statements = new ArrayList<>();
+        for (String batch : splitBatches(script)) {
+            if (isEmpty(batch)) {
+                continue;
+            }
+            String body = SqlFingerprint.normalizeWhitespace(stripLeadingComments(batch));
+            if (MODULE_DEFINITION.matcher(body).lookingAt()) {
+                statements.add(batch.trim());
+                continue;
+            }
+            List<String> parts = splitStatements(batch);
+            for (int i = 0; i < parts.size(); i++) {
+                if (VARIABLE_DECLARATION.matcher(parts.get(i)).find()) {
+                    // 拆分时去掉的是分号，用分号重新连接即为批中的原文
+                    String rest = String.join(";", parts.subList(i, parts.size()));
+                    if (!isEmpty(rest)) {
+                        statements.add(rest.trim());
+                    }
+                    break;
+                }
+                if (!isEmpty(parts.get(i))) {
+                    statements.add(parts.get(i).trim());
+                }
+            }
+        }
+        return statements;
+    }
+
+    // 把注释和字符串替换为空格，带引号的标识符替换为占位名（临时表保留 # 前缀）
+    // 剩下的只有关键字、标识符、变量和运算符，用于按关键字判断语句的类型
+    public static String stripLiterals(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            char next = i + 1 < length ? sql.charAt(i + 1) : '\0';
+            if (c == '-' && next == '-') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+                out.append(' ');
+            } else if (c == '/' && next == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                out.append(' ');
+            } else if (c == '\'') {
+                i = skipQuoted(sql, i, '\'');
+                out.append(' ');
+            } else if (c == '"' || c == '[') {
+                i = skipQuoted(sql, i, c == '[' ? ']' : c);
+                out.append(next == '#' ? " #q " : " q ");
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return out.toString();
+    }
+
+    private static List<String> splitBatches(String script) {
+        List<String> batches = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\\r?\\n", -1)) {
+            if (GO_LINE.matcher(line).matches()) {
+                batches.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(line).append('\n');
+            }
+        }
+        batches.add(current.toString());
+        return batches;
+    }
+
+    private static List<String> splitStatements(String batch) {
+        List<String> statements = new ArrayList<>();
+        int length = batch.length();
+        int blockDepth = 0;
+        int caseDepth = 0;
+        int start = 0;
+        int i = 0;
+        while (i < length) {
+            char c = batch.charAt(i);
+            char next = i + 1 < length ? batch.charAt(i + 1) : '\0';
+            if (c == '-' && next == '-') {
+                int end = batch.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+            } else if (c == '/' && next == '*') {
+                int end = batch.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (c == '\'' || c == '"' || c == '[') {
+                i = skipQuoted(batch, i, c == '[' ? ']' : c);
+            } else if (Character.isLetter(c) || c == '_' || c == '@' || c == '#') {
+                int end = wordEnd(batch, i);
+                String word = batch.substring(i, end).toLowerCase(Locale.ROOT);
+                if (word.equals("case")) {
+                    caseDepth++;
+                } else if (word.equals("begin") && startsBlock(batch, end)) {
+                    blockDepth++;
+                } else if (word.equals("end")) {
+                    if (caseDepth > 0) {
+                        caseDepth--;
+                    } else if (blockDepth > 0) {
+                        blockDepth--;
+                    }
+                }
+                i = end;
+            } else if (c == ';' && blockDepth == 0 && caseDepth == 0) {
+                statements.add(batch.substring(start, i));
+                start = i + 1;
+                i++;
+            } else {
+                i++;
+            }
+        }
+        statements.add(batch.substring(start));
+        return statements;
+    }
+
+    // BEGIN TRAN / BEGIN TRANSACTION / BEGIN DISTRIBUTED TRANSACTION 不是语句块
+    private static boolean startsBlock(String batch, int from) {
+        int i = from;
+        while (i < batch.length() && Character.isWhitespace(batch.charAt(i))) {
+            i++;
+        }
+        String next = batch.substring(i, wordEnd(batch, i)).toLowerCase(Locale.ROOT);
+        return !(next.equals("tran") || next.equals("transaction") || next.equals("distributed"));
+    }
+
+    private static int wordEnd(String text, int start) {
+        int i = start;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (!(Character.isLetterOrDigit(c) || c == '_' || c == '@' || c == '#' || c == '$')) {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipQuoted(String text, int start, char close) {
+        int i = start + 1;
+        while (i < text.length()) {
+            if (text.charAt(i) == close) {
+                if (i + 1 < text.length() && text.charAt(i + 1) == close) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return text.length();
+    }
+
+    private static String stripLeadingComments(String sql) {
+        int i = 0;
+        int length = sql.length();
+        while (i < length) {
+            char c = sql.charAt(i);
+            char next = i + 1 < length ? sql.charAt(i + 1) : '\0';
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '-' && next == '-') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+            } else if (c == '/' && next == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else {
+                break;
+            }
+        }
+        return sql.substring(i);
+    }
+
+    // 只有空白和注释的片段
+    private static boolean isEmpty(String sql) {
+        return stripLeadingComments(sql).isEmpty();
+    }
+}
@@ -0,0 +1,124 @@
+package com.dsb.sqlexecutor.aspect;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 测量 logback-spring.xml 下请求线程写一行 INFO 日志的开销，不需要数据库；类名不符合 surefire 的默认规则，只在显式指定时执行：
+// mvn test -Dtest=LoggingOverheadHarness [-Dlogtest.threads=4] [-Dlogtest.events=50000] [-Dlogtest.rounds=5]
+// 对比两组：ASYNC_ERROR_FILE 上有无 ERROR 阈值过滤；接口日志行延迟格式化（toString）与直接传入字符串
+// 开销取请求线程自身的 CPU 时间（不含后台写文件线程），各组交替执行多轮后取中位数
+// 控制台输出改写到临时目录的文件，日志目录也指向临时目录
+class LoggingOverheadHarness {
+
+    private static final String ERROR_FILTER = "<filter class=\"ch.qos.logback.classic.filter.ThresholdFilter\">\\s*"
+            + "<level>ERROR</level>\\s*</filter>\\s*(?=<appender-ref ref=\"ERROR_FILE\" />)";
+
+    @TempDir
+    Path logHome;
+
+    @Test
+    void measure() throws Exception {
+        int threads = Integer.getInteger("logtest.threads", 4);
+        int events = Integer.getInteger("logtest.events", 50_000);
+        int rounds = Integer.getInteger("logtest.rounds", 5);
+        String config = new String(getClass().getResourceAsStream("/logback-spring.xml").readAllBytes(), StandardCharsets.UTF_8);
+        String unfiltered = config.replaceAll(ERROR_FILTER, "");
+        assertThat(unfiltered).isNotEqualTo(config);
+
+        Function<Map<String, Object>, Object> eager = entry -> entry.toString();
+        Function<Map<String, Object>, Object> lazy = entry -> new Object() {
+            @Override
+            public String toString() {
+                return entry.toString();
+            }
+        };
+        // 预热一轮，结果不计
+        run(config, threads, events, eager);
+        double[] before = new double[rounds];
+        double[] after = new double[rounds];
+        double[] deferred = new double[rounds];
+        for (int i = 0; i < rounds; i++) {
+            before[i] = run(unfiltered, threads, events, eager);
+            after[i] = run(config, threads, events, eager);
+            deferred[i] = run(config, threads, events, lazy);
+        }
+        System.out.printf("caller CPU per INFO event, median of %d rounds, %d threads x %d events%n"
+                        + "without error filter: %.0f ns%nwith error filter:    %.0f ns%nlazy message:         %.0f ns%n",
+                rounds, threads, events, median(before), median(after), median(deferred));
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    // 返回请求线程平均每条日志消耗的 CPU 时间（纳秒）
+    private double run(String config, int threads, int events, Function<Map<String, Object>, Object> message)
+            throws Exception {
+        LoggerContext context = new LoggerContext();
+        JoranConfigurator configurator = new JoranConfigurator();
+        configurator.setContext(context);
+        String adjusted = config
+                .replace("value=\"./logs\"", "value=\"" + logHome.toString().replace('\\', '/') + "\"")
+                .replace("<appender name=\"CONSOLE\" class=\"ch.qos.logback.core.ConsoleAppender\">",
+                        "<appender name=\"CONSOLE\" class=\"ch.qos.logback.core.FileAppender\"><file>${LOG_HOME}/console.log</file>")
+                .replace("scan=\"true\"", "scan=\"false\"");
+        try (InputStream in = new ByteArrayInputStream(adjusted.getBytes(StandardCharsets.UTF_8))) {
+            configurator.doConfigure(in);
+        }
+        Logger log = context.getLogger("com.dsb.sqlexecutor.controller.Bench");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    long cpuStart = threadBean.getCurrentThreadCpuTime();
+                    for (int i = 0; i < events; i++) {
+                        Map<String, Object> entry = new LinkedHashMap<>();
+                        entry.put("method", "POST");
+                        entry.put("uri", "/query");
+                        entry.put("handler", "SqlExecutorController.query");
+                        entry.put("durationMs", i % 50);
+                        entry.put("args", Map.of("sql", "SELECT * FROM orders WHERE id = " + i));
+                        entry.put("result", Map.of("status", 200, "rows", thread));
+                        log.info("{}", message.apply(entry));
+                    }
+                    return threadBean.getCurrentThreadCpuTime() - cpuStart;
+                }));
+            }
+            long cpu = 0;
+            for (Future<Long> future : futures) {
+                cpu += future.get();
+            }
+            return cpu / ((double) threads * events);
+        } finally {
+            executor.shutdown();
+            context.stop();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.dsb.sqlexecutor.config;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.test.context.NestedTestConfiguration;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 检查 sqlexecutor.virtual-threads 是否真正作用到 Tomcat 的请求线程上
+@NestedTestConfiguration(NestedTestConfiguration.EnclosingConfiguration.OVERRIDE)
+class VirtualThreadConfigTest {
+
+    // 在 Tomcat 处理请求的线程池上执行一个任务，返回该线程是否为虚拟线程
+    static boolean runsOnVirtualThread(ServletWebServerApplicationContext context) throws Exception {
+        TomcatWebServer webServer = (TomcatWebServer) context.getWebServer();
+        Executor executor = webServer.getTomcat().getConnector().getProtocolHandler().getExecutor();
+        CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+        executor.execute(() -> virtual.complete(Thread.currentThread().isVirtual()));
+        return virtual.get(10, TimeUnit.SECONDS);
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+            properties = {"sqlexecutor.virtual-threads=true", "sqlexecutor.registry.persistent=false"})
+    class Enabled {
+
+        @Autowired
+        private ServletWebServerApplicationContext context;
+
+        @Test
+        void requestsRunOnVirtualThreads() throws Exception {
+            assertThat(context.containsBean("virtualThreadProtocolHandlerCustomizer")).isTrue();
+            assertThat(runsOnVirtualThread(context)).isTrue();
+        }
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+            properties = {"sqlexecutor.virtual-threads=false", "sqlexecutor.registry.persistent=false"})
+    class Disabled {
+
+        @Autowired
+        private ServletWebServerApplicationContext context;
+
+        @Test
+        void requestsRunOnPlatformThreads() throws Exception {
+            assertThat(context.containsBean("virtualThreadProtocolHandlerCustomizer")).isFalse();
+            assertThat(runsOnVirtualThread(context)).isFalse();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.dsb.sqlexecutor.config;
+
+import com.dsb.sqlexecutor.SqlExecutorApplication;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 平台线程与虚拟线程在并发 JDBC 负载下的对比，需要可用的 SQL Server；类名不符合 surefire 的默认规则，只在显式指定时执行：
+// mvn test -Dtest=VirtualThreadLoadHarness -Dloadtest.host=... -Dloadtest.username=... -Dloadtest.password=... -Dloadtest.database=...
+// 可选 -Dloadtest.requests（默认 400）、-Dloadtest.delay（每条语句在服务端等待的毫秒数，默认 100）
+// Tomcat 线程数固定为 16、连接池为 64，平台线程模式下并发受 Tomcat 线程数限制，虚拟线程模式下受连接池限制
+@EnabledIfSystemProperty(named = "loadtest.host", matches = ".+")
+class VirtualThreadLoadHarness {
+
+    private static final int TOMCAT_THREADS = 16;
+    private static final int POOL_SIZE = 64;
+
+    @Test
+    void compareThroughput() throws Exception {
+        int requests = Integer.getInteger("loadtest.requests", 400);
+        int delayMillis = Integer.getInteger("loadtest.delay", 100);
+        Result platform = run(false, requests, delayMillis);
+        Result virtual = run(true, requests, delayMillis);
+        System.out.printf("platform threads: %s%nvirtual threads:  %s%n", platform, virtual);
+        assertThat(platform.errors).isZero();
+        assertThat(virtual.errors).isZero();
+    }
+
+    private Result run(boolean virtualThreads, int requests, int delayMillis) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SqlExecutorApplication.class)
+                .properties("server.port=0",
+                        "server.tomcat.threads.max=" + TOMCAT_THREADS,
+                        "server.tomcat.accept-count=" + (requests + 100),
+                        "server.tomcat.max-connections=" + (requests + 100),
+                        "sqlexecutor.virtual-threads=" + virtualThreads,
+                        "sqlexecutor.pool.minimum-idle=" + POOL_SIZE,
+                        "sqlexecutor.pool.maximum-pool-size=" + POOL_SIZE,
+                        "sqlexecutor.bulkhead.enabled=false",
+                        "sqlexecutor.api-log.enabled=false",
+                        "sqlexecutor.registry.persistent=false")
+                .run()) {
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            String base = "http://localhost:" + port;
+            HttpClient client = HttpClient.newHttpClient();
+            String connection = System.getProperty("loadtest.host") + "_" + System.getProperty("loadtest.database");
+            send(client, HttpRequest.newBuilder(URI.create(base + "/save-connection"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(String.format(
+                            "{\"host\":\"%s\",\"port\":\"%s\",\"username\":\"%s\",\"password\":\"%s\",\"database\":\"%s\"}",
+                            System.getProperty("loadtest.host"), System.getProperty("loadtest.port", "1433"),
+                            System.getProperty("loadtest.username"), System.getProperty("loadtest.password"),
+                            System.getProperty("loadtest.database"))))
+                    .build());
+            send(client, HttpRequest.newBuilder(URI.create(base + "/switch-database/" + connection))
+                    .header("X-Client-Token", "loadtest").GET().build());
+
+            String sql = String.format("WAITFOR DELAY '00:00:%02d.%03d'", delayMillis / 1000, delayMillis % 1000);
+            HttpRequest query = HttpRequest.newBuilder(URI.create(base + "/query"))
+                    .header("X-Client-Token", "loadtest")
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString("sql=" + URLEncoder.encode(sql, StandardCharsets.UTF_8)))
+                    .build();
+            // 先预热连接池和 JIT
+            for (int i = 0; i < POOL_SIZE; i++) {
+                send(client, query);
+            }
+
+            AtomicInteger errors = new AtomicInteger();
+            long[] latencies = new long[requests];
+            long start = System.nanoTime();
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < requests; i++) {
+                    int index = i;
+                    futures.add(clients.submit(() -> {
+                        long begin = System.nanoTime();
+                        if (send(client, query) != 200) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[index] = System.nanoTime() - begin;
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            Arrays.sort(latencies);
+            return new Result(requests, elapsed, latencies[requests / 2], latencies[requests * 99 / 100], errors.get());
+        }
+    }
+
+    private static int send(HttpClient client, HttpRequest request) {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static final class Result {
+        private final int requests;
+        private final long elapsedNanos;
+        private final long p50Nanos;
+        private final long p99Nanos;
+        private final int errors;
+
+        Result(int requests, long elapsedNanos, long p50Nanos, long p99Nanos, int errors) {
+            this.requests = requests;
+            this.elapsedNanos = elapsedNanos;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.errors = errors;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d requests in %d ms, %.0f req/s, p50 %d ms, p99 %d ms, errors %d",
+                    requests, elapsedNanos / 1_000_000, requests * 1e9 / elapsedNanos,
+                    p50Nanos / 1_000_000, p99Nanos / 1_000_000, errors);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.dsb.sqlexecutor.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 只有以顶层 ORDER BY 结尾的查询能安全地追加 OFFSET/FETCH，其余查询改写后会报错或改变结果
+class SqlExecutorRepositoryTest {
+
+    @Test
+    void appendsOffsetFetchAfterTopLevelOrderBy() {
+        assertThat(SqlExecutorRepository.withOffsetFetch("SELECT * FROM t ORDER BY id;"))
+                .isEqualTo("SELECT * FROM t ORDER BY id\nOFFSET ? ROWS FETCH NEXT ? ROWS ONLY");
+        assertThat(SqlExecutorRepository.withOffsetFetch(
+                "SELECT a, ROW_NUMBER() OVER (ORDER BY b) n FROM t WHERE c IN (SELECT c FROM u) ORDER BY a DESC -- x"))
+                .endsWith("-- x\nOFFSET ? ROWS FETCH NEXT ? ROWS ONLY");
+        assertThat(SqlExecutorRepository.withOffsetFetch("SELECT a FROM t UNION SELECT a FROM u ORDER BY a")).isNotNull();
+    }
+
+    @Test
+    void leavesOtherQueriesUnchanged() {
+        assertThat(SqlExecutorRepository.withOffsetFetch("SELECT * FROM t")).isNull();
+        assertThat(SqlExecutorRepository.withOffsetFetch("SELECT * FROM (SELECT TOP 5 * FROM t ORDER BY id) x")).isNull();
+        assertThat(SqlExecutorRepository.withOffsetFetch("SELECT a FROM t ORDER BY a UNION SELECT a FROM u")).isNull();
+        assertThat(SqlExecutorRepository.withOffsetFetch("SELECT TOP 10 * FROM t ORDER BY id")).isNull();
+        assertThat(SqlExecutorRepository.withOffsetFetch("SELECT * FROM t ORDER BY id OFFSET 5 ROWS")).isNull();
+        assertThat(SqlExecutorRepository.withOffsetFetch("SELECT * FROM t ORDER BY id FOR JSON PATH")).isNull();
+        assertThat(SqlExecutorRepository.withOffsetFetch("SELECT * FROM t ORDER BY id OPTION (RECOMPILE)")).isNull();
+        assertThat(SqlExecutorRepository.withOffsetFetch("SELECT 1 ORDER BY 1; SELECT 2 ORDER BY 1")).isNull();
+        assertThat(SqlExecutorRepository.withOffsetFetch("SELECT 'order by' FROM t")).isNull();
+    }
+}
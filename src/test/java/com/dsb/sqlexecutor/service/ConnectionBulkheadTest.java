@@ -0,0 +1,100 @@
+package com.dsb.sqlexecutor.service;
+
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// 读写名额分开计数，名额用完后有限排队，排满或等待超时时拒绝
+class ConnectionBulkheadTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch running = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void fullWriteLaneRejectsWritesButNotReads() throws Exception {
+        ConnectionBulkhead bulkhead = new ConnectionBulkhead(config(0, Duration.ofSeconds(5)));
+        occupy(bulkhead, true);
+
+        assertThatThrownBy(() -> bulkhead.execute(true, () -> 1))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("排队已满");
+        assertThat(bulkhead.execute(false, () -> 1)).isEqualTo(1);
+        assertThat(lane(bulkhead, "writes")).containsEntry("active", 1).containsEntry("rejected", 1L);
+        assertThat(lane(bulkhead, "reads")).containsEntry("active", 0).containsEntry("admitted", 1L);
+    }
+
+    @Test
+    void queuedRequestTimesOut() throws Exception {
+        ConnectionBulkhead bulkhead = new ConnectionBulkhead(config(1, Duration.ofMillis(50)));
+        occupy(bulkhead, true);
+
+        assertThatThrownBy(() -> bulkhead.execute(true, () -> 1))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("排队等待超过");
+        assertThat(lane(bulkhead, "writes")).containsEntry("queued", 1L).containsEntry("timedOut", 1L)
+                .containsEntry("queueDepth", 0);
+    }
+
+    @Test
+    void queuedRequestRunsAfterRelease() throws Exception {
+        ConnectionBulkhead bulkhead = new ConnectionBulkhead(config(1, Duration.ofSeconds(5)));
+        Future<?> first = occupy(bulkhead, true);
+
+        Future<Integer> second = executor.submit(() -> bulkhead.execute(true, () -> 2));
+        while ((int) lane(bulkhead, "writes").get("queueDepth") == 0) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+        assertThat(lane(bulkhead, "writes")).containsEntry("admitted", 2L).containsEntry("queued", 1L)
+                .containsEntry("active", 0);
+    }
+
+    // 在后台线程占用一个名额，直到 release 被放行
+    private Future<?> occupy(ConnectionBulkhead bulkhead, boolean write) throws InterruptedException {
+        Future<?> future = executor.submit(() -> bulkhead.execute(write, () -> {
+            running.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }));
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+        return future;
+    }
+
+    private static SqlExecutorProperties.Bulkhead config(int queueDepth, Duration waitTimeout) {
+        SqlExecutorProperties.Bulkhead config = new SqlExecutorProperties.Bulkhead();
+        config.setMaxConcurrentReads(1);
+        config.setMaxConcurrentWrites(1);
+        config.setQueueDepth(queueDepth);
+        config.setWaitTimeout(waitTimeout);
+        return config;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> lane(ConnectionBulkhead bulkhead, String name) {
+        return (Map<String, Object>) bulkhead.getStats().get(name);
+    }
+}
@@ -0,0 +1,132 @@
+package com.dsb.sqlexecutor.service;
+
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.DatabaseConfig;
+import com.dsb.sqlexecutor.repository.SqlExecutorRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 多线程同时注册、替换、删除配置和使用连接池：使用中的连接池不会被关闭，每个创建的连接池最终恰好关闭一次
+class ConnectionRegistryConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int OPERATIONS = 20_000;
+    private static final int NAMES = 4;
+
+    private final Map<FakePool, AtomicInteger> closeCounts = new ConcurrentHashMap<>();
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger usedAfterClose = new AtomicInteger();
+    private final AtomicInteger unexpectedErrors = new AtomicInteger();
+
+    @Test
+    void acquireRetireAndCloseUnderContention() throws Exception {
+        ConnectionRegistry registry = new ConnectionRegistry();
+        ReflectionTestUtils.setField(registry, "sqlExecutorRepository", new FakeRepository());
+        ReflectionTestUtils.setField(registry, "properties", new SqlExecutorProperties());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < OPERATIONS; i++) {
+                        String name = "db" + random.nextInt(NAMES);
+                        int op = random.nextInt(100);
+                        if (op < 2) {
+                            registry.register(name, new DatabaseConfig());
+                        } else if (op < 4) {
+                            registry.remove(name);
+                        } else {
+                            use(registry, name);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        registry.closeAll();
+
+        assertThat(usedAfterClose).hasValue(0);
+        assertThat(unexpectedErrors).hasValue(0);
+        assertThat(created.get()).isPositive();
+        assertThat(closeCounts).hasSize(created.get());
+        assertThat(closeCounts.values()).allSatisfy(count -> assertThat(count).hasValue(1));
+    }
+
+    private void use(ConnectionRegistry registry, String name) {
+        try {
+            registry.execute(name, jdbcTemplate -> {
+                FakePool pool = (FakePool) jdbcTemplate.getDataSource();
+                if (pool.closed) {
+                    usedAfterClose.incrementAndGet();
+                }
+                Thread.onSpinWait();
+                if (pool.closed) {
+                    usedAfterClose.incrementAndGet();
+                }
+                return null;
+            });
+        } catch (IllegalStateException e) {
+            // 配置不存在是正常情况，其他错误（如使用已删除的配置）计入失败
+            if (!e.getMessage().startsWith("数据库配置不存在")) {
+                unexpectedErrors.incrementAndGet();
+            }
+        }
+    }
+
+    private final class FakeRepository extends SqlExecutorRepository {
+        @Override
+        public DataSource createDataSource(String name, String url, String username, String password) {
+            created.incrementAndGet();
+            return new FakePool();
+        }
+
+        @Override
+        public void closeDataSource(DataSource dataSource) {
+            if (dataSource instanceof FakePool pool) {
+                pool.closed = true;
+                closeCounts.computeIfAbsent(pool, k -> new AtomicInteger()).incrementAndGet();
+            }
+        }
+    }
+
+    private static final class FakePool extends AbstractDataSource {
+        private volatile boolean closed;
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            throw new SQLException("not supported");
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            throw new SQLException("not supported");
+        }
+    }
+}
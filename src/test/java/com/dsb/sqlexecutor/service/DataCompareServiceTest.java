@@ -0,0 +1,76 @@
+package com.dsb.sqlexecutor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 键列排序必须与 SQL Server 的 ORDER BY 一致，否则逐行比对会把相同的行当作缺失
+class DataCompareServiceTest {
+
+    @Test
+    void binaryStringsCompareByCodePoint() {
+        assertThat(DataCompareService.compareBinaryStrings("B", "a")).isNegative();
+        assertThat(DataCompareService.compareBinaryStrings("a", "B")).isPositive();
+        assertThat(DataCompareService.compareBinaryStrings("abc", "abc")).isZero();
+        // 增补平面字符按码位比较，而不是按 UTF-16 代理项
+        assertThat(DataCompareService.compareBinaryStrings("\uD83D\uDE00", "\uFFFD")).isPositive();
+    }
+
+    // 较短的字符串视为末尾补空格：尾随空格不影响比较，小于空格的字符排在前面
+    @Test
+    void binaryStringsPadWithSpaces() {
+        assertThat(DataCompareService.compareBinaryStrings("abc", "abc  ")).isZero();
+        assertThat(DataCompareService.compareBinaryStrings("abc\t", "abc")).isNegative();
+        assertThat(DataCompareService.compareBinaryStrings("abc", "abc!")).isNegative();
+        assertThat(DataCompareService.compareBinaryStrings("", " ")).isZero();
+    }
+
+    @Test
+    void binaryStringsNullFirst() {
+        assertThat(DataCompareService.compareBinaryStrings(null, "")).isNegative();
+        assertThat(DataCompareService.compareBinaryStrings("", null)).isPositive();
+        assertThat(DataCompareService.compareBinaryStrings(null, null)).isZero();
+    }
+
+    // SQL Server 先比较最后 6 个字节，再比较第 4 段，第 1～3 段按字节倒序
+    @Test
+    void guidsFollowSqlServerByteOrder() {
+        List<String> expected = List.of(
+                "00000000-0000-0000-0000-000000000000",
+                "01000000-0000-0000-0000-000000000000",
+                "00000001-0000-0000-0000-000000000000",
+                "00000000-0100-0000-0000-000000000000",
+                "00000000-0001-0000-0000-000000000000",
+                "00000000-0000-0100-0000-000000000000",
+                "00000000-0000-0001-0000-000000000000",
+                "00000000-0000-0000-0001-000000000000",
+                "00000000-0000-0000-0100-000000000000",
+                "00000000-0000-0000-0000-000000000001",
+                "ffffffff-ffff-ffff-ffff-010000000000");
+        List<String> sorted = new ArrayList<>(expected);
+        sorted.sort((a, b) -> DataCompareService.compareGuids(a, b));
+        assertThat(sorted).containsExactlyElementsOf(expected);
+
+        List<String> reversed = new ArrayList<>(expected.reversed());
+        reversed.sort((a, b) -> DataCompareService.compareGuids(a, b));
+        assertThat(reversed).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void guidsIgnoreCase() {
+        assertThat(DataCompareService.compareGuids("6F9619FF-8B86-D011-B42D-00C04FC964FF",
+                "6f9619ff-8b86-d011-b42d-00c04fc964ff")).isZero();
+        assertThat(DataCompareService.compareGuids("00000000-0000-0000-0000-00000000000a",
+                "00000000-0000-0000-0000-000000000009")).isPositive();
+    }
+
+    @Test
+    void guidsNullFirstAndFallBackForOtherValues() {
+        assertThat(DataCompareService.compareGuids(null, "00000000-0000-0000-0000-000000000000")).isNegative();
+        assertThat(DataCompareService.compareGuids("00000000-0000-0000-0000-000000000000", null)).isPositive();
+        assertThat(DataCompareService.compareGuids("abc", "abd")).isNegative();
+    }
+}
@@ -0,0 +1,28 @@
+package com.dsb.sqlexecutor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// 多连接执行在每个目标上走读取路径，会写入的语句必须在选择目标之前拒绝
+class FanOutServiceTest {
+
+    private final FanOutService fanOutService = new FanOutService();
+
+    @Test
+    void rejectsSelectInto() {
+        assertThatThrownBy(() -> fanOutService.resolveTargets("SELECT * INTO copy FROM orders", List.of("a")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("单条查询语句");
+    }
+
+    @Test
+    void rejectsStatementsAfterQuery() {
+        assertThatThrownBy(() -> fanOutService.resolveTargets("SELECT 1; DELETE FROM orders", List.of("a")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> fanOutService.resolveTargets("DELETE FROM orders", null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,21 @@
+package com.dsb.sqlexecutor.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 慢查询日志不能带出错误消息中的字面量
+class QueryMetricsTest {
+
+    @Test
+    void describeErrorOmitsMessage() {
+        SQLException cause = new SQLException("Violation of PRIMARY KEY constraint. The duplicate key value is (secret).",
+                "23000", 2627);
+        String described = QueryMetrics.describeError(new DataIntegrityViolationException("insert failed: secret", cause));
+        assertThat(described).isEqualTo("SQLException(sqlState=23000, errorCode=2627)");
+        assertThat(QueryMetrics.describeError(new IllegalStateException("secret"))).isEqualTo("IllegalStateException");
+    }
+}
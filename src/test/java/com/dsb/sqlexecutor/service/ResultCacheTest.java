@@ -0,0 +1,64 @@
+package com.dsb.sqlexecutor.service;
+
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.QueryPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 连接上执行写入后只失效该连接的结果，其他连接的缓存和正在进行的查询不受影响
+class ResultCacheTest {
+
+    private final ResultCache resultCache = new ResultCache();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        SqlExecutorProperties properties = new SqlExecutorProperties();
+        properties.getResultCache().setEnabled(true);
+        ReflectionTestUtils.setField(resultCache, "properties", properties);
+    }
+
+    @Test
+    void invalidateRemovesOnlyThatConnection() {
+        get("a", this::load);
+        get("a|b", this::load);
+        resultCache.invalidate("a");
+
+        get("a|b", this::load);
+        assertThat(loads).hasValue(2);
+        get("a", this::load);
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void invalidationDuringLoadSkipsOnlyThatConnection() {
+        get("a", () -> {
+            resultCache.invalidate("b");
+            return load();
+        });
+        get("b", () -> {
+            resultCache.invalidate("b");
+            return load();
+        });
+
+        get("a", this::load);
+        get("b", this::load);
+        assertThat(loads).hasValue(3);
+    }
+
+    private QueryPage get(String connection, Supplier<QueryPage> loader) {
+        return resultCache.get(connection, "SELECT * FROM t", null, 0, 100, false, loader);
+    }
+
+    private QueryPage load() {
+        loads.incrementAndGet();
+        return new QueryPage(Collections.emptyList(), Collections.emptyList(), 0, 100, false);
+    }
+}
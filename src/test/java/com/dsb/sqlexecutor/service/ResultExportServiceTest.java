@@ -0,0 +1,24 @@
+package com.dsb.sqlexecutor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// SSE 流走只读的流式查询，会写入的语句必须在执行前拒绝，且不输出任何事件
+class ResultExportServiceTest {
+
+    private final ResultExportService resultExportService = new ResultExportService();
+
+    @Test
+    void streamEventsRejectsNonQueries() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String sql : new String[]{"SELECT * INTO copy FROM t", "SELECT 1; DELETE FROM t", "UPDATE t SET a = 1"}) {
+            assertThatThrownBy(() -> resultExportService.streamEvents(sql, null, out))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        assertThat(out.size()).isZero();
+    }
+}
@@ -0,0 +1,90 @@
+package com.dsb.sqlexecutor.service;
+
+import com.dsb.sqlexecutor.config.SqlExecutorProperties;
+import com.dsb.sqlexecutor.model.StoredResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// 暂存的结果只属于暂存它的客户端；只读路径不接受会写入的语句
+class ResultStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final SqlExecutorService sqlExecutorService = mock(SqlExecutorService.class);
+    private final ResultStore resultStore = new ResultStore();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        SqlExecutorProperties properties = new SqlExecutorProperties();
+        properties.getResultStore().setDirectory(directory.toString());
+        ReflectionTestUtils.setField(resultStore, "properties", properties);
+        ReflectionTestUtils.setField(resultStore, "sqlExecutorService", sqlExecutorService);
+        resultStore.init();
+        when(sqlExecutorService.requireCurrentDatabase()).thenReturn("db");
+        when(sqlExecutorService.streamQuery(anyString(), any(), anyInt(), anyInt(), any())).thenAnswer(invocation -> {
+            ResultSetExtractor<?> extractor = invocation.getArgument(4);
+            return extractor.extractData(twoRows());
+        });
+    }
+
+    @Test
+    void resultsBelongToTheirClient() {
+        when(sqlExecutorService.getClientKey()).thenReturn("token:a");
+        StoredResult stored = resultStore.store("SELECT id FROM t", null);
+        assertThat(resultStore.list()).extracting(StoredResult::getId).containsExactly(stored.getId());
+        assertThat(resultStore.page(stored.getId(), 0, null, null, false).getRowCount()).isEqualTo(2);
+
+        when(sqlExecutorService.getClientKey()).thenReturn("token:b");
+        assertThat(resultStore.list()).isEmpty();
+        assertThatThrownBy(() -> resultStore.page(stored.getId(), 0, null, null, false))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> resultStore.get(stored.getId())).isInstanceOf(IllegalArgumentException.class);
+        assertThat(resultStore.delete(stored.getId())).isFalse();
+
+        when(sqlExecutorService.getClientKey()).thenReturn("token:a");
+        assertThat(resultStore.get(stored.getId()).getRowCount()).isEqualTo(2);
+        assertThat(resultStore.delete(stored.getId())).isTrue();
+        assertThat(resultStore.list()).isEmpty();
+    }
+
+    @Test
+    void rejectsStatementsThatWrite() {
+        when(sqlExecutorService.getClientKey()).thenReturn("token:a");
+        for (String sql : new String[]{"SELECT * INTO copy FROM t", "SELECT 1; DELETE FROM t"}) {
+            assertThatThrownBy(() -> resultStore.store(sql, null)).isInstanceOf(IllegalArgumentException.class);
+        }
+        verify(sqlExecutorService, never()).streamQuery(anyString(), any(), anyInt(), anyInt(), any());
+    }
+
+    private static ResultSet twoRows() throws Exception {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(metaData.getColumnLabel(1)).thenReturn("id");
+        when(metaData.getColumnTypeName(1)).thenReturn("int");
+        when(metaData.getColumnType(1)).thenReturn(Types.INTEGER);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(rs.next()).thenReturn(true, true, false);
+        when(rs.getObject(1)).thenReturn(1, 2);
+        return rs;
+    }
+}
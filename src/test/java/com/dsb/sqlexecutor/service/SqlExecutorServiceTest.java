@@ -0,0 +1,105 @@
+package com.dsb.sqlexecutor.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// 语句分类决定语句走读取路径还是写入路径（写名额、notifyUpdate、缓存失效），分错会让写入绕过这些处理
+class SqlExecutorServiceTest {
+
+    @Test
+    void isQueryChecksLeadingKeyword() {
+        assertThat(SqlExecutorService.isQuery("  SELECT 1")).isTrue();
+        assertThat(SqlExecutorService.isQuery("select * from t")).isTrue();
+        assertThat(SqlExecutorService.isQuery("UPDATE t SET a = 1")).isFalse();
+        assertThat(SqlExecutorService.isQuery("EXEC sp_who")).isFalse();
+    }
+
+    @Test
+    void isSchemaChangeDetectsDdlAndSelectInto() {
+        assertThat(SqlExecutorService.isSchemaChange("CREATE TABLE t (id INT)")).isTrue();
+        assertThat(SqlExecutorService.isSchemaChange("alter view v as select 1 a")).isTrue();
+        assertThat(SqlExecutorService.isSchemaChange("DROP SCHEMA s")).isTrue();
+        assertThat(SqlExecutorService.isSchemaChange("EXEC sp_rename 't', 'u'")).isTrue();
+        assertThat(SqlExecutorService.isSchemaChange("SELECT * INTO #t FROM u")).isTrue();
+        assertThat(SqlExecutorService.isSchemaChange("SELECT a\nINTO [copy] FROM u")).isTrue();
+        assertThat(SqlExecutorService.isSchemaChange("SELECT * FROM t")).isFalse();
+        assertThat(SqlExecutorService.isSchemaChange("INSERT INTO t VALUES (1)")).isFalse();
+    }
+
+    // 只有确定不会写入的查询才能发往只读副本，无法确定时按写入处理
+    @Test
+    void readOnlyRoutesOnlyQueriesWithoutSideEffects() {
+        assertThat(SqlExecutorService.isReadOnly("SELECT * FROM t WHERE id = 1")).isTrue();
+        assertThat(SqlExecutorService.isReadOnly("select a, count(*) from t group by a")).isTrue();
+        assertThat(SqlExecutorService.isReadOnly("SELECT * INTO copy FROM t")).isFalse();
+        assertThat(SqlExecutorService.isReadOnly("SELECT * FROM t WITH (UPDLOCK) WHERE id = 1")).isFalse();
+        assertThat(SqlExecutorService.isReadOnly("SELECT NEXT VALUE FOR seq")).isFalse();
+        assertThat(SqlExecutorService.isReadOnly("SELECT 1; EXEC sp_who")).isFalse();
+        assertThat(SqlExecutorService.isReadOnly("DELETE FROM t")).isFalse();
+    }
+
+    @Test
+    void plainQueryIsSingleSelectWithoutSideEffects() {
+        assertThat(SqlExecutorService.isPlainQuery("SELECT * FROM t WHERE id = 1;")).isTrue();
+        assertThat(SqlExecutorService.isPlainQuery("SELECT a FROM t INNER MERGE JOIN u ON t.id = u.id"
+                + " OPTION (USE HINT('DISABLE_OPTIMIZED_NESTED_LOOP'))")).isTrue();
+        assertThat(SqlExecutorService.isPlainQuery("SELECT @into, #set.a FROM #set")).isTrue();
+    }
+
+    // 字符串、注释和带引号的标识符中的关键字不影响判断
+    @Test
+    void plainQueryIgnoresKeywordsInLiterals() {
+        assertThat(SqlExecutorService.isPlainQuery(
+                "SELECT [update], \"delete\" FROM t WHERE note = 'drop; insert into x' -- set\n/* exec */")).isTrue();
+    }
+
+    @Test
+    void plainQueryRejectsSelectIntoAndWrites() {
+        assertThat(SqlExecutorService.isPlainQuery("SELECT * INTO copy FROM t")).isFalse();
+        assertThat(SqlExecutorService.isPlainQuery("select a into #t from u")).isFalse();
+        assertThat(SqlExecutorService.isPlainQuery("SELECT 1 DELETE FROM t")).isFalse();
+        assertThat(SqlExecutorService.isPlainQuery("SELECT 1 SET ROWCOUNT 1")).isFalse();
+        assertThat(SqlExecutorService.isPlainQuery("UPDATE t SET a = 1")).isFalse();
+    }
+
+    @Test
+    void plainQueryRejectsMultipleStatements() {
+        assertThat(SqlExecutorService.isPlainQuery("SELECT 1; SELECT 2")).isFalse();
+        assertThat(SqlExecutorService.isPlainQuery("SELECT 1\nGO\nSELECT 2")).isFalse();
+        assertThat(SqlExecutorService.isPlainQuery("SELECT 1; DELETE FROM t")).isFalse();
+    }
+
+    // 这些语句执行后连接要从连接池移除，漏判会让后续请求继承切换后的数据库或会话选项
+    @Test
+    void sessionStateChangesAreDetected() {
+        assertThat(SqlExecutorService.changesSessionState("USE other")).isTrue();
+        assertThat(SqlExecutorService.changesSessionState("SET ANSI_NULLS OFF")).isTrue();
+        assertThat(SqlExecutorService.changesSessionState("set language us_english")).isTrue();
+        assertThat(SqlExecutorService.changesSessionState("SET IDENTITY_INSERT t ON INSERT INTO t (id) VALUES (1)")).isTrue();
+        assertThat(SqlExecutorService.changesSessionState("SET TRANSACTION ISOLATION LEVEL SERIALIZABLE")).isTrue();
+        assertThat(SqlExecutorService.changesSessionState("CREATE TABLE #t (id INT)")).isTrue();
+        assertThat(SqlExecutorService.changesSessionState("SELECT * FROM [#t]")).isTrue();
+        assertThat(SqlExecutorService.changesSessionState("BEGIN TRAN")).isTrue();
+    }
+
+    @Test
+    void ordinaryStatementsKeepSessionState() {
+        assertThat(SqlExecutorService.changesSessionState("UPDATE t SET a = 1, b = 2")).isFalse();
+        assertThat(SqlExecutorService.changesSessionState("UPDATE t SET t.a += 1")).isFalse();
+        assertThat(SqlExecutorService.changesSessionState("UPDATE t SET [a] = 1")).isFalse();
+        assertThat(SqlExecutorService.changesSessionState("DECLARE @set INT SET @set = 1 SELECT @set")).isFalse();
+        assertThat(SqlExecutorService.changesSessionState("SELECT * FROM t OPTION (USE HINT('X'))")).isFalse();
+        assertThat(SqlExecutorService.changesSessionState("SELECT 'USE x; SET ROWCOUNT 1 #' FROM t -- use")).isFalse();
+    }
+
+    @Test
+    void requireExportableRejectsNonQueries() {
+        ResultExportService.requireExportable("SELECT * FROM t");
+        for (String sql : new String[]{"SELECT * INTO copy FROM t", "SELECT 1; DELETE FROM t", "DELETE FROM t"}) {
+            assertThatThrownBy(() -> ResultExportService.requireExportable(sql))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
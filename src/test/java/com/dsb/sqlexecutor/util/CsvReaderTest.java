@@ -0,0 +1,88 @@
+package com.dsb.sqlexecutor.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvReaderTest {
+
+    @Test
+    void readsPlainAndQuotedFields() throws IOException {
+        List<String[]> records = readAll("id,name,note\n1,\"Smith, J\",\"say \"\"hi\"\"\"\n2,,\"\"\n");
+
+        assertThat(records).hasSize(3);
+        assertThat(records.get(0)).containsExactly("id", "name", "note");
+        assertThat(records.get(1)).containsExactly("1", "Smith, J", "say \"hi\"");
+        assertThat(records.get(2)).containsExactly("2", "", "");
+    }
+
+    @Test
+    void acceptsAllLineEndingsAndMissingFinalNewline() throws IOException {
+        assertThat(readAll("a,b\r\nc,d\re,f\ng,h")).containsExactly(
+                new String[]{"a", "b"}, new String[]{"c", "d"}, new String[]{"e", "f"}, new String[]{"g", "h"});
+    }
+
+    @Test
+    void quotedFieldsKeepNewlinesAndLineNumbersCountThem() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,\"x\ny\r\nz\"\nb,c\n"), ',', 100);
+
+        assertThat(reader.next()).containsExactly("a", "x\ny\r\nz");
+        assertThat(reader.getRecordLine()).isEqualTo(1);
+        assertThat(reader.next()).containsExactly("b", "c");
+        assertThat(reader.getRecordLine()).isEqualTo(4);
+        assertThat(reader.next()).isNull();
+    }
+
+    // 分隔符结尾的记录最后还有一个空字段；空行跳过
+    @Test
+    void trailingDelimiterAndEmptyLines() throws IOException {
+        assertThat(readAll("a,\n\n\r\nb,c,\r\nd,")).containsExactly(
+                new String[]{"a", ""}, new String[]{"b", "c", ""}, new String[]{"d", ""});
+    }
+
+    @Test
+    void skipsBomAndSupportsOtherDelimiters() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("\uFEFFa\tb\t\"c\td\"\n"), '\t', 100);
+
+        assertThat(reader.next()).containsExactly("a", "b", "c\td");
+        assertThat(reader.next()).isNull();
+    }
+
+    // 记录跨越读取缓冲区边界
+    @Test
+    void readsRecordsLargerThanBuffer() throws IOException {
+        String big = "v".repeat(100_000);
+        Reader source = new StringReader("\"" + big + "\"," + big + "\nend\n");
+
+        CsvReader reader = new CsvReader(source, ',', 200_000);
+
+        assertThat(reader.next()).containsExactly(big, big);
+        assertThat(reader.next()).containsExactly("end");
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        assertThatThrownBy(() -> readAll("a,\"unclosed\n")).isInstanceOf(IOException.class).hasMessageContaining("没有闭合");
+        assertThatThrownBy(() -> readAll("a,\"x\"y\n")).isInstanceOf(IOException.class).hasMessageContaining("多余的字符");
+        assertThatThrownBy(() -> new CsvReader(new StringReader("a,bcdef\n"), ',', 3).next())
+                .isInstanceOf(IOException.class).hasMessageContaining("超过上限");
+        assertThatThrownBy(() -> new CsvReader(new StringReader(""), '"', 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CsvReader(new StringReader(""), '\n', 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<String[]> readAll(String text) throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(text), ',', 1000);
+        List<String[]> records = new ArrayList<>();
+        for (String[] record = reader.next(); record != null; record = reader.next()) {
+            records.add(record);
+        }
+        return records;
+    }
+}
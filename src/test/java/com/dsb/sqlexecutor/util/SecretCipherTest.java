@@ -0,0 +1,63 @@
+package com.dsb.sqlexecutor.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SecretCipherTest {
+
+    private final SecretCipher cipher = new SecretCipher(SecretCipher.generateKey());
+
+    @Test
+    void roundTrip() {
+        String encrypted = cipher.encrypt("p@ss 密码", "prod");
+
+        assertThat(encrypted).doesNotContain("p@ss");
+        assertThat(cipher.decrypt(encrypted, "prod")).isEqualTo("p@ss 密码");
+        assertThat(cipher.decrypt(cipher.encrypt("", "prod"), "prod")).isEmpty();
+    }
+
+    // 每次加密使用新的 IV，相同明文得到不同密文
+    @Test
+    void randomIv() {
+        assertThat(cipher.encrypt("secret", "prod")).isNotEqualTo(cipher.encrypt("secret", "prod"));
+    }
+
+    @Test
+    void acceptsAesKeyLengths() {
+        for (int length : new int[]{16, 24, 32}) {
+            SecretCipher other = new SecretCipher(new byte[length]);
+            assertThat(other.decrypt(other.encrypt("x", "a"), "a")).isEqualTo("x");
+        }
+        assertThatThrownBy(() -> new SecretCipher(new byte[20])).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsWrongAssociatedData() {
+        String encrypted = cipher.encrypt("secret", "prod");
+
+        assertThatThrownBy(() -> cipher.decrypt(encrypted, "test")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsWrongKey() {
+        String encrypted = cipher.encrypt("secret", "prod");
+        SecretCipher other = new SecretCipher(SecretCipher.generateKey());
+
+        assertThatThrownBy(() -> other.decrypt(encrypted, "prod")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejectsTamperedOrMalformedInput() {
+        byte[] data = Base64.getDecoder().decode(cipher.encrypt("secret", "prod"));
+        data[data.length - 1] ^= 1;
+        String tampered = Base64.getEncoder().encodeToString(data);
+
+        assertThatThrownBy(() -> cipher.decrypt(tampered, "prod")).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> cipher.decrypt("not base64!", "prod")).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> cipher.decrypt("AAAA", "prod")).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,160 @@
+package com.dsb.sqlexecutor.util;
+
+import microsoft.sql.DateTimeOffset;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SpillFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rowCodecRoundTrip() {
+        Timestamp timestamp = Timestamp.valueOf("2024-02-29 23:59:59.123456789");
+        Object[] row = {
+                null, true, false, (short) -7, (byte) 5, 0, Integer.MIN_VALUE, Long.MAX_VALUE, -1L,
+                1.5f, -0.25d, Double.NaN, new BigDecimal("-12345678901234567890.000123"), BigInteger.TEN.pow(30),
+                "", "中文 ✓ 😀", new byte[]{0, -1, 127}, timestamp, Date.valueOf("1899-12-31"), new Time(3_600_000L),
+                new StringBuilder("other")
+        };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RowCodec.writeRow(row, out);
+        ByteBuffer in = ByteBuffer.wrap(out.toByteArray());
+
+        Object[] read = RowCodec.readRow(in, row.length);
+
+        assertThat(in.hasRemaining()).isFalse();
+        assertThat(read).containsExactly(
+                null, true, false, (short) -7, (short) 5, 0, Integer.MIN_VALUE, Long.MAX_VALUE, -1L,
+                1.5f, -0.25d, Double.NaN, new BigDecimal("-12345678901234567890.000123"), new BigDecimal(BigInteger.TEN.pow(30)),
+                "", "中文 ✓ 😀", new byte[]{0, -1, 127}, timestamp, Date.valueOf("1899-12-31"), new Time(3_600_000L),
+                "other");
+    }
+
+    @Test
+    void dateTimeOffsetKeepsInstantAndOffset() {
+        DateTimeOffset value = DateTimeOffset.valueOf(Timestamp.valueOf("2024-06-01 08:30:00.1234567"), 480);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RowCodec.writeRow(new Object[]{value}, out);
+
+        DateTimeOffset read = (DateTimeOffset) RowCodec.readRow(ByteBuffer.wrap(out.toByteArray()), 1)[0];
+
+        assertThat(read.getTimestamp()).isEqualTo(value.getTimestamp());
+        assertThat(read.getMinutesOffset()).isEqualTo(480);
+    }
+
+    @Test
+    void varintRoundTrip() {
+        byte[] target = new byte[10];
+        for (long value : new long[]{0, 1, 127, 128, 16_383, 16_384, Integer.MAX_VALUE, Long.MAX_VALUE}) {
+            int length = RowCodec.writeVarint(value, target);
+            assertThat(RowCodec.readVarint(ByteBuffer.wrap(target, 0, length))).isEqualTo(value);
+        }
+    }
+
+    @Test
+    void rejectsUnknownTag() {
+        assertThatThrownBy(() -> RowCodec.readRow(ByteBuffer.wrap(new byte[]{99}), 1))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    // 段很小时行会跨越多个段（段尾填充），从任意行开始读取都应得到相同的行
+    @Test
+    void readsAcrossSegmentsFromAnyRow() throws IOException {
+        int rows = 1000;
+        SpillFile file = write(directory.resolve("rows.bin"), rows, 200);
+
+        assertThat(file.getRowCount()).isEqualTo(rows);
+        assertThat(file.getSize()).isGreaterThan(200L * 10);
+        for (long from : new long[]{0, 1, 255, 256, 257, 511, 512, 700, rows - 1}) {
+            List<Object[]> read = readAll(file.cursor(from));
+            assertThat(read).hasSize((int) (rows - from));
+            for (int i = 0; i < read.size(); i++) {
+                assertThat(read.get(i)).containsExactly(row(from + i));
+            }
+        }
+        file.delete();
+    }
+
+    @Test
+    void cursorOutOfRangeIsEmpty() throws IOException {
+        SpillFile file = write(directory.resolve("rows.bin"), 10, SpillFile.DEFAULT_SEGMENT_SIZE);
+
+        assertThat(file.cursor(10).hasNext()).isFalse();
+        assertThat(file.cursor(-1).hasNext()).isFalse();
+        SpillFile.Cursor cursor = file.cursor(9);
+        cursor.next();
+        assertThatThrownBy(cursor::next).isInstanceOf(NoSuchElementException.class);
+        file.delete();
+    }
+
+    @Test
+    void rejectsRowLargerThanSegment() throws IOException {
+        try (SpillFile.Writer writer = SpillFile.create(directory.resolve("rows.bin"), 1, 64)) {
+            assertThatThrownBy(() -> writer.append(new Object[]{"x".repeat(100)})).isInstanceOf(IOException.class);
+        }
+    }
+
+    // 未 finish 就关闭时删除文件，finish 之后 delete 删除文件
+    @Test
+    void deletesFile() throws IOException {
+        Path unfinished = directory.resolve("unfinished.bin");
+        try (SpillFile.Writer writer = SpillFile.create(unfinished, 1)) {
+            writer.append(new Object[]{1});
+        }
+        assertThat(unfinished).doesNotExist();
+
+        Path finished = directory.resolve("finished.bin");
+        SpillFile file = write(finished, 3, SpillFile.DEFAULT_SEGMENT_SIZE);
+        assertThat(finished).exists();
+        file.delete();
+        assertThat(Files.exists(finished)).isFalse();
+    }
+
+    @Test
+    void rejectsNoColumns() {
+        assertThatThrownBy(() -> SpillFile.create(directory.resolve("rows.bin"), 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static SpillFile write(Path path, int rows, int segmentSize) throws IOException {
+        try (SpillFile.Writer writer = SpillFile.create(path, 3, segmentSize)) {
+            for (long i = 0; i < rows; i++) {
+                writer.append(row(i));
+            }
+            assertThat(writer.getRowCount()).isEqualTo(rows);
+            return writer.finish();
+        }
+    }
+
+    // 行长度随行号变化，段尾有不同长度的填充
+    private static Object[] row(long i) {
+        return new Object[]{i, "row-" + "x".repeat((int) (i % 37)), i % 5 == 0 ? null : BigDecimal.valueOf(i, 2)};
+    }
+
+    private static List<Object[]> readAll(SpillFile.Cursor cursor) {
+        List<Object[]> rows = new ArrayList<>();
+        while (cursor.hasNext()) {
+            rows.add(cursor.next());
+        }
+        return rows;
+    }
+}
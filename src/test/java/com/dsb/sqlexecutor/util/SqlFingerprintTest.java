@@ -0,0 +1,52 @@
+package com.dsb.sqlexecutor.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlFingerprintTest {
+
+    @Test
+    void replacesLiteralsAndLowercases() {
+        assertThat(SqlFingerprint.of("SELECT * FROM t WHERE id IN (1, 2, 3) AND name = N'a'"))
+                .isEqualTo("select * from t where id in (?+) and name = ?");
+        assertThat(SqlFingerprint.of("SELECT -1.5e3 AS a, .5 AS b, 0x1F AS c, 'it''s' AS d FROM T1 WHERE @P2 = 3;"))
+                .isEqualTo("select -? as a, ? as b, ? as c, ? as d from t1 where @p2 = ?");
+    }
+
+    @Test
+    void sameStructureGivesSameFingerprint() {
+        assertThat(SqlFingerprint.of("select *\n  from t -- first\nwhere id = 1"))
+                .isEqualTo(SqlFingerprint.of("SELECT * /* second */ FROM t WHERE id = 42"));
+        assertThat(SqlFingerprint.of("SELECT * FROM t WHERE id IN (1)"))
+                .isNotEqualTo(SqlFingerprint.of("SELECT * FROM t WHERE id = 1"));
+    }
+
+    @Test
+    void collapsesValueLists() {
+        assertThat(SqlFingerprint.of("INSERT INTO t VALUES (1, 'a'), (2, 'b'), (3, 'c')"))
+                .isEqualTo("insert into t values (?+)+");
+    }
+
+    @Test
+    void keepsQuotedIdentifiers() {
+        assertThat(SqlFingerprint.of("SELECT [Order Id], \"Name\" FROM [dbo].[Orders 2024]"))
+                .isEqualTo("select [Order Id], \"Name\" from [dbo].[Orders 2024]");
+    }
+
+    @Test
+    void truncatesLongStatementsAndHandlesNull() {
+        assertThat(SqlFingerprint.of(null)).isEmpty();
+        // 按标识符截断，可能比上限多出最后一个标识符的几个字符
+        assertThat(SqlFingerprint.of("SELECT " + "abc, ".repeat(2000) + "1")).startsWith("select abc, abc").hasSizeLessThan(2010);
+    }
+
+    @Test
+    void normalizeWhitespaceKeepsLiteralsAndCase() {
+        assertThat(SqlFingerprint.normalizeWhitespace("  SELECT  'a  b',\n\t[c  d]  FROM T ;  "))
+                .isEqualTo("SELECT 'a  b', [c  d] FROM T");
+        assertThat(SqlFingerprint.normalizeWhitespace("SELECT 1 -- note\nFROM t"))
+                .isEqualTo("SELECT 1 -- note\n FROM t");
+        assertThat(SqlFingerprint.normalizeWhitespace(null)).isEmpty();
+    }
+}
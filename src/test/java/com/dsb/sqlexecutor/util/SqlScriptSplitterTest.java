@@ -0,0 +1,81 @@
+package com.dsb.sqlexecutor.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlScriptSplitterTest {
+
+    @Test
+    void splitsOnSemicolonsAndGo() {
+        String script = "SELECT 1; SELECT 2\nGO\nselect 3;\n  go -- next batch\nSELECT 4;;";
+
+        assertThat(SqlScriptSplitter.split(script)).containsExactly("SELECT 1", "SELECT 2", "select 3", "SELECT 4");
+    }
+
+    // GO 必须独占一行，语句中的 go 不是批分隔符
+    @Test
+    void goOnlyOnItsOwnLine() {
+        assertThat(SqlScriptSplitter.split("SELECT go FROM t\r\n\tGo\r\nSELECT 1 AS go"))
+                .containsExactly("SELECT go FROM t", "SELECT 1 AS go");
+    }
+
+    @Test
+    void ignoresSemicolonsInLiteralsCommentsAndQuotedIdentifiers() {
+        String script = "SELECT 'a;b', [c;d], \"e;f\" -- g;h\n/* i; j */ FROM t; SELECT 'it''s;'";
+
+        assertThat(SqlScriptSplitter.split(script)).containsExactly(
+                "SELECT 'a;b', [c;d], \"e;f\" -- g;h\n/* i; j */ FROM t", "SELECT 'it''s;'");
+    }
+
+    @Test
+    void keepsBlocksAndCaseTogether() {
+        String script = "IF 1 = 1 BEGIN UPDATE t SET a = 1; DELETE FROM u; END; "
+                + "SELECT CASE WHEN a = 1 THEN 'x;' ELSE 'y' END FROM t; "
+                + "WHILE 1 = 0 BEGIN BEGIN SELECT 1; END; SELECT 2; END";
+
+        assertThat(SqlScriptSplitter.split(script)).containsExactly(
+                "IF 1 = 1 BEGIN UPDATE t SET a = 1; DELETE FROM u; END",
+                "SELECT CASE WHEN a = 1 THEN 'x;' ELSE 'y' END FROM t",
+                "WHILE 1 = 0 BEGIN BEGIN SELECT 1; END; SELECT 2; END");
+    }
+
+    // BEGIN TRAN 不是语句块，之后的分号照常拆分
+    @Test
+    void beginTransactionIsNotABlock() {
+        assertThat(SqlScriptSplitter.split("BEGIN TRAN; UPDATE t SET a = 1; COMMIT; "
+                + "begin transaction; SELECT 1; begin distributed transaction; SELECT 2"))
+                .containsExactly("BEGIN TRAN", "UPDATE t SET a = 1", "COMMIT",
+                        "begin transaction", "SELECT 1", "begin distributed transaction", "SELECT 2");
+    }
+
+    // 从第一条 DECLARE @ 起到批结束是一条语句，之前的语句和下一批照常拆分
+    @Test
+    void variableScopeExtendsToEndOfBatch() {
+        String script = "SELECT 1; DECLARE @id INT = 1; SELECT * FROM t WHERE id = @id;\nGO\nSELECT 2; SELECT 3";
+
+        assertThat(SqlScriptSplitter.split(script)).containsExactly(
+                "SELECT 1", "DECLARE @id INT = 1; SELECT * FROM t WHERE id = @id;", "SELECT 2", "SELECT 3");
+    }
+
+    @Test
+    void moduleDefinitionIsWholeBatch() {
+        String procedure = "-- comment\nCREATE OR ALTER PROCEDURE p AS\nSELECT 1;\nSELECT 2;";
+        String view = "create view v as select 1 a";
+
+        assertThat(SqlScriptSplitter.split(procedure + "\nGO\n" + view + "\nGO\nEXEC p; SELECT * FROM v"))
+                .containsExactly(procedure, view, "EXEC p", "SELECT * FROM v");
+    }
+
+    @Test
+    void skipsEmptyStatementsAndCommentOnlyBatches() {
+        assertThat(SqlScriptSplitter.split(" ; -- only a comment\nGO\n/* c */\nGO\n")).isEmpty();
+        assertThat(SqlScriptSplitter.split("")).isEmpty();
+    }
+
+    @Test
+    void stripLiteralsLeavesOnlyCode() {
+        assertThat(SqlScriptSplitter.stripLiterals("SELECT 'a;b' x, [c d], [#t] -- e\nFROM t /* f */"))
+                .isEqualTo("SELECT   x,  q ,  #q   FROM t  ");
+    }
+}